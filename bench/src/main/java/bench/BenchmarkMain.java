@@ -0,0 +1,33 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmark suite with the GC profiler and writes a JSON baseline.
+ * The gc.alloc.rate.norm column gives the bytes allocated per operation next to each time,
+ * and the JSON file can be compared between commits with any JMH result viewer.
+ *
+ * Usage: BenchmarkMain [include regex] [result file], defaults "bench\..*" and "jmh-result.json".
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws RunnerException {
+
+		String include = args.length > 0 ? args[0] : "bench\\..*";
+		String result = args.length > 1 ? args[1] : "jmh-result.json";
+
+		Options options = new OptionsBuilder()
+			.include(include)
+			.addProfiler(GCProfiler.class)
+			.resultFormat(ResultFormatType.JSON)
+			.result(result)
+			.build();
+
+		new Runner(options).run();
+	}
+}
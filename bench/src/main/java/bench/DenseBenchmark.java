@@ -0,0 +1,82 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import math.CounterRandom;
+import math.Matrix;
+import math.Vector;
+import nn.Dense;
+import nn.Initializer;
+
+/**
+ * The three phases of a Dense layer for a single sample, plus the batched forward pass.
+ * Shapes are "in,out".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DenseBenchmark {
+
+	@Param({"784,128", "128,10"})
+	public String shape;
+
+	private Dense layer;
+	private Vector input;
+	private Vector gradient;
+	private Matrix batch;
+
+	@Setup
+	public void setup() {
+
+		String[] dims = shape.split(",");
+		int in = Integer.parseInt(dims[0]);
+		int out = Integer.parseInt(dims[1]);
+
+		layer = new Dense(in, out, Initializer.HE, 1L);
+
+		input = new Vector(in);
+		input.setValuesRandom(new CounterRandom(2));
+		gradient = new Vector(out);
+		gradient.setValuesRandom(new CounterRandom(3));
+
+		batch = new Matrix(64, in);
+		batch.setValuesRandom(new CounterRandom(4));
+
+		layer.forward(input);
+	}
+
+	@Benchmark
+	public Vector forward() {
+		return layer.forward(input);
+	}
+
+	@Benchmark
+	public Vector backward() {
+		return layer.backward(gradient);
+	}
+
+	@Benchmark
+	public void update() {
+		layer.update(1e-9, 1, 64);
+	}
+
+	@Benchmark
+	public Matrix forwardBatch64() {
+		return layer.forwardBatch(batch);
+	}
+}
@@ -0,0 +1,136 @@
+package bench;
+
+import java.util.Arrays;
+
+import linreg.LinRegData;
+import logreg.LogRegData;
+import logreg.SparseLogRegData;
+import math.CounterRandom;
+import math.RandomSource;
+import math.SparseVector;
+import math.Vector;
+import nn.Dense;
+import nn.Initializer;
+import nn.NNData;
+import nn.NeuralNetwork;
+import nn.activationFunctions.ReLU;
+import nn.activationFunctions.Softmax;
+
+/**
+ * Seeded models and synthetic datasets shared by the benchmarks, so every run measures the same work.
+ */
+final class Fixtures {
+
+	private Fixtures() {}
+
+	/**
+	 * @return NeuralNetwork - the 784-128-10 ReLU / Softmax network used by the MNIST demo
+	 */
+	static NeuralNetwork mnistNetwork(long seed) {
+		RandomSource random = new CounterRandom(seed);
+		NeuralNetwork network = new NeuralNetwork();
+		network.addLayer(new Dense(784, 128, Initializer.HE, random.split(0)));
+		network.addLayer(new ReLU());
+		network.addLayer(new Dense(128, 10, Initializer.XAVIER, random.split(1)));
+		network.addLayer(new Softmax());
+		return network;
+	}
+
+	/**
+	 * @return NNData[] - inputs in [0,1) with one hot labels
+	 */
+	static NNData[] classificationData(int size, int features, int classes, long seed) {
+
+		RandomSource random = new CounterRandom(seed);
+		NNData[] data = new NNData[size];
+
+		for (int i = 0; i < size; i++) {
+			Vector x = new Vector(features);
+			for (int j = 0; j < features; j++) {
+				x.setValue(j, random.uniform((long) i * features + j));
+			}
+			Vector y = new Vector(classes);
+			y.setValue(i % classes, 1.0);
+			data[i] = new NNData(x, y);
+		}
+
+		return data;
+	}
+
+	static Vector[] inputs(NNData[] data) {
+		Vector[] inputs = new Vector[data.length];
+		for (int i = 0; i < data.length; i++) {
+			inputs[i] = data[i].getData();
+		}
+		return inputs;
+	}
+
+	/**
+	 * @return LinRegData[] - samples of y = w*x + 1 with a fixed random w
+	 */
+	static LinRegData[] regressionData(int size, int features, long seed) {
+
+		RandomSource random = new CounterRandom(seed);
+		Vector w = new Vector(features);
+		w.setValuesRandom(random.split(0));
+
+		LinRegData[] data = new LinRegData[size];
+		for (int i = 0; i < size; i++) {
+			Vector x = new Vector(features);
+			x.setValuesRandom(random.split(i + 1));
+			data[i] = new LinRegData(x, w.dot(x) + 1);
+		}
+
+		return data;
+	}
+
+	/**
+	 * @return LogRegData[] - samples labelled by the sign of w*x for a fixed random w
+	 */
+	static LogRegData[] logisticData(int size, int features, long seed) {
+
+		RandomSource random = new CounterRandom(seed);
+		Vector w = new Vector(features);
+		w.setValuesRandom(random.split(0));
+
+		LogRegData[] data = new LogRegData[size];
+		for (int i = 0; i < size; i++) {
+			Vector x = new Vector(features);
+			x.setValuesRandom(random.split(i + 1));
+			data[i] = new LogRegData(x, w.dot(x) > 0);
+		}
+
+		return data;
+	}
+
+	/**
+	 * @return SparseLogRegData[] - samples with a few active features each, skewed towards low indices,
+	 * labelled by the sign of the sum of a fixed random weight per active feature
+	 */
+	static SparseLogRegData[] sparseLogisticData(int size, int features, int active, long seed) {
+
+		RandomSource random = new CounterRandom(seed);
+		RandomSource indices = random.split(0);
+		RandomSource w = random.split(1);
+
+		SparseLogRegData[] data = new SparseLogRegData[size];
+		for (int i = 0; i < size; i++) {
+			int[] index = new int[active];
+			for (int k = 0; k < active; k++) {
+				double u = indices.uniform((long) i * active + k);
+				index[k] = (int) (features * u * u * u);
+			}
+			index = Arrays.stream(index).sorted().distinct().toArray();
+
+			double[] values = new double[index.length];
+			double z = 0;
+			for (int k = 0; k < index.length; k++) {
+				values[k] = 1;
+				z += w.gaussian(index[k]);
+			}
+			data[i] = new SparseLogRegData(new SparseVector(features, index, values), z > 0);
+		}
+
+		return data;
+	}
+}
@@ -0,0 +1,77 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import logreg.LogisticRegression;
+import logreg.SparseLogRegData;
+
+/**
+ * One epoch of per sample sparse logistic regression training, serially through the sparse train loop
+ * and with Hogwild on a growing number of threads, so the scores show how throughput scales with cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HogwildBenchmark {
+
+	private static final int FEATURES = 1 << 20;
+	private static final int SAMPLES = 100000;
+
+	/**
+	 * The data and model of the serial baseline, which does not depend on the thread count so it is measured once.
+	 */
+	@State(Scope.Benchmark)
+	public static class Serial {
+
+		SparseLogRegData[] training;
+		LogisticRegression model;
+
+		@Setup
+		public void setup() {
+			training = Fixtures.sparseLogisticData(SAMPLES, FEATURES, 24, 5L);
+			model = new LogisticRegression(FEATURES);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Hogwild {
+
+		@Param({"1", "2", "4", "8"})
+		public int threads;
+
+		SparseLogRegData[] training;
+		LogisticRegression model;
+
+		@Setup
+		public void setup() {
+			training = Fixtures.sparseLogisticData(SAMPLES, FEATURES, 24, 5L);
+			model = new LogisticRegression(FEATURES);
+		}
+	}
+
+	@Benchmark
+	public LogisticRegression serialEpoch(Serial state) {
+		state.model.train(state.training, null, 1, .05, 1, false);
+		return state.model;
+	}
+
+	@Benchmark
+	public LogisticRegression hogwildEpoch(Hogwild state) {
+		state.model.trainHogwild(state.training, null, .05, 1, state.threads, false);
+		return state.model;
+	}
+}
@@ -0,0 +1,88 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import math.CounterRandom;
+import math.Matrix;
+import math.Vector;
+
+/**
+ * Matrix-matrix and matrix-vector products at the shapes the models use.
+ * Shapes are "m,k,n" for A(m,k) * B(k,n), and A(m,k) * x(k) for the vector products.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixBenchmark {
+
+	@Param({"10,128,64", "64,784,128", "128,128,128", "256,256,256"})
+	public String shape;
+
+	private Matrix a;
+	private Matrix b;
+	private Matrix bTransposed;
+	private Vector x;
+	private Vector y;
+	private Vector result;
+
+	@Setup
+	public void setup() {
+
+		String[] dims = shape.split(",");
+		int m = Integer.parseInt(dims[0]);
+		int k = Integer.parseInt(dims[1]);
+		int n = Integer.parseInt(dims[2]);
+
+		a = new Matrix(m, k);
+		b = new Matrix(k, n);
+		a.setValuesRandom(new CounterRandom(1));
+		b.setValuesRandom(new CounterRandom(2));
+		bTransposed = b.transpose();
+
+		x = new Vector(k);
+		x.setValuesRandom(new CounterRandom(3));
+		y = new Vector(m);
+		y.setValuesRandom(new CounterRandom(4));
+		result = new Vector(m);
+	}
+
+	@Benchmark
+	public Matrix dotMatrix() {
+		return a.dot(b);
+	}
+
+	@Benchmark
+	public Matrix dotTranspose() {
+		return a.dotTranspose(bTransposed);
+	}
+
+	@Benchmark
+	public Vector dotVector() {
+		return a.dot(x);
+	}
+
+	@Benchmark
+	public Vector dotVectorInto() {
+		return a.dot(x, result);
+	}
+
+	@Benchmark
+	public Vector transposeDotVector() {
+		return a.transpose().dot(y);
+	}
+}
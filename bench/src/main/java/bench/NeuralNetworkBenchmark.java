@@ -0,0 +1,51 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import math.Matrix;
+import math.Vector;
+import nn.NeuralNetwork;
+
+/**
+ * Inference through the MNIST shaped network (784-128-10), one sample at a time and as a batch of 64.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeuralNetworkBenchmark {
+
+	private NeuralNetwork network;
+	private Vector input;
+	private Matrix batch;
+
+	@Setup
+	public void setup() {
+		network = Fixtures.mnistNetwork(1L);
+		input = Fixtures.classificationData(1, 784, 10, 2L)[0].getData();
+		batch = Matrix.fromRows(Fixtures.inputs(Fixtures.classificationData(64, 784, 10, 3L)), 0, 64);
+	}
+
+	@Benchmark
+	public Vector compute() {
+		return network.compute(input);
+	}
+
+	@Benchmark
+	public Matrix computeBatch64() {
+		return network.computeBatch(batch);
+	}
+}
@@ -0,0 +1,113 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import logreg.LogisticRegression;
+import math.CounterRandom;
+import math.Vector;
+import nn.NeuralNetwork;
+
+/**
+ * Saving and loading models in the binary model format, plus the text format for comparison.
+ * Save benchmarks write to a fresh path every invocation since the save methods refuse to overwrite.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+
+	private File directory;
+
+	private NeuralNetwork network;
+	private LogisticRegression logistic;
+
+	private String networkPath;
+	private String logisticPath;
+	private String logisticTextPath;
+
+	private String savePath;
+
+	@Setup
+	public void setup() throws IOException {
+
+		directory = Files.createTempDirectory("bench").toFile();
+
+		network = Fixtures.mnistNetwork(1L);
+		Vector weights = new Vector(10000);
+		weights.setValuesRandom(new CounterRandom(2));
+		logistic = new LogisticRegression(weights, 0.5);
+
+		networkPath = new File(directory, "network.bin").getPath();
+		logisticPath = new File(directory, "logistic.bin").getPath();
+		logisticTextPath = new File(directory, "logistic.txt").getPath();
+
+		network.saveBinary(networkPath, true);
+		logistic.saveBinary(logisticPath);
+		logistic.save(logisticTextPath);
+	}
+
+	@Setup(Level.Invocation)
+	public void freshPath() {
+		savePath = new File(directory, "save.bin").getPath();
+		new File(savePath).delete();
+	}
+
+	@TearDown
+	public void cleanup() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Benchmark
+	public String saveNeuralNetwork() throws IOException {
+		network.saveBinary(savePath, true);
+		return savePath;
+	}
+
+	@Benchmark
+	public NeuralNetwork loadNeuralNetwork() throws IOException {
+		return NeuralNetwork.loadBinary(networkPath);
+	}
+
+	@Benchmark
+	public NeuralNetwork mapNeuralNetwork() throws IOException {
+		return NeuralNetwork.mapBinary(networkPath);
+	}
+
+	@Benchmark
+	public String saveLogisticRegression() throws IOException {
+		logistic.saveBinary(savePath);
+		return savePath;
+	}
+
+	@Benchmark
+	public LogisticRegression loadLogisticRegression() throws IOException {
+		return LogisticRegression.loadBinary(logisticPath);
+	}
+
+	@Benchmark
+	public LogisticRegression loadLogisticRegressionText() throws IOException {
+		return LogisticRegression.load(logisticTextPath);
+	}
+}
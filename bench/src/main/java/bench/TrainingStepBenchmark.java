@@ -0,0 +1,76 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import linreg.LinRegData;
+import linreg.LinearRegression;
+import logreg.LogRegData;
+import logreg.LogisticRegression;
+import nn.NNData;
+import nn.NeuralNetwork;
+
+/**
+ * One full mini batch step of each model: train is called with a single batch for a single epoch,
+ * so each invocation is exactly one gradient computation and one parameter update.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainingStepBenchmark {
+
+	private static final int BATCH = 64;
+
+	private LinearRegression linear;
+	private LinRegData[] linearBatch;
+
+	private LogisticRegression logistic;
+	private LogRegData[] logisticBatch;
+
+	private NeuralNetwork network;
+	private NNData[] networkBatch;
+
+	@Setup
+	public void setup() {
+
+		linear = new LinearRegression(100);
+		linearBatch = Fixtures.regressionData(BATCH, 100, 1L);
+
+		logistic = new LogisticRegression(100);
+		logisticBatch = Fixtures.logisticData(BATCH, 100, 2L);
+
+		network = Fixtures.mnistNetwork(3L);
+		networkBatch = Fixtures.classificationData(BATCH, 784, 10, 4L);
+	}
+
+	@Benchmark
+	public LinearRegression linearRegressionStep() {
+		linear.train(linearBatch, linearBatch, BATCH, 1e-4, 1, false);
+		return linear;
+	}
+
+	@Benchmark
+	public LogisticRegression logisticRegressionStep() {
+		logistic.train(logisticBatch, logisticBatch, BATCH, 1e-4, 1, false);
+		return logistic;
+	}
+
+	@Benchmark
+	public NeuralNetwork neuralNetworkStep() {
+		network.train(networkBatch, networkBatch, BATCH, 1e-4, 1, false);
+		return network;
+	}
+}
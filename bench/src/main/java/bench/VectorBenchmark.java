@@ -0,0 +1,74 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import math.CounterRandom;
+import math.Vector;
+
+/**
+ * Element-wise and reduction kernels on Vector, comparing the allocating operators with their in place and fused forms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark {
+
+	@Param({"16", "256", "4096", "65536"})
+	public int length;
+
+	private Vector a;
+	private Vector b;
+	private Vector result;
+
+	@Setup
+	public void setup() {
+		a = new Vector(length);
+		b = new Vector(length);
+		result = new Vector(length);
+		a.setValuesRandom(new CounterRandom(1));
+		b.setValuesRandom(new CounterRandom(2));
+	}
+
+	@Benchmark
+	public double dot() {
+		return a.dot(b);
+	}
+
+	@Benchmark
+	public Vector plus() {
+		return a.plus(b);
+	}
+
+	@Benchmark
+	public Vector addInPlace() {
+		result.setValues(a);
+		result.add(b);
+		return result;
+	}
+
+	@Benchmark
+	public Vector minusScaledEager() {
+		return a.minus(b.scaled(0.01));
+	}
+
+	@Benchmark
+	public Vector minusScaledFused() {
+		result.assign(a.lazy().minus(b.lazy().scaled(0.01)));
+		return result;
+	}
+}
@@ -0,0 +1,205 @@
+package distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This enum lists the encodings of gradients sent over the network.
+ * The lossy encodings keep what they drop in a residual that is added to the next gradient (error feedback),
+ * so nothing is lost for good, it only arrives late.
+ */
+public enum Compression {
+
+	/** 8 bytes per value */
+	NONE,
+	/** 4 bytes per value, rounded to float */
+	FLOAT32,
+	/** 1 byte per value, linearly quantized against the largest absolute value of the message */
+	INT8,
+	/** 8 bytes per kept value (index and float), only the largest absolute values are sent */
+	TOP_K;
+
+	/**
+	 * Encodes gradient + residual and leaves in residual whatever the encoding could not represent.
+	 * @param out - the stream
+	 * @param gradient - the gradient, overwritten with gradient + residual
+	 * @param residual - the error feedback, same length as gradient
+	 * @param topKFraction - the fraction of values TOP_K keeps
+	 * @param scratch - a buffer of at least maxBytes(gradient.length) bytes
+	 * @return int - the number of bytes written
+	 * @throws IOException - is thrown if the stream fails
+	 */
+	int write(DataOutputStream out, double[] gradient, double[] residual, double topKFraction, ByteBuffer scratch) throws IOException {
+
+		int n = gradient.length;
+		for (int i = 0; i < n; i++)
+			gradient[i] += residual[i];
+
+		scratch.clear();
+		scratch.put((byte) ordinal());
+
+		switch (this) {
+		case NONE:
+			scratch.asDoubleBuffer().put(gradient);
+			scratch.position(1 + 8 * n);
+			Arrays.fill(residual, 0);
+			break;
+
+		case FLOAT32:
+			for (int i = 0; i < n; i++) {
+				float value = (float) gradient[i];
+				scratch.putFloat(value);
+				residual[i] = gradient[i] - value;
+			}
+			break;
+
+		case INT8:
+			double max = 0;
+			for (int i = 0; i < n; i++)
+				max = Math.max(max, Math.abs(gradient[i]));
+			double scale = max == 0 ? 1 : max / 127;
+			scratch.putDouble(scale);
+			for (int i = 0; i < n; i++) {
+				byte value = (byte) Math.round(gradient[i] / scale);
+				scratch.put(value);
+				residual[i] = gradient[i] - value * scale;
+			}
+			break;
+
+		case TOP_K:
+			int k = Math.max(1, Math.min(n, (int) Math.ceil(n * topKFraction)));
+			double threshold = largestAbsolute(gradient, k);
+			int countPosition = scratch.position();
+			scratch.putInt(0);
+			int kept = 0;
+			for (int i = 0; i < n; i++) {
+				if (kept < k && Math.abs(gradient[i]) >= threshold) {
+					float value = (float) gradient[i];
+					scratch.putInt(i);
+					scratch.putFloat(value);
+					residual[i] = gradient[i] - value;
+					kept++;
+				} else {
+					residual[i] = gradient[i];
+				}
+			}
+			scratch.putInt(countPosition, kept);
+			break;
+		}
+
+		int bytes = scratch.position();
+		out.writeInt(bytes);
+		out.write(scratch.array(), 0, bytes);
+		return bytes + 4;
+	}
+
+	/**
+	 * Decodes a gradient written by write with any encoding.
+	 * @param in - the stream
+	 * @param gradient - array the gradient is written into
+	 * @param scratch - a buffer of at least maxBytes(gradient.length) bytes
+	 * @return int - the number of bytes read
+	 * @throws IOException - is thrown if the stream fails or holds a message for another gradient length
+	 */
+	static int read(DataInputStream in, double[] gradient, ByteBuffer scratch) throws IOException {
+
+		int bytes = in.readInt();
+		if (bytes < 1 || bytes > scratch.capacity())
+			throw new IOException("Gradient message of " + bytes + " bytes does not fit " + gradient.length + " parameters");
+
+		scratch.clear();
+		in.readFully(scratch.array(), 0, bytes);
+		scratch.limit(bytes);
+
+		int n = gradient.length;
+		int tag = scratch.get();
+		if (tag < 0 || tag >= values().length)
+			throw new IOException("Unknown gradient encoding " + tag);
+
+		switch (values()[tag]) {
+		case NONE:
+			expect(bytes, 1 + 8 * n);
+			scratch.asDoubleBuffer().get(gradient);
+			break;
+
+		case FLOAT32:
+			expect(bytes, 1 + 4 * n);
+			for (int i = 0; i < n; i++)
+				gradient[i] = scratch.getFloat();
+			break;
+
+		case INT8:
+			expect(bytes, 9 + n);
+			double scale = scratch.getDouble();
+			for (int i = 0; i < n; i++)
+				gradient[i] = scratch.get() * scale;
+			break;
+
+		case TOP_K:
+			Arrays.fill(gradient, 0);
+			int kept = scratch.getInt();
+			expect(bytes, 5 + 8L * kept);
+			for (int k = 0; k < kept; k++) {
+				int i = scratch.getInt();
+				if (i < 0 || i >= n)
+					throw new IOException("Gradient index " + i + " is out of range");
+				gradient[i] = scratch.getFloat();
+			}
+			break;
+		}
+		return bytes + 4;
+	}
+
+	private static void expect(int bytes, long expected) throws IOException {
+		if (bytes != expected)
+			throw new IOException("Gradient message has " + bytes + " bytes but " + expected + " were expected");
+	}
+
+	/**
+	 * @param n - the number of parameters
+	 * @return int - the most bytes a message for n parameters takes, without its length prefix
+	 */
+	static int maxBytes(int n) {
+		return 9 + 8 * n;
+	}
+
+	/**
+	 * @return double - the k-th largest absolute value, found by quickselect on a copy
+	 */
+	private static double largestAbsolute(double[] values, int k) {
+
+		double[] a = new double[values.length];
+		for (int i = 0; i < a.length; i++)
+			a[i] = Math.abs(values[i]);
+
+		int target = a.length - k;
+		int lo = 0;
+		int hi = a.length - 1;
+		while (lo < hi) {
+			double pivot = a[(lo + hi) >>> 1];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (a[i] < pivot)
+					i++;
+				while (a[j] > pivot)
+					j--;
+				if (i <= j) {
+					double t = a[i];
+					a[i++] = a[j];
+					a[j--] = t;
+				}
+			}
+			if (target <= j)
+				hi = j;
+			else if (target >= i)
+				lo = i;
+			else
+				break;
+		}
+		return a[target];
+	}
+}
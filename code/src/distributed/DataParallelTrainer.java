@@ -0,0 +1,234 @@
+package distributed;
+
+import interfaces.GradientModel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class trains one replica of a GradientModel per process, synchronously, with the gradients of every step
+ * averaged across processes by a RingAllReduce. Every replica applies the same averaged gradient with the same
+ * optimizer, so the replicas stay identical without ever sending parameters after the first broadcast.
+ *
+ * The flat gradient is split into buckets of bucketSize parameters. With overlap on, a bucket is all-reduced on a
+ * communication thread as soon as computeGradient reports all of it ready, so the buckets of later Dense layers
+ * travel while the backward pass of earlier layers is still running. Buckets are reduced in the order they become
+ * ready, which only depends on the model, so every rank reduces them in the same order.
+ * @param <D> - the model's training sample type
+ */
+public class DataParallelTrainer<D> implements AutoCloseable {
+
+	public static final int DEFAULT_BUCKET_SIZE = 1 << 15;
+
+	private final GradientModel<D> model;
+	private final RingAllReduce ring;
+	private final Optimizer optimizer;
+	private final ExecutorService communication;
+
+	private int bucketSize = DEFAULT_BUCKET_SIZE;
+	private boolean overlap = true;
+
+	private final double[] parameters;
+	private final double[] gradient;
+	private final double[] m;
+	private final double[] v;
+	private long updates;
+
+	private long steps;
+	private long samples;
+	private long computeNanos;
+	private long waitNanos;
+
+	/**
+	 * Makes every replica start from the parameters of rank 0.
+	 * @param model - this process's replica
+	 * @param ring - the ring every process joined
+	 * @param optimizer - the update rule, e.g. ADAM for networks and SGD for the regressions
+	 * @throws IOException - is thrown if the broadcast fails
+	 */
+	public DataParallelTrainer(GradientModel<D> model, RingAllReduce ring, Optimizer optimizer) throws IOException {
+
+		int n = model.getParameterCount();
+		this.model = model;
+		this.ring = ring;
+		this.optimizer = optimizer;
+		this.parameters = new double[n];
+		this.gradient = new double[n];
+		this.m = optimizer == Optimizer.ADAM ? new double[n] : null;
+		this.v = optimizer == Optimizer.ADAM ? new double[n] : null;
+
+		model.getParameters(parameters);
+		ring.broadcast(parameters);
+		model.setParameters(parameters);
+
+		this.communication = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "data-parallel-communication");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @param bucketSize - the number of parameters all-reduced at once, smaller buckets start sooner but cost more round trips
+	 */
+	public void setBucketSize(int bucketSize) {
+		if (bucketSize < 1)
+			throw new IllegalArgumentException("Bucket size must be positive");
+		this.bucketSize = bucketSize;
+	}
+
+	/**
+	 * @param overlap - whether buckets are all-reduced while the gradient is still being computed, or only afterwards
+	 */
+	public void setOverlap(boolean overlap) {
+		this.overlap = overlap;
+	}
+
+	/**
+	 * Trains on this process's shard. Every epoch takes the same number of steps on every rank, the smallest shard's
+	 * number of full batches, so samples past that are left out.
+	 * @param shard - this process's samples
+	 * @param batchSize - the samples per step on each process, the global batch is batchSize * worldSize
+	 * @param learningRate - the optimizer's step size
+	 * @param epochs - the number of passes over the shard
+	 * @throws IOException - is thrown if a neighbour in the ring fails
+	 */
+	public void train(D[] shard, int batchSize, double learningRate, int epochs) throws IOException {
+
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batch size must be positive");
+
+		int stepsPerEpoch = this.agreeOnSteps(shard.length / batchSize);
+
+		int n = parameters.length;
+		int bucketCount = (n + bucketSize - 1) / bucketSize;
+		int[] pending = new int[bucketCount];
+		List<Future<?>> reductions = new ArrayList<Future<?>>(bucketCount);
+
+		for (int e = 0; e < epochs; e++) {
+			for (int s = 0; s < stepsPerEpoch; s++) {
+
+				D[] batch = Arrays.copyOfRange(shard, s * batchSize, (s + 1) * batchSize);
+
+				for (int b = 0; b < bucketCount; b++)
+					pending[b] = Math.min(n, (b + 1) * bucketSize) - b * bucketSize;
+				reductions.clear();
+
+				long start = System.nanoTime();
+				model.computeGradient(batch, gradient, (from, to) -> {
+					if (!overlap)
+						return;
+					for (int b = from / bucketSize; b * bucketSize < to; b++) {
+						int lo = Math.max(from, b * bucketSize);
+						int hi = Math.min(to, (b + 1) * bucketSize);
+						pending[b] -= hi - lo;
+						if (pending[b] == 0)
+							reductions.add(this.reduce(b));
+					}
+				});
+				long computed = System.nanoTime();
+
+				if (!overlap) {
+					for (int b = 0; b < bucketCount; b++)
+						reductions.add(this.reduce(b));
+				}
+				for (Future<?> reduction : reductions)
+					await(reduction);
+				if (reductions.size() != bucketCount)
+					throw new IllegalStateException("Model did not report its whole gradient");
+
+				long reduced = System.nanoTime();
+				computeNanos += computed - start;
+				waitNanos += reduced - computed;
+
+				double scale = 1.0 / ring.getWorldSize();
+				for (int i = 0; i < n; i++)
+					gradient[i] *= scale;
+
+				optimizer.step(parameters, gradient, m, v, ++updates, learningRate);
+				model.setParameters(parameters);
+
+				steps++;
+				samples += (long) batchSize * ring.getWorldSize();
+			}
+		}
+	}
+
+	private Future<?> reduce(int bucket) {
+		int from = bucket * bucketSize;
+		int to = Math.min(parameters.length, from + bucketSize);
+		return communication.submit(() -> {
+			ring.allReduce(gradient, from, to);
+			return null;
+		});
+	}
+
+	private static void await(Future<?> reduction) throws IOException {
+		try {
+			reduction.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reducing gradients", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * @return int - the smallest of every rank's number of steps
+	 */
+	private int agreeOnSteps(int steps) throws IOException {
+		double[] counts = new double[ring.getWorldSize()];
+		counts[ring.getRank()] = steps;
+		ring.allReduce(counts, 0, counts.length);
+		int smallest = steps;
+		for (double count : counts)
+			smallest = Math.min(smallest, (int) count);
+		return smallest;
+	}
+
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * @return double - samples per second across all processes, computing and communication included
+	 */
+	public double getSamplesPerSecond() {
+		long total = computeNanos + waitNanos;
+		return total == 0 ? 0 : samples / (total / 1e9);
+	}
+
+	/**
+	 * @return double - the fraction of step time spent waiting for gradients after this process finished computing,
+	 * i.e. the communication that was not hidden behind the backward pass
+	 */
+	public double getExposedCommunicationFraction() {
+		long total = computeNanos + waitNanos;
+		return total == 0 ? 0 : (double) waitNanos / total;
+	}
+
+	/**
+	 * @return String - one line with the steps, throughput, exposed communication and traffic of this process
+	 */
+	@Override
+	public String toString() {
+		return String.format("rank %d of %d, steps %d, %.1f samples/s, exposed communication %.1f%%, sent %.1f MB, %s",
+				ring.getRank(), ring.getWorldSize(), steps, getSamplesPerSecond(), 100 * getExposedCommunicationFraction(),
+				ring.getBytesSent() / 1e6, overlap ? "buckets of " + bucketSize + " overlapped with backward" : "reduced after backward");
+	}
+
+	/**
+	 * Stops the communication thread. The ring stays open.
+	 */
+	@Override
+	public void close() {
+		communication.shutdownNow();
+	}
+}
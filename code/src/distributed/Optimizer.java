@@ -0,0 +1,41 @@
+package distributed;
+
+/**
+ * This enum lists the update rules applied to flat parameter arrays by the distributed trainers.
+ * ADAM matches the update of nn.Dense, SGD the plain gradient step of the regressions.
+ */
+public enum Optimizer {
+
+	SGD, ADAM;
+
+	private static final double BETA1 = 0.9;
+	private static final double BETA2 = 0.999;
+
+	/**
+	 * Applies one update in place.
+	 * @param parameters - the parameters, updated in place
+	 * @param gradient - the mean gradient
+	 * @param m - the first moment estimates, unused by SGD
+	 * @param v - the second moment estimates, unused by SGD
+	 * @param t - the number of this update, starting at 1
+	 * @param learningRate - the step size
+	 */
+	void step(double[] parameters, double[] gradient, double[] m, double[] v, long t, double learningRate) {
+
+		if (this == SGD) {
+			for (int i = 0; i < parameters.length; i++)
+				parameters[i] -= learningRate * gradient[i];
+			return;
+		}
+
+		double correction1 = 1.0 - Math.pow(BETA1, t);
+		double correction2 = 1.0 - Math.pow(BETA2, t);
+
+		for (int i = 0; i < parameters.length; i++) {
+			double g = gradient[i];
+			m[i] = BETA1 * m[i] + (1.0 - BETA1) * g;
+			v[i] = BETA2 * v[i] + (1.0 - BETA2) * g * g;
+			parameters[i] -= (learningRate * (m[i] / correction1)) / (Math.sqrt(v[i] / correction2) + .00000001);
+		}
+	}
+}
@@ -0,0 +1,320 @@
+package distributed;
+
+import interfaces.GradientModel;
+import nn.LatencyHistogram;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class holds the flat parameters of a GradientModel and their Adam state, and trains them with the gradients
+ * pushed by ParameterServerWorkers in other threads or processes over loopback sockets.
+ *
+ * Every accepted push is one Adam step and moves the version forward. A push carries the version of the parameters
+ * its gradient was computed at, and is rejected if more than maxStaleness other pushes were applied since then
+ * (bounded staleness). A maxStaleness of 0 makes training synchronous in effect, larger values let workers
+ * compute several steps on parameters they pulled earlier.
+ *
+ * Each connection is served by its own thread, gradients are decoded outside of the lock so only the Adam step
+ * and the parameter copy of a pull are serialized.
+ */
+public class ParameterServer implements AutoCloseable {
+
+	static final int MAGIC = 0x4d4c5053;
+	static final byte PULL = 1;
+	static final byte PUSH = 2;
+	static final byte BYE = 3;
+	static final byte ACCEPTED = 0;
+	static final byte REJECTED = 1;
+
+	private final double[] parameters;
+	private final double[] m;
+	private final double[] v;
+	private final double learningRate;
+	private final int maxStaleness;
+	private long version;
+
+	private final ServerSocket socket;
+	private final Thread acceptor;
+	private final List<Socket> connections = new ArrayList<Socket>();
+	private volatile boolean closed;
+
+	private final LongAdder pulls = new LongAdder();
+	private final LongAdder samples = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder bytesIn = new LongAdder();
+	private final LongAdder bytesOut = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private volatile IOException lastFailure;
+	private final LatencyHistogram staleness = new LatencyHistogram();
+	private long started = System.nanoTime();
+
+	/**
+	 * Starts a server whose parameters begin as those of the model.
+	 * @param model - the model to train, only its parameters are read
+	 * @param port - the loopback port to listen on, 0 for any free port (see getPort)
+	 * @param learningRate - the Adam learning rate
+	 * @param maxStaleness - the most updates a gradient may lag behind to be applied
+	 * @throws IOException - is thrown if the port cannot be bound
+	 */
+	public ParameterServer(GradientModel<?> model, int port, double learningRate, int maxStaleness) throws IOException {
+
+		if (maxStaleness < 0)
+			throw new IllegalArgumentException("Staleness bound must not be negative");
+
+		int n = model.getParameterCount();
+		this.parameters = new double[n];
+		this.m = new double[n];
+		this.v = new double[n];
+		model.getParameters(this.parameters);
+		this.learningRate = learningRate;
+		this.maxStaleness = maxStaleness;
+
+		this.socket = new ServerSocket(port, 64, InetAddress.getLoopbackAddress());
+		this.acceptor = new Thread(this::accept, "parameter-server");
+		this.acceptor.setDaemon(true);
+		this.acceptor.start();
+	}
+
+	/**
+	 * @return int - the port the server listens on
+	 */
+	public int getPort() {
+		return socket.getLocalPort();
+	}
+
+	public int getMaxStaleness() {
+		return maxStaleness;
+	}
+
+	/**
+	 * @return long - the number of updates applied so far
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Copies the current parameters into a model, e.g. to evaluate or save it once the workers are done.
+	 * @param model - a model with the same parameter layout
+	 */
+	public void writeTo(GradientModel<?> model) {
+		double[] copy = new double[parameters.length];
+		synchronized (this) {
+			System.arraycopy(parameters, 0, copy, 0, copy.length);
+		}
+		model.setParameters(copy);
+	}
+
+	/**
+	 * Blocks until the given number of updates has been applied.
+	 * @param version - the version to wait for
+	 * @param timeoutMillis - the longest time to wait
+	 * @return boolean - whether the version was reached
+	 * @throws InterruptedException - if the thread is interrupted while waiting
+	 */
+	public synchronized boolean awaitVersion(long version, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (this.version < version) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0)
+				return false;
+			wait(remaining);
+		}
+		return true;
+	}
+
+	private void accept() {
+		while (!closed) {
+			try {
+				Socket connection = socket.accept();
+				connection.setTcpNoDelay(true);
+				synchronized (connections) {
+					connections.add(connection);
+				}
+				Thread handler = new Thread(() -> serve(connection), "parameter-server-connection");
+				handler.setDaemon(true);
+				handler.start();
+			} catch (IOException e) {
+				if (!closed)
+					fail(e);
+				return;
+			}
+		}
+	}
+
+	private void serve(Socket connection) {
+
+		int n = parameters.length;
+		double[] buffer = new double[n];
+		ByteBuffer scratch = ByteBuffer.allocate(Compression.maxBytes(n));
+
+		try (connection;
+				DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream(), 1 << 16));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream(), 1 << 16))) {
+
+			if (in.readInt() != MAGIC || in.readInt() != n) {
+				out.writeByte(REJECTED);
+				out.flush();
+				return;
+			}
+			out.writeByte(ACCEPTED);
+			out.writeInt(maxStaleness);
+			out.flush();
+
+			for (;;) {
+				byte op = in.readByte();
+
+				if (op == PULL) {
+					long pulled;
+					synchronized (this) {
+						System.arraycopy(parameters, 0, buffer, 0, n);
+						pulled = version;
+					}
+					scratch.clear();
+					scratch.asDoubleBuffer().put(buffer);
+					out.writeLong(pulled);
+					out.write(scratch.array(), 0, 8 * n);
+					out.flush();
+					pulls.increment();
+					bytesOut.add(8 + 8L * n);
+
+				} else if (op == PUSH) {
+					long base = in.readLong();
+					int batchSize = in.readInt();
+					bytesIn.add(12 + Compression.read(in, buffer, scratch));
+
+					boolean accepted;
+					long current;
+					synchronized (this) {
+						long lag = version - base;
+						accepted = lag <= maxStaleness;
+						if (accepted) {
+							staleness.record(lag);
+							Optimizer.ADAM.step(parameters, buffer, m, v, version + 1, learningRate);
+							version++;
+							notifyAll();
+						}
+						current = version;
+					}
+					if (accepted)
+						samples.add(batchSize);
+					else
+						rejected.increment();
+
+					out.writeByte(accepted ? ACCEPTED : REJECTED);
+					out.writeLong(current);
+					out.flush();
+					bytesOut.add(9);
+
+				} else if (op == BYE) {
+					return;
+				} else {
+					throw new IOException("Unknown operation " + op);
+				}
+			}
+		} catch (SocketException e) {
+			// The worker went away or the server is closing
+		} catch (IOException e) {
+			if (!closed)
+				fail(e);
+		} finally {
+			synchronized (connections) {
+				connections.remove(connection);
+			}
+		}
+	}
+
+	private void fail(IOException e) {
+		lastFailure = e;
+		failures.increment();
+	}
+
+	/**
+	 * @return long - the number of times the server stopped accepting or dropped a worker on an error other than a disconnect
+	 */
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	/**
+	 * @return IOException - the most recent of those errors, null if there was none
+	 */
+	public IOException getLastFailure() {
+		return lastFailure;
+	}
+
+	/**
+	 * @return double - accepted samples per second since the server started or the stats were reset
+	 */
+	public double getSamplesPerSecond() {
+		double seconds = (System.nanoTime() - started) / 1e9;
+		return seconds <= 0 ? 0 : samples.sum() / seconds;
+	}
+
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	public synchronized void resetStats() {
+		pulls.reset();
+		samples.reset();
+		rejected.reset();
+		bytesIn.reset();
+		bytesOut.reset();
+		failures.reset();
+		staleness.reset();
+		started = System.nanoTime();
+	}
+
+	/**
+	 * @return String - one line with the updates, throughput, staleness, traffic and failures since the stats were reset
+	 */
+	@Override
+	public synchronized String toString() {
+		double seconds = (System.nanoTime() - started) / 1e9;
+		IOException failure = lastFailure;
+		return String.format("version %d, %.1f updates/s, %.1f samples/s, rejected %d, pulls %d, staleness p50 %d max %d, in %.1f MB, out %.1f MB, failures %d%s",
+				version, staleness.getCount() / seconds, getSamplesPerSecond(), rejected.sum(), pulls.sum(),
+				staleness.getPercentile(50), staleness.getMax(), bytesIn.sum() / 1e6, bytesOut.sum() / 1e6,
+				failures.sum(), failure == null ? "" : " (last: " + failure + ")");
+	}
+
+	/**
+	 * Stops accepting workers and drops the connected ones.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// Nothing left to release
+		}
+		synchronized (connections) {
+			for (Socket connection : connections) {
+				try {
+					connection.close();
+				} catch (IOException e) {
+					// Already closed by its worker
+				}
+			}
+		}
+		try {
+			acceptor.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package distributed;
+
+import interfaces.GradientModel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class trains a GradientModel against a ParameterServer. It computes gradients on its own shard of the data
+ * and pushes them to the server, which applies them. It pulls the parameters again only once the server has moved
+ * as far ahead as the staleness bound allows, so with a larger bound it spends more of its time computing.
+ * The model is a local replica, after train it holds the server's latest parameters.
+ * @param <D> - the model's training sample type
+ */
+public class ParameterServerWorker<D> implements AutoCloseable {
+
+	private final GradientModel<D> model;
+	private final Socket socket;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	private final int maxStaleness;
+
+	private final double[] parameters;
+	private final double[] gradient;
+	private final double[] residual;
+	private final ByteBuffer scratch;
+
+	private Compression compression = Compression.NONE;
+	private double topKFraction = 0.01;
+
+	private long localVersion;
+	private long serverVersion;
+
+	private long steps;
+	private long samples;
+	private long pulls;
+	private long rejected;
+	private long bytesSent;
+	private long bytesReceived;
+	private long computeNanos;
+	private long communicationNanos;
+
+	/**
+	 * Connects to a server on this machine and pulls its parameters into the model.
+	 * @param model - the local replica, with the same parameter layout as the server's model
+	 * @param port - the server's port
+	 * @throws IOException - is thrown if the server cannot be reached or holds a different parameter count
+	 */
+	public ParameterServerWorker(GradientModel<D> model, int port) throws IOException {
+
+		int n = model.getParameterCount();
+		this.model = model;
+		this.parameters = new double[n];
+		this.gradient = new double[n];
+		this.residual = new double[n];
+		this.scratch = ByteBuffer.allocate(Compression.maxBytes(n));
+
+		this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		this.socket.setTcpNoDelay(true);
+		this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+		this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+
+		out.writeInt(ParameterServer.MAGIC);
+		out.writeInt(n);
+		out.flush();
+		if (in.readByte() != ParameterServer.ACCEPTED) {
+			socket.close();
+			throw new IOException("Parameter server does not hold a model with " + n + " parameters");
+		}
+		this.maxStaleness = in.readInt();
+
+		this.pull();
+	}
+
+	/**
+	 * @param compression - how gradients are encoded, lossy encodings carry what they drop over to the next push
+	 */
+	public void setCompression(Compression compression) {
+		this.compression = compression;
+	}
+
+	/**
+	 * @param fraction - the fraction of gradient values sent with Compression.TOP_K, in (0, 1]
+	 */
+	public void setTopKFraction(double fraction) {
+		if (!(fraction > 0 && fraction <= 1))
+			throw new IllegalArgumentException("Top k fraction must be in (0, 1]");
+		this.topKFraction = fraction;
+	}
+
+	private void pull() throws IOException {
+		long start = System.nanoTime();
+		out.writeByte(ParameterServer.PULL);
+		out.flush();
+		localVersion = in.readLong();
+		scratch.clear();
+		in.readFully(scratch.array(), 0, 8 * parameters.length);
+		scratch.asDoubleBuffer().get(parameters);
+		communicationNanos += System.nanoTime() - start;
+
+		serverVersion = Math.max(serverVersion, localVersion);
+		bytesSent += 1;
+		bytesReceived += 8 + 8L * parameters.length;
+		pulls++;
+		model.setParameters(parameters);
+	}
+
+	/**
+	 * @return boolean - whether the server applied the gradient
+	 */
+	private boolean push(int batchSize) throws IOException {
+		long start = System.nanoTime();
+		out.writeByte(ParameterServer.PUSH);
+		out.writeLong(localVersion);
+		out.writeInt(batchSize);
+		bytesSent += 13 + compression.write(out, gradient, residual, topKFraction, scratch);
+		out.flush();
+		boolean accepted = in.readByte() == ParameterServer.ACCEPTED;
+		serverVersion = in.readLong();
+		communicationNanos += System.nanoTime() - start;
+		bytesReceived += 9;
+		return accepted;
+	}
+
+	/**
+	 * Trains on a shard in batches, in order, for the given number of epochs.
+	 * @param shard - this worker's samples
+	 * @param batchSize - the number of samples per gradient
+	 * @param epochs - the number of passes over the shard
+	 * @throws IOException - is thrown if the connection to the server fails
+	 */
+	public void train(D[] shard, int batchSize, int epochs) throws IOException {
+
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batch size must be positive");
+
+		for (int e = 0; e < epochs; e++) {
+			for (int from = 0; from < shard.length; from += batchSize) {
+
+				D[] batch = Arrays.copyOfRange(shard, from, Math.min(shard.length, from + batchSize));
+
+				long start = System.nanoTime();
+				model.computeGradient(batch, gradient);
+				computeNanos += System.nanoTime() - start;
+
+				if (push(batch.length)) {
+					steps++;
+					samples += batch.length;
+				} else {
+					rejected++;
+				}
+
+				if (serverVersion - localVersion >= maxStaleness)
+					pull();
+			}
+		}
+		pull();
+	}
+
+	public long getSteps() {
+		return steps;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getPulls() {
+		return pulls;
+	}
+
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	/**
+	 * @return double - the fraction of the training time spent waiting on the server
+	 */
+	public double getCommunicationFraction() {
+		long total = computeNanos + communicationNanos;
+		return total == 0 ? 0 : (double) communicationNanos / total;
+	}
+
+	/**
+	 * @return double - accepted samples per second of training time
+	 */
+	public double getSamplesPerSecond() {
+		long total = computeNanos + communicationNanos;
+		return total == 0 ? 0 : samples / (total / 1e9);
+	}
+
+	/**
+	 * @return String - one line with the steps, throughput, time split and traffic of this worker
+	 */
+	@Override
+	public String toString() {
+		return String.format("steps %d, rejected %d, pulls %d, %.1f samples/s, communication %.1f%%, sent %.1f MB, received %.1f MB (%s)",
+				steps, rejected, pulls, getSamplesPerSecond(), 100 * getCommunicationFraction(), bytesSent / 1e6, bytesReceived / 1e6, compression);
+	}
+
+	/**
+	 * Tells the server this worker is done and closes the connection.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			out.writeByte(ParameterServer.BYE);
+			out.flush();
+		} finally {
+			socket.close();
+		}
+	}
+}
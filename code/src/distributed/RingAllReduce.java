@@ -0,0 +1,249 @@
+package distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class sums arrays across processes connected in a ring over loopback TCP.
+ * Rank r listens on basePort + r, sends to rank r + 1 and receives from rank r - 1.
+ *
+ * An all-reduce splits the range into worldSize chunks and takes 2 (worldSize - 1) steps, first a reduce-scatter
+ * after which every rank holds the full sum of one chunk, then an all-gather that passes the sums around.
+ * Every rank sends and receives 2 (worldSize - 1) / worldSize times the range, independent of the number of ranks,
+ * and every rank ends with the same bits because each chunk is summed on one rank only.
+ * In every step the send runs on a separate thread while this one receives, so the ring cannot deadlock on full socket buffers.
+ *
+ * All ranks must call the same collectives on ranges of the same length in the same order.
+ */
+public class RingAllReduce implements AutoCloseable {
+
+	private static final int MAGIC = 0x4d4c5252;
+
+	private final int rank;
+	private final int worldSize;
+
+	private final Socket next;
+	private final Socket previous;
+	private final DataOutputStream out;
+	private final DataInputStream in;
+	private final ExecutorService sender;
+
+	private ByteBuffer sendBuffer = ByteBuffer.allocate(0);
+	private ByteBuffer receiveBuffer = ByteBuffer.allocate(0);
+
+	private long bytesSent;
+	private long reductions;
+
+	/**
+	 * Joins the ring. Blocks until the neighbours have joined as well.
+	 * @param rank - this process's position in [0, worldSize)
+	 * @param worldSize - the number of processes
+	 * @param basePort - the loopback port of rank 0, rank r uses basePort + r
+	 * @param timeoutMillis - how long to wait for the neighbours
+	 * @throws IOException - is thrown if a port cannot be bound or a neighbour does not join in time
+	 */
+	public RingAllReduce(int rank, int worldSize, int basePort, long timeoutMillis) throws IOException {
+
+		if (worldSize < 1 || rank < 0 || rank >= worldSize)
+			throw new IllegalArgumentException("Rank must be in [0, worldSize) and worldSize must be positive");
+
+		this.rank = rank;
+		this.worldSize = worldSize;
+
+		if (worldSize == 1) {
+			this.next = null;
+			this.previous = null;
+			this.out = null;
+			this.in = null;
+			this.sender = null;
+			return;
+		}
+
+		InetAddress loopback = InetAddress.getLoopbackAddress();
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+
+		try (ServerSocket listener = new ServerSocket(basePort + rank, 1, loopback)) {
+
+			// Connecting only needs the neighbour's listener, so every rank can connect before anyone accepts
+			Socket connected = null;
+			while (connected == null) {
+				try {
+					connected = new Socket(loopback, basePort + (rank + 1) % worldSize);
+				} catch (IOException e) {
+					if (System.currentTimeMillis() > deadline)
+						throw new IOException("Rank " + (rank + 1) % worldSize + " did not join the ring", e);
+					sleep(20);
+				}
+			}
+			this.next = connected;
+
+			listener.setSoTimeout((int) Math.max(1, deadline - System.currentTimeMillis()));
+			this.previous = listener.accept();
+		}
+
+		next.setTcpNoDelay(true);
+		previous.setTcpNoDelay(true);
+		this.out = new DataOutputStream(new BufferedOutputStream(next.getOutputStream(), 1 << 16));
+		this.in = new DataInputStream(new BufferedInputStream(previous.getInputStream(), 1 << 16));
+
+		out.writeInt(MAGIC);
+		out.writeInt(rank);
+		out.writeInt(worldSize);
+		out.flush();
+		if (in.readInt() != MAGIC || in.readInt() != (rank + worldSize - 1) % worldSize || in.readInt() != worldSize) {
+			next.close();
+			previous.close();
+			throw new IOException("Unexpected neighbour in the ring of rank " + rank);
+		}
+
+		this.sender = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ring-all-reduce-sender");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private static void sleep(long millis) throws IOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while joining the ring", e);
+		}
+	}
+
+	public int getRank() {
+		return rank;
+	}
+
+	public int getWorldSize() {
+		return worldSize;
+	}
+
+	/**
+	 * @return long - the bytes this rank sent to its neighbour so far
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * @return long - the number of all-reduce calls so far
+	 */
+	public long getReductions() {
+		return reductions;
+	}
+
+	/**
+	 * Replaces data[from, to) on every rank with its sum over all ranks.
+	 * @param data - the array, summed in place
+	 * @param from - the first index of the range
+	 * @param to - the index after the last one of the range
+	 * @throws IOException - is thrown if a neighbour fails
+	 */
+	public void allReduce(double[] data, int from, int to) throws IOException {
+
+		reductions++;
+		if (worldSize == 1 || to <= from)
+			return;
+
+		int length = to - from;
+		int largest = (length + worldSize - 1) / worldSize;
+		if (sendBuffer.capacity() < 8 * largest) {
+			sendBuffer = ByteBuffer.allocate(8 * largest);
+			receiveBuffer = ByteBuffer.allocate(8 * largest);
+		}
+
+		// Reduce-scatter, after which this rank holds the sum of chunk rank + 1
+		for (int step = 0; step < worldSize - 1; step++) {
+			int send = Math.floorMod(rank - step, worldSize);
+			int receive = Math.floorMod(rank - step - 1, worldSize);
+			exchange(data, from, length, send, receive, true);
+		}
+
+		// All-gather
+		for (int step = 0; step < worldSize - 1; step++) {
+			int send = Math.floorMod(rank + 1 - step, worldSize);
+			int receive = Math.floorMod(rank - step, worldSize);
+			exchange(data, from, length, send, receive, false);
+		}
+	}
+
+	/**
+	 * Replaces data on every rank with the values of rank 0.
+	 * @param data - the array, overwritten on every rank but 0
+	 * @throws IOException - is thrown if a neighbour fails
+	 */
+	public void broadcast(double[] data) throws IOException {
+		if (rank != 0)
+			Arrays.fill(data, 0);
+		allReduce(data, 0, data.length);
+	}
+
+	private int chunkStart(int from, int length, int chunk) {
+		return from + (int) ((long) length * chunk / worldSize);
+	}
+
+	private void exchange(double[] data, int from, int length, int send, int receive, boolean add) throws IOException {
+
+		int sendFrom = chunkStart(from, length, send);
+		int sendCount = chunkStart(from, length, send + 1) - sendFrom;
+		int receiveFrom = chunkStart(from, length, receive);
+		int receiveCount = chunkStart(from, length, receive + 1) - receiveFrom;
+
+		sendBuffer.clear();
+		sendBuffer.asDoubleBuffer().put(data, sendFrom, sendCount);
+		Future<?> sent = sender.submit(() -> {
+			out.write(sendBuffer.array(), 0, 8 * sendCount);
+			out.flush();
+			return null;
+		});
+
+		in.readFully(receiveBuffer.array(), 0, 8 * receiveCount);
+		DoubleBuffer received = ByteBuffer.wrap(receiveBuffer.array(), 0, 8 * receiveCount).asDoubleBuffer();
+		if (add) {
+			for (int i = 0; i < receiveCount; i++)
+				data[receiveFrom + i] += received.get(i);
+		} else {
+			received.get(data, receiveFrom, receiveCount);
+		}
+
+		try {
+			sent.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while sending", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+		}
+		bytesSent += 8L * sendCount;
+	}
+
+	/**
+	 * Leaves the ring. Neighbours that still call collectives fail.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (worldSize == 1)
+			return;
+		sender.shutdownNow();
+		try {
+			next.close();
+		} finally {
+			previous.close();
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package interfaces;
+
+/**
+ * This interface defines a layer that can run its forward pass on a whole batch at once,
+ * so that inference can use one matrix-matrix product per layer instead of one matrix-vector product per sample.
+ * Unlike Layer.forward, the batched pass keeps no state for backpropagation, so it is safe to call from several threads.
+ * @param <B> - the batch type, typically a matrix with one sample per row
+ */
+public interface BatchLayer<B> {
+
+    /**
+     * Performs the forward pass on every sample in the batch.
+     * @param inputs - the batch of input data, one sample per row
+     * @return B - the batch of outputs, one sample per row
+     */
+    public B forwardBatch(B inputs);
+}
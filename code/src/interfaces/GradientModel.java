@@ -0,0 +1,57 @@
+package interfaces;
+
+/**
+ * This interface exposes a model's trainable parameters and gradients as flat arrays, so that the optimizer can run
+ * outside of the model, e.g. on a parameter server or across processes.
+ * Every array has getParameterCount() entries in the same model specific order.
+ * @param D - DataType (this is usually an implementation of the sample interface)
+ */
+public interface GradientModel<D> {
+
+    /**
+     * This interface is told which part of a gradient is final while the rest is still being computed.
+     */
+    public interface ReadyListener {
+
+        /**
+         * @param from - the first index of the finished part
+         * @param to - the index after the last one of the finished part
+         */
+        public void ready(int from, int to);
+    }
+
+    /**
+     * @return int - the number of trainable parameters
+     */
+    public int getParameterCount();
+
+    /**
+     * @param parameters - array that the current parameters are copied into
+     */
+    public void getParameters(double[] parameters);
+
+    /**
+     * @param parameters - array of parameters that replace the current ones
+     */
+    public void setParameters(double[] parameters);
+
+    /**
+     * This computes the mean gradient of the loss over a batch at the current parameters, without changing them.
+     * @param batch - array of Sample objects
+     * @param gradient - array that the gradient is written into
+     */
+    public void computeGradient(D[] batch, double[] gradient);
+
+    /**
+     * This computes the mean gradient like computeGradient, and reports parts of it as soon as they are final,
+     * so they can be sent while the rest is computed. Every index is reported exactly once, in an order that
+     * only depends on the model's structure. By default the whole gradient is reported at the end.
+     * @param batch - array of Sample objects
+     * @param gradient - array that the gradient is written into
+     * @param listener - is called on the computing thread for every finished part
+     */
+    public default void computeGradient(D[] batch, double[] gradient, ReadyListener listener) {
+        this.computeGradient(batch, gradient);
+        listener.ready(0, gradient.length);
+    }
+}
@@ -17,14 +17,22 @@ public interface Model<I, O, D>{
      */
     public O compute(I input);
 
+    /**
+     * This is the method for performing inference on many samples at once, so that outputs[i] = compute(inputs[i]).
+     * Implementations may split large batches across cores.
+     * @param inputs - array of data to be inferenced on (X)
+     * @param outputs - caller supplied buffer that the predictions (Y) are written into, at least as long as inputs
+     */
+    public void computeBatch(I[] inputs, O[] outputs);
+
     /**
 	 * Training method that uses batches of data samples to update weights at every step (stochastic gradient descent).
      * @param training - an array of Sample objects that the model uses for weight updating
-     * @param testing - an array of Sample objects that is used to display loss when verbose is true
+     * @param testing - an array of Sample objects that is evaluated at the model's evaluation cadence when verbose is true or callbacks are registered (see training.TrainingCallbacks)
      * @param batchSize - the number of samples the model uses to update its weights during a training step
      * @param learningRate - double precision flaot used to scale gradients for training steps
      * @param epochs - number of times the model goes through the training data array
-     * @param verbose - display toggle for viewing training process, (setting to false will disable testing data passes / loss computation)
+     * @param verbose - display toggle for viewing training process through a training.ConsoleCallback, (with no other callbacks, setting to false will disable testing data passes / loss computation)
      */
     public void train(D[] training, D[] testing, int batchSize, double learningRate, int epochs, boolean verbose);
     
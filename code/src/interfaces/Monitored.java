@@ -0,0 +1,15 @@
+package interfaces;
+
+import training.TrainingCallbacks;
+
+/**
+ * This interface is implemented by models whose train method reports its progress to TrainingCallbacks,
+ * so code that only knows the model as a Model can still observe training and end it early.
+ */
+public interface Monitored {
+
+    /**
+     * @return TrainingCallbacks - the callbacks notified by train and how often it evaluates the testing data
+     */
+    public TrainingCallbacks getCallbacks();
+}
@@ -0,0 +1,13 @@
+package interfaces;
+
+/**
+ * This interface is implemented by models whose parameters can change after they are built, e.g. by train.
+ * The version goes up with every change, so anything derived from the model's predictions can tell when it is stale.
+ */
+public interface Versioned {
+
+    /**
+     * @return long - a number that changes whenever the model's parameters or the way it computes change
+     */
+    public long getVersion();
+}
@@ -0,0 +1,404 @@
+package io;
+
+import math.Matrix;
+import math.OffHeapMatrix;
+import math.OffHeapVector;
+import math.Vector;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * This class provides the versioned binary format used to save and load models.
+ * A file is a fixed header followed by a list of sections (scalars, vectors, matrices and integer tags).
+ * All values are little endian and every section is 8 byte aligned, so parameters are copied out of the
+ * memory mapped file in bulk instead of being parsed.
+ *
+ * Layout:
+ * header  - magic (int), version (int), model type (int), section count (int), payload length (long), CRC32 (long)
+ *           of the header with this field zeroed followed by the payload, version 1 files hold the CRC32 of the payload only
+ * section - kind (int), rows (int), columns (int), padding (int), then rows * columns doubles
+ */
+public class ModelFile {
+
+	public static final int MAGIC = 0x4D4C4A4D; // "MLJM"
+	public static final int VERSION = 2;
+
+	public static final int TYPE_LINEAR_REGRESSION = 1;
+	public static final int TYPE_LOGISTIC_REGRESSION = 2;
+	public static final int TYPE_NEURAL_NETWORK = 3;
+
+	private static final int HEADER_BYTES = 32;
+	private static final int SECTION_BYTES = 16;
+
+	private static final int KIND_SCALAR = 1;
+	private static final int KIND_VECTOR = 2;
+	private static final int KIND_MATRIX = 3;
+	private static final int KIND_TAG = 4;
+
+	private final int modelType;
+	private final int version;
+
+	// used when writing
+	private final ArrayList<Object> sections;
+
+	// used when reading
+	private final ByteBuffer buffer;
+	private int sectionCount;
+	private int sectionsRead;
+
+	/**
+	 * This creates an empty model file to be filled with sections and then saved.
+	 * @param modelType - one of the TYPE constants
+	 */
+	public ModelFile(int modelType) {
+		this.modelType = modelType;
+		this.version = VERSION;
+		this.sections = new ArrayList<Object>();
+		this.buffer = null;
+	}
+
+	private ModelFile(int modelType, int version, int sectionCount, ByteBuffer buffer) {
+		this.modelType = modelType;
+		this.version = version;
+		this.sections = null;
+		this.buffer = buffer;
+		this.sectionCount = sectionCount;
+		this.sectionsRead = 0;
+	}
+
+	/**
+	 * @return int - the TYPE constant the file was created or loaded with
+	 */
+	public int getModelType() {
+		return modelType;
+	}
+
+	/**
+	 * @return int - the format version the file was written with, VERSION for files created in this process
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	//Writing
+
+	/**
+	 * This appends a single double to the file.
+	 * @param value - the scalar
+	 */
+	public void addScalar(double value) {
+		sections.add(Double.valueOf(value));
+	}
+
+	/**
+	 * This appends an integer tag, used for layer kinds, counts and flags.
+	 * @param value - the tag
+	 */
+	public void addTag(int value) {
+		sections.add(Integer.valueOf(value));
+	}
+
+	/**
+	 * This appends a vector. The vector is not copied, so it should not change before save is called.
+	 * @param vector - the vector
+	 */
+	public void addVector(Vector vector) {
+		sections.add(vector);
+	}
+
+	/**
+	 * This appends a matrix. The matrix is not copied, so it should not change before save is called.
+	 * @param matrix - the matrix
+	 */
+	public void addMatrix(Matrix matrix) {
+		sections.add(matrix);
+	}
+
+	/**
+	 * This writes the header and every section to a new file.
+	 * @param filePath - the path for the new file
+	 * @throws IOException - is thrown if a file already exists at filePath or it cannot be written
+	 */
+	public void save(String filePath) throws IOException {
+
+		File file = new File(filePath);
+
+		if (!file.createNewFile()){
+			throw new IOException("Cannot save model. File already exists at filePath.");
+		}
+
+		this.write(file);
+	}
+
+	/**
+	 * This writes the header and every section to a file, replacing it if it already exists.
+	 * @param file - the destination file
+	 * @throws IOException - is thrown if the file cannot be written
+	 */
+	public void write(File file) throws IOException {
+
+		long payloadLength = 0;
+		for (Object section : sections) {
+			payloadLength += SECTION_BYTES + 8L * sectionLength(section);
+		}
+
+		if (HEADER_BYTES + payloadLength > Integer.MAX_VALUE)
+			throw new IOException("Model is too large for a single mapped file.");
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			 FileChannel channel = raf.getChannel()) {
+
+			raf.setLength(HEADER_BYTES + payloadLength);
+			MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + payloadLength);
+			out.order(ByteOrder.LITTLE_ENDIAN);
+
+			out.position(HEADER_BYTES);
+			for (Object section : sections) {
+				writeSection(out, section);
+			}
+
+			out.position(0);
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(modelType);
+			out.putInt(sections.size());
+			out.putLong(payloadLength);
+			out.putLong(0);
+
+			CRC32 crc = new CRC32();
+			out.position(0);
+			crc.update(out);
+			out.putLong(HEADER_BYTES - 8, crc.getValue());
+
+			out.force();
+		}
+	}
+
+	private static long sectionLength(Object section) {
+		if (section instanceof Double)
+			return 1;
+		if (section instanceof Vector)
+			return ((Vector) section).getLength();
+		if (section instanceof Matrix)
+			return (long) ((Matrix) section).getColumnSize() * ((Matrix) section).getRowSize();
+		return 0;
+	}
+
+	private static void writeSection(ByteBuffer out, Object section) {
+
+		if (section instanceof Integer) {
+			out.putInt(KIND_TAG).putInt((Integer) section).putInt(0).putInt(0);
+		}
+		else if (section instanceof Double) {
+			out.putInt(KIND_SCALAR).putInt(1).putInt(1).putInt(0);
+			out.putDouble((Double) section);
+		}
+		else if (section instanceof Vector) {
+			Vector vector = (Vector) section;
+			out.putInt(KIND_VECTOR).putInt(vector.getLength()).putInt(1).putInt(0);
+			vector.copyTo(out.asDoubleBuffer());
+			out.position(out.position() + 8 * vector.getLength());
+		}
+		else {
+			Matrix matrix = (Matrix) section;
+			out.putInt(KIND_MATRIX).putInt(matrix.getColumnSize()).putInt(matrix.getRowSize()).putInt(0);
+			matrix.copyTo(out.asDoubleBuffer());
+			out.position(out.position() + 8 * matrix.getColumnSize() * matrix.getRowSize());
+		}
+	}
+
+	//Reading
+
+	/**
+	 * This memory maps a model file and checks its magic number, version, length and checksum.
+	 * Sections are then read back in the order they were added with the next methods.
+	 * @param filePath - the path of the model file
+	 * @return ModelFile - a reader positioned at the first section
+	 * @throws IOException - is thrown if the file does not exist, is not a model file or is corrupted
+	 */
+	public static ModelFile load(String filePath) throws IOException {
+
+		File file = new File(filePath);
+
+		if (!file.exists()){
+			throw new IOException("Cannot load model. File does not exists at filePath.");
+		}
+
+		MappedByteBuffer in;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+			 FileChannel channel = raf.getChannel()) {
+
+			if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Could not read file contents. Not a model file.");
+
+			in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		in.order(ByteOrder.LITTLE_ENDIAN);
+
+		if (in.getInt() != MAGIC)
+			throw new IOException("Could not read file contents. Not a model file.");
+
+		int version = in.getInt();
+		if (version < 1 || version > VERSION)
+			throw new IOException("Unsupported model file version " + version + ".");
+
+		int modelType = in.getInt();
+		int sectionCount = in.getInt();
+		long payloadLength = in.getLong();
+		long checksum = in.getLong();
+
+		if (HEADER_BYTES + payloadLength != in.capacity())
+			throw new IOException("Could not read file contents. File is truncated.");
+
+		if (sectionCount < 0 || (long) sectionCount * SECTION_BYTES > payloadLength)
+			throw new IOException("Could not read file contents. Invalid section count " + sectionCount + ".");
+
+		CRC32 crc = new CRC32();
+		if (version >= 2) {
+			ByteBuffer header = in.duplicate();
+			header.position(0);
+			header.limit(HEADER_BYTES - 8);
+			crc.update(header);
+			crc.update(new byte[8]);
+		}
+		crc.update(in.duplicate());
+		if (crc.getValue() != checksum)
+			throw new IOException("Could not read file contents. Checksum does not match.");
+
+		return new ModelFile(modelType, version, sectionCount, in);
+	}
+
+	/**
+	 * @return boolean - whether there are sections left to read
+	 */
+	public boolean hasNext() {
+		return sectionsRead < sectionCount;
+	}
+
+	private int readSectionHeader(int expectedKind) throws IOException {
+
+		if (sectionsRead >= sectionCount)
+			throw new IOException("Could not read file contents. No sections left.");
+
+		if (buffer.remaining() < SECTION_BYTES)
+			throw new IOException("Could not read file contents. Section header is truncated.");
+
+		int kind = buffer.getInt();
+		if (kind != expectedKind)
+			throw new IOException("Could not read file contents. Unexpected section kind " + kind + ".");
+
+		sectionsRead++;
+		return kind;
+	}
+
+	/**
+	 * Checks the values a section header announces against what is left of the file, before anything is sliced or allocated.
+	 * @param rows - the rows of the section, 1 for vectors
+	 * @param columns - the columns of the section, the length for vectors
+	 * @throws IOException - is thrown if a size is negative or the values run past the end of the file
+	 */
+	private void checkSectionSize(int rows, int columns) throws IOException {
+		if (rows < 0 || columns < 0 || 8L * rows * columns > buffer.remaining())
+			throw new IOException("Could not read file contents. Invalid section size " + rows + " x " + columns + ".");
+	}
+
+	/**
+	 * @return double - the next section, which must be a scalar
+	 * @throws IOException - is thrown if the next section is not a scalar
+	 */
+	public double nextScalar() throws IOException {
+		readSectionHeader(KIND_SCALAR);
+		buffer.position(buffer.position() + 12);
+		checkSectionSize(1, 1);
+		return buffer.getDouble();
+	}
+
+	/**
+	 * @return int - the next section, which must be a tag
+	 * @throws IOException - is thrown if the next section is not a tag
+	 */
+	public int nextTag() throws IOException {
+		readSectionHeader(KIND_TAG);
+		int value = buffer.getInt();
+		buffer.position(buffer.position() + 8);
+		return value;
+	}
+
+	/**
+	 * @return Vector - the next section, which must be a vector, bulk copied out of the mapped file
+	 * @throws IOException - is thrown if the next section is not a vector
+	 */
+	public Vector nextVector() throws IOException {
+		readSectionHeader(KIND_VECTOR);
+		int length = buffer.getInt();
+		buffer.position(buffer.position() + 8);
+		checkSectionSize(1, length);
+
+		Vector result = new Vector(length);
+		result.copyFrom(buffer.asDoubleBuffer());
+		buffer.position(buffer.position() + 8 * length);
+
+		return result;
+	}
+
+	/**
+	 * @return Vector - the next section, which must be a vector, wrapped in place as a read only OffHeapVector
+	 * @throws IOException - is thrown if the next section is not a vector
+	 */
+	public Vector mapVector() throws IOException {
+		readSectionHeader(KIND_VECTOR);
+		int length = buffer.getInt();
+		buffer.position(buffer.position() + 8);
+		checkSectionSize(1, length);
+
+		ByteBuffer section = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		section.limit(8 * length);
+		buffer.position(buffer.position() + 8 * length);
+
+		return OffHeapVector.wrap(section.asDoubleBuffer());
+	}
+
+	/**
+	 * @return Matrix - the next section, which must be a matrix, wrapped in place as a read only OffHeapMatrix
+	 * @throws IOException - is thrown if the next section is not a matrix
+	 */
+	public Matrix mapMatrix() throws IOException {
+		readSectionHeader(KIND_MATRIX);
+		int rows = buffer.getInt();
+		int columns = buffer.getInt();
+		buffer.position(buffer.position() + 4);
+		checkSectionSize(rows, columns);
+
+		ByteBuffer section = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		section.limit(8 * rows * columns);
+		buffer.position(buffer.position() + 8 * rows * columns);
+
+		return OffHeapMatrix.wrap(section.asDoubleBuffer(), rows, columns);
+	}
+
+	/**
+	 * @return Matrix - the next section, which must be a matrix, bulk copied out of the mapped file
+	 * @throws IOException - is thrown if the next section is not a matrix
+	 */
+	public Matrix nextMatrix() throws IOException {
+		readSectionHeader(KIND_MATRIX);
+		int rows = buffer.getInt();
+		int columns = buffer.getInt();
+		buffer.position(buffer.position() + 4);
+		checkSectionSize(rows, columns);
+
+		Matrix result = new Matrix(rows, columns);
+		result.copyFrom(buffer.asDoubleBuffer());
+		buffer.position(buffer.position() + 8 * rows * columns);
+
+		return result;
+	}
+}
@@ -1,19 +1,40 @@
 package linreg;
 
+import interfaces.GradientModel;
 import interfaces.Model;
-
+import interfaces.Monitored;
+import interfaces.Versioned;
+import io.ModelFile;
+
+import math.CSRMatrix;
+import math.Matrix;
+import math.Parallel;
+import math.ScratchArena;
+import math.SparseGradient;
+import math.SparseVector;
 import math.Vector;
 
+import training.ModelSnapshot;
+import training.TrainingCallbacks;
+import training.TrainingRun;
+
 import java.io.*;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
 
 /**
  * This class provides multilinear regression. R^n -> R. 
  * Instead of using least squares to optimize, it uses gradient descent.
  */
-public class LinearRegression implements Model<Vector, Double, LinRegData>{
+public class LinearRegression implements Model<Vector, Double, LinRegData>, GradientModel<LinRegData>, Versioned, Monitored{
 	
 	private Vector weights;
 	private double bias;
+
+	private final TrainingCallbacks callbacks = new TrainingCallbacks();
+
+	// Bumped by every change to the parameters, read by prediction caches
+	private volatile long version;
 	
 	/**
 	 * Constructor where only the dimension is given and all values are set to default 0. Good for when model will be trained.
@@ -34,6 +55,26 @@ public class LinearRegression implements Model<Vector, Double, LinRegData>{
 		this.bias = bias;
 	}
 
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return TrainingCallbacks - the callbacks notified by train and how often it evaluates the testing data
+	 */
+	@Override
+	public TrainingCallbacks getCallbacks() {
+		return callbacks;
+	}
+
+	/**
+	 * @return LinearRegression - an independent copy of the current parameters, without callbacks
+	 */
+	public LinearRegression copy() {
+		return new LinearRegression(weights, bias);
+	}
+
 	/**
 	 * The main inference / computation of the linear function
 	 * @param x the input vector X
@@ -44,12 +85,51 @@ public class LinearRegression implements Model<Vector, Double, LinRegData>{
 		return weights.dot(x) + bias;
 	}
 
+	/**
+	 * Batched inference over an array of input vectors, split across cores for large batches.
+	 * @param inputs - the input vectors X
+	 * @param outputs - buffer where outputs[i] = compute(inputs[i])
+	 */
+	@Override
+	public void computeBatch(Vector[] inputs, Double[] outputs) {
+
+		if (outputs.length < inputs.length)
+			throw new IllegalArgumentException("Output buffer is smaller than the batch");
+
+		Vector weights = this.weights;
+		double bias = this.bias;
+
+		Parallel.forRange(inputs.length, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				outputs[i] = weights.dot(inputs[i]) + bias;
+			}
+		});
+	}
+
+	/**
+	 * Batched inference over a feature block with one sample per row, computed as a single matrix vector product.
+	 * @param features - (samples, features) matrix X
+	 * @param outputs - buffer where outputs[i] = X * W + b for row i
+	 */
+	public void computeBatch(Matrix features, double[] outputs) {
+
+		if (outputs.length < features.getColumnSize())
+			throw new IllegalArgumentException("Output buffer is smaller than the batch");
+
+		Vector weights = this.weights;
+		double bias = this.bias;
+
+		Parallel.forRange(features.getColumnSize(), (from, to) -> {
+			features.dotInto(weights, outputs, from, to);
+			for (int i = from; i < to; i++) {
+				outputs[i] += bias;
+			}
+		});
+	}
+
 	@Override
 	public void train(LinRegData[] training, LinRegData[] testing, int batchSize, double learningRate, int epochs, boolean verbose){
-		
-		if (verbose){
-			System.out.println("Creating Batches");
-		}
+
 		if (batchSize > training.length)
 			throw new IllegalArgumentException("Batch size must not exceed data size");
 		
@@ -74,57 +154,164 @@ public class LinearRegression implements Model<Vector, Double, LinRegData>{
 				place++;
 			}
 		}
-	
-		if (verbose){
-			System.out.println("Starting Training:");
-		}
-	
-        for(int e = 1; e <= epochs; e++){
-            for (int i = 0; i < batchCount; i++) {
-                this.updateWB(training, learningRate);
-			}
-        
-			if (spareCount > 0) {
-                this.updateWB(spareBatch, learningRate);
-			}
 
-            if (verbose) {
-				System.out.println("Epoch: " + e + " Loss: " + this.getLoss(testing));
-            }
+		int batchesPerEpoch = batchCount + (spareCount > 0 ? 1 : 0);
+
+		try (TrainingRun run = this.beginRun(epochs, batchesPerEpoch, verbose, testing == null ? null : model -> model.getLoss(testing))) {
+			boolean gradientNorm = run.isGradientNormNeeded();
+
+			for(int e = 1; e <= epochs && !run.isStopRequested(); e++){
+				for (int i = 0; i < batchCount && !run.isStopRequested(); i++) {
+					run.stepBegin(e, i + 1, batchSize);
+					run.stepEnd(this.updateWB(batches[i], learningRate, gradientNorm));
+				}
+
+				if (spareCount > 0 && !run.isStopRequested()) {
+					run.stepBegin(e, batchesPerEpoch, spareCount);
+					run.stepEnd(this.updateWB(spareBatch, learningRate, gradientNorm));
+				}
+
+				if (run.isStopRequested())
+					break;
+
+				run.epochEnd(e);
+			}
 		}
 	}
 
+	/**
+	 * Starts reporting a call to train to the callbacks.
+	 * Snapshots copy the current parameters, for background evaluation and for restoring the best ones.
+	 * @param epochs - the number of epochs of the run
+	 * @param batchesPerEpoch - the number of steps per epoch
+	 * @param verbose - whether the run prints its progress
+	 * @param loss - the loss of a model over the testing data, null if there is none
+	 * @return TrainingRun - the run, to be closed when training ends
+	 */
+	private TrainingRun beginRun(int epochs, int batchesPerEpoch, boolean verbose, ToDoubleFunction<LinearRegression> loss) {
+		return this.callbacks.begin("LinearRegression", 1, epochs, batchesPerEpoch, verbose,
+				loss == null ? null : () -> Map.of("loss", loss.applyAsDouble(this)),
+				() -> {
+					LinearRegression copy = this.copy();
+					return new ModelSnapshot() {
+						public Map<String, Double> evaluate() {
+							return Map.of("loss", loss.applyAsDouble(copy));
+						}
+						public void restore() {
+							LinearRegression.this.weights.assign(copy.weights.lazy());
+							LinearRegression.this.bias = copy.bias;
+							LinearRegression.this.version++;
+						}
+					};
+				});
+	}
+
 	/**
 	 * This is an internal method for taking single training step based off of a batch of samples.
 	 * @param training - array of training samples to calculate gradients
 	 * @param learningRate - floating point scalar multiplier used to scale gradient before adding them to wieghts and bias
+	 * @param gradientNorm - whether the norm of the mean gradient is computed
+	 * @return double - the norm of the mean gradient of the weights and bias, NaN if gradientNorm is false
 	 */
-	private void updateWB(LinRegData[] training, double learningRate){
-		
-		Vector deltaWeights = new Vector(weights.getLength());
-		double deltaBias = 0;
+	private double updateWB(LinRegData[] training, double learningRate, boolean gradientNorm){
 		
-		for (int i = 0; i < training.length; i++) {
+		ScratchArena arena = ScratchArena.current();
+		arena.beginStep();
+
+		try {
+			Vector deltaWeights = arena.vector(weights.getLength());
+			double deltaBias = 0;
 			
-			Vector xi = training[i].getData();
-			double yi = training[i].getLabel();
+			for (int i = 0; i < training.length; i++) {
 				
-			double error = yi - this.compute(xi);
+				Vector xi = training[i].getData();
+				double yi = training[i].getLabel();
+					
+				double error = yi - this.compute(xi);
 
-			Vector dwi = xi.scaled(-2 * error);
-			double dbi = (-2 * error);
-				
-			deltaWeights = deltaWeights.plus(dwi);
-			deltaBias += dbi;
+				double dbi = -2 * error;
+
+				deltaWeights.addScaled(xi, dbi);
+				deltaBias += dbi;
+			}
+			
+			deltaBias /= training.length;
+
+			double norm = gradientNorm ? Math.sqrt(deltaWeights.dot(deltaWeights) / ((double) training.length * training.length) + deltaBias * deltaBias) : Double.NaN;
+			
+			weights.assign(weights.lazy().minus(deltaWeights.lazy().scaled(1.0 / training.length).scaled(learningRate)));
+			bias = bias - (deltaBias * learningRate);
+			version++;
+
+			return norm;
+		} finally {
+			arena.endStep();
 		}
-		
-		deltaWeights.scale((1.0 / training.length));
-		deltaBias /= training.length;
-		
-		weights = weights.minus(deltaWeights.scaled(learningRate));
-		bias = bias - (deltaBias * learningRate);
 	}
 	
+	/**
+	 * The flat layout holds the weights followed by the bias.
+	 * @return int - the number of trainable parameters
+	 */
+	@Override
+	public int getParameterCount() {
+		return weights.getLength() + 1;
+	}
+
+	@Override
+	public void getParameters(double[] parameters) {
+		checkParameterLength(parameters);
+		for (int i = 0; i < weights.getLength(); i++) {
+			parameters[i] = weights.getValue(i);
+		}
+		parameters[weights.getLength()] = bias;
+	}
+
+	@Override
+	public void setParameters(double[] parameters) {
+		checkParameterLength(parameters);
+		for (int i = 0; i < weights.getLength(); i++) {
+			weights.setValue(i, parameters[i]);
+		}
+		bias = parameters[weights.getLength()];
+		version++;
+	}
+
+	@Override
+	public void computeGradient(LinRegData[] batch, double[] gradient) {
+
+		checkParameterLength(gradient);
+		int n = weights.getLength();
+
+		for (int j = 0; j <= n; j++) {
+			gradient[j] = 0;
+		}
+
+		for (int i = 0; i < batch.length; i++) {
+
+			Vector xi = batch[i].getData();
+			double yi = batch[i].getLabel();
+
+			double error = yi - this.compute(xi);
+
+			double dbi = -2 * error;
+
+			for (int j = 0; j < n; j++) {
+				gradient[j] += xi.getValue(j) * dbi;
+			}
+			gradient[n] += dbi;
+		}
+
+		for (int j = 0; j <= n; j++) {
+			gradient[j] /= batch.length;
+		}
+	}
+
+	private void checkParameterLength(double[] array) {
+		if (array.length != weights.getLength() + 1)
+			throw new IllegalArgumentException("Expected " + (weights.getLength() + 1) + " parameters but got " + array.length);
+	}
+
 	/**
 	 * This calculates the mean square error of the predicted values yhat = mx+b and ground truth.
 	 * @param examples - LinRegData array of samples (Vector, float)
@@ -148,6 +335,132 @@ public class LinearRegression implements Model<Vector, Double, LinRegData>{
 		return loss;
 	}
 
+	//Sparse Samples
+
+	/**
+	 * Inference on a sparse sample, O(nnz).
+	 * @param x - the sparse input vector X
+	 * @return scalar Y = W*X + b
+	 */
+	public Double compute(SparseVector x) {
+		return x.dot(weights) + bias;
+	}
+
+	/**
+	 * Batched inference over a CSR block with one sparse sample per row, split across cores for large batches.
+	 * @param features - (samples, features) sparse matrix X
+	 * @param outputs - buffer where outputs[i] = compute(row i)
+	 */
+	public void computeBatch(CSRMatrix features, double[] outputs) {
+
+		if (outputs.length < features.getColumnSize())
+			throw new IllegalArgumentException("Output buffer is smaller than the batch");
+
+		Vector weights = this.weights;
+		double bias = this.bias;
+
+		Parallel.forRange(features.getColumnSize(), (from, to) -> {
+			features.dotInto(weights, outputs, from, to);
+			for (int i = from; i < to; i++) {
+				outputs[i] += bias;
+			}
+		});
+	}
+
+	/**
+	 * Training on sparse samples using mini-batch gradient descent. Weight updates are applied lazily,
+	 * so a step only touches the weights of features present in its batch and costs O(nnz) rather than O(features).
+	 * @param training - array of sparse samples the model uses for weight updating
+	 * @param testing - array of sparse samples used to display loss when verbose is true
+	 * @param batchSize - the number of samples used for each training step
+	 * @param learningRate - double precision float used to scale gradients for training steps
+	 * @param epochs - number of times the model goes through the training data array
+	 * @param verbose - display toggle for viewing training process
+	 */
+	public void train(SparseLinRegData[] training, SparseLinRegData[] testing, int batchSize, double learningRate, int epochs, boolean verbose){
+
+		if (batchSize > training.length)
+			throw new IllegalArgumentException("Batch size must not exceed data size");
+
+		SparseGradient gradient = new SparseGradient(weights.getLength());
+		int batchesPerEpoch = (training.length + batchSize - 1) / batchSize;
+
+		try (TrainingRun run = this.beginRun(epochs, batchesPerEpoch, verbose, testing == null ? null : model -> model.getLoss(testing))) {
+			boolean gradientNorm = run.isGradientNormNeeded();
+
+			for(int e = 1; e <= epochs && !run.isStopRequested(); e++){
+				for (int start = 0; start < training.length && !run.isStopRequested(); start += batchSize) {
+					int end = Math.min(training.length, start + batchSize);
+					run.stepBegin(e, start / batchSize + 1, end - start);
+					run.stepEnd(this.updateWB(training, start, end, gradient, learningRate, gradientNorm));
+				}
+
+				if (run.isStopRequested())
+					break;
+
+				run.epochEnd(e);
+			}
+		}
+	}
+
+	/**
+	 * This is an internal method for taking a single training step on the sparse samples training[from, to).
+	 * @param training - array of sparse training samples
+	 * @param from - first sample of the batch (inclusive)
+	 * @param to - last sample of the batch (exclusive)
+	 * @param gradient - reusable accumulator for the weight gradient
+	 * @param learningRate - floating point scalar multiplier used to scale gradient before adding them to wieghts and bias
+	 * @param gradientNorm - whether the norm of the mean gradient is computed
+	 * @return double - the norm of the mean gradient of the weights and bias, NaN if gradientNorm is false
+	 */
+	private double updateWB(SparseLinRegData[] training, int from, int to, SparseGradient gradient, double learningRate, boolean gradientNorm){
+
+		double deltaBias = 0;
+
+		for (int i = from; i < to; i++) {
+
+			SparseVector xi = training[i].getData();
+			double yi = training[i].getLabel();
+
+			double error = yi - this.compute(xi);
+
+			gradient.add(xi, -2 * error);
+			deltaBias += -2 * error;
+		}
+
+		int n = to - from;
+
+		double norm = gradientNorm ? Math.sqrt(gradient.squaredNorm() / ((double) n * n) + (deltaBias / n) * (deltaBias / n)) : Double.NaN;
+
+		gradient.applyTo(weights, learningRate / n);
+		bias = bias - (deltaBias / n * learningRate);
+		version++;
+
+		return norm;
+	}
+
+	/**
+	 * This calculates the mean square error of the predicted values yhat = mx+b and ground truth over sparse samples.
+	 * @param examples - array of sparse samples
+	 * @return loss - double precision floating point number
+	 */
+	public double getLoss(SparseLinRegData[] examples) {
+
+		double loss = 0.0;
+
+		for (int i = 0; i < examples.length; i++) {
+
+			SparseVector xi = examples[i].getData();
+			double yi = examples[i].getLabel();
+
+			loss += Math.pow(yi - this.compute(xi), 2);
+		}
+
+		loss /= examples.length;
+
+		return loss;
+	}
+
 	/**
 	 * This returns a defensive copy of the model's weights.
 	 * @return Vector - the weights of the model
@@ -217,12 +530,12 @@ public class LinearRegression implements Model<Vector, Double, LinRegData>{
 
 		try{	
 
-			double bias = Float.parseFloat(biasString);
+			double bias = Double.parseDouble(biasString);
 
 			String[] tokens = weightString.split("\\s+");
 			Vector weights = new Vector(tokens.length);
 			for (int i = 0; i < tokens.length; i++){
-				weights.setValue(i, Float.parseFloat(tokens[i]));
+				weights.setValue(i, Double.parseDouble(tokens[i]));
 			}
 
 			return new LinearRegression(weights, bias);
@@ -232,6 +545,38 @@ public class LinearRegression implements Model<Vector, Double, LinRegData>{
 		}
 	}
 
+	/**
+	 * This records the weights and bias of the model in the binary model format (see io.ModelFile).
+	 * Unlike save, values are stored at full double precision.
+	 * @param filePath - the path for the new file.
+	 * @throws IOException - is thrown if a file already exists at filePath.
+	 */
+	public void saveBinary(String filePath) throws IOException {
+
+		ModelFile file = new ModelFile(ModelFile.TYPE_LINEAR_REGRESSION);
+		file.addVector(this.weights);
+		file.addScalar(this.bias);
+		file.save(filePath);
+	}
+
+	/**
+	 * This creates a LinearRegression model object from a binary model file, which is memory mapped and copied in bulk.
+	 * @param filePath - the path of the file.
+	 * @throws IOException - is thrown if the file does not exist, holds another model type or is corrupted.
+	 */
+	public static LinearRegression loadBinary(String filePath) throws IOException {
+
+		ModelFile file = ModelFile.load(filePath);
+
+		if (file.getModelType() != ModelFile.TYPE_LINEAR_REGRESSION)
+			throw new IOException("Cannot load model. File holds a different model type.");
+
+		Vector weights = file.nextVector();
+		double bias = file.nextScalar();
+
+		return new LinearRegression(weights, bias);
+	}
+
 	/**
 	 * This forces a weight to a specified value for if you ever need it.
 	 * @param i - the index of the weight
@@ -239,6 +584,7 @@ public class LinearRegression implements Model<Vector, Double, LinRegData>{
 	 */
 	public void forceWeightValue(int i, double value) {
 		this.weights.setValue(i, value);
+		this.version++;
 	}
 
 	/**
@@ -247,6 +593,7 @@ public class LinearRegression implements Model<Vector, Double, LinRegData>{
 	 */
 	public void forceBiasValue(double value) {
 		this.bias = value;
+		this.version++;
 	}
 
 	/**
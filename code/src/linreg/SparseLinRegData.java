@@ -0,0 +1,59 @@
+package linreg;
+
+import interfaces.Sample;
+
+import math.SparseVector;
+
+/**
+ * This class defines the sparse data type for Linear Regression.
+ * It bundles a sparse input vector (data) with a scalar double ground truth.
+ */
+public class SparseLinRegData implements Sample<SparseVector, Double>{
+
+	private final SparseVector data;
+	private final double label;
+
+	/**
+	 * basic constructor with the data and label
+	 * @param data - SparseVector (X)
+	 * @param label - double (Y)
+	 */
+	public SparseLinRegData(SparseVector data, double label) {
+		this.data = data;
+		this.label = label;
+	}
+
+	/**
+	 * @return SparseVector - Data (X)
+	 */
+	@Override
+	public SparseVector getData() {
+		return data;
+	}
+
+	/**
+	 * @return double - scalar (Y)
+	 */
+	@Override
+	public Double getLabel(){
+		return label;
+	}
+
+	/**
+	 * This is a static method that bundles an array of sparse vectors and an array of labels into samples,
+	 * each index is bundled together (v[i],l[i]).
+	 * @param vectors - the array of sparse vectors
+	 * @param labels - the array of labels
+	 * @return SparseLinRegData array
+	 */
+	public static SparseLinRegData[] format(SparseVector[] vectors, double[] labels) {
+
+		SparseLinRegData[] data = new SparseLinRegData[vectors.length];
+
+		for (int i = 0; i < data.length; i++) {
+			data[i] = new SparseLinRegData(vectors[i], labels[i]);
+		}
+
+		return data;
+	}
+}
@@ -0,0 +1,237 @@
+package logreg;
+
+import math.SparseVector;
+
+import java.util.Arrays;
+
+/**
+ * This class maps raw categorical features (field, value) straight into a fixed width sparse index space
+ * (the hashing trick), so high cardinality data like user ids or urls never has to be one hot encoded.
+ * Each feature is hashed with 32 bit MurmurHash3: the low bits pick the index and the top bit picks
+ * a sign of +1 or -1, which keeps collisions unbiased in expectation.
+ */
+public class FeatureHasher {
+
+	private final int bits;
+	private final int mask;
+	private final int seed;
+
+	/**
+	 * @param bits - the index space has 2^bits dimensions (1 to 30)
+	 */
+	public FeatureHasher(int bits) {
+		this(bits, 0);
+	}
+
+	/**
+	 * @param bits - the index space has 2^bits dimensions (1 to 30)
+	 * @param seed - hash seed, models must be scored with the seed they were trained with
+	 */
+	public FeatureHasher(int bits, int seed) {
+
+		if (bits < 1 || bits > 30)
+			throw new IllegalArgumentException("Hash bits must be between 1 and 30");
+
+		this.bits = bits;
+		this.mask = (1 << bits) - 1;
+		this.seed = seed;
+	}
+
+	/**
+	 * @return int - the dimension of the hashed vectors, used to size the model
+	 */
+	public int getDimension() {
+		return 1 << bits;
+	}
+
+	//Hashing
+
+	/**
+	 * Hashes features that are already combined into single strings such as "user=123".
+	 * @param features - the raw features, each counted with a value of 1
+	 * @return SparseVector - the hashed sample
+	 */
+	public SparseVector hash(String[] features) {
+
+		int[] hashes = new int[features.length];
+
+		for (int i = 0; i < features.length; i++) {
+			hashes[i] = hashString(features[i], seed);
+		}
+
+		return toSparse(hashes);
+	}
+
+	/**
+	 * Hashes (field, value) string pairs without concatenating them, the field hash seeds the value hash.
+	 * @param fields - the feature names
+	 * @param values - the feature values, parallel to fields
+	 * @return SparseVector - the hashed sample
+	 */
+	public SparseVector hash(String[] fields, String[] values) {
+
+		if (fields.length != values.length)
+			throw new IllegalArgumentException();
+
+		int[] hashes = new int[fields.length];
+
+		for (int i = 0; i < fields.length; i++) {
+			hashes[i] = hashString(values[i], hashString(fields[i], seed));
+		}
+
+		return toSparse(hashes);
+	}
+
+	/**
+	 * Hashes (field, value) integer pairs, for categorical data that is already id encoded.
+	 * @param fields - the feature ids
+	 * @param values - the feature values, parallel to fields
+	 * @return SparseVector - the hashed sample
+	 */
+	public SparseVector hash(int[] fields, int[] values) {
+
+		if (fields.length != values.length)
+			throw new IllegalArgumentException();
+
+		int[] hashes = new int[fields.length];
+
+		for (int i = 0; i < fields.length; i++) {
+			hashes[i] = hashInts(fields[i], values[i], seed);
+		}
+
+		return toSparse(hashes);
+	}
+
+	/**
+	 * Hashes a labelled sample for LogisticRegression training.
+	 * @param fields - the feature names
+	 * @param values - the feature values, parallel to fields
+	 * @param label - the ground truth
+	 * @return SparseLogRegData - the hashed sample
+	 */
+	public SparseLogRegData sample(String[] fields, String[] values, boolean label) {
+		return new SparseLogRegData(this.hash(fields, values), label);
+	}
+
+	/**
+	 * Scores raw features against a model trained on this hasher's output without building a vector.
+	 * @param model - a model with getDimension() features
+	 * @param fields - the feature names
+	 * @param values - the feature values, parallel to fields
+	 * @return double - sigmoid(W*X + b), computed with the model's math mode
+	 */
+	public double score(LogisticRegression model, String[] fields, String[] values) {
+
+		if (fields.length != values.length)
+			throw new IllegalArgumentException();
+
+		double total = model.getBias();
+
+		for (int i = 0; i < fields.length; i++) {
+			int h = hashString(values[i], hashString(fields[i], seed));
+			total += sign(h) * model.getWeightValue(h & mask);
+		}
+
+		return model.getMathMode().sigmoid(total);
+	}
+
+	/**
+	 * This sorts the hashed indices, sums the signs of colliding features and drops any that cancel out.
+	 */
+	private SparseVector toSparse(int[] hashes) {
+
+		int n = hashes.length;
+		int[] indices = new int[n];
+		double[] values = new double[n];
+
+		//insertion sort by index, samples only hold a handful of features
+		for (int i = 0; i < n; i++) {
+			int index = hashes[i] & mask;
+			double value = sign(hashes[i]);
+			int j = i - 1;
+			while (j >= 0 && indices[j] > index) {
+				indices[j + 1] = indices[j];
+				values[j + 1] = values[j];
+				j--;
+			}
+			indices[j + 1] = index;
+			values[j + 1] = value;
+		}
+
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (count > 0 && indices[count - 1] == indices[i]) {
+				values[count - 1] += values[i];
+			} else {
+				indices[count] = indices[i];
+				values[count] = values[i];
+				count++;
+			}
+		}
+
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			if (values[i] != 0) {
+				indices[kept] = indices[i];
+				values[kept] = values[i];
+				kept++;
+			}
+		}
+
+		return new SparseVector(getDimension(), Arrays.copyOf(indices, kept), Arrays.copyOf(values, kept));
+	}
+
+	private static double sign(int hash) {
+		return hash < 0 ? -1.0 : 1.0;
+	}
+
+	//MurmurHash3 x86 32 bit
+
+	private static int mixK(int k) {
+		k *= 0xcc9e2d51;
+		k = Integer.rotateLeft(k, 15);
+		k *= 0x1b873593;
+		return k;
+	}
+
+	private static int mixH(int h, int k) {
+		h ^= mixK(k);
+		h = Integer.rotateLeft(h, 13);
+		return h * 5 + 0xe6546b64;
+	}
+
+	private static int finish(int h, int length) {
+		h ^= length;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * MurmurHash3 over the UTF-16 code units of a string, two chars per block, so no byte array is created.
+	 */
+	static int hashString(String s, int seed) {
+
+		int h = seed;
+		int length = s.length();
+		int i = 0;
+
+		for (; i + 1 < length; i += 2) {
+			h = mixH(h, s.charAt(i) | (s.charAt(i + 1) << 16));
+		}
+		if (i < length) {
+			h ^= mixK(s.charAt(i));
+		}
+
+		return finish(h, 2 * length);
+	}
+
+	static int hashInts(int a, int b, int seed) {
+		int h = mixH(seed, a);
+		h = mixH(h, b);
+		return finish(h, 8);
+	}
+}
@@ -1,19 +1,49 @@
 package logreg;
 
+import interfaces.GradientModel;
 import interfaces.Model;
+import interfaces.Monitored;
+import interfaces.Versioned;
+import io.ModelFile;
+
+import training.ModelSnapshot;
+import training.TrainingCallbacks;
+import training.TrainingRun;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToDoubleFunction;
+import math.CSRMatrix;
+import math.FastMath;
+import math.Matrix;
+import math.Parallel;
+import math.ScratchArena;
+import math.SparseGradient;
+import math.SparseVector;
 import math.Vector;
 
 /**
  * This provides multifeature logistic regresion R^N -> (0,1),
  * uses SGD to optimize parameters.
  */
-public class LogisticRegression implements Model<Vector, Double, LogRegData>{
+public class LogisticRegression implements Model<Vector, Double, LogRegData>, GradientModel<LogRegData>, Versioned, Monitored{
 	
 	private Vector weights;
 	private double bias;
 
+	private final TrainingCallbacks callbacks = new TrainingCallbacks();
+
+	// Bumped by every change to the parameters, read by prediction caches
+	private volatile long version;
+
+	private FastMath.Mode mathMode = FastMath.Mode.EXACT;
+
 	/**
 	 * Constructor where only the dimension is given and all values are set to default 0. Good for when model will be trained.
 	 * @param features - the number of features the model takes in and transforms linearly (Y = sigmoid (wx1 + wx2 + wxn + b))
@@ -31,6 +61,28 @@ public class LogisticRegression implements Model<Vector, Double, LogRegData>{
 		this.weights = weights.deepCopy();
 		this.bias = bias;
 	}
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return TrainingCallbacks - the callbacks notified by train and how often it evaluates the testing data
+	 */
+	@Override
+	public TrainingCallbacks getCallbacks() {
+		return callbacks;
+	}
+
+	/**
+	 * @return LogisticRegression - an independent copy of the current parameters, without callbacks
+	 */
+	public LogisticRegression copy() {
+		LogisticRegression copy = new LogisticRegression(weights, bias);
+		copy.mathMode = this.mathMode;
+		return copy;
+	}
+
 	/**
 	* This is the main inference / computation of the model.
 	* @param x this is the input vector X
@@ -38,15 +90,54 @@ public class LogisticRegression implements Model<Vector, Double, LogRegData>{
 	*/
 	@Override
 	public Double compute(Vector x) {
-		return 1 / (1 + Math.exp( -(weights.dot(x) + bias) ));
+		return mathMode.sigmoid(weights.dot(x) + bias);
+	}
+
+	/**
+	 * Batched inference over an array of input vectors, split across cores for large batches.
+	 * @param inputs - the input vectors X
+	 * @param outputs - buffer where outputs[i] = compute(inputs[i])
+	 */
+	@Override
+	public void computeBatch(Vector[] inputs, Double[] outputs) {
+
+		if (outputs.length < inputs.length)
+			throw new IllegalArgumentException("Output buffer is smaller than the batch");
+
+		Vector weights = this.weights;
+		double bias = this.bias;
+
+		Parallel.forRange(inputs.length, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				outputs[i] = mathMode.sigmoid(weights.dot(inputs[i]) + bias);
+			}
+		});
+	}
+
+	/**
+	 * Batched inference over a feature block with one sample per row, computed as a single matrix vector product.
+	 * @param features - (samples, features) matrix X
+	 * @param outputs - buffer where outputs[i] = sigmoid(X * W + b) for row i
+	 */
+	public void computeBatch(Matrix features, double[] outputs) {
+
+		if (outputs.length < features.getColumnSize())
+			throw new IllegalArgumentException("Output buffer is smaller than the batch");
+
+		Vector weights = this.weights;
+		double bias = this.bias;
+
+		Parallel.forRange(features.getColumnSize(), (from, to) -> {
+			features.dotInto(weights, outputs, from, to);
+			for (int i = from; i < to; i++) {
+				outputs[i] = mathMode.sigmoid(outputs[i] + bias);
+			}
+		});
 	}
 
 	@Override
 	public void train(LogRegData[] training, LogRegData[] testing, int batchSize, double learningRate, int epochs, boolean verbose){
-		
-		if (verbose){
-			System.out.println("Creating Batches");
-		}
+
 		if (batchSize > training.length)
 			throw new IllegalArgumentException("Batch size must not exceed data size");
 
@@ -71,57 +162,164 @@ public class LogisticRegression implements Model<Vector, Double, LogRegData>{
 				place++;
 			}
 		}
-		
-		if(verbose){
-			System.out.println("Starting Training: ");
-		}
 
-		for(int e = 1; e <= epochs; e++){
-            for (int i = 0; i < batchCount; i++) {
-                this.updateWB(training, learningRate);
-			}
-        
-			if (spareCount > 0) {
-                this.updateWB(spareBatch, learningRate);
-			}
+		int batchesPerEpoch = batchCount + (spareCount > 0 ? 1 : 0);
 
-            if (verbose) {
-				System.out.println("Epoch: " + e + " Loss: " + this.getLoss(testing));
-            }
+		try (TrainingRun run = this.beginRun(epochs, batchesPerEpoch, verbose, testing == null ? null : model -> model.getLoss(testing))) {
+			boolean gradientNorm = run.isGradientNormNeeded();
+
+			for(int e = 1; e <= epochs && !run.isStopRequested(); e++){
+				for (int i = 0; i < batchCount && !run.isStopRequested(); i++) {
+					run.stepBegin(e, i + 1, batchSize);
+					run.stepEnd(this.updateWB(batches[i], learningRate, gradientNorm));
+				}
+
+				if (spareCount > 0 && !run.isStopRequested()) {
+					run.stepBegin(e, batchesPerEpoch, spareCount);
+					run.stepEnd(this.updateWB(spareBatch, learningRate, gradientNorm));
+				}
+
+				if (run.isStopRequested())
+					break;
+
+				run.epochEnd(e);
+			}
 		}
 	}
+
+	/**
+	 * Starts reporting a call to train to the callbacks.
+	 * Snapshots copy the current parameters, for background evaluation and for restoring the best ones.
+	 * @param epochs - the number of epochs of the run
+	 * @param batchesPerEpoch - the number of steps per epoch
+	 * @param verbose - whether the run prints its progress
+	 * @param loss - the loss of a model over the testing data, null if there is none
+	 * @return TrainingRun - the run, to be closed when training ends
+	 */
+	private TrainingRun beginRun(int epochs, int batchesPerEpoch, boolean verbose, ToDoubleFunction<LogisticRegression> loss) {
+		return this.callbacks.begin("LogisticRegression", 1, epochs, batchesPerEpoch, verbose,
+				loss == null ? null : () -> Map.of("loss", loss.applyAsDouble(this)),
+				() -> {
+					LogisticRegression copy = this.copy();
+					return new ModelSnapshot() {
+						public Map<String, Double> evaluate() {
+							return Map.of("loss", loss.applyAsDouble(copy));
+						}
+						public void restore() {
+							LogisticRegression.this.weights.assign(copy.weights.lazy());
+							LogisticRegression.this.bias = copy.bias;
+							LogisticRegression.this.version++;
+						}
+					};
+				});
+	}
 	
 	/**
 	 * This is an internal method for taking single training step based off of a batch of samples.
 	 * @param training - array of training samples to calculate gradients
 	 * @param learningRate - doubleing point scalar multiplier used to scale gradient before adding them to wieghts and bias
+	 * @param gradientNorm - whether the norm of the mean gradient is computed
+	 * @return double - the norm of the mean gradient of the weights and bias, NaN if gradientNorm is false
 	 */
-	private void updateWB(LogRegData[] training, double learningRate) {
-		
-		Vector deltaWeights = new Vector(weights.getLength());
-		double deltaBias = 0;
+	private double updateWB(LogRegData[] training, double learningRate, boolean gradientNorm) {
 		
-		for (int i = 0; i < training.length; i++) {
+		ScratchArena arena = ScratchArena.current();
+		arena.beginStep();
+
+		try {
+			Vector deltaWeights = arena.vector(weights.getLength());
+			double deltaBias = 0;
 			
-			Vector xi = training[i].getData();
-			double yi = training[i].getLabelVal();
+			for (int i = 0; i < training.length; i++) {
+				
+				Vector xi = training[i].getData();
+				double yi = training[i].getLabelVal();
+				
+				double error = yi - this.compute(xi);
+
+				double dbi = -1 * error;
+
+				deltaWeights.addScaled(xi, dbi);
+				deltaBias += dbi;
+			}
+			
+			deltaBias /= training.length;
+
+			double norm = gradientNorm ? Math.sqrt(deltaWeights.dot(deltaWeights) / ((double) training.length * training.length) + deltaBias * deltaBias) : Double.NaN;
 			
+			weights.assign(weights.lazy().minus(deltaWeights.lazy().scaled(1.0 / training.length).scaled(learningRate)));
+			bias = bias - (deltaBias * learningRate);
+			version++;
+
+			return norm;
+		} finally {
+			arena.endStep();
+		}
+	}
+	
+	/**
+	 * The flat layout holds the weights followed by the bias.
+	 * @return int - the number of trainable parameters
+	 */
+	@Override
+	public int getParameterCount() {
+		return weights.getLength() + 1;
+	}
+
+	@Override
+	public void getParameters(double[] parameters) {
+		checkParameterLength(parameters);
+		for (int i = 0; i < weights.getLength(); i++) {
+			parameters[i] = weights.getValue(i);
+		}
+		parameters[weights.getLength()] = bias;
+	}
+
+	@Override
+	public void setParameters(double[] parameters) {
+		checkParameterLength(parameters);
+		for (int i = 0; i < weights.getLength(); i++) {
+			weights.setValue(i, parameters[i]);
+		}
+		bias = parameters[weights.getLength()];
+		version++;
+	}
+
+	@Override
+	public void computeGradient(LogRegData[] batch, double[] gradient) {
+
+		checkParameterLength(gradient);
+		int n = weights.getLength();
+
+		for (int j = 0; j <= n; j++) {
+			gradient[j] = 0;
+		}
+
+		for (int i = 0; i < batch.length; i++) {
+
+			Vector xi = batch[i].getData();
+			double yi = batch[i].getLabelVal();
+
 			double error = yi - this.compute(xi);
 
-			Vector dwi = xi.scaled(-1 * error);
 			double dbi = -1 * error;
-				
-			deltaWeights = deltaWeights.plus(dwi);
-			deltaBias += dbi;
+
+			for (int j = 0; j < n; j++) {
+				gradient[j] += xi.getValue(j) * dbi;
+			}
+			gradient[n] += dbi;
+		}
+
+		for (int j = 0; j <= n; j++) {
+			gradient[j] /= batch.length;
 		}
-		
-		deltaWeights.scale( (1.0 / training.length));
-		deltaBias /= training.length;
-		
-		weights = weights.minus(deltaWeights.scaled(learningRate));
-		bias = bias - (deltaBias * learningRate);
 	}
-	
+
+	private void checkParameterLength(double[] array) {
+		if (array.length != weights.getLength() + 1)
+			throw new IllegalArgumentException("Expected " + (weights.getLength() + 1) + " parameters but got " + array.length);
+	}
+
 	/**
 	 * This calculates the cross entropy/log loss between the predicted values y' = sigmoid(W*X+b) and ground truth (y).
 	 * @param examples - LogRegData array of samples (Vector, double)
@@ -137,14 +335,264 @@ public class LogisticRegression implements Model<Vector, Double, LogRegData>{
 			boolean yi = examples[i].getLabel();
 			
 			if(yi){
-				loss += -1 * Math.log(this.compute(xi));
+				loss += -1 * mathMode.log(this.compute(xi));
 			} else {
-				loss += -1 * Math.log(1.0f - this.compute(xi));
+				loss += -1 * mathMode.log(1.0f - this.compute(xi));
 			}
 		}
 		
 		return loss;
 	}
+	//Sparse Samples
+
+	/**
+	 * Inference on a sparse sample, O(nnz).
+	 * @param x - the sparse input vector X
+	 * @return scalar Y = sigmoid(W*X + b)
+	 */
+	public Double compute(SparseVector x) {
+		return mathMode.sigmoid(x.dot(weights) + bias);
+	}
+
+	/**
+	 * Batched inference over a CSR block with one sparse sample per row, split across cores for large batches.
+	 * @param features - (samples, features) sparse matrix X
+	 * @param outputs - buffer where outputs[i] = compute(row i)
+	 */
+	public void computeBatch(CSRMatrix features, double[] outputs) {
+
+		if (outputs.length < features.getColumnSize())
+			throw new IllegalArgumentException("Output buffer is smaller than the batch");
+
+		Vector weights = this.weights;
+		double bias = this.bias;
+
+		Parallel.forRange(features.getColumnSize(), (from, to) -> {
+			features.dotInto(weights, outputs, from, to);
+			for (int i = from; i < to; i++) {
+				outputs[i] = mathMode.sigmoid(outputs[i] + bias);
+			}
+		});
+	}
+
+	/**
+	 * Training on sparse samples using mini-batch gradient descent. Weight updates are applied lazily,
+	 * so a step only touches the weights of features present in its batch and costs O(nnz) rather than O(features).
+	 * @param training - array of sparse samples the model uses for weight updating
+	 * @param testing - array of sparse samples used to display loss when verbose is true
+	 * @param batchSize - the number of samples used for each training step
+	 * @param learningRate - double precision float used to scale gradients for training steps
+	 * @param epochs - number of times the model goes through the training data array
+	 * @param verbose - display toggle for viewing training process
+	 */
+	public void train(SparseLogRegData[] training, SparseLogRegData[] testing, int batchSize, double learningRate, int epochs, boolean verbose){
+
+		if (batchSize > training.length)
+			throw new IllegalArgumentException("Batch size must not exceed data size");
+
+		SparseGradient gradient = new SparseGradient(weights.getLength());
+		int batchesPerEpoch = (training.length + batchSize - 1) / batchSize;
+
+		try (TrainingRun run = this.beginRun(epochs, batchesPerEpoch, verbose, testing == null ? null : model -> model.getLoss(testing))) {
+			boolean gradientNorm = run.isGradientNormNeeded();
+
+			for(int e = 1; e <= epochs && !run.isStopRequested(); e++){
+				for (int start = 0; start < training.length && !run.isStopRequested(); start += batchSize) {
+					int end = Math.min(training.length, start + batchSize);
+					run.stepBegin(e, start / batchSize + 1, end - start);
+					run.stepEnd(this.updateWB(training, start, end, gradient, learningRate, gradientNorm));
+				}
+
+				if (run.isStopRequested())
+					break;
+
+				run.epochEnd(e);
+			}
+		}
+	}
+
+	/**
+	 * This is an internal method for taking a single training step on the sparse samples training[from, to).
+	 * @param training - array of sparse training samples
+	 * @param from - first sample of the batch (inclusive)
+	 * @param to - last sample of the batch (exclusive)
+	 * @param gradient - reusable accumulator for the weight gradient
+	 * @param learningRate - floating point scalar multiplier used to scale gradient before adding them to wieghts and bias
+	 * @param gradientNorm - whether the norm of the mean gradient is computed
+	 * @return double - the norm of the mean gradient of the weights and bias, NaN if gradientNorm is false
+	 */
+	private double updateWB(SparseLogRegData[] training, int from, int to, SparseGradient gradient, double learningRate, boolean gradientNorm){
+
+		double deltaBias = 0;
+
+		for (int i = from; i < to; i++) {
+
+			SparseVector xi = training[i].getData();
+			double yi = training[i].getLabelVal();
+
+			double error = yi - this.compute(xi);
+
+			gradient.add(xi, -1 * error);
+			deltaBias += -1 * error;
+		}
+
+		int n = to - from;
+
+		double norm = gradientNorm ? Math.sqrt(gradient.squaredNorm() / ((double) n * n) + (deltaBias / n) * (deltaBias / n)) : Double.NaN;
+
+		gradient.applyTo(weights, learningRate / n);
+		bias = bias - (deltaBias / n * learningRate);
+		version++;
+
+		return norm;
+	}
+
+	/**
+	 * Hogwild training on sparse samples. Each thread runs per sample gradient descent over its own contiguous shard of the
+	 * training data, reading and writing one shared array of weights without any locks.
+	 * Updates of different threads may overwrite each other, which rarely happens and costs little when samples are sparse
+	 * and share few features. The bias is touched by every sample, so sharing it would make every update contend for one
+	 * cache line and lose updates. Each thread instead trains its own copy of the bias, and the changes of the copies are
+	 * averaged into the bias at the end of the epoch. Every copy converges on its own shard, so summing them would overshoot.
+	 * The shared weights are copied into the model after every epoch, which is reported to the
+	 * callbacks as a single step, so evaluation, snapshots and early stopping work per epoch. The gradient norm of that step
+	 * is the norm of the epoch's change of the parameters divided by learningRate times the number of samples.
+	 * @param training - array of sparse samples the model uses for weight updating
+	 * @param testing - array of sparse samples used to display loss when verbose is true
+	 * @param learningRate - double precision float used to scale the gradient of every sample
+	 * @param epochs - number of times the model goes through the training data array
+	 * @param threads - the number of threads, each with its own shard
+	 * @param verbose - display toggle for viewing training process
+	 */
+	public void trainHogwild(SparseLogRegData[] training, SparseLogRegData[] testing, double learningRate, int epochs, int threads, boolean verbose) {
+
+		if (threads < 1 || threads > training.length)
+			throw new IllegalArgumentException("Threads must be positive and must not exceed data size");
+
+		int n = weights.getLength();
+		double[] shared = new double[n];
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "hogwild");
+			thread.setDaemon(true);
+			return thread;
+		});
+		List<Future<Double>> shards = new ArrayList<Future<Double>>(threads);
+
+		try (TrainingRun run = this.beginRun(epochs, 1, verbose, testing == null ? null : model -> model.getLoss(testing))) {
+
+			boolean gradientNorm = run.isGradientNormNeeded();
+
+			for (int e = 1; e <= epochs && !run.isStopRequested(); e++) {
+				run.stepBegin(e, 1, training.length);
+
+				for (int j = 0; j < n; j++) {
+					shared[j] = weights.getValue(j);
+				}
+				double epochBias = bias;
+
+				shards.clear();
+				for (int t = 0; t < threads; t++) {
+					int from = (int) ((long) training.length * t / threads);
+					int to = (int) ((long) training.length * (t + 1) / threads);
+					shards.add(pool.submit(() -> this.hogwild(training, from, to, shared, epochBias, learningRate)));
+				}
+				double biasDelta = 0;
+				for (Future<Double> shard : shards) {
+					biasDelta += await(shard);
+				}
+
+				// Per sample steps never form a batch gradient, the epoch's mean gradient is its change over learningRate * samples
+				double change = gradientNorm ? (biasDelta / threads) * (biasDelta / threads) : 0;
+				for (int j = 0; j < n; j++) {
+					if (gradientNorm) {
+						double d = shared[j] - weights.getValue(j);
+						change += d * d;
+					}
+					weights.setValue(j, shared[j]);
+				}
+				bias = epochBias + biasDelta / threads;
+				version++;
+
+				run.stepEnd(gradientNorm ? Math.sqrt(change) / (learningRate * training.length) : Double.NaN);
+
+				if (run.isStopRequested())
+					break;
+
+				run.epochEnd(e);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * This runs per sample gradient descent over training[from, to) on the shared weights, see trainHogwild.
+	 * @return double - the change this shard made to the bias
+	 */
+	private double hogwild(SparseLogRegData[] training, int from, int to, double[] shared, double bias, double learningRate) {
+
+		double localBias = bias;
+
+		for (int i = from; i < to; i++) {
+
+			SparseVector xi = training[i].getData();
+			double yi = training[i].getLabelVal();
+
+			double z = localBias;
+			for (int k = 0; k < xi.getNonZeroCount(); k++) {
+				z += shared[xi.getIndex(k)] * xi.getNonZeroValue(k);
+			}
+
+			double step = learningRate * (yi - mathMode.sigmoid(z));
+
+			for (int k = 0; k < xi.getNonZeroCount(); k++) {
+				shared[xi.getIndex(k)] += step * xi.getNonZeroValue(k);
+			}
+			localBias += step;
+		}
+		return localBias - bias;
+	}
+
+	private static double await(Future<Double> shard) {
+		try {
+			return shard.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while training", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * This calculates the cross entropy/log loss between the predicted values y' = sigmoid(W*X+b) and ground truth (y) over sparse samples.
+	 * @param examples - array of sparse samples
+	 * @return loss - double precision floating point number
+	 */
+	public double getLoss(SparseLogRegData[] examples) {
+
+		double loss = 0.0;
+
+		for (int i = 0; i < examples.length; i++) {
+
+			SparseVector xi = examples[i].getData();
+			boolean yi = examples[i].getLabel();
+
+			if(yi){
+				loss += -1 * mathMode.log(this.compute(xi));
+			} else {
+				loss += -1 * mathMode.log(1.0f - this.compute(xi));
+			}
+		}
+
+		return loss;
+	}
+
 	/**
 	 * This returns a defensive copy of the model's weights,
 	 * @return Vector - the weights of the model
@@ -162,6 +610,22 @@ public class LogisticRegression implements Model<Vector, Double, LogRegData>{
 		return weights.getValue(i);
 	}
 	
+	/**
+	 * This selects how the sigmoid and the log loss are computed. Defaults to EXACT.
+	 * @param mathMode - EXACT for java.lang.Math, or one of the FastMath approximations
+	 */
+	public void setMathMode(FastMath.Mode mathMode) {
+		this.mathMode = mathMode;
+		this.version++;
+	}
+
+	/**
+	 * @return FastMath.Mode - how the sigmoid and the log loss are computed
+	 */
+	public FastMath.Mode getMathMode() {
+		return mathMode;
+	}
+
 	/**
 	 * This returns the bias / shift of the model's logistic function.
 	 * @return double - the b part of y = sigmoid(W*X + b)
@@ -229,6 +693,38 @@ public class LogisticRegression implements Model<Vector, Double, LogRegData>{
 		}
 	}
 
+	/**
+	 * This records the weights and bias of the model in the binary model format (see io.ModelFile).
+	 * Unlike save, values are stored at full double precision.
+	 * @param filePath - the path for the new file.
+	 * @throws IOException - is thrown if a file already exists at filePath.
+	 */
+	public void saveBinary(String filePath) throws IOException {
+
+		ModelFile file = new ModelFile(ModelFile.TYPE_LOGISTIC_REGRESSION);
+		file.addVector(this.weights);
+		file.addScalar(this.bias);
+		file.save(filePath);
+	}
+
+	/**
+	 * This creates a LogisticRegression model object from a binary model file, which is memory mapped and copied in bulk.
+	 * @param filePath - the path of the file.
+	 * @throws IOException - is thrown if the file does not exist, holds another model type or is corrupted.
+	 */
+	public static LogisticRegression loadBinary(String filePath) throws IOException {
+
+		ModelFile file = ModelFile.load(filePath);
+
+		if (file.getModelType() != ModelFile.TYPE_LOGISTIC_REGRESSION)
+			throw new IOException("Cannot load model. File holds a different model type.");
+
+		Vector weights = file.nextVector();
+		double bias = file.nextScalar();
+
+		return new LogisticRegression(weights, bias);
+	}
+
 	/**
 	 * This forces a weight to a specified value for if you ever need it.
 	 * @param i - the index of the weight
@@ -236,6 +732,7 @@ public class LogisticRegression implements Model<Vector, Double, LogRegData>{
 	 */
 	public void forceWeightValue(int i, double value) {
 		weights.setValue(i, value);
+		version++;
 	}
 
 	/**
@@ -244,6 +741,7 @@ public class LogisticRegression implements Model<Vector, Double, LogRegData>{
 	 */
 	public void forceBiasValue(double value) {
 		bias = value;
+		version++;
 	}
 	
 	public static void main(String[] args) {
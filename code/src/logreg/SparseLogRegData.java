@@ -0,0 +1,66 @@
+package logreg;
+
+import interfaces.Sample;
+
+import math.SparseVector;
+
+/**
+ * This class defines the sparse data type for Logistic Regression.
+ * It bundles a sparse input vector (data) with a boolean ground truth positive (1) or negative (0) label.
+ */
+public class SparseLogRegData implements Sample<SparseVector, Boolean>{
+
+	private final SparseVector data;
+	private final boolean label;
+
+	/**
+	 * Basic constructor with the data and label.
+	 * @param data - SparseVector (X)
+	 * @param label - boolean (Y)
+	 */
+	public SparseLogRegData(SparseVector data, boolean label) {
+		this.data = data;
+		this.label = label;
+	}
+
+	/**
+	 * @return SparseVector - Data (X)
+	 */
+	@Override
+	public SparseVector getData() {
+		return data;
+	}
+
+	/**
+	 * @return boolean - label (Y)
+	 */
+	@Override
+	public Boolean getLabel(){
+		return label;
+	}
+
+	/**
+	 * @return double - label (Y)
+	 */
+	public double getLabelVal(){
+		return label ? 1f : 0f;
+	}
+
+	/**
+	 * This is a static method that bundles an array of sparse vectors and an array of labels into samples,
+	 * each index is bundled together (v[i],l[i]).
+	 * @param vectors - the array of sparse vectors
+	 * @param labels - the array of labels
+	 * @return SparseLogRegData array
+	 */
+	public static SparseLogRegData[] format(SparseVector[] vectors, boolean[] labels) {
+
+		SparseLogRegData[] data = new SparseLogRegData[vectors.length];
+
+		for (int i = 0; i < data.length; i++) {
+			data[i] = new SparseLogRegData(vectors[i], labels[i]);
+		}
+
+		return data;
+	}
+}
@@ -0,0 +1,126 @@
+package math;
+
+import java.util.Arrays;
+
+/**
+ * This class provides a sparse matrix in compressed sparse row (CSR) form.
+ * Row i holds the elements columnIndices[rowPointers[i] .. rowPointers[i + 1]) with matching values,
+ * which is how a block of sparse samples is stored for batched scoring.
+ */
+public class CSRMatrix {
+
+	private final int rowSize;
+	private final int[] rowPointers;
+	private final int[] columnIndices;
+	private final double[] values;
+
+	private CSRMatrix(int rowSize, int[] rowPointers, int[] columnIndices, double[] values) {
+		this.rowSize = rowSize;
+		this.rowPointers = rowPointers;
+		this.columnIndices = columnIndices;
+		this.values = values;
+	}
+
+	/**
+	 * This stacks sparse vectors of the same dimension as the rows of a CSR matrix.
+	 * @param rows - the sparse vectors
+	 * @return CSRMatrix - (rows.length, n) matrix
+	 */
+	public static CSRMatrix fromRows(SparseVector[] rows) {
+
+		int rowSize = rows[0].getLength();
+		int[] rowPointers = new int[rows.length + 1];
+
+		for (int i = 0; i < rows.length; i++) {
+			if (rows[i].getLength() != rowSize)
+				throw new IllegalArgumentException("Cannot create Matrix - vectors have different lengths");
+			rowPointers[i + 1] = rowPointers[i] + rows[i].getNonZeroCount();
+		}
+
+		int[] columnIndices = new int[rowPointers[rows.length]];
+		double[] values = new double[rowPointers[rows.length]];
+
+		for (int i = 0; i < rows.length; i++) {
+			for (int k = 0; k < rows[i].getNonZeroCount(); k++) {
+				columnIndices[rowPointers[i] + k] = rows[i].getIndex(k);
+				values[rowPointers[i] + k] = rows[i].getNonZeroValue(k);
+			}
+		}
+
+		return new CSRMatrix(rowSize, rowPointers, columnIndices, values);
+	}
+
+	//Accessors
+
+	/**
+	 * @return int - row count / column size (m) of matrix
+	 */
+	public int getColumnSize() {
+		return rowPointers.length - 1;
+	}
+
+	/**
+	 * @return int - column count / row size (n) of matrix
+	 */
+	public int getRowSize() {
+		return rowSize;
+	}
+
+	/**
+	 * @return int - the number of stored (non zero) elements
+	 */
+	public int getNonZeroCount() {
+		return values.length;
+	}
+
+	/**
+	 * This returns the (ith) row as a sparse vector.
+	 * @param row - the index of the row
+	 * @return SparseVector - copy of the row
+	 */
+	public SparseVector getRowVector(int row) {
+
+		int start = rowPointers[row];
+		int end = rowPointers[row + 1];
+
+		return new SparseVector(rowSize,
+			Arrays.copyOfRange(columnIndices, start, end),
+			Arrays.copyOfRange(values, start, end));
+	}
+
+	//Math Functions
+
+	/**
+	 * Matrix transformation of a dense Vector, O(nnz).
+	 * @param that - vector input where dim(vec) = dim(mat(n))
+	 * @return vector B = Ax
+	 */
+	public Vector dot(Vector that) {
+
+		double[] result = new double[this.getColumnSize()];
+		this.dotInto(that, result, 0, result.length);
+
+		return new Vector(result);
+	}
+
+	/**
+	 * Matrix transformation of a dense Vector for a range of rows, written into a caller supplied buffer.
+	 * @param that - vector input where dim(vec) = dim(mat(n))
+	 * @param result - buffer where result[i] = (Ax)[i] for i in [from, to)
+	 * @param from - first row (inclusive)
+	 * @param to - last row (exclusive)
+	 */
+	public void dotInto(Vector that, double[] result, int from, int to) {
+
+		if (rowSize != that.getLength())
+			throw new IllegalArgumentException();
+
+		for (int i = from; i < to; i++) {
+			double total = 0.0;
+			for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+				total += values[k] * that.getValue(columnIndices[k]);
+			}
+			result[i] = total;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package math;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a counter based RandomSource built on the SplitMix64 mixing function.
+ * The number at index i is the (i + 1)th output of SplitMix64 seeded with the seed, computed directly as
+ * mix(seed + (i + 1) * gamma), so there is no shared state to contend on and any index costs the same.
+ * SplitMix64 passes BigCrush and is the generator behind java.util.SplittableRandom.
+ */
+public class CounterRandom implements RandomSource {
+
+	private static final long GAMMA = 0x9E3779B97F4A7C15L;
+	private static final long STREAM_GAMMA = 0xD1B54A32D192ED03L;
+
+	private static final AtomicLong ENTROPY = new AtomicLong(System.nanoTime());
+
+	private final long seed;
+
+	/**
+	 * @param seed - the seed, the same seed always produces the same numbers
+	 */
+	public CounterRandom(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @return CounterRandom - a generator with a seed that differs on every call, for unseeded initialization
+	 */
+	public static CounterRandom fromEntropy() {
+		return new CounterRandom(mix(ENTROPY.addAndGet(GAMMA) ^ System.nanoTime()));
+	}
+
+	/**
+	 * @return long - the seed of the generator
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	@Override
+	public long bits(long index) {
+		return mix(seed + (index + 1) * GAMMA);
+	}
+
+	@Override
+	public RandomSource split(long stream) {
+		return new CounterRandom(mix(seed ^ mix((stream + 1) * STREAM_GAMMA)));
+	}
+
+	/**
+	 * The SplitMix64 finalizer, a bijection on 64 bit values with full avalanche.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
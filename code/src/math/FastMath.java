@@ -0,0 +1,208 @@
+package math;
+
+/**
+ * This class provides table driven approximations of exp and log, plus sigmoid and log-sum-exp built from them,
+ * for the hot loops of the models (sigmoid in LogisticRegression, exp in Softmax and log in the losses).
+ *
+ * Both kernels reduce the argument with a 64 entry table and finish with a short polynomial, so there are no
+ * branches on the common path. The error bounds below were derived from the polynomial remainders and checked
+ * against java.lang.Math over 10^7 random arguments per function, log half of them within (1/e, e), which is the
+ * accuracy table of test.FastMathBenchmark.
+ *
+ * exp, for -708 &lt; x &lt; 709 (outside that range java.lang.Math is used):
+ *   ACCURATE - max relative error 4.5e-16
+ *   FAST     - max relative error 2.7e-8
+ * log, for positive normal x (zero, negative, subnormal and non finite arguments use java.lang.Math):
+ *   ACCURATE - max absolute error 3.4e-16 where |log x| &lt;= 1, max relative error 4.5e-16 elsewhere
+ *   FAST     - max absolute error 1.5e-8 where |log x| &lt;= 1, max relative error 1.1e-8 elsewhere
+ */
+public final class FastMath {
+
+	/**
+	 * The accuracy / speed trade off of a model's transcendental functions.
+	 */
+	public enum Mode {
+
+		/** java.lang.Math, correctly rounded to within 1 ulp. */
+		EXACT {
+			public double exp(double x) { return Math.exp(x); }
+			public double log(double x) { return Math.log(x); }
+		},
+
+		/** Table plus a degree 5 (exp) or degree 9 (log) polynomial, accurate to a few ulp. */
+		ACCURATE {
+			public double exp(double x) { return FastMath.expAccurate(x); }
+			public double log(double x) { return FastMath.logAccurate(x); }
+		},
+
+		/** Table plus a degree 2 (exp) or degree 3 (log) polynomial, about single precision accuracy. */
+		FAST {
+			public double exp(double x) { return FastMath.expFast(x); }
+			public double log(double x) { return FastMath.logFast(x); }
+		};
+
+		/**
+		 * @param x - the exponent
+		 * @return double - e^x
+		 */
+		public abstract double exp(double x);
+
+		/**
+		 * @param x - a positive number
+		 * @return double - the natural logarithm of x
+		 */
+		public abstract double log(double x);
+
+		/**
+		 * @param x - the input
+		 * @return double - 1 / (1 + e^-x)
+		 */
+		public double sigmoid(double x) {
+			return 1 / (1 + this.exp(-x));
+		}
+
+		/**
+		 * This computes log(sum(e^xi)) without overflow by factoring out the largest element.
+		 * @param x - the vector of exponents
+		 * @return double - log(sum(e^xi)) for i in x
+		 */
+		public double logSumExp(Vector x) {
+
+			double max = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < x.getLength(); i++) {
+				max = Math.max(max, x.getValue(i));
+			}
+
+			if (Double.isInfinite(max))
+				return max;
+
+			double sum = 0;
+			for (int i = 0; i < x.getLength(); i++) {
+				sum += this.exp(x.getValue(i) - max);
+			}
+
+			return max + this.log(sum);
+		}
+	}
+
+	private static final int TABLE_BITS = 6;
+	private static final int TABLE_SIZE = 1 << TABLE_BITS;
+
+	// 2^(j/64) for j in [0, 64)
+	private static final double[] EXP_TABLE = new double[TABLE_SIZE];
+
+	// log(1 + j/64) and 1 / (1 + j/64) for j in [0, 64)
+	private static final double[] LOG_TABLE = new double[TABLE_SIZE];
+	private static final double[] INVERSE_TABLE = new double[TABLE_SIZE];
+
+	// ln(2) split so that n * LN2_HI is exact for any exponent this class produces
+	private static final double LN2_HI = 6.93147180369123816490e-01;
+	private static final double LN2_LO = 1.90821492927058770002e-10;
+
+	private static final double INV_LN2_64 = TABLE_SIZE / 0.6931471805599453;
+	private static final double LN2_64_HI = LN2_HI / TABLE_SIZE;
+	private static final double LN2_64_LO = LN2_LO / TABLE_SIZE;
+
+	static {
+		for (int j = 0; j < TABLE_SIZE; j++) {
+			EXP_TABLE[j] = Math.pow(2.0, (double) j / TABLE_SIZE);
+			LOG_TABLE[j] = Math.log1p((double) j / TABLE_SIZE);
+			INVERSE_TABLE[j] = 1.0 / (1.0 + (double) j / TABLE_SIZE);
+		}
+	}
+
+	private FastMath() {}
+
+	//Exp
+
+	/**
+	 * e^x to within 4.5e-16 relative error.
+	 * @param x - the exponent
+	 * @return double - e^x
+	 */
+	public static double expAccurate(double x) {
+
+		if (!(x > -708.0 && x < 709.0))
+			return Math.exp(x);
+
+		int n = (int) Math.rint(x * INV_LN2_64);
+		double r = (x - n * LN2_64_HI) - n * LN2_64_LO;
+
+		// |r| <= ln(2) / 128, remainder r^6 / 720 < 3.5e-17
+		double p = 1 + r * (1 + r * (1.0 / 2 + r * (1.0 / 6 + r * (1.0 / 24 + r * (1.0 / 120)))));
+
+		return scale(EXP_TABLE[n & (TABLE_SIZE - 1)] * p, n >> TABLE_BITS);
+	}
+
+	/**
+	 * e^x to within 2.7e-8 relative error.
+	 * @param x - the exponent
+	 * @return double - e^x
+	 */
+	public static double expFast(double x) {
+
+		if (!(x > -708.0 && x < 709.0))
+			return Math.exp(x);
+
+		int n = (int) Math.rint(x * INV_LN2_64);
+		double r = (x - n * LN2_64_HI) - n * LN2_64_LO;
+
+		// remainder r^3 / 6 < 2.7e-8
+		double p = 1 + r * (1 + r * (1.0 / 2));
+
+		return scale(EXP_TABLE[n & (TABLE_SIZE - 1)] * p, n >> TABLE_BITS);
+	}
+
+	/**
+	 * This multiplies by 2^k by building the exponent bits directly, for -1022 &lt;= k &lt;= 1023.
+	 */
+	private static double scale(double value, int k) {
+		return value * Double.longBitsToDouble((long) (k + 1023) << 52);
+	}
+
+	//Log
+
+	/**
+	 * log(x) to within 3.4e-16 absolute error, or 4.5e-16 relative error where |log x| &gt; 1.
+	 * @param x - a positive number
+	 * @return double - the natural logarithm of x
+	 */
+	public static double logAccurate(double x) {
+
+		if (!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE))
+			return Math.log(x);
+
+		long bits = Double.doubleToRawLongBits(x);
+		int e = (int) (bits >>> 52) - 1023;
+		int j = (int) (bits >>> (52 - TABLE_BITS)) & (TABLE_SIZE - 1);
+		double m = Double.longBitsToDouble((bits & 0x000FFFFFFFFFFFFFL) | 0x3FF0000000000000L);
+
+		// m = (1 + j/64)(1 + u) with 0 <= u < 1/64, remainder u^10 / 10 < 8.7e-20
+		double u = m * INVERSE_TABLE[j] - 1;
+		double p = u * (1 - u * (1.0 / 2 - u * (1.0 / 3 - u * (1.0 / 4 - u * (1.0 / 5 - u * (1.0 / 6 - u * (1.0 / 7 - u * (1.0 / 8 - u * (1.0 / 9)))))))));
+
+		return e * LN2_HI + (LOG_TABLE[j] + (p + e * LN2_LO));
+	}
+
+	/**
+	 * log(x) to within 1.5e-8 absolute error, or 1.1e-8 relative error where |log x| &gt; 1.
+	 * @param x - a positive number
+	 * @return double - the natural logarithm of x
+	 */
+	public static double logFast(double x) {
+
+		if (!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE))
+			return Math.log(x);
+
+		long bits = Double.doubleToRawLongBits(x);
+		int e = (int) (bits >>> 52) - 1023;
+		int j = (int) (bits >>> (52 - TABLE_BITS)) & (TABLE_SIZE - 1);
+		double m = Double.longBitsToDouble((bits & 0x000FFFFFFFFFFFFFL) | 0x3FF0000000000000L);
+
+		// remainder u^4 / 4 < 1.5e-8
+		double u = m * INVERSE_TABLE[j] - 1;
+		double p = u * (1 - u * (1.0 / 2 - u * (1.0 / 3)));
+
+		return e * LN2_HI + (LOG_TABLE[j] + (p + e * LN2_LO));
+	}
+}
@@ -0,0 +1,298 @@
+package math;
+
+/**
+ * This class provides a single precision matrix data type (mat = float(m,n)).
+ * It mirrors Matrix with the operations needed by float32 layers, several of which work in place
+ * so a training step does not allocate a new matrix for every gradient.
+ */
+public class FloatMatrix {
+
+	private final float[][] arr;
+
+	//Constructors
+
+	/**
+	 * This constructs a matrix object by defensively copying the contents of a 2d rectangular float array.
+	 * @param arr - a non jagged 2d float array
+	 */
+	public FloatMatrix(float[][] arr) {
+
+		for(int i = 0; i < arr.length; i++){
+			if (arr[0].length != arr[i].length)
+				throw new IllegalArgumentException("Cannot create Matrix - 2D array is jagged");
+		}
+
+		this.arr = new float[arr.length][arr[0].length];
+		for(int i = 0; i < arr.length; i++) {
+			System.arraycopy(arr[i], 0, this.arr[i], 0, arr[i].length);
+		}
+	}
+
+	/**
+	 * This constructs a matrix object full of default values (0) given the dimensions (m,n).
+	 * @param columnSize - number of rows in the matrix (m)
+	 * @param rowSize - number of colums in the matrix (n)
+	 */
+	public FloatMatrix(int columnSize, int rowSize) {
+		arr = new float[columnSize][rowSize];
+	}
+
+	/**
+	 * This converts a double precision matrix, rounding every element to the nearest float.
+	 * @param that - the matrix to convert
+	 * @return FloatMatrix - single precision copy
+	 */
+	public static FloatMatrix fromMatrix(Matrix that) {
+
+		FloatMatrix result = new FloatMatrix(that.getColumnSize(), that.getRowSize());
+
+		for (int i = 0; i < result.getColumnSize(); i++) {
+			for (int j = 0; j < result.getRowSize(); j++) {
+				result.arr[i][j] = (float) that.getValue(i, j);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * This converts the matrix to double precision.
+	 * @return Matrix - double precision copy
+	 */
+	public Matrix toMatrix() {
+
+		Matrix result = new Matrix(this.getColumnSize(), this.getRowSize());
+
+		for (int i = 0; i < this.getColumnSize(); i++) {
+			for (int j = 0; j < this.getRowSize(); j++) {
+				result.setValue(i, j, arr[i][j]);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * This constructs a matrix by stacking a range of vectors as its rows.
+	 * @param rows - array of vectors with the same length
+	 * @param from - index of the first vector (inclusive)
+	 * @param to - index of the last vector (exclusive)
+	 * @return FloatMatrix - (to - from, n) matrix where row i is a copy of rows[from + i]
+	 */
+	public static FloatMatrix fromRows(FloatVector[] rows, int from, int to) {
+
+		FloatMatrix result = new FloatMatrix(to - from, rows[from].getLength());
+
+		for (int i = from; i < to; i++) {
+			if (rows[i].getLength() != result.getRowSize())
+				throw new IllegalArgumentException("Cannot create Matrix - vectors have different lengths");
+			for (int j = 0; j < result.getRowSize(); j++) {
+				result.arr[i - from][j] = rows[i].getValue(j);
+			}
+		}
+
+		return result;
+	}
+
+	//Accessors and Mutators
+
+	/**
+	 * @return int - row count / column size (m) of matrix
+	 */
+	public int getColumnSize(){
+		return arr.length;
+	}
+
+	/**
+	 * @return int - column count / row size (n) of matrix
+	 */
+	public int getRowSize() {
+		return arr[0].length;
+	}
+
+	/**
+	 * @param i - first index (m)
+	 * @param j - second index (n)
+	 * @param value - the new value in Mat(i,j)
+	 */
+	public void setValue(int i, int j, float value) {
+		arr[i][j] = value;
+	}
+
+	/**
+	 * @param i - first index (m)
+	 * @param j - second index (n)
+	 * @return float - value at mat(i,j)
+	 */
+	public float getValue(int i, int j) {
+		return arr[i][j];
+	}
+
+	/**
+	 * This sets all of the values in the matrix to random normally distributed numbers.
+	 */
+	public void setValuesRandom() {
+		this.setValuesRandom(CounterRandom.fromEntropy());
+	}
+
+	/**
+	 * This sets all of the values to standard normally distributed numbers from a random source,
+	 * filled in parallel with element (i,j) always getting the (i * n + j)th number of the source.
+	 * @param random - the source of the numbers
+	 */
+	public void setValuesRandom(RandomSource random) {
+
+		int n = this.getRowSize();
+
+		Parallel.forRange(this.getColumnSize(), Math.max(1, 4096 / Math.max(1, n)), (from, to) -> {
+			for (int i = from; i < to; i++) {
+				for (int j = 0; j < n; j++) {
+					arr[i][j] = (float) random.gaussian((long) i * n + j);
+				}
+			}
+		});
+	}
+
+	/**
+	 * This returns the (ith) row in the Matrix as a 1D Vector.
+	 * @param row - the index of the row
+	 * @return FloatVector - Defensively copied Vector from the row array in the matrix
+	 */
+	public FloatVector getRowVector(int row) {
+		return new FloatVector(arr[row]);
+	}
+
+	/**
+	 * @return FloatMatrix - a replica of the matrix with the same values
+	 */
+	public FloatMatrix deepCopy(){
+		return new FloatMatrix(this.arr);
+	}
+
+	//Math Functions
+
+	/**
+	 * Matrix transformation of a Vector
+	 * @param that vector input where dim(vec) = dim(mat(n))
+	 * @return vector B = Ax
+	 */
+	public FloatVector dot(FloatVector that) {
+
+		int x = this.getRowSize();
+
+		if(x != that.getLength())
+			throw new IllegalArgumentException();
+
+		FloatVector result = new FloatVector(this.getColumnSize());
+
+		for (int i = 0; i < result.getLength(); i++) {
+			float[] row = arr[i];
+			float total = 0.0f;
+			for (int k = 0; k < x; k++) {
+				total += row[k] * that.getValue(k);
+			}
+			result.setValue(i, total);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Transformation of a Vector by the transpose without building the transpose.
+	 * @param that vector input where dim(vec) = dim(mat(m))
+	 * @return vector B = A^T x
+	 */
+	public FloatVector transposeDot(FloatVector that) {
+
+		if(this.getColumnSize() != that.getLength())
+			throw new IllegalArgumentException();
+
+		float[] result = new float[this.getRowSize()];
+
+		for (int i = 0; i < arr.length; i++) {
+			float[] row = arr[i];
+			float xi = that.getValue(i);
+			for (int j = 0; j < row.length; j++) {
+				result[j] += row[j] * xi;
+			}
+		}
+
+		return new FloatVector(result);
+	}
+
+	/**
+	 * Dot product with the transpose of another matrix without building the transpose. (C = A * B^T)
+	 * @param that - another matrix where ||this(j)|| = ||that(j)||
+	 * @return matrix C = A * B^T
+	 */
+	public FloatMatrix dotTranspose(FloatMatrix that){
+
+		if (this.getRowSize() != that.getRowSize())
+			throw new IllegalArgumentException();
+
+		int inner = this.getRowSize();
+		FloatMatrix result = new FloatMatrix(this.getColumnSize(), that.getColumnSize());
+
+		for (int i = 0; i < result.getColumnSize(); i++) {
+			float[] thisRow = this.arr[i];
+			for (int j = 0; j < result.getRowSize(); j++) {
+				float[] thatRow = that.arr[j];
+				float total = 0.0f;
+				for (int k = 0; k < inner; k++) {
+					total += thisRow[k] * thatRow[k];
+				}
+				result.arr[i][j] = total;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Inplace accumulation of an outer product. (A <- A + a b^T)
+	 * @param a - vector where dim(a) = m
+	 * @param b - vector where dim(b) = n
+	 */
+	public void addOuter(FloatVector a, FloatVector b) {
+
+		if (this.getColumnSize() != a.getLength() || this.getRowSize() != b.getLength())
+			throw new IllegalArgumentException();
+
+		for (int i = 0; i < arr.length; i++) {
+			float[] row = arr[i];
+			float ai = a.getValue(i);
+			for (int j = 0; j < row.length; j++) {
+				row[j] += ai * b.getValue(j);
+			}
+		}
+	}
+
+	/**
+	 * Inplace addition of a vector to every row of the matrix (broadcasting a bias over a batch).
+	 * @param that - vector where dim(vec) = dim(mat(n))
+	 */
+	public void addToRows(FloatVector that) {
+
+		if(this.getRowSize() != that.getLength())
+			throw new IllegalArgumentException();
+
+		for (int i = 0; i < arr.length; i++) {
+			for (int j = 0; j < arr[i].length; j++) {
+				arr[i][j] += that.getValue(j);
+			}
+		}
+	}
+
+	/**
+	 * Inplace scaling of the matrix by a float scalar.
+	 * @param scalar - float scalar k in A <- kA
+	 */
+	public void scale(float scalar) {
+
+		for (int i = 0; i < arr.length; i++) {
+			for (int j = 0; j < arr[i].length; j++) {
+				arr[i][j] *= scalar;
+			}
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package math;
+
+/**
+ * This class provides a single precision vector datatype. V = f^n
+ * It mirrors Vector for workloads where float32 is accurate enough, halving memory traffic.
+ * Like Vector, it does NOT have a definitive orientation.
+ */
+public class FloatVector {
+
+	private final float[] arr;
+
+	//Constructors
+
+	/**
+	 * This constructor creates a vector object using the values from a float array.
+	 * @param arr - the float array that is deeply copied.
+	 */
+	public FloatVector(float[] arr) {
+		this.arr = new float[arr.length];
+		System.arraycopy(arr, 0, this.arr, 0, arr.length);
+	}
+
+	/**
+	 * This constructor creates a vector object with a specified length and all values set to default (0).
+	 * @param length int - the length / dimension of the vector
+	 */
+	public FloatVector(int length) {
+		arr = new float[length];
+	}
+
+	/**
+	 * This converts a double precision vector, rounding every element to the nearest float.
+	 * @param that - the vector to convert
+	 * @return FloatVector - single precision copy
+	 */
+	public static FloatVector fromVector(Vector that) {
+
+		FloatVector result = new FloatVector(that.getLength());
+
+		for (int i = 0; i < result.arr.length; i++) {
+			result.arr[i] = (float) that.getValue(i);
+		}
+
+		return result;
+	}
+
+	/**
+	 * This converts the vector to double precision.
+	 * @return Vector - double precision copy
+	 */
+	public Vector toVector() {
+
+		Vector result = new Vector(arr.length);
+
+		for (int i = 0; i < arr.length; i++) {
+			result.setValue(i, arr[i]);
+		}
+
+		return result;
+	}
+
+	//Accessors
+
+	/**
+	 * @return int - the dimension n of the vector
+	 */
+	public int getLength() {
+		return arr.length;
+	}
+
+	/**
+	 * @param i int - the index
+	 * @return float - value at index i
+	 */
+	public float getValue(int i) {
+		return arr[i];
+	}
+
+	/**
+	 * @return FloatVector - replica of the copied vector
+	 */
+	public FloatVector deepCopy(){
+		return new FloatVector(this.arr);
+	}
+
+	//Mutators
+
+	/**
+	 * @param i int - the index of the mutated value
+	 * @param value float - the new value at the index
+	 */
+	public void setValue(int i, float value) {
+		arr[i] = value;
+	}
+
+	/**
+	 * This sets all the elements in the vector to a single value.
+	 * @param value float - the value to set all elements to
+	 */
+	public void setValues(float value) {
+		for(int i = 0; i < arr.length; i++) {
+			this.arr[i] = value;
+		}
+	}
+
+	/**
+	 * This returns all the elements of the vector with spaces in between them.
+	 */
+	public String toString() {
+
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < this.getLength(); i++)
+			sb.append(arr[i] + " ");
+
+		sb.deleteCharAt(sb.length() - 1);
+
+		return sb.toString();
+	}
+
+	//Math Functions
+
+	/**
+	 * Element-wise vector addition.
+	 * @param that - another vector of the same dimension
+	 * @return vector C = A + B
+	 */
+	public FloatVector plus(FloatVector that) {
+
+		if (this.getLength() != that.getLength())
+			throw new IllegalArgumentException();
+
+		FloatVector result = new FloatVector(arr.length);
+
+		for (int i = 0; i < arr.length; i++) {
+			result.arr[i] = this.arr[i] + that.arr[i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Element-wise vector subtraction.
+	 * @param that - another vector of the same dimension
+	 * @return vector C = A - B
+	 */
+	public FloatVector minus(FloatVector that) {
+
+		if (this.getLength() != that.getLength())
+			throw new IllegalArgumentException();
+
+		FloatVector result = new FloatVector(arr.length);
+
+		for (int i = 0; i < arr.length; i++) {
+			result.arr[i] = this.arr[i] - that.arr[i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Typical Vector dot product, accumulated in single precision.
+	 * @param that - another vector of the same dimension
+	 * @return float y = sum(Ai * bi) for i in vectors A,B
+	 */
+	public float dot(FloatVector that) {
+
+		if (this.getLength() != that.getLength())
+			throw new IllegalArgumentException();
+
+		float result = 0;
+
+		for (int i = 0; i < arr.length; i++) {
+			result += this.arr[i] * that.arr[i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Inplace scaling of each element by a scalar.
+	 * @param scalar - float scalar k in V -> kV
+	 */
+	public void scale(float scalar) {
+		for (int i = 0; i < arr.length; i++) {
+			arr[i] *= scalar;
+		}
+	}
+
+	/**
+	 * Non-inplace scaling of each element by a float scalar.
+	 * @param scalar - float scalar k in kV
+	 * @return vector W = kV
+	 */
+	public FloatVector scaled(float scalar) {
+
+		FloatVector result = new FloatVector(arr.length);
+
+		for (int i = 0; i < arr.length; i++) {
+			result.arr[i] = arr[i] * scalar;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Inplace element-wise addition, used to accumulate gradients without allocating.
+	 * @param that - another vector of the same dimension
+	 */
+	public void add(FloatVector that) {
+
+		if (this.getLength() != that.getLength())
+			throw new IllegalArgumentException();
+
+		for (int i = 0; i < arr.length; i++) {
+			arr[i] += that.arr[i];
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package math;
 
-import java.util.Random;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
 
 /**
  * This class provides a matrix data type (mat = double(m,n)). 
@@ -38,6 +39,44 @@ public class Matrix {
 	public Matrix(int columnSize, int rowSize) {
 		arr = new double[columnSize][rowSize];
 	}
+
+	/**
+	 * This is for subclasses that keep their values outside of the java heap (see OffHeapMatrix).
+	 * They must override the size accessors, getValue and setValue; every operation falls back to those
+	 * accessors when a matrix has no heap array.
+	 */
+	protected Matrix() {
+		arr = null;
+	}
+
+	/**
+	 * This shares existing row arrays instead of copying them, so rowsView can hand out heap rows without copying values.
+	 */
+	private Matrix(double[][] rows, boolean shared) {
+		this.arr = rows;
+	}
+
+	/**
+	 * This constructs a matrix by stacking a range of vectors as its rows, used to build a feature block for batches.
+	 * @param rows - array of vectors with the same length
+	 * @param from - index of the first vector (inclusive)
+	 * @param to - index of the last vector (exclusive)
+	 * @return Matrix - (to - from, n) matrix where row i is a copy of rows[from + i]
+	 */
+	public static Matrix fromRows(Vector[] rows, int from, int to) {
+
+		Matrix result = new Matrix(to - from, rows[from].getLength());
+
+		for (int i = from; i < to; i++) {
+			if (rows[i].getLength() != result.getRowSize())
+				throw new IllegalArgumentException("Cannot create Matrix - vectors have different lengths");
+			for (int j = 0; j < result.getRowSize(); j++) {
+				result.arr[i - from][j] = rows[i].getValue(j);
+			}
+		}
+
+		return result;
+	}
 	
 	//Accessors and Mutators
 
@@ -65,17 +104,115 @@ public class Matrix {
 		arr[i][j] = value;
 	}
 	
+	/**
+	 * This copies all the values of another matrix into this one without allocating.
+	 * @param that - another matrix of the same dimension
+	 */
+	public void setValues(Matrix that) {
+
+		if(this.getColumnSize() != that.getColumnSize() || this.getRowSize() != that.getRowSize())
+			throw new IllegalArgumentException("Matrix dimensions do not match.");
+
+		if (this.arr == null || that.arr == null) {
+			for (int i = 0; i < this.getColumnSize(); i++) {
+				for (int j = 0; j < this.getRowSize(); j++) {
+					this.setValue(i, j, that.getValue(i, j));
+				}
+			}
+			return;
+		}
+
+		for (int i = 0; i < arr.length; i++) {
+			System.arraycopy(that.arr[i], 0, this.arr[i], 0, arr[i].length);
+		}
+	}
+
+	/**
+	 * This materialises an element-wise expression into the matrix in a single pass without allocating.
+	 * The matrix may appear in the expression itself, e.g. W.assign(W.lazy().minus(dW.lazy().scaled(k))).
+	 * @param expr - an expression of the same dimension
+	 */
+	public void assign(MatrixExpr expr) {
+
+		if(this.getColumnSize() != expr.getColumnSize() || this.getRowSize() != expr.getRowSize())
+			throw new IllegalArgumentException("Matrix dimensions do not match.");
+
+		if (this.arr == null) {
+			for (int i = 0; i < this.getColumnSize(); i++) {
+				for (int j = 0; j < this.getRowSize(); j++) {
+					this.setValue(i, j, expr.get(i, j));
+				}
+			}
+			return;
+		}
+
+		for (int i = 0; i < arr.length; i++) {
+			double[] row = arr[i];
+			for (int j = 0; j < row.length; j++) {
+				row[j] = expr.get(i, j);
+			}
+		}
+	}
+
+	/**
+	 * @return MatrixExpr - a lazy view of the matrix for building fused element-wise expressions
+	 */
+	public MatrixExpr lazy() {
+		return MatrixExpr.of(this);
+	}
+
 	/**
 	 * This sets all of the values in the matrix to random normally distributed numbers.
 	 */
 	public void setValuesRandom() {
-		Random random = new Random();
+		this.setValuesRandom(CounterRandom.fromEntropy());
+	}
 
-		for (int i = 0; i < this.getColumnSize(); i++) {
-			for (int j = 0; j < this.getRowSize(); j++) {
-				this.setValue(i, j, random.nextGaussian());
+	/**
+	 * This sets all of the values in the matrix to standard normally distributed numbers from a random source.
+	 * @param random - the source, element (i,j) always gets its (i * n + j)th number
+	 */
+	public void setValuesRandom(RandomSource random) {
+		this.setValuesRandom(random, 1.0);
+	}
+
+	/**
+	 * This sets all of the values in the matrix to normally distributed numbers N(0, std^2) from a random source.
+	 * Element (i,j) always gets the (i * n + j)th number of the source, so large matrices are filled in parallel
+	 * and the values only depend on the seed, never on the number of threads.
+	 * @param random - the source of the numbers
+	 * @param standardDeviation - the standard deviation of the distribution
+	 */
+	public void setValuesRandom(RandomSource random, double standardDeviation) {
+
+		int n = this.getRowSize();
+
+		Parallel.forRange(this.getColumnSize(), Math.max(1, 4096 / Math.max(1, n)), (from, to) -> {
+			for (int i = from; i < to; i++) {
+				for (int j = 0; j < n; j++) {
+					this.setValue(i, j, standardDeviation * random.gaussian((long) i * n + j));
+				}
 			}
-		}
+		});
+	}
+
+	/**
+	 * This sets all of the values in the matrix to uniformly distributed numbers in (-limit, limit) from a random source.
+	 * Like setValuesRandom, element (i,j) always gets the (i * n + j)th number of the source.
+	 * @param random - the source of the numbers
+	 * @param limit - the bound of the distribution
+	 */
+	public void setValuesUniform(RandomSource random, double limit) {
+
+		int n = this.getRowSize();
+
+		Parallel.forRange(this.getColumnSize(), Math.max(1, 4096 / Math.max(1, n)), (from, to) -> {
+			for (int i = from; i < to; i++) {
+				for (int j = 0; j < n; j++) {
+					this.setValue(i, j, limit * (2 * random.uniform((long) i * n + j) - 1));
+				}
+			}
+		});
 	}
 	
 	/**
@@ -125,7 +262,131 @@ public class Matrix {
 	 * @return Matrix - a replica of the matrix with the same values
 	 */
 	public Matrix deepCopy(){
-		return new Matrix(this.arr);
+
+		if (this.arr != null)
+			return new Matrix(this.arr);
+
+		Matrix result = new Matrix(this.getColumnSize(), this.getRowSize());
+		result.setValues(this);
+		return result;
+	}
+
+	//Views
+
+	/**
+	 * This returns the (ith) row as a zero copy view. Writes to the view change the matrix.
+	 * @param row - the index of the row
+	 * @return Vector - view of the row, backed by the row array itself for heap matrices
+	 */
+	public Vector rowView(int row) {
+
+		if (arr != null)
+			return new Vector(arr[row], true);
+
+		return new VectorView(this, row * this.getRowSize(), 1, this.getRowSize());
+	}
+
+	/**
+	 * This returns the (jth) column as a zero copy view. Writes to the view change the matrix.
+	 * @param column - the index of the column
+	 * @return Vector - view where view(i) = mat(i,j)
+	 */
+	public Vector columnView(int column) {
+
+		if (column < 0 || column >= this.getRowSize())
+			throw new IndexOutOfBoundsException();
+
+		return new VectorView(this, column, this.getRowSize(), this.getColumnSize());
+	}
+
+	/**
+	 * This returns a zero copy view of a range of rows, e.g. to slice a batch or split a dataset.
+	 * Writes to the view change the matrix.
+	 * @param from - index of the first row (inclusive)
+	 * @param to - index of the last row (exclusive)
+	 * @return Matrix - (to - from, n) view, sharing the row arrays of heap matrices so every fast path still applies
+	 */
+	public Matrix rowsView(int from, int to) {
+
+		if (from < 0 || to > this.getColumnSize() || from >= to)
+			throw new IllegalArgumentException("Row range does not fit inside the matrix");
+
+		if (arr != null)
+			return new Matrix(Arrays.copyOfRange(arr, from, to), true);
+
+		return new MatrixView(this, from, 0, to - from, this.getRowSize(), false);
+	}
+
+	/**
+	 * This returns a zero copy view of a rectangular block of the matrix. Writes to the view change the matrix.
+	 * @param row - index of the first row of the block
+	 * @param column - index of the first column of the block
+	 * @param columnSize - number of rows in the block (m)
+	 * @param rowSize - number of columns in the block (n)
+	 * @return Matrix - (m,n) view where view(i,j) = mat(row + i, column + j)
+	 */
+	public Matrix subMatrixView(int row, int column, int columnSize, int rowSize) {
+
+		if (column == 0 && rowSize == this.getRowSize() && columnSize > 0)
+			return this.rowsView(row, row + columnSize);
+
+		return new MatrixView(this, row, column, columnSize, rowSize, false);
+	}
+
+	/**
+	 * This returns the transpose as a zero copy view. Writes to the view change the matrix.
+	 * @return Matrix - view where view(i,j) = mat(j,i)
+	 */
+	public Matrix transposeView() {
+		return new MatrixView(this, 0, 0, this.getRowSize(), this.getColumnSize(), true);
+	}
+
+	/**
+	 * This returns the matrix as a zero copy row major vector view. Writes to the view change the matrix.
+	 * @return Vector - view where view(i * n + j) = mat(i,j)
+	 */
+	public Vector flattenView() {
+		return new VectorView(this, 0, 1, this.getColumnSize() * this.getRowSize());
+	}
+
+	/**
+	 * This bulk copies every element into a buffer in row major order, starting at the buffer's position.
+	 * @param buffer - destination with at least m * n elements remaining
+	 */
+	public void copyTo(DoubleBuffer buffer) {
+
+		if (arr == null) {
+			for (int i = 0; i < this.getColumnSize(); i++) {
+				for (int j = 0; j < this.getRowSize(); j++) {
+					buffer.put(this.getValue(i, j));
+				}
+			}
+			return;
+		}
+
+		for (int i = 0; i < arr.length; i++) {
+			buffer.put(arr[i]);
+		}
+	}
+
+	/**
+	 * This bulk copies m * n elements out of a buffer in row major order, starting at the buffer's position.
+	 * @param buffer - source with at least m * n elements remaining
+	 */
+	public void copyFrom(DoubleBuffer buffer) {
+
+		if (arr == null) {
+			for (int i = 0; i < this.getColumnSize(); i++) {
+				for (int j = 0; j < this.getRowSize(); j++) {
+					this.setValue(i, j, buffer.get());
+				}
+			}
+			return;
+		}
+
+		for (int i = 0; i < arr.length; i++) {
+			buffer.get(arr[i]);
+		}
 	}
 	//printer
 	
@@ -220,17 +481,82 @@ public class Matrix {
 		int columnsize = this.getColumnSize();
 		int rowsize = that.getRowSize();
 		
+		int inner = this.getRowSize();
+
 		Matrix result = new Matrix(columnsize, rowsize);
 
+		if (this.arr == null || that.arr == null) {
+			for (int i = 0; i < columnsize; i++) {
+				for (int k = 0; k < inner; k++) {
+					double aik = this.getValue(i, k);
+					for (int j = 0; j < rowsize; j++) {
+						result.arr[i][j] += aik * that.getValue(k, j);
+					}
+				}
+			}
+			return result;
+		}
+
+		//i-k-j ordering so the inner loop walks rows of both matrices contiguously
 		for (int i = 0; i < columnsize; i++) {
-			for (int j = 0; j < rowsize; j++) {
-				result.setValue(i,j, this.getRowVector(i).dot(that.getColumnVector(j)));
+			double[] resultRow = result.arr[i];
+			for (int k = 0; k < inner; k++) {
+				double aik = this.arr[i][k];
+				double[] thatRow = that.arr[k];
+				for (int j = 0; j < rowsize; j++) {
+					resultRow[j] += aik * thatRow[j];
+				}
 			}
 		}
-		
+
 		return result;
 
 	}
+
+	/**
+	 * Dot product with the transpose of another matrix without building the transpose. (C = A * B^T)
+	 * Every entry is a dot product of two contiguous rows, which makes this the fast path for batched layers.
+	 * @param that - another matrix where ||this(j)|| = ||that(j)||
+	 * @return matrix C = A * B^T
+	 */
+	public Matrix dotTranspose(Matrix that){
+
+		if (this.getRowSize() != that.getRowSize())
+			throw new IllegalArgumentException();
+
+		int columnsize = this.getColumnSize();
+		int rowsize = that.getColumnSize();
+		int inner = this.getRowSize();
+
+		Matrix result = new Matrix(columnsize, rowsize);
+
+		if (this.arr == null || that.arr == null) {
+			for (int i = 0; i < columnsize; i++) {
+				for (int j = 0; j < rowsize; j++) {
+					double total = 0.0;
+					for (int k = 0; k < inner; k++) {
+						total += this.getValue(i, k) * that.getValue(j, k);
+					}
+					result.arr[i][j] = total;
+				}
+			}
+			return result;
+		}
+
+		for (int i = 0; i < columnsize; i++) {
+			double[] thisRow = this.arr[i];
+			for (int j = 0; j < rowsize; j++) {
+				double[] thatRow = that.arr[j];
+				double total = 0.0;
+				for (int k = 0; k < inner; k++) {
+					total += thisRow[k] * thatRow[k];
+				}
+				result.arr[i][j] = total;
+			}
+		}
+
+		return result;
+	}
 	
 	/**
 	 * Matrix transformation of a Vector
@@ -253,9 +579,140 @@ public class Matrix {
 			}
 			result.setValue(i, total);
 		}
-		
+
+		return result;
+	}
+
+	/**
+	 * Matrix transformation of a Vector into a caller supplied vector, so no result is allocated.
+	 * @param that - vector input where dim(vec) = dim(mat(n))
+	 * @param result - vector where dim(vec) = dim(mat(m)) that receives B = Ax
+	 * @return vector - result
+	 */
+	public Vector dot(Vector that, Vector result) {
+
+		int x = this.getRowSize();
+
+		if(x != that.getLength() || this.getColumnSize() != result.getLength())
+			throw new IllegalArgumentException();
+
+		for (int i = 0; i < result.getLength(); i++) {
+			double total = 0.0;
+			if (arr != null) {
+				double[] row = arr[i];
+				for (int k = 0; k < x; k++) {
+					total += row[k] * that.getValue(k);
+				}
+			} else {
+				for (int k = 0; k < x; k++) {
+					total += this.getValue(i, k) * that.getValue(k);
+				}
+			}
+			result.setValue(i, total);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Transformation of a Vector by the transpose, without building the transpose.
+	 * @param that - vector input where dim(vec) = dim(mat(m))
+	 * @param result - vector where dim(vec) = dim(mat(n)) that receives B = A^T x
+	 * @return vector - result
+	 */
+	public Vector transposeDot(Vector that, Vector result) {
+
+		if(this.getColumnSize() != that.getLength() || this.getRowSize() != result.getLength())
+			throw new IllegalArgumentException();
+
+		result.setValues(0.0);
+
+		for (int i = 0; i < this.getColumnSize(); i++) {
+			double xi = that.getValue(i);
+			for (int j = 0; j < this.getRowSize(); j++) {
+				result.setValue(j, result.getValue(j) + this.getValue(i, j) * xi);
+			}
+		}
+
 		return result;
 	}
+
+	/**
+	 * Inplace accumulation of an outer product, without building the outer product. (A <- A + a b^T)
+	 * @param a - vector where dim(a) = m
+	 * @param b - vector where dim(b) = n
+	 */
+	public void addOuter(Vector a, Vector b) {
+
+		if (this.getColumnSize() != a.getLength() || this.getRowSize() != b.getLength())
+			throw new IllegalArgumentException();
+
+		for (int i = 0; i < this.getColumnSize(); i++) {
+			double ai = a.getValue(i);
+			if (arr != null) {
+				double[] row = arr[i];
+				for (int j = 0; j < row.length; j++) {
+					row[j] += ai * b.getValue(j);
+				}
+			} else {
+				for (int j = 0; j < this.getRowSize(); j++) {
+					this.setValue(i, j, this.getValue(i, j) + ai * b.getValue(j));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Matrix transformation of a Vector for a range of rows, written into a caller supplied buffer.
+	 * Disjoint row ranges can be computed on different threads into the same buffer.
+	 * @param that - vector input where dim(vec) = dim(mat(n))
+	 * @param result - buffer where result[i] = (Ax)[i] for i in [from, to)
+	 * @param from - first row (inclusive)
+	 * @param to - last row (exclusive)
+	 */
+	public void dotInto(Vector that, double[] result, int from, int to) {
+
+		int x = this.getRowSize();
+
+		if(x != that.getLength())
+			throw new IllegalArgumentException();
+
+		if (arr == null) {
+			for (int i = from; i < to; i++) {
+				double total = 0.0;
+				for (int k = 0; k < x; k++) {
+					total += this.getValue(i, k) * that.getValue(k);
+				}
+				result[i] = total;
+			}
+			return;
+		}
+
+		for (int i = from; i < to; i++) {
+			double[] row = arr[i];
+			double total = 0.0;
+			for (int k = 0; k < x; k++) {
+				total += row[k] * that.getValue(k);
+			}
+			result[i] = total;
+		}
+	}
+
+	/**
+	 * Inplace addition of a vector to every row of the matrix (broadcasting a bias over a batch).
+	 * @param that - vector where dim(vec) = dim(mat(n))
+	 */
+	public void addToRows(Vector that) {
+
+		if(this.getRowSize() != that.getLength())
+			throw new IllegalArgumentException();
+
+		for (int i = 0; i < this.getColumnSize(); i++) {
+			for (int j = 0; j < this.getRowSize(); j++) {
+				this.setValue(i, j, this.getValue(i, j) + that.getValue(j));
+			}
+		}
+	}
 	
 	/**
 	 * Element wise multiplication between two matrices.
@@ -329,7 +786,7 @@ public class Matrix {
 		
 		for (int i = 0; i < this.getColumnSize(); i++) {
 			for (int j = 0; j < this.getRowSize(); j++) {
-				arr[i][j] *= scalar;
+				this.setValue(i, j, this.getValue(i, j) * scalar);
 			}
 		}
 	}
@@ -348,7 +805,7 @@ public class Matrix {
 		
 		for (int i = 0; i < columnsize; i++) {
 			for (int j = 0; j < rowsize; j++) {
-				result.setValue(i, j, arr[i][j] * scalar);
+				result.setValue(i, j, this.getValue(i, j) * scalar);
 			}
 		}
 		
@@ -0,0 +1,188 @@
+package math;
+
+/**
+ * This class is a lazily evaluated element-wise matrix expression, the Matrix counterpart of VectorExpr.
+ * Operators only record the chain and Matrix.assign or eval materialises it in one fused pass,
+ * so update rules like W - k(dW) do not build an intermediate matrix per operator.
+ *
+ * Every operator only reads element (i,j) when producing element (i,j), so an expression may safely be
+ * assigned into one of its own operands.
+ */
+public abstract class MatrixExpr {
+
+	/**
+	 * @return int - row count / column size (m) of the expression
+	 */
+	public abstract int getColumnSize();
+
+	/**
+	 * @return int - column count / row size (n) of the expression
+	 */
+	public abstract int getRowSize();
+
+	/**
+	 * @param i - first index (m)
+	 * @param j - second index (n)
+	 * @return double - value of the expression at (i,j)
+	 */
+	public abstract double get(int i, int j);
+
+	/**
+	 * @param that - the matrix to read from
+	 * @return MatrixExpr - a leaf expression that reads the matrix's elements
+	 */
+	public static MatrixExpr of(final Matrix that) {
+		return new MatrixExpr() {
+			public int getColumnSize() {
+				return that.getColumnSize();
+			}
+			public int getRowSize() {
+				return that.getRowSize();
+			}
+			public double get(int i, int j) {
+				return that.getValue(i, j);
+			}
+		};
+	}
+
+	/**
+	 * This evaluates the expression into a new matrix.
+	 * @return Matrix - the materialised expression
+	 */
+	public Matrix eval() {
+		Matrix result = new Matrix(this.getColumnSize(), this.getRowSize());
+		result.assign(this);
+		return result;
+	}
+
+	//Element-wise Operators
+
+	/**
+	 * @param that - another expression of the same dimensions
+	 * @return MatrixExpr - A + B
+	 */
+	public MatrixExpr plus(final MatrixExpr that) {
+		check(that);
+		final MatrixExpr self = this;
+		return new MatrixExpr() {
+			public int getColumnSize() {
+				return self.getColumnSize();
+			}
+			public int getRowSize() {
+				return self.getRowSize();
+			}
+			public double get(int i, int j) {
+				return self.get(i, j) + that.get(i, j);
+			}
+		};
+	}
+
+	/**
+	 * @param that - another matrix of the same dimensions
+	 * @return MatrixExpr - A + B
+	 */
+	public MatrixExpr plus(Matrix that) {
+		return this.plus(of(that));
+	}
+
+	/**
+	 * @param that - another expression of the same dimensions
+	 * @return MatrixExpr - A - B
+	 */
+	public MatrixExpr minus(final MatrixExpr that) {
+		check(that);
+		final MatrixExpr self = this;
+		return new MatrixExpr() {
+			public int getColumnSize() {
+				return self.getColumnSize();
+			}
+			public int getRowSize() {
+				return self.getRowSize();
+			}
+			public double get(int i, int j) {
+				return self.get(i, j) - that.get(i, j);
+			}
+		};
+	}
+
+	/**
+	 * @param that - another matrix of the same dimensions
+	 * @return MatrixExpr - A - B
+	 */
+	public MatrixExpr minus(Matrix that) {
+		return this.minus(of(that));
+	}
+
+	/**
+	 * @param that - another expression of the same dimensions
+	 * @return MatrixExpr - element-wise (Hadamard) product of A and B
+	 */
+	public MatrixExpr times(final MatrixExpr that) {
+		check(that);
+		final MatrixExpr self = this;
+		return new MatrixExpr() {
+			public int getColumnSize() {
+				return self.getColumnSize();
+			}
+			public int getRowSize() {
+				return self.getRowSize();
+			}
+			public double get(int i, int j) {
+				return self.get(i, j) * that.get(i, j);
+			}
+		};
+	}
+
+	/**
+	 * @param that - another matrix of the same dimensions
+	 * @return MatrixExpr - element-wise (Hadamard) product of A and B
+	 */
+	public MatrixExpr times(Matrix that) {
+		return this.times(of(that));
+	}
+
+	/**
+	 * @param scalar - double scalar k
+	 * @return MatrixExpr - kA
+	 */
+	public MatrixExpr scaled(final double scalar) {
+		final MatrixExpr self = this;
+		return new MatrixExpr() {
+			public int getColumnSize() {
+				return self.getColumnSize();
+			}
+			public int getRowSize() {
+				return self.getRowSize();
+			}
+			public double get(int i, int j) {
+				return self.get(i, j) * scalar;
+			}
+		};
+	}
+
+	/**
+	 * @param that - vector where dim(vec) = n, added to every row (broadcasting a bias over a batch)
+	 * @return MatrixExpr - A + 1b^T
+	 */
+	public MatrixExpr plusRows(final Vector that) {
+		if (this.getRowSize() != that.getLength())
+			throw new IllegalArgumentException();
+		final MatrixExpr self = this;
+		return new MatrixExpr() {
+			public int getColumnSize() {
+				return self.getColumnSize();
+			}
+			public int getRowSize() {
+				return self.getRowSize();
+			}
+			public double get(int i, int j) {
+				return self.get(i, j) + that.getValue(j);
+			}
+		};
+	}
+
+	private void check(MatrixExpr that) {
+		if (this.getColumnSize() != that.getColumnSize() || this.getRowSize() != that.getRowSize())
+			throw new IllegalArgumentException();
+	}
+}
@@ -0,0 +1,90 @@
+package math;
+
+/**
+ * This class is a zero copy window onto the values of another Matrix or Vector, described by an offset,
+ * a shape and an orientation. Reads and writes go straight through to the source, so a view always sees
+ * the current values and writing to a view changes the source.
+ *
+ * A view over a matrix is a sub-block, optionally transposed. A view over a vector reshapes it as a
+ * row major (m,n) matrix. Views are created with Matrix.subMatrixView, Matrix.rowsView,
+ * Matrix.transposeView and Vector.reshapeView.
+ */
+public class MatrixView extends Matrix {
+
+	private final Matrix matrix;
+	private final Vector vector;
+	private final int rowOffset;
+	private final int columnOffset;
+	private final int columnSize;
+	private final int rowSize;
+	private final boolean transposed;
+
+	MatrixView(Matrix matrix, int rowOffset, int columnOffset, int columnSize, int rowSize, boolean transposed) {
+		super();
+
+		int sourceRows = transposed ? rowSize : columnSize;
+		int sourceColumns = transposed ? columnSize : rowSize;
+
+		if (rowOffset < 0 || columnOffset < 0 || sourceRows < 0 || sourceColumns < 0
+				|| rowOffset + sourceRows > matrix.getColumnSize() || columnOffset + sourceColumns > matrix.getRowSize())
+			throw new IllegalArgumentException("View does not fit inside the matrix");
+
+		this.matrix = matrix;
+		this.vector = null;
+		this.rowOffset = rowOffset;
+		this.columnOffset = columnOffset;
+		this.columnSize = columnSize;
+		this.rowSize = rowSize;
+		this.transposed = transposed;
+	}
+
+	MatrixView(Vector vector, int offset, int columnSize, int rowSize) {
+		super();
+
+		if (offset < 0 || columnSize < 0 || rowSize < 0 || offset + (long) columnSize * rowSize > vector.getLength())
+			throw new IllegalArgumentException("View does not fit inside the vector");
+
+		this.matrix = null;
+		this.vector = vector;
+		this.rowOffset = offset;
+		this.columnOffset = 0;
+		this.columnSize = columnSize;
+		this.rowSize = rowSize;
+		this.transposed = false;
+	}
+
+	@Override
+	public int getColumnSize() {
+		return columnSize;
+	}
+
+	@Override
+	public int getRowSize() {
+		return rowSize;
+	}
+
+	@Override
+	public double getValue(int i, int j) {
+		if (i < 0 || i >= columnSize || j < 0 || j >= rowSize)
+			throw new IndexOutOfBoundsException();
+
+		if (vector != null)
+			return vector.getValue(rowOffset + i * rowSize + j);
+		if (transposed)
+			return matrix.getValue(rowOffset + j, columnOffset + i);
+		return matrix.getValue(rowOffset + i, columnOffset + j);
+	}
+
+	@Override
+	public void setValue(int i, int j, double value) {
+		if (i < 0 || i >= columnSize || j < 0 || j >= rowSize)
+			throw new IndexOutOfBoundsException();
+
+		if (vector != null)
+			vector.setValue(rowOffset + i * rowSize + j, value);
+		else if (transposed)
+			matrix.setValue(rowOffset + j, columnOffset + i, value);
+		else
+			matrix.setValue(rowOffset + i, columnOffset + j, value);
+	}
+}
@@ -0,0 +1,73 @@
+package math;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * This class groups off heap vectors and matrices under one explicit lifetime,
+ * so everything allocated for a job is released together:
+ *
+ * try (OffHeapArena arena = new OffHeapArena()) {
+ *     Matrix features = arena.mapMatrix("features.bin", 0, rows, columns, false);
+ *     ...
+ * }
+ */
+public class OffHeapArena implements AutoCloseable {
+
+	private final ArrayList<AutoCloseable> owned = new ArrayList<AutoCloseable>();
+	private boolean closed = false;
+
+	private <T extends AutoCloseable> T own(T resource) {
+		if (closed)
+			throw new IllegalStateException("Arena has been closed");
+		owned.add(resource);
+		return resource;
+	}
+
+	/**
+	 * @param length - the dimension of the vector
+	 * @return OffHeapVector - a zero filled vector owned by the arena
+	 */
+	public synchronized OffHeapVector allocateVector(int length) {
+		return own(OffHeapVector.allocate(length));
+	}
+
+	/**
+	 * @param columnSize - number of rows in the matrix (m)
+	 * @param rowSize - number of colums in the matrix (n)
+	 * @return OffHeapMatrix - a zero filled matrix owned by the arena
+	 */
+	public synchronized OffHeapMatrix allocateMatrix(int columnSize, int rowSize) {
+		return own(OffHeapMatrix.allocate(columnSize, rowSize));
+	}
+
+	/**
+	 * This maps a file of little endian doubles as a vector owned by the arena (see OffHeapVector.map).
+	 */
+	public synchronized OffHeapVector mapVector(String filePath, int length, boolean writable) throws IOException {
+		return own(OffHeapVector.map(filePath, length, writable));
+	}
+
+	/**
+	 * This maps a file of row major little endian doubles as a matrix owned by the arena (see OffHeapMatrix.map).
+	 */
+	public synchronized OffHeapMatrix mapMatrix(String filePath, long offset, int columnSize, int rowSize, boolean writable) throws IOException {
+		return own(OffHeapMatrix.map(filePath, offset, columnSize, rowSize, writable));
+	}
+
+	/**
+	 * This closes every vector and matrix the arena handed out.
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		for (AutoCloseable resource : owned) {
+			try {
+				resource.close();
+			} catch (Exception e) {
+				//off heap storage never throws on close
+			}
+		}
+		owned.clear();
+	}
+}
@@ -0,0 +1,155 @@
+package math;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class provides a Matrix whose values live outside of the java heap, either in native memory or in a
+ * memory mapped file, so multi gigabyte design matrices do not inflate GC pauses.
+ * Values are row major and split into chunks of whole rows, since a single buffer addresses at most 2GB.
+ * It works with every Matrix operation, and results of those operations are ordinary heap matrices.
+ * After close any access throws IllegalStateException.
+ */
+public class OffHeapMatrix extends Matrix implements AutoCloseable {
+
+	private final int columnSize;
+	private final int rowSize;
+	private final int rowsPerChunk;
+	private DoubleBuffer[] chunks;
+
+	private OffHeapMatrix(int columnSize, int rowSize, int rowsPerChunk, DoubleBuffer[] chunks) {
+		super();
+		this.columnSize = columnSize;
+		this.rowSize = rowSize;
+		this.rowsPerChunk = rowsPerChunk;
+		this.chunks = chunks;
+	}
+
+	private static int rowsPerChunk(int rowSize) {
+		return Math.max(1, OffHeapVector.MAX_LENGTH / Math.max(1, rowSize));
+	}
+
+	/**
+	 * This allocates a zero filled matrix in native memory.
+	 * @param columnSize - number of rows in the matrix (m)
+	 * @param rowSize - number of colums in the matrix (n)
+	 * @return OffHeapMatrix - the new matrix
+	 */
+	public static OffHeapMatrix allocate(int columnSize, int rowSize) {
+
+		if (rowSize > OffHeapVector.MAX_LENGTH)
+			throw new IllegalArgumentException("Off heap matrix rows hold at most " + OffHeapVector.MAX_LENGTH + " elements");
+
+		int rowsPerChunk = rowsPerChunk(rowSize);
+		DoubleBuffer[] chunks = new DoubleBuffer[(columnSize + rowsPerChunk - 1) / rowsPerChunk];
+
+		for (int c = 0; c < chunks.length; c++) {
+			int rows = Math.min(rowsPerChunk, columnSize - c * rowsPerChunk);
+			chunks[c] = ByteBuffer.allocateDirect(8 * rows * rowSize).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		}
+
+		return new OffHeapMatrix(columnSize, rowSize, rowsPerChunk, chunks);
+	}
+
+	/**
+	 * This maps a file of row major little endian doubles as a matrix, starting at a byte offset.
+	 * Writes to a writable mapping go straight to the file.
+	 * @param filePath - the file, created or extended when writable
+	 * @param offset - byte offset of the first element, a multiple of 8
+	 * @param columnSize - number of rows in the matrix (m)
+	 * @param rowSize - number of colums in the matrix (n)
+	 * @param writable - whether setValue is allowed
+	 * @return OffHeapMatrix - the mapped matrix
+	 * @throws IOException - is thrown if the file cannot be opened or is too short for a read only mapping
+	 */
+	public static OffHeapMatrix map(String filePath, long offset, int columnSize, int rowSize, boolean writable) throws IOException {
+
+		if (rowSize > OffHeapVector.MAX_LENGTH)
+			throw new IllegalArgumentException("Off heap matrix rows hold at most " + OffHeapVector.MAX_LENGTH + " elements");
+
+		int rowsPerChunk = rowsPerChunk(rowSize);
+		DoubleBuffer[] chunks = new DoubleBuffer[(columnSize + rowsPerChunk - 1) / rowsPerChunk];
+
+		try (RandomAccessFile file = new RandomAccessFile(filePath, writable ? "rw" : "r");
+			 FileChannel channel = file.getChannel()) {
+
+			if (!writable && channel.size() < offset + 8L * columnSize * rowSize)
+				throw new IOException("File is too short for a (" + columnSize + ", " + rowSize + ") matrix");
+
+			FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+
+			for (int c = 0; c < chunks.length; c++) {
+				int rows = Math.min(rowsPerChunk, columnSize - c * rowsPerChunk);
+				long start = offset + 8L * c * rowsPerChunk * rowSize;
+				chunks[c] = channel.map(mode, start, 8L * rows * rowSize).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+			}
+		}
+
+		return new OffHeapMatrix(columnSize, rowSize, rowsPerChunk, chunks);
+	}
+
+	/**
+	 * This wraps the remaining elements of an existing buffer as a row major matrix without copying them.
+	 * @param buffer - a direct or mapped buffer with at least m * n elements remaining
+	 * @param columnSize - number of rows in the matrix (m)
+	 * @param rowSize - number of colums in the matrix (n)
+	 * @return OffHeapMatrix - a matrix over the buffer
+	 */
+	public static OffHeapMatrix wrap(DoubleBuffer buffer, int columnSize, int rowSize) {
+
+		if ((long) columnSize * rowSize > buffer.remaining())
+			throw new IllegalArgumentException("Buffer is too small for a (" + columnSize + ", " + rowSize + ") matrix");
+
+		return new OffHeapMatrix(columnSize, rowSize, Math.max(1, columnSize), new DoubleBuffer[]{ buffer.slice() });
+	}
+
+	private DoubleBuffer[] chunks() {
+		DoubleBuffer[] current = this.chunks;
+		if (current == null)
+			throw new IllegalStateException("Off heap matrix has been closed");
+		return current;
+	}
+
+	@Override
+	public int getColumnSize() {
+		return columnSize;
+	}
+
+	@Override
+	public int getRowSize() {
+		return rowSize;
+	}
+
+	@Override
+	public double getValue(int i, int j) {
+		if (i < 0 || i >= columnSize || j < 0 || j >= rowSize)
+			throw new IndexOutOfBoundsException();
+		return chunks()[i / rowsPerChunk].get((i % rowsPerChunk) * rowSize + j);
+	}
+
+	@Override
+	public void setValue(int i, int j, double value) {
+		if (i < 0 || i >= columnSize || j < 0 || j >= rowSize)
+			throw new IndexOutOfBoundsException();
+		chunks()[i / rowsPerChunk].put((i % rowsPerChunk) * rowSize + j, value);
+	}
+
+	/**
+	 * @return boolean - whether close has been called
+	 */
+	public boolean isClosed() {
+		return chunks == null;
+	}
+
+	/**
+	 * This ends the lifetime of the matrix. Further access throws IllegalStateException.
+	 */
+	@Override
+	public void close() {
+		chunks = null;
+	}
+}
@@ -0,0 +1,114 @@
+package math;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class provides a Vector whose values live outside of the java heap, either in native memory or in a
+ * memory mapped file. It works with every Vector operation, and results of those operations are ordinary heap vectors.
+ * The vector has an explicit lifetime: after close any access throws IllegalStateException and the memory is
+ * released as soon as the buffer is collected, without adding to the old generation.
+ */
+public class OffHeapVector extends Vector implements AutoCloseable {
+
+	/**
+	 * The most elements a single off heap buffer can address.
+	 */
+	public static final int MAX_LENGTH = Integer.MAX_VALUE / 8;
+
+	private final int length;
+	private DoubleBuffer buffer;
+
+	private OffHeapVector(DoubleBuffer buffer) {
+		super();
+		this.length = buffer.remaining();
+		this.buffer = buffer.slice();
+	}
+
+	/**
+	 * This allocates a zero filled vector in native memory.
+	 * @param length - the dimension of the vector
+	 * @return OffHeapVector - the new vector
+	 */
+	public static OffHeapVector allocate(int length) {
+
+		if (length < 0 || length > MAX_LENGTH)
+			throw new IllegalArgumentException("Off heap vectors hold at most " + MAX_LENGTH + " elements");
+
+		return new OffHeapVector(ByteBuffer.allocateDirect(8 * length).order(ByteOrder.nativeOrder()).asDoubleBuffer());
+	}
+
+	/**
+	 * This maps a file of little endian doubles as a vector. Writes to a writable mapping go straight to the file.
+	 * @param filePath - the file, created or extended when writable
+	 * @param length - the dimension of the vector
+	 * @param writable - whether setValue is allowed
+	 * @return OffHeapVector - the mapped vector
+	 * @throws IOException - is thrown if the file cannot be opened or is too short for a read only mapping
+	 */
+	public static OffHeapVector map(String filePath, int length, boolean writable) throws IOException {
+
+		if (length < 0 || length > MAX_LENGTH)
+			throw new IllegalArgumentException("Off heap vectors hold at most " + MAX_LENGTH + " elements");
+
+		try (RandomAccessFile file = new RandomAccessFile(filePath, writable ? "rw" : "r");
+			 FileChannel channel = file.getChannel()) {
+
+			if (!writable && channel.size() < 8L * length)
+				throw new IOException("File is too short for a vector of length " + length);
+
+			FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+			return new OffHeapVector(channel.map(mode, 0, 8L * length).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+		}
+	}
+
+	/**
+	 * This wraps the remaining elements of an existing buffer without copying them.
+	 * @param buffer - a direct or mapped buffer
+	 * @return OffHeapVector - a vector over the buffer
+	 */
+	public static OffHeapVector wrap(DoubleBuffer buffer) {
+		return new OffHeapVector(buffer);
+	}
+
+	private DoubleBuffer buffer() {
+		DoubleBuffer current = this.buffer;
+		if (current == null)
+			throw new IllegalStateException("Off heap vector has been closed");
+		return current;
+	}
+
+	@Override
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public double getValue(int i) {
+		return buffer().get(i);
+	}
+
+	@Override
+	public void setValue(int i, double value) {
+		buffer().put(i, value);
+	}
+
+	/**
+	 * @return boolean - whether close has been called
+	 */
+	public boolean isClosed() {
+		return buffer == null;
+	}
+
+	/**
+	 * This ends the lifetime of the vector. Further access throws IllegalStateException.
+	 */
+	@Override
+	public void close() {
+		buffer = null;
+	}
+}
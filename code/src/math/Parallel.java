@@ -0,0 +1,61 @@
+package math;
+
+import java.util.stream.IntStream;
+
+/**
+ * This class splits an index range into contiguous chunks and runs them across the common fork join pool.
+ * Small ranges are run on the calling thread since splitting them costs more than it saves.
+ */
+public class Parallel {
+
+	/**
+	 * Ranges with fewer elements than this are never split.
+	 */
+	public static final int DEFAULT_GRAIN = 256;
+
+	/**
+	 * This is the work done on one chunk of the range.
+	 */
+	public interface RangeTask {
+		/**
+		 * @param from - first index of the chunk (inclusive)
+		 * @param to - last index of the chunk (exclusive)
+		 */
+		public void run(int from, int to);
+	}
+
+	/**
+	 * This runs a task over [0, size) split into at most one chunk per core, each at least grain elements long.
+	 * @param size - the number of elements in the range
+	 * @param grain - the minimum number of elements in a chunk
+	 * @param task - the work done on each chunk
+	 */
+	public static void forRange(int size, int grain, RangeTask task) {
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		int chunks = Math.min(cores, size / Math.max(1, grain));
+
+		if (chunks <= 1) {
+			task.run(0, size);
+			return;
+		}
+
+		int chunkSize = (size + chunks - 1) / chunks;
+
+		IntStream.range(0, chunks).parallel().forEach(c -> {
+			int from = c * chunkSize;
+			int to = Math.min(size, from + chunkSize);
+			if (from < to)
+				task.run(from, to);
+		});
+	}
+
+	/**
+	 * This runs a task over [0, size) using the default grain.
+	 * @param size - the number of elements in the range
+	 * @param task - the work done on each chunk
+	 */
+	public static void forRange(int size, RangeTask task) {
+		forRange(size, DEFAULT_GRAIN, task);
+	}
+}
@@ -0,0 +1,41 @@
+package math;
+
+/**
+ * This interface defines a random number generator that is addressed by position instead of advanced by calls.
+ * The numbers at a given index only depend on the seed, so any range of a stream can be generated on any thread
+ * and a parallel fill produces exactly the same values as a serial one.
+ */
+public interface RandomSource {
+
+	/**
+	 * @param index - the position in the stream
+	 * @return long - 64 uniformly distributed random bits, always the same for the same index
+	 */
+	public long bits(long index);
+
+	/**
+	 * Derives an independent stream, e.g. one per layer of a network, so adding draws to one stream never shifts another.
+	 * @param stream - the id of the derived stream
+	 * @return RandomSource - a generator whose numbers are uncorrelated with this one's
+	 */
+	public RandomSource split(long stream);
+
+	/**
+	 * @param index - the position in the stream
+	 * @return double - a uniformly distributed number in [0, 1)
+	 */
+	public default double uniform(long index) {
+		return (bits(index) >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * This uses the Box-Muller transform on the uniforms at 2 * index and 2 * index + 1.
+	 * @param index - the position in the stream
+	 * @return double - a standard normally distributed number
+	 */
+	public default double gaussian(long index) {
+		double u1 = ((bits(2 * index) >>> 11) + 1) * 0x1.0p-53;
+		double u2 = uniform(2 * index + 1);
+		return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+	}
+}
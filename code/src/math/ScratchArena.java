@@ -0,0 +1,203 @@
+package math;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * This class is a per thread pool of temporary vectors and matrices for training steps.
+ * Between beginStep and endStep every request for a buffer is served from a pool keyed by its shape,
+ * and endStep hands all of them back at once, so after the first step a training loop reuses the same
+ * buffers instead of allocating new ones. Outside of a step requests fall back to plain allocation,
+ * so inference results are never recycled from under their callers.
+ *
+ * Buffers handed out during a step are only valid until endStep and always start zero filled.
+ */
+public class ScratchArena {
+
+	private static final ThreadLocal<ScratchArena> ARENAS = ThreadLocal.withInitial(ScratchArena::new);
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+		ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+			? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+
+	/**
+	 * This is every buffer of one shape, with a cursor to the next free one.
+	 */
+	private static class Pool {
+		final int columnSize;
+		final int rowSize;
+		final ArrayList<Object> buffers = new ArrayList<Object>();
+		int next = 0;
+
+		Pool(int columnSize, int rowSize) {
+			this.columnSize = columnSize;
+			this.rowSize = rowSize;
+		}
+	}
+
+	private final ArrayList<Pool> vectorPools = new ArrayList<Pool>();
+	private final ArrayList<Pool> matrixPools = new ArrayList<Pool>();
+
+	private boolean active = false;
+
+	// Instrumentation
+	private long stepArenaBytes;
+	private long stepStartHeapBytes;
+	private long lastStepArenaBytes;
+	private long lastStepHeapBytes = -1;
+	private long retainedBytes;
+
+	private ScratchArena() {}
+
+	/**
+	 * @return ScratchArena - the calling thread's arena
+	 */
+	public static ScratchArena current() {
+		return ARENAS.get();
+	}
+
+	/**
+	 * @return boolean - whether the arena is inside a step and recycling buffers
+	 */
+	public boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * This starts a training step. Buffers requested until endStep come from the pools.
+	 */
+	public void beginStep() {
+
+		if (active)
+			throw new IllegalStateException("Scratch arena step already started");
+
+		active = true;
+		stepArenaBytes = 0;
+		stepStartHeapBytes = THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+	}
+
+	/**
+	 * This ends a training step and recycles every buffer handed out during it.
+	 */
+	public void endStep() {
+
+		if (!active)
+			throw new IllegalStateException("Scratch arena step was not started");
+
+		for (int p = 0; p < vectorPools.size(); p++) {
+			vectorPools.get(p).next = 0;
+		}
+		for (int p = 0; p < matrixPools.size(); p++) {
+			matrixPools.get(p).next = 0;
+		}
+
+		active = false;
+		lastStepArenaBytes = stepArenaBytes;
+		lastStepHeapBytes = stepStartHeapBytes >= 0
+			? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - stepStartHeapBytes : -1;
+	}
+
+	private static Pool find(ArrayList<Pool> pools, int columnSize, int rowSize) {
+
+		for (int p = 0; p < pools.size(); p++) {
+			Pool pool = pools.get(p);
+			if (pool.columnSize == columnSize && pool.rowSize == rowSize)
+				return pool;
+		}
+
+		Pool pool = new Pool(columnSize, rowSize);
+		pools.add(pool);
+		return pool;
+	}
+
+	/**
+	 * @param length - the dimension of the vector
+	 * @return Vector - a zero filled vector, pooled inside a step and freshly allocated outside of one
+	 */
+	public Vector vector(int length) {
+
+		if (!active)
+			return new Vector(length);
+
+		Pool pool = find(vectorPools, 1, length);
+
+		if (pool.next < pool.buffers.size()) {
+			Vector result = (Vector) pool.buffers.get(pool.next++);
+			result.setValues(0.0);
+			return result;
+		}
+
+		Vector result = new Vector(length);
+		pool.buffers.add(result);
+		pool.next++;
+
+		stepArenaBytes += 8L * length;
+		retainedBytes += 8L * length;
+
+		return result;
+	}
+
+	/**
+	 * @param columnSize - number of rows in the matrix (m)
+	 * @param rowSize - number of colums in the matrix (n)
+	 * @return Matrix - a zero filled matrix, pooled inside a step and freshly allocated outside of one
+	 */
+	public Matrix matrix(int columnSize, int rowSize) {
+
+		if (!active)
+			return new Matrix(columnSize, rowSize);
+
+		Pool pool = find(matrixPools, columnSize, rowSize);
+
+		if (pool.next < pool.buffers.size()) {
+			Matrix result = (Matrix) pool.buffers.get(pool.next++);
+			result.scale(0.0);
+			return result;
+		}
+
+		Matrix result = new Matrix(columnSize, rowSize);
+		pool.buffers.add(result);
+		pool.next++;
+
+		stepArenaBytes += 8L * columnSize * rowSize;
+		retainedBytes += 8L * columnSize * rowSize;
+
+		return result;
+	}
+
+	//Instrumentation
+
+	/**
+	 * @return long - bytes of new pooled buffers the last step had to allocate, 0 once the pools are warm
+	 */
+	public long getLastStepArenaBytes() {
+		return lastStepArenaBytes;
+	}
+
+	/**
+	 * @return long - bytes the thread allocated on the heap during the last step, or -1 if the JVM cannot measure it
+	 */
+	public long getLastStepHeapBytes() {
+		return lastStepHeapBytes;
+	}
+
+	/**
+	 * @return long - bytes held by the pools across steps
+	 */
+	public long getRetainedBytes() {
+		return retainedBytes;
+	}
+
+	/**
+	 * This drops every pooled buffer, e.g. after training when the shapes will not be used again.
+	 */
+	public void release() {
+
+		if (active)
+			throw new IllegalStateException("Cannot release a scratch arena during a step");
+
+		vectorPools.clear();
+		matrixPools.clear();
+		retainedBytes = 0;
+	}
+}
@@ -0,0 +1,77 @@
+package math;
+
+import java.util.Arrays;
+
+/**
+ * This class accumulates the gradient of a batch of sparse samples and applies it lazily,
+ * only touching the weights whose features appeared in the batch. A step therefore costs
+ * O(nnz of the batch) no matter how many features the model has.
+ */
+public class SparseGradient {
+
+	private final double[] gradient;
+	private final boolean[] touched;
+	private int[] touchedIndices;
+	private int touchedCount;
+
+	/**
+	 * @param length - the number of weights
+	 */
+	public SparseGradient(int length) {
+		this.gradient = new double[length];
+		this.touched = new boolean[length];
+		this.touchedIndices = new int[16];
+		this.touchedCount = 0;
+	}
+
+	/**
+	 * Accumulates scalar * x into the gradient.
+	 * @param x - the sparse sample
+	 * @param scalar - the per sample error term
+	 */
+	public void add(SparseVector x, double scalar) {
+
+		if (x.getLength() != gradient.length)
+			throw new IllegalArgumentException();
+
+		for (int k = 0; k < x.getNonZeroCount(); k++) {
+			int i = x.getIndex(k);
+			if (!touched[i]) {
+				touched[i] = true;
+				if (touchedCount == touchedIndices.length)
+					touchedIndices = Arrays.copyOf(touchedIndices, touchedCount * 2);
+				touchedIndices[touchedCount++] = i;
+			}
+			gradient[i] += scalar * x.getNonZeroValue(k);
+		}
+	}
+
+	/**
+	 * @return double - the sum of the squared accumulated entries
+	 */
+	public double squaredNorm() {
+
+		double sum = 0;
+		for (int k = 0; k < touchedCount; k++) {
+			double g = gradient[touchedIndices[k]];
+			sum += g * g;
+		}
+		return sum;
+	}
+
+	/**
+	 * Applies weights <- weights - step * gradient on the touched indices and clears the accumulator.
+	 * @param weights - the model weights
+	 * @param step - learning rate divided by batch size
+	 */
+	public void applyTo(Vector weights, double step) {
+
+		for (int k = 0; k < touchedCount; k++) {
+			int i = touchedIndices[k];
+			weights.setValue(i, weights.getValue(i) - step * gradient[i]);
+			gradient[i] = 0;
+			touched[i] = false;
+		}
+		touchedCount = 0;
+	}
+}
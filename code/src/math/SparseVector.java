@@ -0,0 +1,160 @@
+package math;
+
+import java.util.Arrays;
+
+/**
+ * This class provides a sparse vector of doubles that only stores its non zero elements.
+ * Indices are kept sorted so that operations against dense vectors cost O(nnz) instead of O(n).
+ */
+public class SparseVector {
+
+	private final int length;
+	private final int[] indices;
+	private final double[] values;
+
+	//Constructors
+
+	/**
+	 * This creates a sparse vector from parallel arrays of indices and values, which are copied.
+	 * @param length - the dimension n of the vector
+	 * @param indices - strictly increasing indices of the non zero elements
+	 * @param values - the value at each index
+	 */
+	public SparseVector(int length, int[] indices, double[] values) {
+
+		if (indices.length != values.length)
+			throw new IllegalArgumentException("Cannot create SparseVector - indices and values differ in length");
+
+		for (int k = 0; k < indices.length; k++) {
+			if (indices[k] < 0 || indices[k] >= length || (k > 0 && indices[k] <= indices[k - 1]))
+				throw new IllegalArgumentException("Cannot create SparseVector - indices must be increasing and within length");
+		}
+
+		this.length = length;
+		this.indices = indices.clone();
+		this.values = values.clone();
+	}
+
+	/**
+	 * This keeps only the non zero elements of a dense vector.
+	 * @param that - the dense vector
+	 * @return SparseVector - sparse copy
+	 */
+	public static SparseVector fromVector(Vector that) {
+
+		int count = 0;
+		for (int i = 0; i < that.getLength(); i++) {
+			if (that.getValue(i) != 0)
+				count++;
+		}
+
+		int[] indices = new int[count];
+		double[] values = new double[count];
+
+		int k = 0;
+		for (int i = 0; i < that.getLength(); i++) {
+			if (that.getValue(i) != 0) {
+				indices[k] = i;
+				values[k] = that.getValue(i);
+				k++;
+			}
+		}
+
+		return new SparseVector(that.getLength(), indices, values);
+	}
+
+	/**
+	 * @return Vector - dense copy of the vector
+	 */
+	public Vector toVector() {
+
+		Vector result = new Vector(length);
+
+		for (int k = 0; k < indices.length; k++) {
+			result.setValue(indices[k], values[k]);
+		}
+
+		return result;
+	}
+
+	//Accessors
+
+	/**
+	 * @return int - the dimension n of the vector
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return int - the number of stored (non zero) elements
+	 */
+	public int getNonZeroCount() {
+		return indices.length;
+	}
+
+	/**
+	 * @param k - position among the stored elements
+	 * @return int - the index of the kth stored element
+	 */
+	public int getIndex(int k) {
+		return indices[k];
+	}
+
+	/**
+	 * @param k - position among the stored elements
+	 * @return double - the value of the kth stored element
+	 */
+	public double getNonZeroValue(int k) {
+		return values[k];
+	}
+
+	/**
+	 * This returns the value at an index using binary search, O(log nnz).
+	 * @param i - the index
+	 * @return double - value at index i, 0 if it is not stored
+	 */
+	public double getValue(int i) {
+
+		int k = Arrays.binarySearch(indices, i);
+
+		return k >= 0 ? values[k] : 0.0;
+	}
+
+	//Math Functions
+
+	/**
+	 * Dot product with a dense vector, O(nnz).
+	 * @param that - dense vector of the same dimension
+	 * @return double y = sum(Ai * bi) over the stored elements of A
+	 */
+	public double dot(Vector that) {
+
+		if (this.length != that.getLength())
+			throw new IllegalArgumentException();
+
+		double result = 0;
+
+		for (int k = 0; k < indices.length; k++) {
+			result += values[k] * that.getValue(indices[k]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Non-inplace scaling of each element by a double scalar.
+	 * @param scalar - double scalar k in kV
+	 * @return SparseVector - W = kV with the same indices
+	 */
+	public SparseVector scaled(double scalar) {
+
+		double[] scaledValues = new double[values.length];
+
+		for (int k = 0; k < values.length; k++) {
+			scaledValues[k] = values[k] * scalar;
+		}
+
+		return new SparseVector(length, indices, scaledValues);
+	}
+}
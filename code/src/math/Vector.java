@@ -1,5 +1,8 @@
 package math;
 
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
 /**
  * This class provides a vector datatype of doubles. V = f^n
  * NOTE: Although these vectors interact with matrices a lot, they do NOT have a definitive orientation.
@@ -29,6 +32,22 @@ public class Vector {
 	public Vector(int length) {
 		arr = new double[length];
 	}
+
+	/**
+	 * This is for subclasses that keep their values outside of the java heap (see OffHeapVector).
+	 * They must override getLength, getValue and setValue; every operation falls back to those
+	 * accessors when a vector has no heap array.
+	 */
+	protected Vector() {
+		arr = null;
+	}
+
+	/**
+	 * This shares an existing array instead of copying it, so Matrix.rowView can hand out a heap row without allocating.
+	 */
+	Vector(double[] arr, boolean shared) {
+		this.arr = arr;
+	}
 	
 	//Accessors
 	
@@ -48,12 +67,118 @@ public class Vector {
 	public double getValue(int i) {
 		return arr[i];
 	}
+
+	/**
+	 * This hashes the values of the vector, e.g. to key a cache of predictions.
+	 * Each value's bits are folded in with a multiply and the result goes through the SplitMix64 finalizer,
+	 * so vectors that differ in any bit of any value almost never collide. -0.0 and 0.0 hash differently.
+	 * @return long - a 64 bit hash of the length and the values
+	 */
+	public long contentHash() {
+
+		long h = 0x9E3779B97F4A7C15L * (getLength() + 1);
+		if (this.arr != null) {
+			for (int i = 0; i < arr.length; i++)
+				h = (h ^ Double.doubleToLongBits(arr[i])) * 0xBF58476D1CE4E5B9L;
+		} else {
+			for (int i = 0; i < getLength(); i++)
+				h = (h ^ Double.doubleToLongBits(getValue(i))) * 0xBF58476D1CE4E5B9L;
+		}
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		return h ^ (h >>> 31);
+	}
+
+	/**
+	 * @param that - another vector
+	 * @return boolean - whether both vectors have the same length and bitwise identical values
+	 */
+	public boolean contentEquals(Vector that) {
+
+		if (this.getLength() != that.getLength())
+			return false;
+		if (this.arr != null && that.arr != null)
+			return Arrays.equals(this.arr, that.arr);
+		for (int i = 0; i < getLength(); i++) {
+			if (Double.doubleToLongBits(this.getValue(i)) != Double.doubleToLongBits(that.getValue(i)))
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * This returns a new Vector with the same values as the vector
 	 * @return vector - replica of the copied vector
 	 */
 	public Vector deepCopy(){
-		return new Vector(this.arr);
+
+		if (this.arr != null)
+			return new Vector(this.arr);
+
+		Vector result = new Vector(this.getLength());
+		result.setValues(this);
+		return result;
+	}
+
+	//Views
+
+	/**
+	 * This returns a zero copy view of a contiguous range of the vector. Writes to the view change this vector.
+	 * @param from - index of the first element (inclusive)
+	 * @param to - index of the last element (exclusive)
+	 * @return Vector - view of length (to - from)
+	 */
+	public Vector sliceView(int from, int to) {
+		return new VectorView(this, from, 1, to - from);
+	}
+
+	/**
+	 * This returns a zero copy view of every (stride)th element starting at offset. Writes to the view change this vector.
+	 * @param offset - index of the first element
+	 * @param stride - distance between consecutive elements of the view
+	 * @param length - number of elements in the view
+	 * @return Vector - view where view(i) = this(offset + i * stride)
+	 */
+	public Vector stridedView(int offset, int stride, int length) {
+		return new VectorView(this, offset, stride, length);
+	}
+
+	/**
+	 * This returns a zero copy row major (m,n) matrix view of the vector, e.g. to treat a flattened image as a matrix.
+	 * Writes to the view change this vector.
+	 * @param columnSize - number of rows in the view (m)
+	 * @param rowSize - number of columns in the view (n) where m * n = dim(vec)
+	 * @return Matrix - view where view(i,j) = this(i * n + j)
+	 */
+	public Matrix reshapeView(int columnSize, int rowSize) {
+
+		if ((long) columnSize * rowSize != this.getLength())
+			throw new IllegalArgumentException("Cannot reshape vector - dimensions do not match its length");
+
+		return new MatrixView(this, 0, columnSize, rowSize);
+	}
+
+	/**
+	 * @return VectorExpr - a lazy view of the vector for building fused element-wise expressions
+	 */
+	public VectorExpr lazy() {
+		return VectorExpr.of(this);
+	}
+
+	/**
+	 * This bulk copies every element into a buffer, starting at the buffer's position.
+	 * @param buffer - destination with at least n elements remaining
+	 */
+	public void copyTo(DoubleBuffer buffer) {
+
+		if (arr == null) {
+			for (int i = 0; i < this.getLength(); i++) {
+				buffer.put(this.getValue(i));
+			}
+			return;
+		}
+
+		buffer.put(arr);
 	}
 
 	//Mutators
@@ -67,13 +192,70 @@ public class Vector {
 		arr[i] = value;
 	}
 	
+	/**
+	 * This bulk copies n elements out of a buffer, starting at the buffer's position.
+	 * @param buffer - source with at least n elements remaining
+	 */
+	public void copyFrom(DoubleBuffer buffer) {
+
+		if (arr == null) {
+			for (int i = 0; i < this.getLength(); i++) {
+				this.setValue(i, buffer.get());
+			}
+			return;
+		}
+
+		buffer.get(arr);
+	}
+
 	/**
 	 * This sets all the elements in the vector to a single value.
 	 * @param value double - the value to set all elements to
 	 */
 	public void setValues(double value) {
-		for(int i = 0; i < arr.length; i++) {
-			this.arr[i] = value;
+		for(int i = 0; i < this.getLength(); i++) {
+			this.setValue(i, value);
+		}
+	}
+
+	/**
+	 * This copies all the elements of another vector into this one without allocating.
+	 * @param that - another vector of the same dimension
+	 */
+	public void setValues(Vector that) {
+
+		if (this.getLength() != that.getLength())
+			throw new IllegalArgumentException();
+
+		if (this.arr == null || that.arr == null) {
+			for (int i = 0; i < this.getLength(); i++) {
+				this.setValue(i, that.getValue(i));
+			}
+			return;
+		}
+
+		System.arraycopy(that.arr, 0, this.arr, 0, arr.length);
+	}
+
+	/**
+	 * This materialises an element-wise expression into the vector in a single pass without allocating.
+	 * The vector may appear in the expression itself, e.g. w.assign(w.lazy().minus(dw.lazy().scaled(k))).
+	 * @param expr - an expression of the same dimension
+	 */
+	public void assign(VectorExpr expr) {
+
+		if (this.getLength() != expr.getLength())
+			throw new IllegalArgumentException();
+
+		if (this.arr == null) {
+			for (int i = 0; i < this.getLength(); i++) {
+				this.setValue(i, expr.get(i));
+			}
+			return;
+		}
+
+		for (int i = 0; i < arr.length; i++) {
+			arr[i] = expr.get(i);
 		}
 	}
 
@@ -81,9 +263,21 @@ public class Vector {
 	 * This sets all the elements to random numbers between (-1,1)
 	 */
 	public void setValuesRandom() {
-		for(int i = 0; i < arr.length; i++) {
-			this.arr[i] = (double) ( 2 * ( Math.random() - .5 ) );
-		}
+		this.setValuesRandom(CounterRandom.fromEntropy());
+	}
+
+	/**
+	 * This sets all the elements to random numbers between (-1,1) from a random source.
+	 * Element i always gets the ith number of the source, so long vectors are filled in parallel
+	 * and the values only depend on the seed, never on the number of threads.
+	 * @param random - the source of the numbers
+	 */
+	public void setValuesRandom(RandomSource random) {
+		Parallel.forRange(this.getLength(), 4096, (from, to) -> {
+			for(int i = from; i < to; i++) {
+				this.setValue(i, 2 * ( random.uniform(i) - .5 ));
+			}
+		});
 	}
 	
 	//Printers
@@ -91,7 +285,7 @@ public class Vector {
 	 * This prints out all the values of the vector to console.
 	 */
 	public void print() {
-		for(int i = 0; i < arr.length; i++) {
+		for(int i = 0; i < this.getLength(); i++) {
 			System.out.print(this.getValue(i) + " ");
 		}
 	} 
@@ -103,7 +297,7 @@ public class Vector {
 		
 		StringBuilder sb = new StringBuilder();
 		for(int i = 0; i < this.getLength(); i++)
-			sb.append(arr[i] + " ");
+			sb.append(this.getValue(i) + " ");
 	
 		sb.deleteCharAt(sb.length() - 1);
 		
@@ -160,6 +354,53 @@ public class Vector {
 		return result;
 	}
 	
+	/**
+	 * Element-wise vector subtraction into a caller supplied vector, so no result is allocated.
+	 * @param that - another vector of the same dimension
+	 * @param result - vector of the same dimension that receives C = A - B
+	 * @return vector - result
+	 */
+	public Vector minus(Vector that, Vector result) {
+
+		if (this.getLength() != that.getLength() || this.getLength() != result.getLength())
+			throw new IllegalArgumentException();
+
+		for (int i = 0; i < result.getLength(); i++) {
+			result.setValue(i, this.getValue(i) - that.getValue(i));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Inplace element-wise vector addition.
+	 * @param that - another vector of the same dimension, A <- A + B
+	 */
+	public void add(Vector that) {
+
+		if (this.getLength() != that.getLength())
+			throw new IllegalArgumentException();
+
+		for (int i = 0; i < this.getLength(); i++) {
+			this.setValue(i, this.getValue(i) + that.getValue(i));
+		}
+	}
+
+	/**
+	 * Inplace addition of a scaled vector (axpy), without building the scaled vector.
+	 * @param that - another vector of the same dimension
+	 * @param scalar - double scalar k in A <- A + kB
+	 */
+	public void addScaled(Vector that, double scalar) {
+
+		if (this.getLength() != that.getLength())
+			throw new IllegalArgumentException();
+
+		for (int i = 0; i < this.getLength(); i++) {
+			this.setValue(i, this.getValue(i) + scalar * that.getValue(i));
+		}
+	}
+
 	/**
 	 * Element-wise vector multiplication.
 	 * @param that - another vector of the same dimension
@@ -230,9 +471,18 @@ public class Vector {
 	}
 
 	public Vector log() {
+		return this.log(FastMath.Mode.EXACT);
+	}
+
+	/**
+	 * Element-wise natural log, offset by .001 so zeros stay finite.
+	 * @param mode - EXACT for java.lang.Math or one of the FastMath approximations
+	 * @return vector W = log(V + .001)
+	 */
+	public Vector log(FastMath.Mode mode) {
 		Vector result = new Vector(this.getLength());
 		for(int i = 0; i < result.getLength(); i++){
-			result.setValue(i, Math.log(this.getValue(i) + .001f));
+			result.setValue(i, mode.log(this.getValue(i) + .001f));
 		}
 		return result;
 	}
@@ -252,8 +502,8 @@ public class Vector {
 	 */
 	public void scale(double scalar) {
 		
-		for (int i = 0; i < arr.length; i++) {
-			arr[i] = arr[i] * scalar;
+		for (int i = 0; i < this.getLength(); i++) {
+			this.setValue(i, this.getValue(i) * scalar);
 		}
 	}
 	
@@ -264,10 +514,10 @@ public class Vector {
 	 */
 	public Vector scaled(double scalar) {
 		
-		Vector result = new Vector(arr.length);
+		Vector result = new Vector(this.getLength());
 		
-		for (int i = 0; i < arr.length; i++) {
-			result.setValue(i, arr[i] * scalar);
+		for (int i = 0; i < this.getLength(); i++) {
+			result.setValue(i, this.getValue(i) * scalar);
 		}
 		
 		return result;
@@ -0,0 +1,164 @@
+package math;
+
+/**
+ * This class is a lazily evaluated element-wise vector expression.
+ * Operators only record the chain, nothing is computed until the expression is assigned with
+ * Vector.assign or eval, which then runs a single fused loop over the elements. An expression like
+ * W - k(dW) therefore reads W and dW once and writes the result once instead of creating an intermediate
+ * vector for every operator.
+ *
+ * Every operator only reads element i when producing element i, so an expression may safely be assigned
+ * into one of its own operands.
+ */
+public abstract class VectorExpr {
+
+	/**
+	 * @return int - the dimension n of the expression
+	 */
+	public abstract int getLength();
+
+	/**
+	 * @param i int - the index
+	 * @return double - value of the expression at index i
+	 */
+	public abstract double get(int i);
+
+	/**
+	 * @param that - the vector to read from
+	 * @return VectorExpr - a leaf expression that reads the vector's elements
+	 */
+	public static VectorExpr of(final Vector that) {
+		return new VectorExpr() {
+			public int getLength() {
+				return that.getLength();
+			}
+			public double get(int i) {
+				return that.getValue(i);
+			}
+		};
+	}
+
+	/**
+	 * This evaluates the expression into a new vector.
+	 * @return Vector - the materialised expression
+	 */
+	public Vector eval() {
+		Vector result = new Vector(this.getLength());
+		result.assign(this);
+		return result;
+	}
+
+	//Element-wise Operators
+
+	/**
+	 * @param that - another expression of the same dimension
+	 * @return VectorExpr - A + B
+	 */
+	public VectorExpr plus(final VectorExpr that) {
+		check(that);
+		final VectorExpr self = this;
+		return new VectorExpr() {
+			public int getLength() {
+				return self.getLength();
+			}
+			public double get(int i) {
+				return self.get(i) + that.get(i);
+			}
+		};
+	}
+
+	/**
+	 * @param that - another vector of the same dimension
+	 * @return VectorExpr - A + B
+	 */
+	public VectorExpr plus(Vector that) {
+		return this.plus(of(that));
+	}
+
+	/**
+	 * @param that - another expression of the same dimension
+	 * @return VectorExpr - A - B
+	 */
+	public VectorExpr minus(final VectorExpr that) {
+		check(that);
+		final VectorExpr self = this;
+		return new VectorExpr() {
+			public int getLength() {
+				return self.getLength();
+			}
+			public double get(int i) {
+				return self.get(i) - that.get(i);
+			}
+		};
+	}
+
+	/**
+	 * @param that - another vector of the same dimension
+	 * @return VectorExpr - A - B
+	 */
+	public VectorExpr minus(Vector that) {
+		return this.minus(of(that));
+	}
+
+	/**
+	 * @param that - another expression of the same dimension
+	 * @return VectorExpr - element-wise (Hadamard) product of A and B
+	 */
+	public VectorExpr times(final VectorExpr that) {
+		check(that);
+		final VectorExpr self = this;
+		return new VectorExpr() {
+			public int getLength() {
+				return self.getLength();
+			}
+			public double get(int i) {
+				return self.get(i) * that.get(i);
+			}
+		};
+	}
+
+	/**
+	 * @param that - another vector of the same dimension
+	 * @return VectorExpr - element-wise (Hadamard) product of A and B
+	 */
+	public VectorExpr times(Vector that) {
+		return this.times(of(that));
+	}
+
+	/**
+	 * @param scalar - double scalar k
+	 * @return VectorExpr - kA
+	 */
+	public VectorExpr scaled(final double scalar) {
+		final VectorExpr self = this;
+		return new VectorExpr() {
+			public int getLength() {
+				return self.getLength();
+			}
+			public double get(int i) {
+				return self.get(i) * scalar;
+			}
+		};
+	}
+
+	/**
+	 * @param scalar - double scalar k
+	 * @return VectorExpr - A + k added to every element
+	 */
+	public VectorExpr plus(final double scalar) {
+		final VectorExpr self = this;
+		return new VectorExpr() {
+			public int getLength() {
+				return self.getLength();
+			}
+			public double get(int i) {
+				return self.get(i) + scalar;
+			}
+		};
+	}
+
+	private void check(VectorExpr that) {
+		if (this.getLength() != that.getLength())
+			throw new IllegalArgumentException();
+	}
+}
@@ -0,0 +1,79 @@
+package math;
+
+/**
+ * This class is a zero copy window onto the values of another Vector or Matrix, described by an offset,
+ * a length and a stride into the source. Reads and writes go straight through to the source, so a view
+ * always sees the current values and writing to a view changes the source.
+ *
+ * A view over a matrix indexes it in row major order, which covers columns (offset j, stride n) and
+ * flattening (offset 0, stride 1). Views are created with Vector.sliceView, Vector.stridedView,
+ * Matrix.columnView and Matrix.flattenView.
+ */
+public class VectorView extends Vector {
+
+	private final Vector vector;
+	private final Matrix matrix;
+	private final int offset;
+	private final int stride;
+	private final int length;
+
+	VectorView(Vector vector, int offset, int stride, int length) {
+		super();
+
+		if (length < 0 || offset < 0 || (length > 0 && (offset + (long) (length - 1) * stride >= vector.getLength() || offset + (long) (length - 1) * stride < 0)))
+			throw new IllegalArgumentException("View does not fit inside the vector");
+
+		this.vector = vector;
+		this.matrix = null;
+		this.offset = offset;
+		this.stride = stride;
+		this.length = length;
+	}
+
+	VectorView(Matrix matrix, int offset, int stride, int length) {
+		super();
+
+		long size = (long) matrix.getColumnSize() * matrix.getRowSize();
+		if (length < 0 || offset < 0 || (length > 0 && (offset + (long) (length - 1) * stride >= size || offset + (long) (length - 1) * stride < 0)))
+			throw new IllegalArgumentException("View does not fit inside the matrix");
+
+		this.vector = null;
+		this.matrix = matrix;
+		this.offset = offset;
+		this.stride = stride;
+		this.length = length;
+	}
+
+	@Override
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public double getValue(int i) {
+		if (i < 0 || i >= length)
+			throw new IndexOutOfBoundsException();
+
+		int index = offset + i * stride;
+		if (vector != null)
+			return vector.getValue(index);
+
+		int n = matrix.getRowSize();
+		return matrix.getValue(index / n, index % n);
+	}
+
+	@Override
+	public void setValue(int i, double value) {
+		if (i < 0 || i >= length)
+			throw new IndexOutOfBoundsException();
+
+		int index = offset + i * stride;
+		if (vector != null) {
+			vector.setValue(index, value);
+			return;
+		}
+
+		int n = matrix.getRowSize();
+		matrix.setValue(index / n, index % n, value);
+	}
+}
@@ -0,0 +1,150 @@
+package nn;
+
+import math.Vector;
+import interfaces.Layer;
+import io.ModelFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes periodic training checkpoints of a NeuralNetwork on a background thread.
+ * A snapshot copies every Dense layer's weights and Adam state into one of two staging networks that are allocated once,
+ * so the training thread only blocks for the copy while the other staging network may still be on its way to disk.
+ * A staging network is written to a temporary file and atomically moved over the checkpoint path, so a crash mid write
+ * never leaves a corrupt checkpoint.
+ */
+class Checkpointer {
+
+    private final String filePath;
+    private final ArrayList<Layer<Vector, Vector>> layers;
+    private final NeuralNetwork[] staging;
+
+    private final ExecutorService writer;
+    private final Future<?>[] pending;
+    private int next;
+
+    /**
+     * @param filePath - where the checkpoint is kept, replaced by every new snapshot
+     * @param layers - the live layers of the network being trained
+     */
+    Checkpointer(String filePath, ArrayList<Layer<Vector, Vector>> layers){
+        this.filePath = filePath;
+        this.layers = layers;
+
+        this.staging = new NeuralNetwork[]{ stagingNetwork(layers), stagingNetwork(layers) };
+        this.pending = new Future<?>[2];
+
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "nn-checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static NeuralNetwork stagingNetwork(ArrayList<Layer<Vector, Vector>> layers){
+        NeuralNetwork staging = new NeuralNetwork();
+        for(int l = 0; l < layers.size(); l++){
+            Layer<Vector, Vector> layer = layers.get(l);
+            if (layer instanceof Dense){
+                Dense dense = (Dense) layer;
+                staging.addLayer(new Dense(dense.getWeightsView(), dense.getBiasView()));
+            } else {
+                staging.addLayer(layer);
+            }
+        }
+        return staging;
+    }
+
+    /**
+     * Stages the current parameters and schedules them to be written.
+     * The staging networks alternate, so this only waits if the checkpoint before the previous one is still not written,
+     * which means the disk falls behind by more than a whole checkpoint interval.
+     * @param epoch - the epoch training resumes at
+     * @param batch - the batch index within that epoch training resumes at
+     * @param steps - the number of training steps taken so far
+     */
+    void snapshot(int epoch, int batch, int steps){
+
+        int slot = this.next;
+        this.next = 1 - slot;
+        this.await(slot);
+
+        NeuralNetwork buffer = this.staging[slot];
+        for(int l = 0; l < layers.size(); l++){
+            if (layers.get(l) instanceof Dense){
+                ((Dense) buffer.getLayer(l)).copyStateFrom((Dense) layers.get(l));
+            }
+        }
+
+        this.pending[slot] = writer.submit(() -> {
+            try {
+                ModelFile file = buffer.toModelFile(true);
+                file.addTag(epoch);
+                file.addTag(batch);
+                file.addTag(steps);
+
+                File target = new File(filePath);
+                File temporary = new File(filePath + ".tmp");
+                file.write(temporary);
+                Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Blocks until the last scheduled checkpoint is on disk.
+     * @throws UncheckedIOException - if writing the checkpoint failed
+     */
+    void await(){
+        // The writer is a single thread, so the older slot finishes first
+        int older = this.next;
+        try {
+            this.await(older);
+        } finally {
+            this.await(1 - older);
+        }
+    }
+
+    /**
+     * Blocks until the checkpoint staged in one slot is on disk.
+     * @param slot - the staging network index
+     * @throws UncheckedIOException - if writing that checkpoint failed
+     */
+    private void await(int slot){
+        if (this.pending[slot] == null)
+            return;
+        try {
+            this.pending[slot].get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException)
+                throw (UncheckedIOException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            this.pending[slot] = null;
+        }
+    }
+
+    /**
+     * Waits for the last checkpoint and stops the writer thread.
+     */
+    void close(){
+        try {
+            this.await();
+        } finally {
+            this.writer.shutdown();
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package nn;
 
+import math.CounterRandom;
 import math.Matrix;
+import math.RandomSource;
+import math.ScratchArena;
 import math.Vector;
+import interfaces.BatchLayer;
 import interfaces.Layer;
+import io.ModelFile;
 
-public class Dense implements Layer<Vector, Vector>{
+import java.io.IOException;
+
+public class Dense implements Layer<Vector, Vector>, BatchLayer<Matrix>{
     
     // Parameters
     private Matrix weights;
@@ -28,9 +35,31 @@ public class Dense implements Layer<Vector, Vector>{
     private Vector Bv;
 
     public Dense(int inDimemsion, int outDimension){
+        this(inDimemsion, outDimension, Initializer.STANDARD_NORMAL, CounterRandom.fromEntropy());
+    }
+
+    /**
+     * Creates a layer with reproducible initial weights.
+     * @param inDimension - length of the input vectors
+     * @param outDimension - length of the output vectors
+     * @param initializer - the weight initialization scheme, e.g. HE before a ReLU
+     * @param seed - the same seed always produces the same weights, whatever the thread count
+     */
+    public Dense(int inDimension, int outDimension, Initializer initializer, long seed){
+        this(inDimension, outDimension, initializer, new CounterRandom(seed));
+    }
+
+    /**
+     * Creates a layer whose initial weights are drawn from a random source, e.g. one split per layer of a network.
+     * @param inDimemsion - length of the input vectors
+     * @param outDimension - length of the output vectors
+     * @param initializer - the weight initialization scheme
+     * @param random - the source of the initial weights
+     */
+    public Dense(int inDimemsion, int outDimension, Initializer initializer, RandomSource random){
 
         this.weights = new Matrix(outDimension, inDimemsion);
-        this.weights.setValuesRandom();
+        initializer.initialize(this.weights, random);
 
         this.bias = new Vector(outDimension);
         
@@ -44,27 +73,289 @@ public class Dense implements Layer<Vector, Vector>{
         this.Bv = new Vector(outDimension);
     }
 
+    /**
+     * Creates a layer from already estimated parameters, with fresh optimizer state.
+     * @param weights - (out, in) weight matrix, deeply copied
+     * @param bias - bias vector of length out, deeply copied
+     */
+    public Dense(Matrix weights, Vector bias){
+
+        int outDimension = weights.getColumnSize();
+        int inDimension = weights.getRowSize();
+
+        if (bias.getLength() != outDimension)
+            throw new IllegalArgumentException("Bias length must match the weight matrix row count");
+
+        this.weights = weights.deepCopy();
+        this.bias = bias.deepCopy();
+
+        this.weightGradients = new Matrix(outDimension, inDimension);
+        this.biasGradients = new Vector(outDimension);
+
+        this.Wm = new Matrix(outDimension, inDimension);
+        this.Wv = new Matrix(outDimension, inDimension);
+
+        this.Bm = new Vector(outDimension);
+        this.Bv = new Vector(outDimension);
+    }
+
+    /**
+     * Creates an inference only layer that uses the given parameters in place, e.g. a memory mapped model file.
+     * It has no gradients or optimizer state, so backward, zeroGrad and update throw.
+     */
+    private Dense(Matrix weights, Vector bias, boolean inferenceOnly){
+        this.weights = weights;
+        this.bias = bias;
+    }
+
+    private void checkTrainable(){
+        if (this.weightGradients == null)
+            throw new UnsupportedOperationException("Dense layer was mapped for inference only");
+    }
+
+    /**
+     * @return Matrix - a defensive copy of the (out, in) weight matrix
+     */
+    public Matrix getWeights(){
+        return this.weights.deepCopy();
+    }
+
+    /**
+     * @return Vector - a defensive copy of the bias vector
+     */
+    public Vector getBias(){
+        return this.bias.deepCopy();
+    }
+
+    /**
+     * @return Matrix - a zero copy view of the (out, in) weight matrix, which changes as the layer trains
+     */
+    public Matrix getWeightsView(){
+        return this.weights.rowsView(0, this.weights.getColumnSize());
+    }
+
+    /**
+     * @return Vector - a zero copy view of the bias vector, which changes as the layer trains
+     */
+    public Vector getBiasView(){
+        return this.bias.sliceView(0, this.bias.getLength());
+    }
+
+    /**
+     * Appends the weights, bias and optionally the Adam moment estimates to a model file.
+     * The sections reference the live parameters, so the file must be saved before training continues.
+     * @param file - the model file being written
+     * @param includeOptimizer - whether Wm, Wv, Bm and Bv are written as well
+     */
+    void writeTo(ModelFile file, boolean includeOptimizer){
+        file.addMatrix(this.weights);
+        file.addVector(this.bias);
+        file.addTag(includeOptimizer ? 1 : 0);
+        if (includeOptimizer){
+            file.addMatrix(this.Wm);
+            file.addMatrix(this.Wv);
+            file.addVector(this.Bm);
+            file.addVector(this.Bv);
+        }
+    }
+
+    /**
+     * Reads a layer written by writeTo without copying its parameters out of the mapped file.
+     * The layer is inference only and any optimizer state in the file is skipped.
+     * @param file - the model file being read
+     * @return Dense - the mapped layer
+     * @throws IOException - is thrown if the sections do not describe a Dense layer
+     */
+    static Dense mapFrom(ModelFile file) throws IOException {
+        Matrix weights = file.mapMatrix();
+        Vector bias = file.mapVector();
+
+        if (bias.getLength() != weights.getColumnSize())
+            throw new IOException("Could not read file contents. Dense bias does not match its weights.");
+
+        if (file.nextTag() == 1){
+            file.mapMatrix();
+            file.mapMatrix();
+            file.mapVector();
+            file.mapVector();
+        }
+        return new Dense(weights, bias, true);
+    }
+
+    /**
+     * Copies the parameters and Adam moment estimates of another layer with the same shape into this one.
+     * Used to stage checkpoints without allocating.
+     * @param that - the layer to copy from
+     */
+    void copyStateFrom(Dense that){
+        this.weights.setValues(that.weights);
+        this.bias.setValues(that.bias);
+        this.Wm.setValues(that.Wm);
+        this.Wv.setValues(that.Wv);
+        this.Bm.setValues(that.Bm);
+        this.Bv.setValues(that.Bv);
+    }
+
+    /**
+     * Reads a layer written by writeTo. Layers saved without optimizer state start with zeroed moments.
+     * @param file - the model file being read
+     * @return Dense - the restored layer
+     * @throws IOException - is thrown if the sections do not describe a Dense layer
+     */
+    static Dense readFrom(ModelFile file) throws IOException {
+        Matrix weights = file.nextMatrix();
+        Vector bias = file.nextVector();
+
+        if (bias.getLength() != weights.getColumnSize())
+            throw new IOException("Could not read file contents. Dense bias does not match its weights.");
+
+        Dense layer = new Dense(weights, bias);
+
+        if (file.nextTag() == 1){
+            layer.Wm = file.nextMatrix();
+            layer.Wv = file.nextMatrix();
+            layer.Bm = file.nextVector();
+            layer.Bv = file.nextVector();
+        }
+        return layer;
+    }
+
     @Override
     public Vector forward(Vector x){
         this.input = x;
-        this.output = this.weights.dot(x).plus(bias);
+        this.output = this.weights.dot(x, ScratchArena.current().vector(this.bias.getLength()));
+        this.output.add(this.bias);
         return this.output;
     }
 
+    /**
+     * Batched inference pass Y = X * W^T + b with one sample per row of X.
+     * This does not record the input, so it cannot be followed by backward.
+     * @param x - (batch, in) matrix of inputs
+     * @return Matrix - (batch, out) matrix of outputs
+     */
+    @Override
+    public Matrix forwardBatch(Matrix x){
+        Matrix result = x.dotTranspose(this.weights);
+        result.addToRows(this.bias);
+        return result;
+    }
+
     @Override
     public Vector backward(Vector gradient){
 
-        Matrix weightGradients = gradient.outer(this.input);
-        Vector biasGradients = gradient;
+        this.checkTrainable();
 
-        this.weightGradients = this.weightGradients.plus(weightGradients);
-        this.biasGradients = this.biasGradients.plus(biasGradients);
+        this.weightGradients.addOuter(gradient, this.input);
+        this.biasGradients.add(gradient);
 
-        return this.weights.transpose().dot(gradient);
+        return this.weights.transposeDot(gradient, ScratchArena.current().vector(this.weights.getRowSize()));
+    }
+
+    /**
+     * Batched backward pass that accumulates the gradients of every row in the order backward would, sample by sample.
+     * The inputs are passed in because forwardBatch does not record them.
+     * @param input - (batch, in) matrix the layer's forwardBatch was given
+     * @param gradient - (batch, out) matrix of the gradients of the outputs
+     * @return Matrix - (batch, in) matrix of the gradients of the inputs
+     */
+    Matrix backwardBatch(Matrix input, Matrix gradient){
+
+        this.checkTrainable();
+
+        for(int r = 0; r < gradient.getColumnSize(); r++){
+            Vector g = gradient.rowView(r);
+            this.weightGradients.addOuter(g, input.rowView(r));
+            this.biasGradients.add(g);
+        }
+
+        return gradient.dot(this.weights);
+    }
+
+    /**
+     * @return double - the sum of the squared accumulated weight and bias gradients
+     */
+    double gradientSquaredNorm(){
+        this.checkTrainable();
+        double sum = this.biasGradients.dot(this.biasGradients);
+        for(int i = 0; i < this.weightGradients.getColumnSize(); i++){
+            for(int j = 0; j < this.weightGradients.getRowSize(); j++){
+                double g = this.weightGradients.getValue(i, j);
+                sum += g * g;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return int - the number of weights and biases, i.e. the length of this layer's part of a flat parameter array
+     */
+    int parameterCount(){
+        return this.weights.getColumnSize() * this.weights.getRowSize() + this.bias.getLength();
+    }
+
+    /**
+     * Copies the weights row by row, followed by the bias, into a flat array.
+     * @param destination - the flat array
+     * @param offset - where this layer's part starts
+     */
+    void readParameters(double[] destination, int offset){
+        for(int i = 0; i < this.weights.getColumnSize(); i++){
+            for(int j = 0; j < this.weights.getRowSize(); j++){
+                destination[offset++] = this.weights.getValue(i, j);
+            }
+        }
+        for(int i = 0; i < this.bias.getLength(); i++){
+            destination[offset++] = this.bias.getValue(i);
+        }
+    }
+
+    /**
+     * Overwrites the weights and bias from a flat array laid out like readParameters, keeping the optimizer state.
+     * @param source - the flat array
+     * @param offset - where this layer's part starts
+     */
+    void writeParameters(double[] source, int offset){
+        for(int i = 0; i < this.weights.getColumnSize(); i++){
+            for(int j = 0; j < this.weights.getRowSize(); j++){
+                this.weights.setValue(i, j, source[offset++]);
+            }
+        }
+        for(int i = 0; i < this.bias.getLength(); i++){
+            this.bias.setValue(i, source[offset++]);
+        }
+    }
+
+    /**
+     * Copies the accumulated gradients into a flat array laid out like readParameters and clears them.
+     * @param destination - the flat array
+     * @param offset - where this layer's part starts
+     * @param scale - multiplies every gradient, e.g. 1 / batchSize for the mean
+     */
+    void readGradients(double[] destination, int offset, double scale){
+        this.checkTrainable();
+        for(int i = 0; i < this.weightGradients.getColumnSize(); i++){
+            for(int j = 0; j < this.weightGradients.getRowSize(); j++){
+                destination[offset++] = this.weightGradients.getValue(i, j) * scale;
+            }
+        }
+        for(int i = 0; i < this.biasGradients.getLength(); i++){
+            destination[offset++] = this.biasGradients.getValue(i) * scale;
+        }
+        this.zeroGrad();
+    }
+
+    /**
+     * Overwrites the weights and bias in place with those of a layer of the same shape, keeping the optimizer state.
+     */
+    void setParameters(Dense that){
+        this.weights.assign(that.weights.lazy());
+        this.bias.assign(that.bias.lazy());
     }
 
     @Override
     public void zeroGrad(){
+        this.checkTrainable();
         this.weightGradients.scale(0);
         this.biasGradients.scale(0);
     }
@@ -72,6 +363,8 @@ public class Dense implements Layer<Vector, Vector>{
     @Override
     public void update(double learningRate, int t, int batchSize){
 
+        this.checkTrainable();
+
         this.weightGradients.scale(1.0 / batchSize);
         this.biasGradients.scale(1.0 / batchSize);
 
@@ -0,0 +1,237 @@
+package nn;
+
+import math.CounterRandom;
+import math.FloatMatrix;
+import math.FloatVector;
+import math.Matrix;
+import math.RandomSource;
+import math.Vector;
+import interfaces.BatchLayer;
+import interfaces.Layer;
+
+/**
+ * Single precision version of Dense. Parameters, activations and gradients are float32,
+ * while the Adam moment estimates can optionally be kept in double precision.
+ */
+public class FloatDense implements Layer<FloatVector, FloatVector>, BatchLayer<FloatMatrix>{
+
+    // Parameters
+    private FloatMatrix weights;
+    private FloatVector bias;
+
+    // Gradients for Backprop
+    private FloatMatrix weightGradients;
+    private FloatVector biasGradients;
+
+    private FloatVector input;
+
+    // Adam Stuff
+    private double beta1 = 0.9;
+    private double beta2 = 0.999;
+
+    private final boolean doubleOptimizerState;
+
+    private FloatMatrix Wm;
+    private FloatMatrix Wv;
+    private FloatVector Bm;
+    private FloatVector Bv;
+
+    private Matrix WmDouble;
+    private Matrix WvDouble;
+    private Vector BmDouble;
+    private Vector BvDouble;
+
+    public FloatDense(int inDimension, int outDimension){
+        this(inDimension, outDimension, false);
+    }
+
+    /**
+     * @param inDimension - length of the input vectors
+     * @param outDimension - length of the output vectors
+     * @param doubleOptimizerState - keep the Adam moment estimates in double precision instead of float
+     */
+    public FloatDense(int inDimension, int outDimension, boolean doubleOptimizerState){
+        this(inDimension, outDimension, Initializer.STANDARD_NORMAL, CounterRandom.fromEntropy(), doubleOptimizerState);
+    }
+
+    /**
+     * Creates a layer with reproducible initial weights, the float rounding of what Dense draws from the same seed.
+     * @param inDimension - length of the input vectors
+     * @param outDimension - length of the output vectors
+     * @param initializer - the weight initialization scheme, e.g. HE before a ReLU
+     * @param seed - the same seed always produces the same weights, whatever the thread count
+     */
+    public FloatDense(int inDimension, int outDimension, Initializer initializer, long seed){
+        this(inDimension, outDimension, initializer, new CounterRandom(seed));
+    }
+
+    /**
+     * Creates a layer whose initial weights are drawn from a random source, e.g. one split per layer of a network.
+     * @param inDimension - length of the input vectors
+     * @param outDimension - length of the output vectors
+     * @param initializer - the weight initialization scheme
+     * @param random - the source of the initial weights
+     */
+    public FloatDense(int inDimension, int outDimension, Initializer initializer, RandomSource random){
+        this(inDimension, outDimension, initializer, random, false);
+    }
+
+    /**
+     * @param inDimension - length of the input vectors
+     * @param outDimension - length of the output vectors
+     * @param initializer - the weight initialization scheme
+     * @param random - the source of the initial weights
+     * @param doubleOptimizerState - keep the Adam moment estimates in double precision instead of float
+     */
+    public FloatDense(int inDimension, int outDimension, Initializer initializer, RandomSource random, boolean doubleOptimizerState){
+        this(initialWeights(inDimension, outDimension, initializer, random), new FloatVector(outDimension), doubleOptimizerState);
+    }
+
+    /**
+     * Creates a single precision copy of a trained double precision layer, with fresh optimizer state.
+     * @param layer - the layer to convert
+     * @param doubleOptimizerState - keep the Adam moment estimates in double precision instead of float
+     */
+    public FloatDense(Dense layer, boolean doubleOptimizerState){
+        this(FloatMatrix.fromMatrix(layer.getWeightsView()), FloatVector.fromVector(layer.getBiasView()), doubleOptimizerState);
+    }
+
+    /**
+     * Takes ownership of the parameters and allocates gradients and optimizer state to match them.
+     */
+    private FloatDense(FloatMatrix weights, FloatVector bias, boolean doubleOptimizerState){
+
+        int outDimension = weights.getColumnSize();
+        int inDimension = weights.getRowSize();
+
+        this.weights = weights;
+        this.bias = bias;
+
+        this.weightGradients = new FloatMatrix(outDimension, inDimension);
+        this.biasGradients = new FloatVector(outDimension);
+
+        this.doubleOptimizerState = doubleOptimizerState;
+
+        if (doubleOptimizerState){
+            this.WmDouble = new Matrix(outDimension, inDimension);
+            this.WvDouble = new Matrix(outDimension, inDimension);
+            this.BmDouble = new Vector(outDimension);
+            this.BvDouble = new Vector(outDimension);
+        } else {
+            this.Wm = new FloatMatrix(outDimension, inDimension);
+            this.Wv = new FloatMatrix(outDimension, inDimension);
+            this.Bm = new FloatVector(outDimension);
+            this.Bv = new FloatVector(outDimension);
+        }
+    }
+
+    private static FloatMatrix initialWeights(int inDimension, int outDimension, Initializer initializer, RandomSource random){
+        // Initializer works on double matrices, drawing there keeps the weights equal to those of a seeded Dense
+        Matrix weights = new Matrix(outDimension, inDimension);
+        initializer.initialize(weights, random);
+        return FloatMatrix.fromMatrix(weights);
+    }
+
+    /**
+     * @return FloatMatrix - a defensive copy of the (out, in) weight matrix
+     */
+    public FloatMatrix getWeights(){
+        return this.weights.deepCopy();
+    }
+
+    /**
+     * @return FloatVector - a defensive copy of the bias vector
+     */
+    public FloatVector getBias(){
+        return this.bias.deepCopy();
+    }
+
+    @Override
+    public FloatVector forward(FloatVector x){
+        this.input = x;
+        FloatVector output = this.weights.dot(x);
+        output.add(this.bias);
+        return output;
+    }
+
+    /**
+     * Batched inference pass Y = X * W^T + b with one sample per row of X.
+     * This does not record the input, so it cannot be followed by backward.
+     * @param x - (batch, in) matrix of inputs
+     * @return FloatMatrix - (batch, out) matrix of outputs
+     */
+    @Override
+    public FloatMatrix forwardBatch(FloatMatrix x){
+        FloatMatrix result = x.dotTranspose(this.weights);
+        result.addToRows(this.bias);
+        return result;
+    }
+
+    @Override
+    public FloatVector backward(FloatVector gradient){
+
+        this.weightGradients.addOuter(gradient, this.input);
+        this.biasGradients.add(gradient);
+
+        return this.weights.transposeDot(gradient);
+    }
+
+    @Override
+    public void zeroGrad(){
+        this.weightGradients.scale(0);
+        this.biasGradients.scale(0);
+    }
+
+    @Override
+    public void update(double learningRate, int t, int batchSize){
+
+        double scale = 1.0 / batchSize;
+        double correction1 = 1.0 - Math.pow(beta1, t);
+        double correction2 = 1.0 - Math.pow(beta2, t);
+
+        for(int i = 0; i < this.weightGradients.getColumnSize(); i++){
+
+            for(int j = 0; j < this.weightGradients.getRowSize(); j++){
+
+                double g = this.weightGradients.getValue(i, j) * scale;
+                double m;
+                double v;
+
+                if (doubleOptimizerState){
+                    m = beta1 * this.WmDouble.getValue(i, j) + (1.0 - beta1) * g;
+                    v = beta2 * this.WvDouble.getValue(i, j) + (1.0 - beta2) * g * g;
+                    this.WmDouble.setValue(i, j, m);
+                    this.WvDouble.setValue(i, j, v);
+                } else {
+                    m = beta1 * this.Wm.getValue(i, j) + (1.0 - beta1) * g;
+                    v = beta2 * this.Wv.getValue(i, j) + (1.0 - beta2) * g * g;
+                    this.Wm.setValue(i, j, (float) m);
+                    this.Wv.setValue(i, j, (float) v);
+                }
+
+                double step = (learningRate * (m / correction1)) / (Math.sqrt(v / correction2) + .00000001);
+                this.weights.setValue(i, j, (float) (this.weights.getValue(i, j) - step));
+            }
+
+            double g = this.biasGradients.getValue(i) * scale;
+            double m;
+            double v;
+
+            if (doubleOptimizerState){
+                m = beta1 * this.BmDouble.getValue(i) + (1.0 - beta1) * g;
+                v = beta2 * this.BvDouble.getValue(i) + (1.0 - beta2) * g * g;
+                this.BmDouble.setValue(i, m);
+                this.BvDouble.setValue(i, v);
+            } else {
+                m = beta1 * this.Bm.getValue(i) + (1.0 - beta1) * g;
+                v = beta2 * this.Bv.getValue(i) + (1.0 - beta2) * g * g;
+                this.Bm.setValue(i, (float) m);
+                this.Bv.setValue(i, (float) v);
+            }
+
+            double step = (learningRate * (m / correction1)) / (Math.sqrt(v / correction2) + .00000001);
+            this.bias.setValue(i, (float) (this.bias.getValue(i) - step));
+        }
+        this.zeroGrad();
+    }
+}
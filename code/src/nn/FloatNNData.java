@@ -0,0 +1,37 @@
+package nn;
+
+import interfaces.Sample;
+import math.FloatVector;
+
+public class FloatNNData implements Sample<FloatVector, FloatVector> {
+
+    private FloatVector input;
+    private FloatVector output;
+
+    public FloatNNData(FloatVector input, FloatVector output) {
+        this.input = input;
+        this.output = output;
+    }
+
+    public FloatVector getData(){
+        return this.input;
+    }
+    public FloatVector getLabel(){
+        return this.output;
+    }
+
+    /**
+     * Converts double precision samples to single precision.
+     * @param data - the samples to convert
+     * @return FloatNNData array - one float sample per input sample
+     */
+    public static FloatNNData[] format(NNData[] data){
+
+        FloatNNData[] result = new FloatNNData[data.length];
+
+        for(int i = 0; i < data.length; i++){
+            result[i] = new FloatNNData(FloatVector.fromVector(data[i].getData()), FloatVector.fromVector(data[i].getLabel()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,234 @@
+package nn;
+
+import math.FloatMatrix;
+import math.FloatVector;
+import math.Parallel;
+
+import interfaces.BatchLayer;
+import interfaces.Model;
+import interfaces.Monitored;
+import interfaces.Layer;
+
+import training.TrainingCallbacks;
+import training.TrainingRun;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Single precision version of NeuralNetwork. Training and inference run end to end in float32
+ * using FloatDense, FloatReLU and FloatSoftmax layers.
+ */
+public class FloatNeuralNetwork implements Model<FloatVector, FloatVector, FloatNNData>, Monitored{
+
+    private ArrayList<Layer<FloatVector, FloatVector>> layers;
+
+    private final TrainingCallbacks callbacks = new TrainingCallbacks();
+
+    public FloatNeuralNetwork(){
+        this.layers = new ArrayList<Layer<FloatVector, FloatVector>>();
+    }
+
+    public void addLayer(Layer<FloatVector, FloatVector> layer){
+        this.layers.add(layer);
+    }
+
+    /**
+     * @return TrainingCallbacks - the callbacks notified by train and how often it evaluates the testing data.
+     * Evaluation always runs on the training thread and early stopping cannot restore weights, float layers are not copied.
+     */
+    @Override
+    public TrainingCallbacks getCallbacks(){
+        return this.callbacks;
+    }
+
+    @Override
+    public FloatVector compute(FloatVector input){
+        FloatVector x = input;
+        for(int i = 0; i < layers.size(); i++){
+            x = layers.get(i).forward(x);
+        }
+        return x;
+    }
+
+    /**
+     * Batched inference where each chunk of the batch goes through every layer as one matrix.
+     * @param inputs - the input vectors X
+     * @param outputs - buffer where outputs[i] = compute(inputs[i])
+     */
+    @Override
+    public void computeBatch(FloatVector[] inputs, FloatVector[] outputs){
+
+        if (outputs.length < inputs.length)
+            throw new IllegalArgumentException("Output buffer is smaller than the batch");
+
+        if (inputs.length == 0)
+            return;
+
+        Parallel.RangeTask task = (from, to) -> {
+            FloatMatrix y = this.computeBatch(FloatMatrix.fromRows(inputs, from, to));
+            for(int i = from; i < to; i++){
+                outputs[i] = y.getRowVector(i - from);
+            }
+        };
+
+        // Layers without a batch pass keep per sample state in forward, so they must not be shared across threads
+        if (this.isBatchable())
+            Parallel.forRange(inputs.length, 64, task);
+        else
+            task.run(0, inputs.length);
+    }
+
+    /**
+     * @return boolean - whether every layer has a batch pass, so chunks of a batch can run on separate cores
+     */
+    private boolean isBatchable(){
+        for(int l = 0; l < layers.size(); l++){
+            if (!(layers.get(l) instanceof BatchLayer))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Batched inference with one sample per row, using a single matrix-matrix product per FloatDense layer.
+     * @param inputs - (batch, in) matrix X
+     * @return FloatMatrix - (batch, out) matrix of predictions
+     */
+    @SuppressWarnings("unchecked")
+    public FloatMatrix computeBatch(FloatMatrix inputs){
+        FloatMatrix x = inputs;
+        for(int l = 0; l < layers.size(); l++){
+            Layer<FloatVector, FloatVector> layer = layers.get(l);
+            if (layer instanceof BatchLayer){
+                x = ((BatchLayer<FloatMatrix>) layer).forwardBatch(x);
+            } else {
+                FloatVector[] rows = new FloatVector[x.getColumnSize()];
+                for(int i = 0; i < rows.length; i++){
+                    rows[i] = layer.forward(x.getRowVector(i));
+                }
+                x = FloatMatrix.fromRows(rows, 0, rows.length);
+            }
+        }
+        return x;
+    }
+
+    /**
+	 * This is an internal method for taking single training step based off of a batch of samples.
+	 * @param training - array of training samples to calculate gradients
+	 * @param learningRate - floating point scalar multiplier used to scale gradient before adding them to wieghts and bias
+	 */
+	private void forwardBackward(FloatNNData[] training, double learningRate, int epoch) {
+
+		for(int l = 0; l < layers.size(); l++){
+            this.layers.get(l).zeroGrad();
+        }
+		for (int i = 0; i < training.length; i++) {
+
+			FloatVector xi = training[i].getData();
+			FloatVector yi = training[i].getLabel();
+
+            FloatVector yhat = this.compute(xi);
+            FloatVector gradient = yhat.minus(yi);
+
+            for(int l = layers.size() - 1; l >= 0; l--){
+                gradient = this.layers.get(l).backward(gradient);
+            }
+		}
+
+        for(int l = 0; l < layers.size(); l++){
+            this.layers.get(l).update(learningRate, epoch, training.length);
+        }
+	}
+
+    @Override
+    public void train(FloatNNData[] training, FloatNNData[] testing, int batchSize, double learningRate, int epochs, boolean verbose){
+
+        int batchCount = training.length / batchSize;
+		int spareCount = training.length % batchSize;
+
+		int place = 0;
+
+		FloatNNData[][] batches = new FloatNNData[batchCount][batchSize];
+		for (int i = 0; i < batchCount; i++) {
+			for (int j = 0; j < batchSize; j++) {
+				batches[i][j] = training[place];
+				place++;
+			}
+		}
+
+		FloatNNData[] spareBatch = new FloatNNData[spareCount];
+		for (int i = 0; i < spareBatch.length; i++) {
+			spareBatch[i] = training[place];
+			place++;
+		}
+
+        int batchesPerEpoch = batchCount + (spareCount > 0 ? 1 : 0);
+
+        try (TrainingRun run = this.callbacks.begin("FloatNeuralNetwork", 1, epochs, batchesPerEpoch, verbose,
+                testing == null ? null : () -> this.evaluate(testing), null)) {
+
+            for(int e = 1; e <= epochs && !run.isStopRequested(); e++){
+                for (int i = 0; i < batchCount && !run.isStopRequested(); i++) {
+                    run.stepBegin(e, i + 1, batchSize);
+                    this.forwardBackward(batches[i], learningRate, e);
+                    run.stepEnd();
+                }
+
+                if (spareCount > 0 && !run.isStopRequested()) {
+                    run.stepBegin(e, batchesPerEpoch, spareCount);
+                    this.forwardBackward(spareBatch, learningRate, e);
+                    run.stepEnd();
+                }
+
+                if (run.isStopRequested())
+                    break;
+
+                run.epochEnd(e);
+            }
+        }
+    }
+
+    private Map<String, Double> evaluate(FloatNNData[] testing){
+        Map<String, Double> metrics = new LinkedHashMap<String, Double>();
+        metrics.put("loss", this.getLoss(testing));
+        metrics.put("accuracy", this.getAccuracy(testing));
+        return metrics;
+    }
+
+    @Override
+    public double getLoss(FloatNNData[] validation){
+
+        double loss = 0;
+        int n = validation.length;
+
+        for(int i = 0; i < validation.length; i++){
+
+            FloatVector yi = validation[i].getLabel();
+            FloatVector yhat = this.compute(validation[i].getData());
+
+            for(int j = 0; j < yi.getLength(); j++){
+                loss += -1 * yi.getValue(j) * Math.log(yhat.getValue(j) + .00000001);
+            }
+        }
+        return loss / n;
+    }
+
+    public double getAccuracy(FloatNNData[] validation){
+
+        int incorrect = 0;
+        int n = validation.length;
+
+        for(int i = 0; i < validation.length; i++){
+
+            FloatVector yi = validation[i].getLabel();
+            FloatVector yhat = this.compute(validation[i].getData());
+
+            if (yi.dot(yhat) < .9) {
+                incorrect += 1;
+            }
+        }
+        return (double) (n - incorrect) / n;
+    }
+}
@@ -0,0 +1,40 @@
+package nn;
+
+import math.Matrix;
+import math.RandomSource;
+
+/**
+ * This enum defines the weight initialization schemes for Dense layers.
+ * Each scheme scales the random weights by the fan in / fan out of the (out, in) weight matrix
+ * so that activations keep roughly the same variance from layer to layer.
+ */
+public enum Initializer {
+
+    /** N(0, 1), the original default. */
+    STANDARD_NORMAL {
+        public void initialize(Matrix weights, RandomSource random){
+            weights.setValuesRandom(random, 1.0);
+        }
+    },
+
+    /** Glorot / Xavier uniform, U(-sqrt(6 / (in + out)), sqrt(6 / (in + out))), for linear, tanh and softmax outputs. */
+    XAVIER {
+        public void initialize(Matrix weights, RandomSource random){
+            weights.setValuesUniform(random, Math.sqrt(6.0 / (weights.getRowSize() + weights.getColumnSize())));
+        }
+    },
+
+    /** He / Kaiming normal, N(0, 2 / in), for layers followed by ReLU. */
+    HE {
+        public void initialize(Matrix weights, RandomSource random){
+            weights.setValuesRandom(random, Math.sqrt(2.0 / weights.getRowSize()));
+        }
+    };
+
+    /**
+     * Fills a weight matrix according to the scheme.
+     * @param weights - the (out, in) weight matrix
+     * @param random - the source of the random numbers
+     */
+    public abstract void initialize(Matrix weights, RandomSource random);
+}
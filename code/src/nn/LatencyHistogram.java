@@ -0,0 +1,126 @@
+package nn;
+
+import java.util.Arrays;
+
+/**
+ * This class is a fixed size log-linear histogram of non-negative long values such as nanosecond durations.
+ * Values below 16 are counted exactly. Larger values fall into one of 8 buckets per power of two,
+ * so any percentile is reported within 12.5% of the true value while recording stays a few shifts and an increment.
+ * It is not thread safe, each training thread records into its own histograms.
+ */
+public class LatencyHistogram {
+
+    private static final int EXACT = 16;
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BITS = 3;
+
+    private final long[] counts = new long[EXACT + (63 - 4) * SUB_BUCKETS];
+
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * @param value - the value to count, negative values are ignored
+     */
+    public void record(long value){
+        if (value < 0)
+            return;
+        this.counts[index(value)]++;
+        this.count++;
+        this.sum += value;
+        if (value < this.min)
+            this.min = value;
+        if (value > this.max)
+            this.max = value;
+    }
+
+    /**
+     * Adds every value counted by another histogram to this one.
+     * @param that - the histogram to merge in
+     */
+    public void merge(LatencyHistogram that){
+        for(int i = 0; i < this.counts.length; i++){
+            this.counts[i] += that.counts[i];
+        }
+        this.count += that.count;
+        this.sum += that.sum;
+        this.min = Math.min(this.min, that.min);
+        this.max = Math.max(this.max, that.max);
+    }
+
+    public void reset(){
+        Arrays.fill(this.counts, 0);
+        this.count = 0;
+        this.sum = 0;
+        this.min = Long.MAX_VALUE;
+        this.max = 0;
+    }
+
+    public long getCount(){
+        return this.count;
+    }
+
+    public long getSum(){
+        return this.sum;
+    }
+
+    /**
+     * @return double - the exact mean of the recorded values, 0 if there are none
+     */
+    public double getMean(){
+        return this.count == 0 ? 0 : (double) this.sum / this.count;
+    }
+
+    public long getMin(){
+        return this.count == 0 ? 0 : this.min;
+    }
+
+    public long getMax(){
+        return this.max;
+    }
+
+    /**
+     * @param p - the percentile in [0, 100], e.g. 99 for the p99
+     * @return long - the midpoint of the bucket holding the value at that rank, clamped to the recorded min and max
+     */
+    public long getPercentile(double p){
+
+        if (p < 0 || p > 100)
+            throw new IllegalArgumentException("Percentile must be in [0, 100]");
+        if (this.count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * this.count));
+        long seen = 0;
+
+        for(int i = 0; i < this.counts.length; i++){
+            seen += this.counts[i];
+            if (seen >= rank){
+                long low = lowerBound(i);
+                long mid = low + (lowerBound(i + 1) - low - 1) / 2;
+                return Math.max(this.min, Math.min(this.max, mid));
+            }
+        }
+        return this.max;
+    }
+
+    private static int index(long value){
+        if (value < EXACT)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return EXACT + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int index){
+        if (index < EXACT)
+            return index;
+        int exponent = (index - EXACT) / SUB_BUCKETS + 4;
+        int sub = (index - EXACT) % SUB_BUCKETS;
+        if (exponent == 63)
+            return Long.MAX_VALUE;
+        return (1L << exponent) + ((long) sub << (exponent - SUB_BITS));
+    }
+}
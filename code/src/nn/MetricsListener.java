@@ -0,0 +1,25 @@
+package nn;
+
+/**
+ * This interface receives the training metrics of a NeuralNetwork, see NeuralNetwork.enableMetrics.
+ * Both methods run on the training thread between steps, so they should be quick or hand their work off.
+ */
+public interface MetricsListener {
+
+    /**
+     * Called after every training step.
+     * @param metrics - the live metrics, including the step that just finished
+     * @param epoch - the current epoch
+     * @param step - the number of steps taken since training started, counting resumed checkpoints
+     */
+    public default void onStep(TrainingMetrics metrics, int epoch, int step){
+    }
+
+    /**
+     * Called at the end of every epoch.
+     * @param metrics - the live metrics
+     * @param epoch - the epoch that just finished
+     */
+    public default void onEpoch(TrainingMetrics metrics, int epoch){
+    }
+}
@@ -1,22 +1,171 @@
 package nn;
 
+import math.FastMath;
+import math.Matrix;
+import math.Parallel;
+import math.ScratchArena;
 import math.Vector;
 
+import interfaces.BatchLayer;
+import interfaces.GradientModel;
 import interfaces.Model;
+import interfaces.Monitored;
+import interfaces.Versioned;
 import interfaces.Layer;
+import io.ModelFile;
 
+import nn.activationFunctions.ReLU;
+import nn.activationFunctions.Softmax;
+
+import training.ModelSnapshot;
+import training.TrainingCallbacks;
+import training.TrainingRun;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-public class NeuralNetwork implements Model<Vector, Vector, NNData>{
+public class NeuralNetwork implements Model<Vector, Vector, NNData>, GradientModel<NNData>, Versioned, Monitored{
+
+    private static final int LAYER_DENSE = 1;
+    private static final int LAYER_RELU = 2;
+    private static final int LAYER_SOFTMAX = 3;
 
     private ArrayList<Layer<Vector, Vector>> layers;
 
+    private final TrainingCallbacks callbacks = new TrainingCallbacks();
+
+    // Bumped by every change to the layers or their parameters, read by prediction caches
+    private volatile long version;
+
+    // Checkpointing
+    private String checkpointPath;
+    private int checkpointSteps;
+    private int checkpointEpochs;
+
+    // Metrics, null while disabled so the untimed path costs one branch per layer
+    private TrainingMetrics metrics;
+    private MetricsListener metricsListener;
+    private boolean jfrEvents;
+
+    // Where the next call to train starts, moved forward by resumeFrom
+    private int startEpoch = 1;
+    private int startBatch = 0;
+    private int steps = 0;
+
     public NeuralNetwork(){
         this.layers = new ArrayList<Layer<Vector, Vector>>();
     }
 
     public void addLayer(Layer<Vector, Vector> layer){
         this.layers.add(layer);
+        this.version++;
+    }
+
+    @Override
+    public long getVersion(){
+        return this.version;
+    }
+
+    /**
+     * @return TrainingCallbacks - the callbacks notified by train and how often it evaluates the testing data
+     */
+    @Override
+    public TrainingCallbacks getCallbacks(){
+        return this.callbacks;
+    }
+
+    Layer<Vector, Vector> getLayer(int index){
+        return this.layers.get(index);
+    }
+
+    int getLayerCount(){
+        return this.layers.size();
+    }
+
+    /**
+     * Makes train write checkpoints of every Dense layer's weights and Adam state on a background thread.
+     * Each checkpoint replaces the previous one at filePath and can be resumed with resumeFrom.
+     * @param filePath - where the checkpoint is kept
+     * @param everySteps - write a checkpoint after this many training steps, 0 to disable
+     * @param everyEpochs - write a checkpoint after this many epochs, 0 to disable
+     */
+    public void enableCheckpoints(String filePath, int everySteps, int everyEpochs){
+        if (everySteps < 0 || everyEpochs < 0)
+            throw new IllegalArgumentException("Checkpoint intervals must not be negative");
+        this.checkpointPath = filePath;
+        this.checkpointSteps = everySteps;
+        this.checkpointEpochs = everyEpochs;
+    }
+
+    /**
+     * Stops train from writing checkpoints.
+     */
+    public void disableCheckpoints(){
+        this.checkpointPath = null;
+    }
+
+    /**
+     * Makes train time every layer's forward, backward and update, every step, and the bytes allocated per step.
+     * The metrics accumulate over calls to train and can be read with getMetrics at any time.
+     * @param listener - receives the metrics after every step and epoch, may be null
+     */
+    public void enableMetrics(MetricsListener listener){
+        this.enableMetrics(listener, false);
+    }
+
+    /**
+     * Makes train time every layer's forward, backward and update, every step, and the bytes allocated per step.
+     * The metrics accumulate over calls to train and can be read with getMetrics at any time.
+     * @param listener - receives the metrics after every step and epoch, may be null
+     * @param jfrEvents - whether each layer pass and step is also emitted as a Java Flight Recorder event (see TrainingEvents)
+     */
+    public void enableMetrics(MetricsListener listener, boolean jfrEvents){
+        if (this.metrics == null)
+            this.metrics = new TrainingMetrics(this.layers);
+        this.metricsListener = listener;
+        this.jfrEvents = jfrEvents;
+    }
+
+    /**
+     * Stops train from collecting metrics. The metrics collected so far are discarded.
+     */
+    public void disableMetrics(){
+        this.metrics = null;
+        this.metricsListener = null;
+        this.jfrEvents = false;
+    }
+
+    /**
+     * @return TrainingMetrics - the metrics collected since enableMetrics, null while metrics are disabled
+     */
+    public TrainingMetrics getMetrics(){
+        return this.metrics;
+    }
+
+    /**
+     * Restores a network from a checkpoint written during train, including the Adam moment estimates.
+     * Calling train on the result with the same data and hyperparameters continues at the exact batch and
+     * Adam time step where the checkpoint was taken.
+     * @param filePath - the path of the checkpoint
+     * @return NeuralNetwork - the restored network, positioned to resume training
+     * @throws IOException - is thrown if the file does not exist or is not a training checkpoint
+     */
+    public static NeuralNetwork resumeFrom(String filePath) throws IOException {
+
+        ModelFile file = ModelFile.load(filePath);
+        NeuralNetwork network = fromModelFile(file);
+
+        if (!file.hasNext())
+            throw new IOException("Cannot resume training. File is a model without training state.");
+
+        network.startEpoch = file.nextTag();
+        network.startBatch = file.nextTag();
+        network.steps = file.nextTag();
+
+        return network;
     }
 
     @Override
@@ -28,33 +177,338 @@ public class NeuralNetwork implements Model<Vector, Vector, NNData>{
         return x;
     }
 
+    /**
+     * Batched inference where each chunk of the batch goes through every layer as one matrix.
+     * Chunks of large batches are computed on separate cores when every layer supports batches, otherwise on the calling thread.
+     * @param inputs - the input vectors X
+     * @param outputs - buffer where outputs[i] = compute(inputs[i])
+     */
+    @Override
+    public void computeBatch(Vector[] inputs, Vector[] outputs){
+
+        if (outputs.length < inputs.length)
+            throw new IllegalArgumentException("Output buffer is smaller than the batch");
+
+        if (inputs.length == 0)
+            return;
+
+        Parallel.RangeTask task = (from, to) -> {
+            Matrix y = this.computeBatch(Matrix.fromRows(inputs, from, to));
+            for(int i = from; i < to; i++){
+                outputs[i] = y.rowView(i - from);
+            }
+        };
+
+        // Layers without a batch pass keep per sample state in forward, so they must not be shared across threads
+        if (this.isBatchable())
+            Parallel.forRange(inputs.length, 64, task);
+        else
+            task.run(0, inputs.length);
+    }
+
+    /**
+     * @return boolean - whether every layer has a batch pass, so chunks of a batch can run on separate cores
+     */
+    private boolean isBatchable(){
+        for(int l = 0; l < layers.size(); l++){
+            if (!(layers.get(l) instanceof BatchLayer))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Batched inference with one sample per row, using a single matrix-matrix product per Dense layer.
+     * Layers that do not support batches are applied row by row.
+     * @param inputs - (batch, in) matrix X
+     * @return Matrix - (batch, out) matrix of predictions
+     */
+    @SuppressWarnings("unchecked")
+    public Matrix computeBatch(Matrix inputs){
+        Matrix x = inputs;
+        for(int l = 0; l < layers.size(); l++){
+            Layer<Vector, Vector> layer = layers.get(l);
+            if (layer instanceof BatchLayer){
+                x = ((BatchLayer<Matrix>) layer).forwardBatch(x);
+            } else {
+                Vector[] rows = new Vector[x.getColumnSize()];
+                for(int i = 0; i < rows.length; i++){
+                    rows[i] = layer.forward(x.rowView(i));
+                }
+                x = Matrix.fromRows(rows, 0, rows.length);
+            }
+        }
+        return x;
+    }
+
     /**
 	 * This is an internal method for taking single training step based off of a batch of samples.
 	 * @param training - array of training samples to calculate gradients
 	 * @param learningRate - floating point scalar multiplier used to scale gradient before adding them to wieghts and bias
+	 * @param gradientNorm - whether the norm of the mean gradient is computed
+	 * @return double - the norm of the mean gradient over every Dense layer, NaN if gradientNorm is false
 	 */
-	private void forwardBackward(NNData[] training, double learningRate, int epoch) {
+	private double forwardBackward(NNData[] training, double learningRate, int epoch, boolean gradientNorm) {
+
+        ScratchArena arena = ScratchArena.current();
+        arena.beginStep();
+
+        try {
+            this.accumulateGradients(training, arena);
+
+            double norm = gradientNorm ? this.gradientNorm(training.length) : Double.NaN;
+
+            for(int l = 0; l < layers.size(); l++){
+                if (this.metrics == null)
+                    this.layers.get(l).update(learningRate, epoch, training.length);
+                else
+                    this.updateTimed(l, learningRate, epoch, training.length);
+            }
+            this.version++;
+            return norm;
+        } finally {
+            arena.endStep();
+        }
+	}
 
-		for(int l = 0; l < layers.size(); l++){
+    /**
+     * Clears the gradients of every layer and sums those of the batch into them.
+     */
+    private void accumulateGradients(NNData[] training, ScratchArena arena){
+
+        for(int l = 0; l < layers.size(); l++){
             this.layers.get(l).zeroGrad();
         }
-		for (int i = 0; i < training.length; i++) {
+        for (int i = 0; i < training.length; i++) {
 
-			Vector xi = training[i].getData();
-			Vector yi = training[i].getLabel();
+            Vector xi = training[i].getData();
+            Vector yi = training[i].getLabel();
+
+            Vector yhat = this.metrics == null ? this.compute(xi) : this.computeTimed(xi);
+            Vector gradient = yhat.minus(yi, arena.vector(yhat.getLength()));
 
-            Vector yhat = this.compute(xi);
-            Vector gradient = yhat.minus(yi);
-            
             for(int l = layers.size() - 1; l >= 0; l--){
-                gradient = this.layers.get(l).backward(gradient);
+                if (this.metrics == null)
+                    gradient = this.layers.get(l).backward(gradient);
+                else
+                    gradient = this.backwardTimed(l, gradient);
             }
-		}
+        }
+    }
 
+    /**
+     * The flat layout holds every Dense layer in order, each as its weights row by row followed by its bias.
+     * @return int - the number of trainable parameters
+     */
+    @Override
+    public int getParameterCount(){
+        int count = 0;
         for(int l = 0; l < layers.size(); l++){
-            this.layers.get(l).update(learningRate, epoch, training.length);
+            if (layers.get(l) instanceof Dense)
+                count += ((Dense) layers.get(l)).parameterCount();
         }
-	}
+        return count;
+    }
+
+    @Override
+    public void getParameters(double[] parameters){
+        this.checkParameterLength(parameters);
+        int offset = 0;
+        for(int l = 0; l < layers.size(); l++){
+            if (layers.get(l) instanceof Dense){
+                Dense dense = (Dense) layers.get(l);
+                dense.readParameters(parameters, offset);
+                offset += dense.parameterCount();
+            }
+        }
+    }
+
+    /**
+     * Overwrites every Dense layer's weights and bias, keeping their Adam state.
+     */
+    @Override
+    public void setParameters(double[] parameters){
+        this.checkParameterLength(parameters);
+        int offset = 0;
+        for(int l = 0; l < layers.size(); l++){
+            if (layers.get(l) instanceof Dense){
+                Dense dense = (Dense) layers.get(l);
+                dense.writeParameters(parameters, offset);
+                offset += dense.parameterCount();
+            }
+        }
+        this.version++;
+    }
+
+    @Override
+    public void computeGradient(NNData[] batch, double[] gradient){
+        this.computeGradient(batch, gradient, (from, to) -> {});
+    }
+
+    /**
+     * Runs the whole batch through every layer as one matrix, forward and then backward, so each Dense layer's part of
+     * the gradient is final as soon as its batched backward pass is done. Each part is reported right away, so the
+     * parts of later layers are ready while the backward passes of earlier layers are still running.
+     * Networks with layers other than Dense, ReLU and Softmax go sample by sample and report every part at the end.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void computeGradient(NNData[] batch, double[] gradient, GradientModel.ReadyListener listener){
+
+        this.checkParameterLength(gradient);
+        if (batch.length == 0)
+            throw new IllegalArgumentException("Cannot compute the gradient of an empty batch");
+
+        int[] offsets = new int[layers.size()];
+        int offset = 0;
+        boolean batchable = true;
+        for(int l = 0; l < layers.size(); l++){
+            Layer<Vector, Vector> layer = layers.get(l);
+            offsets[l] = offset;
+            if (layer instanceof Dense)
+                offset += ((Dense) layer).parameterCount();
+            else if (!(layer instanceof ReLU) && !(layer instanceof Softmax))
+                batchable = false;
+        }
+
+        if (!batchable){
+            this.computeGradientPerSample(batch, gradient, listener, offsets);
+            return;
+        }
+
+        Vector[] data = new Vector[batch.length];
+        Vector[] labels = new Vector[batch.length];
+        for(int i = 0; i < batch.length; i++){
+            data[i] = batch[i].getData();
+            labels[i] = batch[i].getLabel();
+        }
+
+        // The input of every layer is kept for its backward pass
+        Matrix[] inputs = new Matrix[layers.size()];
+        Matrix x = Matrix.fromRows(data, 0, data.length);
+        for(int l = 0; l < layers.size(); l++){
+            inputs[l] = x;
+            x = ((BatchLayer<Matrix>) layers.get(l)).forwardBatch(x);
+        }
+
+        Matrix g = x.minus(Matrix.fromRows(labels, 0, labels.length));
+
+        for(int l = layers.size() - 1; l >= 0; l--){
+            Layer<Vector, Vector> layer = layers.get(l);
+
+            if (layer instanceof Dense){
+                Dense dense = (Dense) layer;
+                dense.zeroGrad();
+                g = dense.backwardBatch(inputs[l], g);
+                dense.readGradients(gradient, offsets[l], 1.0 / batch.length);
+                listener.ready(offsets[l], offsets[l] + dense.parameterCount());
+            } else if (layer instanceof ReLU){
+                Matrix input = inputs[l];
+                for(int i = 0; i < g.getColumnSize(); i++){
+                    for(int j = 0; j < g.getRowSize(); j++){
+                        if (input.getValue(i, j) < 0.0)
+                            g.setValue(i, j, 0.0);
+                    }
+                }
+            }
+            // Softmax passes the gradient through, the cross entropy gradient already includes it
+        }
+    }
+
+    private void computeGradientPerSample(NNData[] batch, double[] gradient, GradientModel.ReadyListener listener, int[] offsets){
+
+        ScratchArena arena = ScratchArena.current();
+        arena.beginStep();
+
+        try {
+            this.accumulateGradients(batch, arena);
+        } finally {
+            arena.endStep();
+        }
+
+        for(int l = layers.size() - 1; l >= 0; l--){
+            if (layers.get(l) instanceof Dense){
+                Dense dense = (Dense) layers.get(l);
+                dense.readGradients(gradient, offsets[l], 1.0 / batch.length);
+                listener.ready(offsets[l], offsets[l] + dense.parameterCount());
+            }
+        }
+    }
+
+    private void checkParameterLength(double[] array){
+        if (array.length != this.getParameterCount())
+            throw new IllegalArgumentException("Expected " + this.getParameterCount() + " parameters but got " + array.length);
+    }
+
+    private double gradientNorm(int batchSize){
+        double sum = 0;
+        for(int l = 0; l < layers.size(); l++){
+            if (layers.get(l) instanceof Dense)
+                sum += ((Dense) layers.get(l)).gradientSquaredNorm();
+        }
+        return Math.sqrt(sum) / batchSize;
+    }
+
+    /**
+     * Takes a training step while recording its metrics, see enableMetrics.
+     */
+    private double forwardBackwardTimed(NNData[] training, double learningRate, int epoch, boolean gradientNorm) {
+
+        TrainingEvents.TrainingStep event = this.jfrEvents ? new TrainingEvents.TrainingStep() : null;
+        if (event != null)
+            event.begin();
+
+        long start = System.nanoTime();
+        double norm = this.forwardBackward(training, learningRate, epoch, gradientNorm);
+        long elapsed = System.nanoTime() - start;
+
+        long allocated = ScratchArena.current().getLastStepHeapBytes();
+        this.metrics.recordStep(elapsed, training.length, allocated);
+
+        if (event != null && event.shouldCommit()){
+            event.epoch = epoch;
+            event.step = this.steps + 1;
+            event.batchSize = training.length;
+            event.allocatedBytes = allocated;
+            event.commit();
+        }
+        return norm;
+    }
+
+    private Vector computeTimed(Vector input){
+        Vector x = input;
+        for(int l = 0; l < layers.size(); l++){
+            Layer<Vector, Vector> layer = this.layers.get(l);
+            TrainingEvents.LayerPass event = this.jfrEvents ? TrainingEvents.beginLayer(l, layer, "forward") : null;
+            long start = System.nanoTime();
+            x = layer.forward(x);
+            this.metrics.recordForward(l, System.nanoTime() - start);
+            if (event != null)
+                event.commit();
+        }
+        return x;
+    }
+
+    private Vector backwardTimed(int l, Vector gradient){
+        Layer<Vector, Vector> layer = this.layers.get(l);
+        TrainingEvents.LayerPass event = this.jfrEvents ? TrainingEvents.beginLayer(l, layer, "backward") : null;
+        long start = System.nanoTime();
+        Vector result = layer.backward(gradient);
+        this.metrics.recordBackward(l, System.nanoTime() - start);
+        if (event != null)
+            event.commit();
+        return result;
+    }
+
+    private void updateTimed(int l, double learningRate, int epoch, int batchSize){
+        Layer<Vector, Vector> layer = this.layers.get(l);
+        TrainingEvents.LayerPass event = this.jfrEvents ? TrainingEvents.beginLayer(l, layer, "update") : null;
+        long start = System.nanoTime();
+        layer.update(learningRate, epoch, batchSize);
+        this.metrics.recordUpdate(l, System.nanoTime() - start);
+        if (event != null)
+            event.commit();
+    }
 
     @Override
     public void train(NNData[] training, NNData[] testing, int batchSize, double learningRate, int epochs, boolean verbose){
@@ -80,23 +534,155 @@ public class NeuralNetwork implements Model<Vector, Vector, NNData>{
 			}
 		}
 
-        if (verbose){
-			System.out.println("Starting Training:");
-		}
+        int batchesPerEpoch = batchCount + (spareCount > 0 ? 1 : 0);
+        Checkpointer checkpointer = this.checkpointPath == null ? null : new Checkpointer(this.checkpointPath, this.layers);
 
-        for(int e = 1; e <= epochs; e++){
-            for (int i = 0; i < batchCount; i++) {
-                this.forwardBackward(batches[i], learningRate, e);
-			}
-        
-			if (spareCount > 0) {
-                this.forwardBackward(spareBatch, learningRate, e);
-			}
-        
-            if (verbose) {
-				System.out.println("Epoch: " + e + " Loss: " + this.getLoss(testing) + " Accuracy: " + this.getAccuracy(testing));
+        if (this.metrics != null)
+            this.metrics.matchLayers(this.layers);
+
+        Throwable failure = null;
+        try (TrainingRun run = this.callbacks.begin("NeuralNetwork", this.startEpoch, epochs, batchesPerEpoch, verbose,
+                testing == null ? null : () -> evaluate(this, testing),
+                this.isCopyable() ? () -> this.snapshot(testing) : null)) {
+
+            boolean gradientNorm = run.isGradientNormNeeded();
+
+            for(int e = this.startEpoch; e <= epochs && !run.isStopRequested(); e++){
+
+                int firstBatch = e == this.startEpoch ? this.startBatch : 0;
+
+                for (int i = firstBatch; i < batchCount && !run.isStopRequested(); i++) {
+                    run.stepBegin(e, i + 1, batchSize);
+                    double norm = this.step(batches[i], learningRate, e, gradientNorm);
+                    this.afterStep(checkpointer, e, i + 1, batchesPerEpoch);
+                    run.stepEnd(norm);
+                }
+
+                if (spareCount > 0 && firstBatch <= batchCount && !run.isStopRequested()) {
+                    run.stepBegin(e, batchesPerEpoch, spareCount);
+                    double norm = this.step(spareBatch, learningRate, e, gradientNorm);
+                    this.afterStep(checkpointer, e, batchCount + 1, batchesPerEpoch);
+                    run.stepEnd(norm);
+                }
+
+                if (run.isStopRequested())
+                    break;
+
+                if (this.metricsListener != null) {
+                    this.metricsListener.onEpoch(this.metrics, e);
+                }
+
+                if (checkpointer != null && this.checkpointEpochs > 0 && e % this.checkpointEpochs == 0) {
+                    checkpointer.snapshot(e + 1, 0, this.steps);
+                }
+
+                run.epochEnd(e);
             }
-		}
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (checkpointer != null) {
+                try {
+                    checkpointer.close();
+                } catch (UncheckedIOException e) {
+                    // A failed checkpoint write must not hide why training stopped
+                    if (failure == null)
+                        throw e;
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        this.startEpoch = 1;
+        this.startBatch = 0;
+    }
+
+    private double step(NNData[] batch, double learningRate, int epoch, boolean gradientNorm){
+        if (this.metrics == null)
+            return this.forwardBackward(batch, learningRate, epoch, gradientNorm);
+        else
+            return this.forwardBackwardTimed(batch, learningRate, epoch, gradientNorm);
+    }
+
+    /**
+     * Counts a finished training step and takes a step checkpoint when one is due.
+     * @param checkpointer - the checkpoint writer, null when checkpointing is off
+     * @param epoch - the current epoch
+     * @param nextBatch - the index of the batch after the one just finished
+     * @param batchesPerEpoch - the number of batches in an epoch, including the spare batch
+     */
+    private void afterStep(Checkpointer checkpointer, int epoch, int nextBatch, int batchesPerEpoch){
+
+        this.steps++;
+
+        if (this.metricsListener != null)
+            this.metricsListener.onStep(this.metrics, epoch, this.steps);
+
+        if (checkpointer != null && this.checkpointSteps > 0 && this.steps % this.checkpointSteps == 0) {
+            if (nextBatch >= batchesPerEpoch)
+                checkpointer.snapshot(epoch + 1, 0, this.steps);
+            else
+                checkpointer.snapshot(epoch, nextBatch, this.steps);
+        }
+    }
+
+    private static Map<String, Double> evaluate(NeuralNetwork network, NNData[] testing){
+        Map<String, Double> metrics = new LinkedHashMap<String, Double>();
+        metrics.put("loss", network.getLoss(testing));
+        metrics.put("accuracy", network.getAccuracy(testing));
+        return metrics;
+    }
+
+    /**
+     * Freezes a copy of the network that can be evaluated in the background and written back into the Dense layers.
+     */
+    private ModelSnapshot snapshot(NNData[] testing){
+        NeuralNetwork copy = this.copy();
+        return new ModelSnapshot(){
+            public Map<String, Double> evaluate(){
+                return NeuralNetwork.evaluate(copy, testing);
+            }
+            public void restore(){
+                for(int l = 0; l < layers.size(); l++){
+                    if (layers.get(l) instanceof Dense)
+                        ((Dense) layers.get(l)).setParameters((Dense) copy.layers.get(l));
+                }
+                NeuralNetwork.this.version++;
+            }
+        };
+    }
+
+    private boolean isCopyable(){
+        for(int l = 0; l < layers.size(); l++){
+            Layer<Vector, Vector> layer = layers.get(l);
+            if (!(layer instanceof Dense || layer instanceof ReLU || layer instanceof Softmax))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copies the network for inference or further training. Dense parameters are deep copied with fresh optimizer state.
+     * @return NeuralNetwork - an independent network computing the same function, without callbacks, metrics or checkpoints
+     * @throws UnsupportedOperationException - if the network has a layer other than Dense, ReLU and Softmax
+     */
+    public NeuralNetwork copy(){
+        NeuralNetwork network = new NeuralNetwork();
+        for(int l = 0; l < layers.size(); l++){
+            Layer<Vector, Vector> layer = layers.get(l);
+            if (layer instanceof Dense){
+                Dense dense = (Dense) layer;
+                network.addLayer(new Dense(dense.getWeightsView(), dense.getBiasView()));
+            } else if (layer instanceof ReLU){
+                network.addLayer(new ReLU());
+            } else if (layer instanceof Softmax){
+                network.addLayer(new Softmax(((Softmax) layer).getMathMode()));
+            } else {
+                throw new UnsupportedOperationException("Cannot copy layer " + layer.getClass().getName());
+            }
+        }
+        return network;
     }
 
     @Override
@@ -104,17 +690,29 @@ public class NeuralNetwork implements Model<Vector, Vector, NNData>{
 
         double loss = 0;
         int n = validation.length;
+        FastMath.Mode mode = getMathMode();
 
         for(int i = 0; i < validation.length; i++){
 
             Vector yi = validation[i].getLabel();
             Vector xi = validation[i].getData();
 
-            loss += -1 * yi.dot(this.compute(xi).plus(.00000001).log());
+            loss += -1 * yi.dot(this.compute(xi).plus(.00000001).log(mode));
         }
         return loss / n;
     }
 
+    /**
+     * @return FastMath.Mode - the math mode of the last Softmax layer, which the loss follows, EXACT without one
+     */
+    private FastMath.Mode getMathMode(){
+        for(int l = layers.size() - 1; l >= 0; l--){
+            if (layers.get(l) instanceof Softmax)
+                return ((Softmax) layers.get(l)).getMathMode();
+        }
+        return FastMath.Mode.EXACT;
+    }
+
     public double getAccuracy(NNData[] validation){
 
         int incorrect = 0;
@@ -135,4 +733,107 @@ public class NeuralNetwork implements Model<Vector, Vector, NNData>{
         }
         return (double) (n - incorrect) / n;
     }
-}
\ No newline at end of file
+
+    /**
+     * This records every layer of the network in the binary model format (see io.ModelFile).
+     * @param filePath - the path for the new file.
+     * @param includeOptimizer - whether the Adam moment estimates of Dense layers are saved so training can continue
+     * @throws IOException - is thrown if a file already exists at filePath or a layer type cannot be saved.
+     */
+    public void saveBinary(String filePath, boolean includeOptimizer) throws IOException {
+        this.toModelFile(includeOptimizer).save(filePath);
+    }
+
+    /**
+     * Builds the model file for this network. Dense sections reference the live parameters.
+     * @param includeOptimizer - whether the Adam moment estimates of Dense layers are included
+     * @return ModelFile - the unsaved model file
+     * @throws IOException - is thrown if a layer type cannot be saved
+     */
+    ModelFile toModelFile(boolean includeOptimizer) throws IOException {
+
+        ModelFile file = new ModelFile(ModelFile.TYPE_NEURAL_NETWORK);
+        file.addTag(layers.size());
+
+        for(int l = 0; l < layers.size(); l++){
+            Layer<Vector, Vector> layer = layers.get(l);
+            if (layer instanceof Dense){
+                file.addTag(LAYER_DENSE);
+                ((Dense) layer).writeTo(file, includeOptimizer);
+            } else if (layer instanceof ReLU){
+                file.addTag(LAYER_RELU);
+            } else if (layer instanceof Softmax){
+                file.addTag(LAYER_SOFTMAX);
+                file.addTag(((Softmax) layer).getMathMode().ordinal());
+            } else {
+                throw new IOException("Cannot save model. Unsupported layer " + layer.getClass().getName());
+            }
+        }
+        return file;
+    }
+
+    /**
+     * This creates a NeuralNetwork from a binary model file, which is memory mapped and copied in bulk.
+     * @param filePath - the path of the file.
+     * @return NeuralNetwork - the restored network
+     * @throws IOException - is thrown if the file does not exist, holds another model type or is corrupted.
+     */
+    public static NeuralNetwork loadBinary(String filePath) throws IOException {
+        return fromModelFile(ModelFile.load(filePath));
+    }
+
+    /**
+     * This creates an inference only NeuralNetwork whose Dense parameters stay in the memory mapped model file
+     * instead of being copied onto the java heap. The returned network can compute but not train.
+     * @param filePath - the path of the file.
+     * @return NeuralNetwork - the mapped network
+     * @throws IOException - is thrown if the file does not exist, holds another model type or is corrupted.
+     */
+    public static NeuralNetwork mapBinary(String filePath) throws IOException {
+        return fromModelFile(ModelFile.load(filePath), true);
+    }
+
+    /**
+     * Reads the layers written by toModelFile.
+     * @param file - the loaded model file
+     * @return NeuralNetwork - the restored network
+     * @throws IOException - is thrown if the file holds another model type or an unknown layer
+     */
+    static NeuralNetwork fromModelFile(ModelFile file) throws IOException {
+        return fromModelFile(file, false);
+    }
+
+    /**
+     * Reads the layers written by toModelFile.
+     * @param file - the loaded model file
+     * @param mapped - whether Dense parameters are wrapped in place instead of copied
+     * @return NeuralNetwork - the restored network
+     * @throws IOException - is thrown if the file holds another model type or an unknown layer
+     */
+    static NeuralNetwork fromModelFile(ModelFile file, boolean mapped) throws IOException {
+
+        if (file.getModelType() != ModelFile.TYPE_NEURAL_NETWORK)
+            throw new IOException("Cannot load model. File holds a different model type.");
+
+        NeuralNetwork network = new NeuralNetwork();
+        int layerCount = file.nextTag();
+
+        for(int l = 0; l < layerCount; l++){
+            int kind = file.nextTag();
+            if (kind == LAYER_DENSE){
+                network.addLayer(mapped ? Dense.mapFrom(file) : Dense.readFrom(file));
+            } else if (kind == LAYER_RELU){
+                network.addLayer(new ReLU());
+            } else if (kind == LAYER_SOFTMAX){
+                // Version 1 files predate the mode tag and were always EXACT
+                int mode = file.getVersion() < 2 ? FastMath.Mode.EXACT.ordinal() : file.nextTag();
+                if (mode < 0 || mode >= FastMath.Mode.values().length)
+                    throw new IOException("Could not read file contents. Unknown softmax mode " + mode + ".");
+                network.addLayer(new Softmax(FastMath.Mode.values()[mode]));
+            } else {
+                throw new IOException("Could not read file contents. Unknown layer kind " + kind + ".");
+            }
+        }
+        return network;
+    }
+}
@@ -0,0 +1,102 @@
+package nn;
+
+import math.Matrix;
+import math.Vector;
+import interfaces.Layer;
+
+/**
+ * Inference only int8 version of a Dense layer.
+ * Each weight row is stored as bytes with its own scale (w = q * rowScale), and the input is quantized
+ * with a fixed scale found during calibration, so every output is one integer dot product followed by
+ * a single rescale: y_i = (sum qw_ij * qx_j) * rowScale_i * inputScale + b_i.
+ */
+public class QuantizedDense implements Layer<Vector, Vector>{
+
+    private final byte[][] weights;
+    private final float[] rowScales;
+    private final double[] bias;
+    private final double inputScale;
+
+    /**
+     * Quantizes the weights of a trained layer.
+     * @param layer - the trained layer
+     * @param inputRange - the largest absolute input value seen during calibration
+     */
+    public QuantizedDense(Dense layer, double inputRange){
+
+        Matrix w = layer.getWeightsView();
+        Vector b = layer.getBiasView();
+
+        int outDimension = w.getColumnSize();
+        int inDimension = w.getRowSize();
+
+        this.weights = new byte[outDimension][inDimension];
+        this.rowScales = new float[outDimension];
+        this.bias = new double[outDimension];
+        this.inputScale = inputRange > 0 ? inputRange / 127.0 : 1.0;
+
+        for(int i = 0; i < outDimension; i++){
+
+            double max = 0;
+            for(int j = 0; j < inDimension; j++){
+                max = Math.max(max, Math.abs(w.getValue(i, j)));
+            }
+
+            double scale = max > 0 ? max / 127.0 : 1.0;
+            this.rowScales[i] = (float) scale;
+
+            for(int j = 0; j < inDimension; j++){
+                this.weights[i][j] = (byte) Math.round(w.getValue(i, j) / scale);
+            }
+            this.bias[i] = b.getValue(i);
+        }
+    }
+
+    @Override
+    public Vector forward(Vector x){
+
+        int inDimension = this.weights[0].length;
+
+        if (x.getLength() != inDimension)
+            throw new IllegalArgumentException();
+
+        byte[] qx = new byte[inDimension];
+        for(int j = 0; j < inDimension; j++){
+            long q = Math.round(x.getValue(j) / this.inputScale);
+            qx[j] = (byte) Math.max(-127, Math.min(127, q));
+        }
+
+        Vector result = new Vector(this.weights.length);
+
+        for(int i = 0; i < this.weights.length; i++){
+            byte[] row = this.weights[i];
+            int total = 0;
+            for(int j = 0; j < inDimension; j++){
+                total += row[j] * qx[j];
+            }
+            result.setValue(i, total * this.rowScales[i] * this.inputScale + this.bias[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return long - bytes used by the weights, scales and bias
+     */
+    public long getSizeBytes(){
+        return (long) this.weights.length * this.weights[0].length + 4L * this.rowScales.length + 8L * this.bias.length;
+    }
+
+    @Override
+    public Vector backward(Vector gradient){
+        throw new UnsupportedOperationException("Quantized layers are inference only");
+    }
+
+    @Override
+    public void zeroGrad(){}
+
+    @Override
+    public void update(double learningRate, int t, int batchSize){
+        throw new UnsupportedOperationException("Quantized layers are inference only");
+    }
+}
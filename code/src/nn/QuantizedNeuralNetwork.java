@@ -0,0 +1,214 @@
+package nn;
+
+import math.Matrix;
+import math.Parallel;
+import math.Vector;
+
+import interfaces.Model;
+import interfaces.Layer;
+
+import nn.activationFunctions.ReLU;
+import nn.activationFunctions.Softmax;
+
+import java.util.ArrayList;
+
+/**
+ * Inference only copy of a trained NeuralNetwork where every Dense layer is replaced by a QuantizedDense.
+ * Activation layers are rebuilt as fresh instances, so serving never touches the per sample state of the float network's layers.
+ */
+public class QuantizedNeuralNetwork implements Model<Vector, Vector, NNData>{
+
+    private ArrayList<Layer<Vector, Vector>> layers;
+
+    private QuantizedNeuralNetwork(){
+        this.layers = new ArrayList<Layer<Vector, Vector>>();
+    }
+
+    /**
+     * Post training quantization. The calibration samples are run through the float network to find the
+     * largest absolute input of every Dense layer, which fixes that layer's activation scale.
+     * @param network - the trained network
+     * @param calibration - a representative sample of the data the network will serve
+     * @return QuantizedNeuralNetwork - the int8 inference model
+     * @throws UnsupportedOperationException - if the network has a layer other than Dense, ReLU and Softmax
+     */
+    public static QuantizedNeuralNetwork quantize(NeuralNetwork network, NNData[] calibration){
+
+        int layerCount = network.getLayerCount();
+        double[] inputRanges = new double[layerCount];
+
+        for(int i = 0; i < calibration.length; i++){
+            Vector x = calibration[i].getData();
+            for(int l = 0; l < layerCount; l++){
+                for(int j = 0; j < x.getLength(); j++){
+                    inputRanges[l] = Math.max(inputRanges[l], Math.abs(x.getValue(j)));
+                }
+                x = network.getLayer(l).forward(x);
+            }
+        }
+
+        QuantizedNeuralNetwork quantized = new QuantizedNeuralNetwork();
+
+        for(int l = 0; l < layerCount; l++){
+            Layer<Vector, Vector> layer = network.getLayer(l);
+            if (layer instanceof Dense){
+                quantized.layers.add(new QuantizedDense((Dense) layer, inputRanges[l]));
+            } else if (layer instanceof ReLU){
+                quantized.layers.add(new ReLU());
+            } else if (layer instanceof Softmax){
+                quantized.layers.add(new Softmax(((Softmax) layer).getMathMode()));
+            } else {
+                throw new UnsupportedOperationException("Cannot quantize layer " + layer.getClass().getName());
+            }
+        }
+        return quantized;
+    }
+
+    @Override
+    public Vector compute(Vector input){
+        Vector x = input;
+        for(int i = 0; i < layers.size(); i++){
+            x = layers.get(i).forward(x);
+        }
+        return x;
+    }
+
+    @Override
+    public void computeBatch(Vector[] inputs, Vector[] outputs){
+
+        if (outputs.length < inputs.length)
+            throw new IllegalArgumentException("Output buffer is smaller than the batch");
+
+        Parallel.forRange(inputs.length, 64, (from, to) -> {
+            // ReLU and Softmax keep the input of forward, so every chunk gets its own and only shares the QuantizedDense layers
+            ArrayList<Layer<Vector, Vector>> chunkLayers = this.workerLayers();
+            for(int i = from; i < to; i++){
+                Vector x = inputs[i];
+                for(int l = 0; l < chunkLayers.size(); l++){
+                    x = chunkLayers.get(l).forward(x);
+                }
+                outputs[i] = x;
+            }
+        });
+    }
+
+    /**
+     * @return ArrayList - the layers with fresh activation instances, safe to run on one worker while others run theirs
+     */
+    private ArrayList<Layer<Vector, Vector>> workerLayers(){
+        ArrayList<Layer<Vector, Vector>> copy = new ArrayList<Layer<Vector, Vector>>(layers.size());
+        for(int l = 0; l < layers.size(); l++){
+            Layer<Vector, Vector> layer = layers.get(l);
+            if (layer instanceof ReLU){
+                copy.add(new ReLU());
+            } else if (layer instanceof Softmax){
+                copy.add(new Softmax(((Softmax) layer).getMathMode()));
+            } else {
+                copy.add(layer);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Quantized models cannot be trained. Train the float network and quantize it again instead.
+     */
+    @Override
+    public void train(NNData[] training, NNData[] testing, int batchSize, double learningRate, int epochs, boolean verbose){
+        throw new UnsupportedOperationException("Quantized models are inference only");
+    }
+
+    @Override
+    public double getLoss(NNData[] validation){
+
+        double loss = 0;
+        int n = validation.length;
+
+        for(int i = 0; i < validation.length; i++){
+
+            Vector yi = validation[i].getLabel();
+            Vector xi = validation[i].getData();
+
+            loss += -1 * yi.dot(this.compute(xi).plus(.00000001).log());
+        }
+        return loss / n;
+    }
+
+    public double getAccuracy(NNData[] validation){
+
+        int incorrect = 0;
+        int n = validation.length;
+
+        for(int i = 0; i < validation.length; i++){
+
+            Vector yi = validation[i].getLabel();
+            Vector yhat = this.compute(validation[i].getData());
+
+            if (yi.dot(yhat) < .9) {
+                incorrect += 1;
+            }
+        }
+        return (double) (n - incorrect) / n;
+    }
+
+    /**
+     * @return long - bytes used by the quantized parameters
+     */
+    public long getSizeBytes(){
+        long size = 0;
+        for(int l = 0; l < layers.size(); l++){
+            if (layers.get(l) instanceof QuantizedDense){
+                size += ((QuantizedDense) layers.get(l)).getSizeBytes();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Compares the quantized model against the float model it was built from.
+     * @param network - the float network
+     * @param validation - samples to evaluate both models on
+     * @return String - accuracy, loss, top-1 agreement, largest output difference and model sizes
+     */
+    public String report(NeuralNetwork network, NNData[] validation){
+
+        long floatSize = 0;
+        for(int l = 0; l < network.getLayerCount(); l++){
+            if (network.getLayer(l) instanceof Dense){
+                Matrix w = ((Dense) network.getLayer(l)).getWeightsView();
+                floatSize += 8L * (w.getColumnSize() * w.getRowSize() + w.getColumnSize());
+            }
+        }
+
+        int agree = 0;
+        double maxDifference = 0;
+
+        for(int i = 0; i < validation.length; i++){
+            Vector expected = network.compute(validation[i].getData());
+            Vector actual = this.compute(validation[i].getData());
+
+            if (argMax(expected) == argMax(actual))
+                agree++;
+
+            for(int j = 0; j < expected.getLength(); j++){
+                maxDifference = Math.max(maxDifference, Math.abs(expected.getValue(j) - actual.getValue(j)));
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Float     - Accuracy: " + network.getAccuracy(validation) + " Loss: " + network.getLoss(validation) + " Size: " + floatSize + " bytes\n");
+        sb.append("Quantized - Accuracy: " + this.getAccuracy(validation) + " Loss: " + this.getLoss(validation) + " Size: " + this.getSizeBytes() + " bytes\n");
+        sb.append("Top-1 agreement: " + ((double) agree / validation.length) + " Max output difference: " + maxDifference);
+
+        return sb.toString();
+    }
+
+    private static int argMax(Vector v){
+        int index = 0;
+        for(int i = 1; i < v.getLength(); i++){
+            if (v.getValue(i) > v.getValue(index))
+                index = i;
+        }
+        return index;
+    }
+}
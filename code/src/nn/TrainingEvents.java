@@ -0,0 +1,69 @@
+package nn;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class holds the Java Flight Recorder events emitted by NeuralNetwork.train when JFR events are enabled.
+ * They show up under "ML in Java" in JDK Mission Control, next to GC and allocation events of the same recording,
+ * e.g. with java -XX:StartFlightRecording=filename=train.jfr. Outside of a recording committing them is a no-op.
+ */
+final class TrainingEvents {
+
+    private TrainingEvents(){
+    }
+
+    @Name("mljava.LayerPass")
+    @Label("Layer Pass")
+    @Category({"ML in Java", "Training"})
+    @Description("One forward or backward pass of a sample, or one update, through a single layer")
+    @StackTrace(false)
+    static final class LayerPass extends Event {
+
+        @Label("Layer")
+        int layer;
+
+        @Label("Layer Type")
+        String layerType;
+
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("mljava.TrainingStep")
+    @Label("Training Step")
+    @Category({"ML in Java", "Training"})
+    @Description("One optimizer step over a batch")
+    @StackTrace(false)
+    static final class TrainingStep extends Event {
+
+        @Label("Epoch")
+        int epoch;
+
+        @Label("Step")
+        int step;
+
+        @Label("Batch Size")
+        int batchSize;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+    }
+
+    static LayerPass beginLayer(int layer, Object instance, String phase){
+        LayerPass event = new LayerPass();
+        if (event.isEnabled()){
+            event.layer = layer;
+            event.layerType = instance.getClass().getSimpleName();
+            event.phase = phase;
+            event.begin();
+        }
+        return event;
+    }
+}
@@ -0,0 +1,197 @@
+package nn;
+
+import interfaces.Layer;
+
+import math.Vector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class collects the timings of a NeuralNetwork's training steps while metrics are enabled.
+ * Each layer has a histogram of the nanoseconds spent in forward and backward per sample and in update per step.
+ * Every step adds its latency, its sample count and the bytes the training thread allocated during it.
+ * The totals accumulate over every call to train until reset is called.
+ */
+public class TrainingMetrics {
+
+    private String[] layerNames = new String[0];
+    private LatencyHistogram[] forward = new LatencyHistogram[0];
+    private LatencyHistogram[] backward = new LatencyHistogram[0];
+    private LatencyHistogram[] update = new LatencyHistogram[0];
+
+    private final LatencyHistogram stepLatency = new LatencyHistogram();
+    private final LatencyHistogram stepBytes = new LatencyHistogram();
+
+    private long samples;
+    private long lastStepBytes = -1;
+
+    TrainingMetrics(List<Layer<Vector, Vector>> layers){
+        this.matchLayers(layers);
+    }
+
+    /**
+     * Keeps one set of histograms per layer, adding histograms for layers added since the last call.
+     */
+    void matchLayers(List<Layer<Vector, Vector>> layers){
+        int n = layers.size();
+        int old = this.layerNames.length;
+        if (n > old){
+            this.layerNames = Arrays.copyOf(this.layerNames, n);
+            this.forward = Arrays.copyOf(this.forward, n);
+            this.backward = Arrays.copyOf(this.backward, n);
+            this.update = Arrays.copyOf(this.update, n);
+            for(int l = old; l < n; l++){
+                this.forward[l] = new LatencyHistogram();
+                this.backward[l] = new LatencyHistogram();
+                this.update[l] = new LatencyHistogram();
+            }
+        }
+        for(int l = 0; l < n; l++){
+            this.layerNames[l] = layers.get(l).getClass().getSimpleName();
+        }
+    }
+
+    void recordForward(int layer, long nanos){
+        this.forward[layer].record(nanos);
+    }
+
+    void recordBackward(int layer, long nanos){
+        this.backward[layer].record(nanos);
+    }
+
+    void recordUpdate(int layer, long nanos){
+        this.update[layer].record(nanos);
+    }
+
+    /**
+     * @param nanos - the wall time of the whole step
+     * @param batchSize - the number of samples in the step
+     * @param allocatedBytes - the bytes allocated by the training thread during the step, negative if the JVM cannot measure it
+     */
+    void recordStep(long nanos, int batchSize, long allocatedBytes){
+        this.stepLatency.record(nanos);
+        this.samples += batchSize;
+        this.lastStepBytes = allocatedBytes;
+        if (allocatedBytes >= 0)
+            this.stepBytes.record(allocatedBytes);
+    }
+
+    public int getLayerCount(){
+        return this.layerNames.length;
+    }
+
+    public String getLayerName(int layer){
+        return this.layerNames[layer];
+    }
+
+    /**
+     * @param layer - the index of the layer
+     * @return LatencyHistogram - nanoseconds per sample spent in the layer's forward pass
+     */
+    public LatencyHistogram getForward(int layer){
+        return this.forward[layer];
+    }
+
+    /**
+     * @param layer - the index of the layer
+     * @return LatencyHistogram - nanoseconds per sample spent in the layer's backward pass
+     */
+    public LatencyHistogram getBackward(int layer){
+        return this.backward[layer];
+    }
+
+    /**
+     * @param layer - the index of the layer
+     * @return LatencyHistogram - nanoseconds per step spent in the layer's parameter update
+     */
+    public LatencyHistogram getUpdate(int layer){
+        return this.update[layer];
+    }
+
+    /**
+     * @return LatencyHistogram - nanoseconds per training step, forward, backward and update of the whole batch
+     */
+    public LatencyHistogram getStepLatency(){
+        return this.stepLatency;
+    }
+
+    /**
+     * @return LatencyHistogram - bytes allocated per training step, empty if the JVM cannot measure allocations
+     */
+    public LatencyHistogram getStepBytes(){
+        return this.stepBytes;
+    }
+
+    public long getSteps(){
+        return this.stepLatency.getCount();
+    }
+
+    public long getSamples(){
+        return this.samples;
+    }
+
+    /**
+     * @return long - the bytes allocated during the most recent step, -1 if unknown
+     */
+    public long getLastStepBytes(){
+        return this.lastStepBytes;
+    }
+
+    /**
+     * @return double - samples trained per second of step time, which leaves out evaluation and checkpointing
+     */
+    public double getSamplesPerSecond(){
+        long nanos = this.stepLatency.getSum();
+        return nanos == 0 ? 0 : this.samples / (nanos / 1e9);
+    }
+
+    public void reset(){
+        for(int l = 0; l < this.layerNames.length; l++){
+            this.forward[l].reset();
+            this.backward[l].reset();
+            this.update[l].reset();
+        }
+        this.stepLatency.reset();
+        this.stepBytes.reset();
+        this.samples = 0;
+        this.lastStepBytes = -1;
+    }
+
+    /**
+     * Formats the collected metrics as a table of per layer latencies (in microseconds) followed by the step totals.
+     * The share column is each layer's part of the total step time, the remainder is loss gradients and bookkeeping.
+     * @return String - the report
+     */
+    public String report(){
+
+        StringBuilder report = new StringBuilder();
+        double stepNanos = Math.max(1, this.stepLatency.getSum());
+
+        report.append(String.format("%-3s %-12s %-8s %10s %10s %10s %10s %7s%n", "#", "layer", "phase", "mean us", "p50 us", "p99 us", "max us", "share"));
+
+        for(int l = 0; l < this.layerNames.length; l++){
+            appendRow(report, l, this.layerNames[l], "forward", this.forward[l], stepNanos);
+            appendRow(report, l, this.layerNames[l], "backward", this.backward[l], stepNanos);
+            appendRow(report, l, this.layerNames[l], "update", this.update[l], stepNanos);
+        }
+
+        report.append(String.format("steps %d, samples %d, %.1f samples/s%n", this.getSteps(), this.samples, this.getSamplesPerSecond()));
+        report.append(String.format("step latency ms  p50 %.3f  p90 %.3f  p99 %.3f  max %.3f%n",
+                this.stepLatency.getPercentile(50) / 1e6, this.stepLatency.getPercentile(90) / 1e6,
+                this.stepLatency.getPercentile(99) / 1e6, this.stepLatency.getMax() / 1e6));
+
+        if (this.stepBytes.getCount() > 0)
+            report.append(String.format("allocated per step  mean %.0f B  max %d B%n", this.stepBytes.getMean(), this.stepBytes.getMax()));
+        else
+            report.append(String.format("allocated per step  unavailable on this JVM%n"));
+
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, int layer, String name, String phase, LatencyHistogram histogram, double stepNanos){
+        report.append(String.format("%-3d %-12s %-8s %10.2f %10.2f %10.2f %10.2f %6.1f%%%n", layer, name, phase,
+                histogram.getMean() / 1e3, histogram.getPercentile(50) / 1e3, histogram.getPercentile(99) / 1e3,
+                histogram.getMax() / 1e3, 100 * histogram.getSum() / stepNanos));
+    }
+}
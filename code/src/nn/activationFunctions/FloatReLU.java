@@ -0,0 +1,58 @@
+package nn.activationFunctions;
+import interfaces.ActivationFunction;
+import interfaces.BatchLayer;
+import math.FloatMatrix;
+import math.FloatVector;
+
+public class FloatReLU implements ActivationFunction<FloatVector>, BatchLayer<FloatMatrix>{
+
+    FloatVector input;
+
+    public FloatReLU(){}
+
+    @Override
+    public FloatVector forward(FloatVector input){
+
+        this.input = input;
+
+        FloatVector result = new FloatVector(input.getLength());
+
+        for(int i = 0; i < result.getLength(); i++){
+            result.setValue(i, Math.max(0.0f, input.getValue(i)));
+        }
+
+        return result;
+    }
+
+    @Override
+    public FloatMatrix forwardBatch(FloatMatrix input){
+
+        FloatMatrix result = new FloatMatrix(input.getColumnSize(), input.getRowSize());
+
+        for(int i = 0; i < result.getColumnSize(); i++){
+            for(int j = 0; j < result.getRowSize(); j++){
+                result.setValue(i, j, Math.max(0.0f, input.getValue(i, j)));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public FloatVector backward(FloatVector gradient){
+
+        FloatVector result = new FloatVector(gradient.getLength());
+
+        for(int i = 0; i < result.getLength(); i++){
+            result.setValue(i, this.input.getValue(i) >= 0.0f ? gradient.getValue(i) : 0.0f);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void zeroGrad(){};
+
+    @Override
+    public void update(double learningRate, int t, int batchSize){};
+}
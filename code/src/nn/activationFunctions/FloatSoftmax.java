@@ -0,0 +1,55 @@
+package nn.activationFunctions;
+import interfaces.ActivationFunction;
+import interfaces.BatchLayer;
+import math.*;
+
+public class FloatSoftmax implements ActivationFunction<FloatVector>, BatchLayer<FloatMatrix>{
+
+    public FloatSoftmax(){}
+
+	@Override
+    public FloatVector forward(FloatVector input){
+
+		int length = input.getLength();
+		float normalization = (float) Math.sqrt(input.dot(input) / length);
+
+		FloatVector result = new FloatVector(length);
+		float sum = 0;
+
+		for (int i = 0; i < length; i++) {
+			float value = (float) Math.exp(input.getValue(i) - normalization);
+			result.setValue(i, value);
+			sum += value;
+		}
+
+		result.scale(1.0f / sum);
+
+		return result;
+    }
+
+	@Override
+    public FloatMatrix forwardBatch(FloatMatrix input){
+
+		FloatMatrix result = new FloatMatrix(input.getColumnSize(), input.getRowSize());
+
+		for (int r = 0; r < input.getColumnSize(); r++) {
+			FloatVector row = this.forward(input.getRowVector(r));
+			for (int i = 0; i < row.getLength(); i++) {
+				result.setValue(r, i, row.getValue(i));
+			}
+		}
+
+		return result;
+    }
+
+	@Override
+    public FloatVector backward(FloatVector gradient){
+        return gradient;
+    }
+
+	@Override
+	public void zeroGrad(){};
+
+	@Override
+    public void update(double learningRate, int t, int batchSize){};
+}
@@ -1,8 +1,11 @@
 package nn.activationFunctions;
 import interfaces.ActivationFunction;
+import interfaces.BatchLayer;
+import math.Matrix;
+import math.ScratchArena;
 import math.Vector;
 
-public class ReLU implements ActivationFunction<Vector>{
+public class ReLU implements ActivationFunction<Vector>, BatchLayer<Matrix>{
     
     Vector input;
 
@@ -13,7 +16,7 @@ public class ReLU implements ActivationFunction<Vector>{
 
         this.input = input;
 
-        Vector result = new Vector(input.getLength());
+        Vector result = ScratchArena.current().vector(input.getLength());
         
         for(int i = 0; i < result.getLength(); i++){
             result.setValue(i, Math.max(0.0, input.getValue(i)));
@@ -22,10 +25,24 @@ public class ReLU implements ActivationFunction<Vector>{
         return result;
     }
 
+    @Override
+    public Matrix forwardBatch(Matrix input){
+
+        Matrix result = new Matrix(input.getColumnSize(), input.getRowSize());
+
+        for(int i = 0; i < result.getColumnSize(); i++){
+            for(int j = 0; j < result.getRowSize(); j++){
+                result.setValue(i, j, Math.max(0.0, input.getValue(i, j)));
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public Vector backward(Vector gradient){
 
-        Vector result = new Vector(gradient.getLength());
+        Vector result = ScratchArena.current().vector(gradient.getLength());
 
         for(int i = 0; i < result.getLength(); i++){
             result.setValue(i, this.input.getValue(i) >= 0.0 ? gradient.getValue(i) : 0.0);
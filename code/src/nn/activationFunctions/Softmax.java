@@ -1,30 +1,73 @@
 package nn.activationFunctions;
 import interfaces.ActivationFunction;
+import interfaces.BatchLayer;
 import math.*;
 
-public class Softmax implements ActivationFunction<Vector>{
+public class Softmax implements ActivationFunction<Vector>, BatchLayer<Matrix>{
     
     Vector input;
 
-    public Softmax(){}
+    private final FastMath.Mode mathMode;
+
+    public Softmax(){
+        this(FastMath.Mode.EXACT);
+    }
+
+    /**
+     * @param mathMode - how the exponentials are computed, EXACT for java.lang.Math or one of the FastMath approximations
+     */
+    public Softmax(FastMath.Mode mathMode){
+        this.mathMode = mathMode;
+    }
+
+    public FastMath.Mode getMathMode(){
+        return this.mathMode;
+    }
 
 	@Override
     public Vector forward(Vector input){
 
         double normalization = Math.pow(input.dot(input) / input.getLength(), .5);
 
-		double[] vector = new double[input.getLength()];
+		Vector result = ScratchArena.current().vector(input.getLength());
 		double sum = 0;
 
 		for (int i = 0; i < input.getLength(); i++) {
-			vector[i] = Math.exp(input.getValue(i) - normalization);
-			sum += vector[i];
+			result.setValue(i, mathMode.exp(input.getValue(i) - normalization));
+			sum += result.getValue(i);
 		}
 
-		Vector result = new Vector(input.getLength());
-
 		for (int i = 0; i < result.getLength(); i++) {
-			result.setValue(i, (vector[i] / sum) );
+			result.setValue(i, (result.getValue(i) / sum) );
+		}
+
+		return result;
+    }
+
+	@Override
+    public Matrix forwardBatch(Matrix input){
+
+		int length = input.getRowSize();
+		Matrix result = new Matrix(input.getColumnSize(), length);
+
+		for (int r = 0; r < input.getColumnSize(); r++) {
+
+			double squares = 0;
+			for (int i = 0; i < length; i++) {
+				squares += input.getValue(r, i) * input.getValue(r, i);
+			}
+			double normalization = Math.pow(squares / length, .5);
+
+			double sum = 0;
+			for (int i = 0; i < length; i++) {
+				double value = mathMode.exp(input.getValue(r, i) - normalization);
+				result.setValue(r, i, value);
+				sum += value;
+			}
+
+			for (int i = 0; i < length; i++) {
+				result.setValue(r, i, result.getValue(r, i) / sum);
+			}
 		}
 
 		return result;
@@ -0,0 +1,318 @@
+package serving;
+
+import interfaces.Model;
+import interfaces.Versioned;
+import math.Vector;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * This class caches the predictions of a model for repeated inputs.
+ * Inputs are keyed by Vector.contentHash and confirmed with contentEquals, so a hash collision is a miss, never a wrong answer.
+ * The cache is split into segments, each an access ordered LinkedHashMap behind its own lock, which evict their least
+ * recently used entries once the segment is over its share of the entry or byte budget. Entries older than the
+ * time to live count as misses.
+ * If the model is Versioned every entry is stamped with the version it was computed at, and the whole cache is dropped
+ * as soon as the version changes, e.g. during train. Other models must be invalidated by hand.
+ * Cached outputs are shared between callers and must not be modified.
+ * @param <O> - the model's output type
+ * @param <D> - the model's training sample type
+ */
+public class CachedModel<O, D> implements Model<Vector, O, D> {
+
+	private static final int SEGMENTS = 16;
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private final class Entry {
+		final Vector key;
+		final O value;
+		final long created;
+		final long version;
+		final long bytes;
+
+		Entry(Vector key, O value, long created, long version) {
+			this.key = key;
+			this.value = value;
+			this.created = created;
+			this.version = version;
+			this.bytes = ENTRY_OVERHEAD + sizeOf(key) + sizeOf(value);
+		}
+	}
+
+	private final class Segment {
+		final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<Long, Entry>(64, .75f, true);
+		long bytes;
+
+		synchronized O get(long hash, Vector input, long now, long version) {
+			Entry entry = entries.get(hash);
+			if (entry == null || !entry.key.contentEquals(input))
+				return null;
+			if (entry.version != version) {
+				remove(hash, entry);
+				return null;
+			}
+			if (ttlNanos > 0 && now - entry.created > ttlNanos) {
+				remove(hash, entry);
+				expirations.increment();
+				return null;
+			}
+			return entry.value;
+		}
+
+		synchronized void put(long hash, Entry entry) {
+			Entry old = entries.put(hash, entry);
+			if (old != null)
+				bytes -= old.bytes;
+			bytes += entry.bytes;
+
+			Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+			while ((entries.size() > maxEntriesPerSegment || bytes > maxBytesPerSegment) && eldest.hasNext()) {
+				Entry evicted = eldest.next().getValue();
+				if (evicted == entry)
+					break;
+				eldest.remove();
+				bytes -= evicted.bytes;
+				evictions.increment();
+			}
+		}
+
+		private void remove(long hash, Entry entry) {
+			entries.remove(hash);
+			bytes -= entry.bytes;
+		}
+
+		synchronized void clear() {
+			entries.clear();
+			bytes = 0;
+		}
+	}
+
+	private final Model<Vector, O, D> model;
+	private final IntFunction<O[]> outputArray;
+	private final long ttlNanos;
+	private final int maxEntriesPerSegment;
+	private final long maxBytesPerSegment;
+
+	private final List<Segment> segments = new ArrayList<Segment>(SEGMENTS);
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+
+	private volatile long seenVersion;
+
+	/**
+	 * @param model - the model whose predictions are cached
+	 * @param outputArray - creates output arrays for computeBatch, e.g. Vector[]::new or Double[]::new
+	 * @param maxEntries - the most predictions kept
+	 * @param maxBytes - the most estimated heap bytes kept, keys and outputs included
+	 * @param ttlMillis - how long a prediction is served, 0 to keep it until it is evicted or invalidated
+	 */
+	public CachedModel(Model<Vector, O, D> model, IntFunction<O[]> outputArray, int maxEntries, long maxBytes, long ttlMillis) {
+
+		if (maxEntries < 1 || maxBytes < 1 || ttlMillis < 0)
+			throw new IllegalArgumentException("Cache bounds must be positive and the time to live must not be negative");
+
+		this.model = model;
+		this.outputArray = outputArray;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.maxEntriesPerSegment = Math.max(1, maxEntries / SEGMENTS);
+		this.maxBytesPerSegment = Math.max(1, maxBytes / SEGMENTS);
+		this.seenVersion = version();
+
+		for (int i = 0; i < SEGMENTS; i++)
+			segments.add(new Segment());
+	}
+
+	/**
+	 * @return Model - the model behind the cache
+	 */
+	public Model<Vector, O, D> getModel() {
+		return model;
+	}
+
+	private long version() {
+		return model instanceof Versioned ? ((Versioned) model).getVersion() : 0;
+	}
+
+	/**
+	 * Reads the model's version and drops the cache if it moved since the last call.
+	 */
+	private long checkVersion() {
+		long version = version();
+		if (version != seenVersion) {
+			seenVersion = version;
+			invalidate();
+		}
+		return version;
+	}
+
+	private Segment segment(long hash) {
+		return segments.get((int) (hash >>> 60));
+	}
+
+	@Override
+	public O compute(Vector input) {
+
+		long version = checkVersion();
+		long hash = input.contentHash();
+		Segment segment = segment(hash);
+
+		O cached = segment.get(hash, input, System.nanoTime(), version);
+		if (cached != null) {
+			hits.increment();
+			return cached;
+		}
+
+		misses.increment();
+		O output = model.compute(input);
+		segment.put(hash, new Entry(input.deepCopy(), output, System.nanoTime(), version));
+		return output;
+	}
+
+	/**
+	 * Looks every input up and computes the misses with a single computeBatch call on the model.
+	 * @param inputs - the input vectors X
+	 * @param outputs - buffer where outputs[i] = compute(inputs[i])
+	 */
+	@Override
+	public void computeBatch(Vector[] inputs, O[] outputs) {
+
+		if (outputs.length < inputs.length)
+			throw new IllegalArgumentException("Output buffer is smaller than the batch");
+
+		long version = checkVersion();
+		long now = System.nanoTime();
+		long[] hashes = new long[inputs.length];
+		int[] missing = new int[inputs.length];
+		int missCount = 0;
+
+		for (int i = 0; i < inputs.length; i++) {
+			hashes[i] = inputs[i].contentHash();
+			O cached = segment(hashes[i]).get(hashes[i], inputs[i], now, version);
+			if (cached != null)
+				outputs[i] = cached;
+			else
+				missing[missCount++] = i;
+		}
+
+		hits.add(inputs.length - missCount);
+		misses.add(missCount);
+		if (missCount == 0)
+			return;
+
+		Vector[] missInputs = new Vector[missCount];
+		O[] missOutputs = outputArray.apply(missCount);
+		for (int k = 0; k < missCount; k++)
+			missInputs[k] = inputs[missing[k]];
+
+		model.computeBatch(missInputs, missOutputs);
+
+		now = System.nanoTime();
+		for (int k = 0; k < missCount; k++) {
+			int i = missing[k];
+			outputs[i] = missOutputs[k];
+			segment(hashes[i]).put(hashes[i], new Entry(inputs[i].deepCopy(), missOutputs[k], now, version));
+		}
+	}
+
+	/**
+	 * Trains the model behind the cache and drops every cached prediction.
+	 * Versioned models also drop them while training, as soon as their version moves.
+	 */
+	@Override
+	public void train(D[] training, D[] testing, int batchSize, double learningRate, int epochs, boolean verbose) {
+		model.train(training, testing, batchSize, learningRate, epochs, verbose);
+		invalidate();
+	}
+
+	@Override
+	public double getLoss(D[] examples) {
+		return model.getLoss(examples);
+	}
+
+	/**
+	 * Drops every cached prediction, e.g. after changing a model that is not Versioned.
+	 */
+	public void invalidate() {
+		for (Segment segment : segments)
+			segment.clear();
+		invalidations.increment();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return double - the fraction of lookups answered from the cache
+	 */
+	public double getHitRate() {
+		long hits = this.hits.sum();
+		long total = hits + this.misses.sum();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public long getExpirations() {
+		return expirations.sum();
+	}
+
+	public long getInvalidations() {
+		return invalidations.sum();
+	}
+
+	/**
+	 * @return int - the number of cached predictions
+	 */
+	public int getSize() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.entries.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return long - the estimated heap bytes held by the cached keys and predictions
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				bytes += segment.bytes;
+			}
+		}
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("entries %d, %d KB, hits %d, misses %d, hit rate %.3f, evictions %d, expirations %d, invalidations %d",
+				getSize(), getBytes() / 1024, getHits(), getMisses(), getHitRate(), getEvictions(), getExpirations(), getInvalidations());
+	}
+
+	private static long sizeOf(Object value) {
+		if (value instanceof Vector)
+			return 32 + 8L * ((Vector) value).getLength();
+		return 16;
+	}
+}
@@ -0,0 +1,186 @@
+package serving;
+
+import interfaces.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * This class coalesces concurrent single-sample requests into micro-batches for Model.computeBatch.
+ * A batch is dispatched as soon as it holds maxBatchSize requests or maxWait has passed since its first request
+ * was queued, so a lone request never waits longer than maxWait and a busy server computes full batches.
+ * Batches are computed one at a time on a dedicated thread, computeBatch spreads large batches across cores.
+ * @param <I> - the model's input type
+ * @param <O> - the model's output type
+ */
+public class MicroBatcher<I, O> implements AutoCloseable {
+
+	private static final class Request<I, O> {
+		final I input;
+		final long queued = System.nanoTime();
+		final CompletableFuture<O> result = new CompletableFuture<O>();
+
+		Request(I input) {
+			this.input = input;
+		}
+	}
+
+	private final Model<I, O, ?> model;
+	private final IntFunction<I[]> inputArray;
+	private final IntFunction<O[]> outputArray;
+	private final int maxBatchSize;
+	private final long maxWaitNanos;
+
+	private final BlockingQueue<Request<I, O>> queue = new LinkedBlockingQueue<Request<I, O>>();
+	private final ServingStats stats = new ServingStats();
+	private final Thread worker;
+	private volatile boolean closed;
+
+	/**
+	 * @param model - the model, its computeBatch must not be called concurrently by anything else while batching
+	 * @param inputArray - creates input arrays, e.g. Vector[]::new
+	 * @param outputArray - creates output arrays, e.g. Double[]::new
+	 * @param maxBatchSize - the largest batch, 1 disables batching
+	 * @param maxWaitMicros - how long the first request of a batch may wait for more requests
+	 */
+	public MicroBatcher(Model<I, O, ?> model, IntFunction<I[]> inputArray, IntFunction<O[]> outputArray, int maxBatchSize, long maxWaitMicros) {
+
+		if (maxBatchSize < 1 || maxWaitMicros < 0)
+			throw new IllegalArgumentException("Batch size must be positive and wait must not be negative");
+
+		this.model = model;
+		this.inputArray = inputArray;
+		this.outputArray = outputArray;
+		this.maxBatchSize = maxBatchSize;
+		this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+
+		this.worker = new Thread(this::run, "micro-batcher");
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	/**
+	 * Queues one sample for the next batch.
+	 * @param input - the sample
+	 * @return CompletableFuture - completes with the model's output, or exceptionally if the batch failed
+	 */
+	public CompletableFuture<O> submit(I input) {
+		Request<I, O> request = new Request<I, O>(input);
+		if (closed) {
+			request.result.completeExceptionally(new IllegalStateException("Batcher is closed"));
+			return request.result;
+		}
+		queue.add(request);
+		return request.result;
+	}
+
+	public ServingStats getStats() {
+		return stats;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	private void run() {
+
+		List<Request<I, O>> batch = new ArrayList<Request<I, O>>(maxBatchSize);
+
+		try {
+			this.batches(batch);
+		} finally {
+			// Should the thread ever stop, later submits fail at once instead of waiting on a queue nothing drains
+			closed = true;
+			for (Request<I, O> request : batch)
+				request.result.completeExceptionally(new IllegalStateException("Batcher stopped"));
+			Request<I, O> late;
+			while ((late = queue.poll()) != null)
+				late.result.completeExceptionally(new IllegalStateException("Batcher stopped"));
+		}
+	}
+
+	private void batches(List<Request<I, O>> batch) {
+
+		while (!closed || !queue.isEmpty()) {
+			try {
+				Request<I, O> first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null)
+					continue;
+
+				batch.add(first);
+				long deadline = first.queued + maxWaitNanos;
+
+				while (batch.size() < maxBatchSize) {
+					Request<I, O> next = queue.poll();
+					if (next == null) {
+						long remaining = deadline - System.nanoTime();
+						if (remaining <= 0)
+							break;
+						next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+						if (next == null)
+							break;
+					}
+					batch.add(next);
+				}
+			} catch (InterruptedException e) {
+				closed = true;
+			}
+
+			if (!batch.isEmpty())
+				compute(batch);
+			batch.clear();
+		}
+	}
+
+	private void compute(List<Request<I, O>> batch) {
+
+		int n = batch.size();
+		O[] outputs;
+		long start = System.nanoTime();
+		try {
+			I[] inputs = inputArray.apply(n);
+			outputs = outputArray.apply(n);
+			for (int i = 0; i < n; i++)
+				inputs[i] = batch.get(i).input;
+
+			model.computeBatch(inputs, outputs);
+		} catch (Throwable e) {
+			// Errors such as an OutOfMemoryError only fail this batch, the thread carries on with the next one
+			stats.recordFailures(n);
+			for (Request<I, O> request : batch)
+				request.result.completeExceptionally(e);
+			return;
+		}
+		long end = System.nanoTime();
+
+		stats.recordBatch(n, end - start);
+		for (int i = 0; i < n; i++) {
+			Request<I, O> request = batch.get(i);
+			stats.recordRequest(end - request.queued);
+			request.result.complete(outputs[i]);
+		}
+	}
+
+	/**
+	 * Stops accepting requests, computes the ones already queued and stops the batching thread.
+	 * Requests that raced with close are failed instead of left waiting.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			worker.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		Request<I, O> late;
+		while ((late = queue.poll()) != null)
+			late.result.completeExceptionally(new IllegalStateException("Batcher is closed"));
+	}
+}
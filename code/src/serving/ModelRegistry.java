@@ -0,0 +1,566 @@
+package serving;
+
+import interfaces.Model;
+import interfaces.Versioned;
+import math.Vector;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * This class holds the model that is being served and lets a newly trained or loaded model replace it while
+ * scoring threads keep running.
+ *
+ * Every published model becomes a Snapshot with its own version number. The primary snapshot and an optional
+ * candidate live in one immutable routing state behind an AtomicReference, so publish, stage, promote and rollback
+ * are a single compare and set and readers never take a lock. A reader takes a reference on the snapshot it scores
+ * with, and a replaced snapshot is retired once the last reader lets go of it, which is when the retirement
+ * listener may free it.
+ *
+ * A candidate is either a canary, which answers a fixed fraction of the inputs (chosen by their contents, so the same
+ * input always goes to the same model), or a shadow, which scores every input next to the primary on the caller's thread
+ * without its answers being returned. Shadow answers are compared with the primary's and can be passed to a listener.
+ *
+ * Published models are shared by every scoring thread and must not be changed afterwards, train a copy and publish it instead.
+ * @param <O> - the models' output type
+ * @param <D> - the models' training sample type
+ */
+public class ModelRegistry<O, D> implements Model<Vector, O, D>, Versioned {
+
+	public enum Rollout {
+		CANARY, SHADOW
+	}
+
+	/**
+	 * This interface receives the answers of the primary and the shadow for the same input.
+	 */
+	public interface ShadowListener<O> {
+		public void onShadow(Vector input, O primary, O shadow, long primaryVersion, long shadowVersion);
+	}
+
+	/**
+	 * This class is one published model and its version number. It counts its readers and the inputs it answered.
+	 */
+	public static final class Snapshot<O, D> {
+
+		private final Model<Vector, O, D> model;
+		private final long version;
+		private final String label;
+		private final long publishedMillis = System.currentTimeMillis();
+		private final AtomicInteger references = new AtomicInteger(1);
+		private final LongAdder served = new LongAdder();
+		private final Consumer<Snapshot<O, D>> onRetire;
+
+		private Snapshot(Model<Vector, O, D> model, long version, String label, Consumer<Snapshot<O, D>> onRetire) {
+			this.model = model;
+			this.version = version;
+			this.label = label;
+			this.onRetire = onRetire;
+		}
+
+		/**
+		 * Takes a reference unless the snapshot is already retired.
+		 */
+		private boolean tryAcquire() {
+			for (;;) {
+				int count = references.get();
+				if (count == 0)
+					return false;
+				if (references.compareAndSet(count, count + 1))
+					return true;
+			}
+		}
+
+		private void release() {
+			if (references.decrementAndGet() == 0)
+				onRetire.accept(this);
+		}
+
+		public Model<Vector, O, D> getModel() {
+			return model;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+
+		public long getPublishedMillis() {
+			return publishedMillis;
+		}
+
+		/**
+		 * @return long - the number of inputs this snapshot answered, shadow scoring included
+		 */
+		public long getServed() {
+			return served.sum();
+		}
+
+		/**
+		 * @return boolean - true once the snapshot has been replaced and its last reader has let go of it
+		 */
+		public boolean isRetired() {
+			return references.get() == 0;
+		}
+
+		@Override
+		public String toString() {
+			return "v" + version + (label == null ? "" : " (" + label + ")");
+		}
+	}
+
+	/**
+	 * This class is a reference to a snapshot that keeps it from being retired until it is closed.
+	 * It belongs to the thread that acquired it.
+	 */
+	public static final class Lease<O, D> implements AutoCloseable {
+
+		private final Snapshot<O, D> snapshot;
+		private boolean closed;
+
+		private Lease(Snapshot<O, D> snapshot) {
+			this.snapshot = snapshot;
+		}
+
+		public Snapshot<O, D> getSnapshot() {
+			return snapshot;
+		}
+
+		public Model<Vector, O, D> getModel() {
+			return snapshot.model;
+		}
+
+		public long getVersion() {
+			return snapshot.version;
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				snapshot.release();
+			}
+		}
+	}
+
+	/**
+	 * The routing state, replaced as a whole on every change.
+	 */
+	private static final class State<O, D> {
+		final long version;
+		final Snapshot<O, D> primary;
+		final Snapshot<O, D> candidate;
+		final Rollout rollout;
+		final double canaryFraction;
+
+		State(long version, Snapshot<O, D> primary, Snapshot<O, D> candidate, Rollout rollout, double canaryFraction) {
+			this.version = version;
+			this.primary = primary;
+			this.candidate = candidate;
+			this.rollout = rollout;
+			this.canaryFraction = canaryFraction;
+		}
+	}
+
+	private final AtomicLong versions = new AtomicLong();
+	private final AtomicReference<State<O, D>> state = new AtomicReference<State<O, D>>();
+	private final AtomicInteger live = new AtomicInteger();
+	private final LongAdder retired = new LongAdder();
+
+	private final LongAdder shadowed = new LongAdder();
+	private final DoubleAdder shadowDifference = new DoubleAdder();
+
+	private volatile ShadowListener<O> shadowListener;
+	private volatile Consumer<Snapshot<O, D>> retirementListener;
+
+	/**
+	 * @param model - the first model to serve
+	 */
+	public ModelRegistry(Model<Vector, O, D> model) {
+		this(model, null);
+	}
+
+	/**
+	 * @param model - the first model to serve
+	 * @param label - a name for the model, e.g. the file it was loaded from
+	 */
+	public ModelRegistry(Model<Vector, O, D> model, String label) {
+		Snapshot<O, D> first = snapshot(model, label);
+		state.set(new State<O, D>(first.version, first, null, null, 0));
+	}
+
+	private Snapshot<O, D> snapshot(Model<Vector, O, D> model, String label) {
+		if (model == null)
+			throw new IllegalArgumentException("Model must not be null");
+		live.incrementAndGet();
+		return new Snapshot<O, D>(model, versions.incrementAndGet(), label, this::retire);
+	}
+
+	private void retire(Snapshot<O, D> snapshot) {
+		live.decrementAndGet();
+		retired.increment();
+		Consumer<Snapshot<O, D>> listener = retirementListener;
+		if (listener != null)
+			listener.accept(snapshot);
+	}
+
+	/**
+	 * @param listener - is called once for every replaced snapshot when its last reader lets go of it, on that reader's thread
+	 */
+	public void setRetirementListener(Consumer<Snapshot<O, D>> listener) {
+		this.retirementListener = listener;
+	}
+
+	/**
+	 * @param listener - receives every shadow comparison on the scoring thread, null to only keep the summary
+	 */
+	public void setShadowListener(ShadowListener<O> listener) {
+		this.shadowListener = listener;
+	}
+
+	/**
+	 * Makes a model the primary at once. Readers that hold the previous primary finish with it.
+	 * A staged candidate is kept.
+	 * @param model - the model to serve
+	 * @param label - a name for the model, may be null
+	 * @return long - the version of the new snapshot
+	 */
+	public long publish(Model<Vector, O, D> model, String label) {
+
+		Snapshot<O, D> snapshot = snapshot(model, label);
+		State<O, D> current;
+		do {
+			current = state.get();
+		} while (!state.compareAndSet(current,
+				new State<O, D>(versions.incrementAndGet(), snapshot, current.candidate, current.rollout, current.canaryFraction)));
+
+		current.primary.release();
+		return snapshot.version;
+	}
+
+	public long publish(Model<Vector, O, D> model) {
+		return publish(model, null);
+	}
+
+	/**
+	 * Stages a model as the candidate next to the primary, replacing any earlier candidate.
+	 * @param model - the candidate model
+	 * @param label - a name for the model, may be null
+	 * @param rollout - CANARY to let the candidate answer a fraction of the inputs, SHADOW to only score it
+	 * @param canaryFraction - the fraction of inputs in [0, 1] the canary answers, ignored for SHADOW
+	 * @return long - the version of the candidate's snapshot
+	 */
+	public long stage(Model<Vector, O, D> model, String label, Rollout rollout, double canaryFraction) {
+
+		if (rollout == null || !(canaryFraction >= 0 && canaryFraction <= 1))
+			throw new IllegalArgumentException("Rollout must be given and the canary fraction must be in [0, 1]");
+
+		Snapshot<O, D> snapshot = snapshot(model, label);
+		State<O, D> current;
+		do {
+			current = state.get();
+		} while (!state.compareAndSet(current,
+				new State<O, D>(versions.incrementAndGet(), current.primary, snapshot, rollout, canaryFraction)));
+
+		if (current.candidate != null)
+			current.candidate.release();
+		return snapshot.version;
+	}
+
+	/**
+	 * Makes the candidate the primary and retires the old primary once its readers are done.
+	 * @return boolean - false if there was no candidate
+	 */
+	public boolean promote() {
+
+		State<O, D> current;
+		do {
+			current = state.get();
+			if (current.candidate == null)
+				return false;
+		} while (!state.compareAndSet(current, new State<O, D>(versions.incrementAndGet(), current.candidate, null, null, 0)));
+
+		current.primary.release();
+		return true;
+	}
+
+	/**
+	 * Drops the candidate and keeps serving the primary.
+	 * @return boolean - false if there was no candidate
+	 */
+	public boolean rollback() {
+
+		State<O, D> current;
+		do {
+			current = state.get();
+			if (current.candidate == null)
+				return false;
+		} while (!state.compareAndSet(current, new State<O, D>(versions.incrementAndGet(), current.primary, null, null, 0)));
+
+		current.candidate.release();
+		return true;
+	}
+
+	/**
+	 * Takes a reference on the primary, which stays usable until the lease is closed even if it is replaced meanwhile.
+	 * @return Lease - to be closed when done, e.g. with try-with-resources
+	 */
+	public Lease<O, D> acquire() {
+		for (;;) {
+			Snapshot<O, D> primary = state.get().primary;
+			if (primary.tryAcquire())
+				return new Lease<O, D>(primary);
+		}
+	}
+
+	/**
+	 * @return Snapshot - the primary at the time of the call, without a reference on it
+	 */
+	public Snapshot<O, D> getPrimary() {
+		return state.get().primary;
+	}
+
+	/**
+	 * @return Snapshot - the staged candidate at the time of the call, null if there is none
+	 */
+	public Snapshot<O, D> getCandidate() {
+		return state.get().candidate;
+	}
+
+	public Rollout getRollout() {
+		return state.get().rollout;
+	}
+
+	/**
+	 * @return long - a number that changes whenever a model is published, staged, promoted or rolled back
+	 */
+	@Override
+	public long getVersion() {
+		return state.get().version;
+	}
+
+	/**
+	 * References are taken on the primary and, when one is staged, the candidate of a single routing state,
+	 * so both belong to the same moment. A snapshot retired between reading the state and taking the reference
+	 * means the state has moved on and it is read again.
+	 * @return State - a state whose snapshots all hold a reference, to be released with release
+	 */
+	private State<O, D> acquireState() {
+		for (;;) {
+			State<O, D> current = state.get();
+			if (!current.primary.tryAcquire())
+				continue;
+			if (current.candidate == null || current.candidate.tryAcquire())
+				return current;
+			current.primary.release();
+		}
+	}
+
+	private static <O, D> void release(State<O, D> current) {
+		current.primary.release();
+		if (current.candidate != null)
+			current.candidate.release();
+	}
+
+	/**
+	 * @return boolean - true if the input goes to the canary, decided by the input's contents
+	 */
+	private static boolean toCanary(State<?, ?> current, Vector input) {
+		return current.rollout == Rollout.CANARY && (input.contentHash() >>> 11) * 0x1.0p-53 < current.canaryFraction;
+	}
+
+	@Override
+	public O compute(Vector input) {
+
+		State<O, D> current = acquireState();
+		try {
+			if (current.candidate == null) {
+				current.primary.served.increment();
+				return current.primary.model.compute(input);
+			}
+			if (toCanary(current, input)) {
+				current.candidate.served.increment();
+				return current.candidate.model.compute(input);
+			}
+
+			current.primary.served.increment();
+			O output = current.primary.model.compute(input);
+			if (current.rollout == Rollout.SHADOW) {
+				current.candidate.served.increment();
+				shadow(current, input, output, current.candidate.model.compute(input));
+			}
+			return output;
+		} finally {
+			release(current);
+		}
+	}
+
+	/**
+	 * Computes the batch with computeBatch on the primary, and on the candidate for its canary inputs or, as a shadow,
+	 * for the whole batch.
+	 * @param inputs - the input vectors X
+	 * @param outputs - buffer where outputs[i] = compute(inputs[i])
+	 */
+	@Override
+	public void computeBatch(Vector[] inputs, O[] outputs) {
+
+		if (outputs.length < inputs.length)
+			throw new IllegalArgumentException("Output buffer is smaller than the batch");
+
+		State<O, D> current = acquireState();
+		try {
+			if (current.candidate == null) {
+				current.primary.served.add(inputs.length);
+				current.primary.model.computeBatch(inputs, outputs);
+			} else if (current.rollout == Rollout.SHADOW) {
+				current.primary.served.add(inputs.length);
+				current.primary.model.computeBatch(inputs, outputs);
+				O[] shadows = outputs.clone();
+				current.candidate.served.add(inputs.length);
+				current.candidate.model.computeBatch(inputs, shadows);
+				for (int i = 0; i < inputs.length; i++)
+					shadow(current, inputs[i], outputs[i], shadows[i]);
+			} else {
+				canaryBatch(current, inputs, outputs);
+			}
+		} finally {
+			release(current);
+		}
+	}
+
+	private void canaryBatch(State<O, D> current, Vector[] inputs, O[] outputs) {
+
+		int n = inputs.length;
+		int[] order = new int[n];
+		int canaries = 0;
+		int rest = n;
+		for (int i = 0; i < n; i++) {
+			if (toCanary(current, inputs[i]))
+				order[canaries++] = i;
+			else
+				order[--rest] = i;
+		}
+
+		computePart(current.candidate, inputs, outputs, order, 0, canaries);
+		computePart(current.primary, inputs, outputs, order, canaries, n);
+	}
+
+	private void computePart(Snapshot<O, D> snapshot, Vector[] inputs, O[] outputs, int[] order, int from, int to) {
+
+		int n = to - from;
+		if (n == 0)
+			return;
+
+		Vector[] part = new Vector[n];
+		for (int k = 0; k < n; k++)
+			part[k] = inputs[order[from + k]];
+
+		O[] results = Arrays.copyOf(outputs, n);
+		snapshot.served.add(n);
+		snapshot.model.computeBatch(part, results);
+		for (int k = 0; k < n; k++)
+			outputs[order[from + k]] = results[k];
+	}
+
+	private void shadow(State<O, D> current, Vector input, O primary, O shadow) {
+		shadowed.increment();
+		shadowDifference.add(difference(primary, shadow));
+		ShadowListener<O> listener = shadowListener;
+		if (listener != null)
+			listener.onShadow(input, primary, shadow, current.primary.version, current.candidate.version);
+	}
+
+	/**
+	 * @return double - the absolute difference of scalars, the largest absolute difference of vectors, else 0 if equal and 1 if not
+	 */
+	private static double difference(Object a, Object b) {
+
+		if (a instanceof Double && b instanceof Double)
+			return Math.abs((Double) a - (Double) b);
+
+		if (a instanceof Vector && b instanceof Vector) {
+			Vector u = (Vector) a;
+			Vector v = (Vector) b;
+			if (u.getLength() != v.getLength())
+				return Double.POSITIVE_INFINITY;
+			double max = 0;
+			for (int i = 0; i < u.getLength(); i++)
+				max = Math.max(max, Math.abs(u.getValue(i) - v.getValue(i)));
+			return max;
+		}
+		return a == null ? (b == null ? 0 : 1) : (a.equals(b) ? 0 : 1);
+	}
+
+	/**
+	 * Registries serve published models, they do not train them.
+	 */
+	@Override
+	public void train(D[] training, D[] testing, int batchSize, double learningRate, int epochs, boolean verbose) {
+		throw new UnsupportedOperationException("Train a copy of the model and publish it instead");
+	}
+
+	/**
+	 * @return double - the loss of the primary
+	 */
+	@Override
+	public double getLoss(D[] examples) {
+		try (Lease<O, D> lease = acquire()) {
+			return lease.getModel().getLoss(examples);
+		}
+	}
+
+	/**
+	 * @return long - the number of inputs scored by both the primary and a shadow
+	 */
+	public long getShadowed() {
+		return shadowed.sum();
+	}
+
+	/**
+	 * @return double - the mean difference between primary and shadow answers, see shadow comparisons
+	 */
+	public double getMeanShadowDifference() {
+		long n = shadowed.sum();
+		return n == 0 ? 0 : shadowDifference.sum() / n;
+	}
+
+	public void resetShadowStats() {
+		shadowed.reset();
+		shadowDifference.reset();
+	}
+
+	/**
+	 * @return int - the number of snapshots that are published or staged, or still held by a reader
+	 */
+	public int getLiveSnapshots() {
+		return live.get();
+	}
+
+	public long getRetiredSnapshots() {
+		return retired.sum();
+	}
+
+	@Override
+	public String toString() {
+		State<O, D> current = state.get();
+		StringBuilder out = new StringBuilder("primary ").append(current.primary)
+				.append(", served ").append(current.primary.getServed());
+		if (current.candidate != null) {
+			out.append(", ").append(current.rollout.name().toLowerCase()).append(' ').append(current.candidate)
+					.append(", served ").append(current.candidate.getServed());
+			if (current.rollout == Rollout.CANARY)
+				out.append(String.format(", fraction %.3f", current.canaryFraction));
+		}
+		if (shadowed.sum() > 0)
+			out.append(String.format(", shadowed %d, mean difference %.6g", getShadowed(), getMeanShadowDifference()));
+		return out.append(", live ").append(live.get()).append(", retired ").append(retired.sum()).toString();
+	}
+}
@@ -0,0 +1,183 @@
+package serving;
+
+import interfaces.Model;
+import math.Vector;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * This class serves a model over HTTP on the loopback interface, with every sample going through a MicroBatcher.
+ *
+ * POST /predict takes one sample per line, values separated by commas or spaces (brackets are ignored),
+ * and answers with one prediction per line in the same order. Samples of one request are batched with those of others.
+ * GET /stats answers with the ServingStats line, GET /health with "ok".
+ *
+ * Connections are handled by a fixed pool of platform threads, each blocked on its request's future while the batch
+ * is computed, so the pool size bounds the number of requests in flight.
+ *
+ * Serve a ModelRegistry to replace the model while the server keeps running.
+ * @param <O> - the model's output type
+ */
+public class ModelServer<O> implements AutoCloseable {
+
+	public static final int DEFAULT_MAX_BATCH = 64;
+	public static final long DEFAULT_MAX_WAIT_MICROS = 2000;
+	public static final int DEFAULT_CONNECTION_THREADS = 64;
+
+	private final int inputDimension;
+	private final MicroBatcher<Vector, O> batcher;
+	private final ExecutorService connections;
+	private final HttpServer server;
+
+	/**
+	 * Starts a server with the default batching and connection settings.
+	 * @param model - the model to serve, e.g. a NeuralNetwork or LogisticRegression
+	 * @param outputArray - creates output arrays, e.g. Vector[]::new or Double[]::new
+	 * @param inputDimension - the length of every sample, longer or shorter samples are rejected
+	 * @param port - the port to listen on, 0 for any free port (see getPort)
+	 * @throws IOException - is thrown if the port cannot be bound
+	 */
+	public ModelServer(Model<Vector, O, ?> model, IntFunction<O[]> outputArray, int inputDimension, int port) throws IOException {
+		this(model, outputArray, inputDimension, port, DEFAULT_MAX_BATCH, DEFAULT_MAX_WAIT_MICROS, DEFAULT_CONNECTION_THREADS);
+	}
+
+	/**
+	 * Starts a server.
+	 * @param model - the model to serve, e.g. a NeuralNetwork or LogisticRegression
+	 * @param outputArray - creates output arrays, e.g. Vector[]::new or Double[]::new
+	 * @param inputDimension - the length of every sample, longer or shorter samples are rejected
+	 * @param port - the port to listen on, 0 for any free port (see getPort)
+	 * @param maxBatchSize - the largest micro-batch, 1 serves every sample on its own
+	 * @param maxWaitMicros - how long a sample may wait for its batch to fill
+	 * @param connectionThreads - the number of requests handled at once
+	 * @throws IOException - is thrown if the port cannot be bound
+	 */
+	public ModelServer(Model<Vector, O, ?> model, IntFunction<O[]> outputArray, int inputDimension, int port,
+			int maxBatchSize, long maxWaitMicros, int connectionThreads) throws IOException {
+
+		if (inputDimension < 1 || connectionThreads < 1)
+			throw new IllegalArgumentException("Input dimension and connection threads must be positive");
+
+		this.inputDimension = inputDimension;
+		this.batcher = new MicroBatcher<Vector, O>(model, Vector[]::new, outputArray, maxBatchSize, maxWaitMicros);
+		this.connections = Executors.newFixedThreadPool(connectionThreads, runnable -> {
+			Thread thread = new Thread(runnable, "model-server");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+		} catch (IOException e) {
+			batcher.close();
+			connections.shutdownNow();
+			throw e;
+		}
+		this.server.setExecutor(connections);
+		this.server.createContext("/predict", this::predict);
+		this.server.createContext("/stats", exchange -> respond(exchange, 200, batcher.getStats() + "\n"));
+		this.server.createContext("/health", exchange -> respond(exchange, 200, "ok\n"));
+		this.server.start();
+	}
+
+	/**
+	 * @return int - the port the server listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public ServingStats getStats() {
+		return batcher.getStats();
+	}
+
+	private void predict(HttpExchange exchange) throws IOException {
+
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			respond(exchange, 405, "POST one sample per line\n");
+			return;
+		}
+
+		List<CompletableFuture<O>> results = new ArrayList<CompletableFuture<O>>();
+		try (InputStream in = exchange.getRequestBody()) {
+			String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+			for (String line : body.split("\n")) {
+				if (line.isBlank())
+					continue;
+				results.add(batcher.submit(parse(line)));
+			}
+		} catch (IllegalArgumentException e) {
+			respond(exchange, 400, e.getMessage() + "\n");
+			return;
+		}
+
+		StringBuilder response = new StringBuilder();
+		try {
+			for (CompletableFuture<O> result : results)
+				response.append(result.get(30, TimeUnit.SECONDS)).append('\n');
+		} catch (ExecutionException e) {
+			respond(exchange, e.getCause() instanceof IllegalStateException ? 503 : 500, e.getCause() + "\n");
+			return;
+		} catch (Exception e) {
+			respond(exchange, 503, e + "\n");
+			return;
+		}
+		respond(exchange, 200, response.toString());
+	}
+
+	/**
+	 * @param line - the values of one sample separated by commas or whitespace, optionally in brackets
+	 * @return Vector - the sample
+	 */
+	private Vector parse(String line) {
+
+		String[] tokens = line.replace('[', ' ').replace(']', ' ').trim().split("[,\\s]+");
+		if (tokens.length != inputDimension)
+			throw new IllegalArgumentException("Expected " + inputDimension + " values per sample but got " + tokens.length);
+
+		double[] values = new double[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			try {
+				values[i] = Double.parseDouble(tokens[i]);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Not a number: " + tokens[i]);
+			}
+		}
+		return new Vector(values);
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Stops accepting connections, lets requests in flight finish for up to a second and stops the batcher.
+	 */
+	@Override
+	public void close() {
+		server.stop(1);
+		batcher.close();
+		connections.shutdownNow();
+	}
+}
@@ -0,0 +1,91 @@
+package serving;
+
+import nn.LatencyHistogram;
+
+/**
+ * This class collects the latency of served requests and the size of the micro-batches they were computed in.
+ * Latency is measured from the moment a request is queued until its prediction is available,
+ * so it includes the time spent waiting for the batch to fill. It is safe to record from many threads.
+ */
+public class ServingStats {
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LatencyHistogram batchSizes = new LatencyHistogram();
+	private final LatencyHistogram computeNanos = new LatencyHistogram();
+
+	private long started = System.nanoTime();
+	private long failures;
+
+	synchronized void recordBatch(int size, long nanos) {
+		batchSizes.record(size);
+		computeNanos.record(nanos);
+	}
+
+	synchronized void recordRequest(long nanos) {
+		latency.record(nanos);
+	}
+
+	synchronized void recordFailures(int count) {
+		failures += count;
+	}
+
+	public synchronized long getRequests() {
+		return latency.getCount();
+	}
+
+	public synchronized long getFailures() {
+		return failures;
+	}
+
+	public synchronized long getBatches() {
+		return batchSizes.getCount();
+	}
+
+	/**
+	 * @param p - the percentile in [0, 100]
+	 * @return long - the request latency at that percentile in nanoseconds
+	 */
+	public synchronized long getLatencyPercentile(double p) {
+		return latency.getPercentile(p);
+	}
+
+	/**
+	 * @return double - the mean number of requests per computed batch
+	 */
+	public synchronized double getMeanBatchSize() {
+		return batchSizes.getMean();
+	}
+
+	/**
+	 * @return double - the mean time of one computeBatch call in nanoseconds
+	 */
+	public synchronized double getMeanComputeNanos() {
+		return computeNanos.getMean();
+	}
+
+	/**
+	 * @return double - served requests per second since the stats were created or reset
+	 */
+	public synchronized double getThroughput() {
+		double seconds = (System.nanoTime() - started) / 1e9;
+		return seconds <= 0 ? 0 : latency.getCount() / seconds;
+	}
+
+	public synchronized void reset() {
+		latency.reset();
+		batchSizes.reset();
+		computeNanos.reset();
+		failures = 0;
+		started = System.nanoTime();
+	}
+
+	/**
+	 * @return String - one line with the request count, throughput, latency percentiles and mean batch size
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("requests %d, failures %d, %.1f req/s, latency ms p50 %.3f p99 %.3f max %.3f, batches %d, mean batch %.1f, mean compute ms %.3f",
+				latency.getCount(), failures, getThroughput(), latency.getPercentile(50) / 1e6, latency.getPercentile(99) / 1e6,
+				latency.getMax() / 1e6, batchSizes.getCount(), batchSizes.getMean(), computeNanos.getMean() / 1e6);
+	}
+}
@@ -0,0 +1,161 @@
+package test;
+
+import distributed.DataParallelTrainer;
+import distributed.Optimizer;
+import distributed.RingAllReduce;
+import interfaces.GradientModel;
+import linreg.LinRegData;
+import linreg.LinearRegression;
+import math.CounterRandom;
+import math.RandomSource;
+import math.Vector;
+import nn.NNData;
+import nn.NeuralNetwork;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trains with synchronous ring all-reduce across 1, 2, ... N separate JVMs and reports the scaling efficiency of
+ * every added process. Every process keeps the same batch size, so ideal scaling multiplies throughput by N.
+ * Usage: DataParallelDemo [maxWorkers] [nn|linreg] [overlap true|false]
+ */
+public class DataParallelDemo {
+
+	//Parameters
+
+	static final int SAMPLES_PER_WORKER = 2000;
+	static final int BATCH_SIZE = 32;
+	static final int EPOCHS = 2;
+	static final int LINREG_FEATURES = 256;
+	static final int TEST_OFFSET = 1000000;
+	static final long SEED = 42;
+
+	public static void main(String[] args) throws Exception {
+
+		if (args.length > 0 && args[0].equals("worker")) {
+			worker(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), args[4], Boolean.parseBoolean(args[5]));
+			return;
+		}
+
+		int maxWorkers = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		String kind = args.length > 1 ? args[1] : "nn";
+		boolean overlap = args.length > 2 ? Boolean.parseBoolean(args[2]) : true;
+
+		System.out.println("Ring all-reduce, " + kind + ", " + BATCH_SIZE + " samples per process per step, "
+				+ (overlap ? "overlapped" : "not overlapped") + ", " + Runtime.getRuntime().availableProcessors() + " cores\n");
+
+		double single = 0;
+		double previous = 0;
+
+		for (int workers = 1; workers <= maxWorkers; workers++) {
+
+			int basePort;
+			try (ServerSocket probe = new ServerSocket(0)) {
+				basePort = Math.min(probe.getLocalPort(), 65535 - workers);
+			}
+
+			List<Process> processes = new ArrayList<Process>();
+			for (int rank = 0; rank < workers; rank++) {
+				ProcessBuilder builder = new ProcessBuilder(
+						new File(System.getProperty("java.home"), "bin/java").getPath(),
+						"-cp", System.getProperty("java.class.path"),
+						DataParallelDemo.class.getName(), "worker",
+						String.valueOf(rank), String.valueOf(workers), String.valueOf(basePort), kind, String.valueOf(overlap));
+				builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+				if (rank > 0)
+					builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+				processes.add(builder.start());
+			}
+
+			// Rank 0 prints its report and then its throughput on the last line
+			String report = null;
+			String throughput = null;
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(processes.get(0).getInputStream()))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					report = throughput;
+					throughput = line;
+				}
+			}
+			for (Process process : processes) {
+				if (process.waitFor() != 0)
+					throw new IllegalStateException("Worker exited with " + process.exitValue());
+			}
+
+			double samplesPerSecond = Double.parseDouble(throughput);
+			if (workers == 1)
+				single = samplesPerSecond;
+
+			System.out.println(String.format("%d process(es): %9.1f samples/s, speedup %.2f, efficiency %5.1f%%, added process %5.1f%% of one",
+					workers, samplesPerSecond, samplesPerSecond / single, 100 * samplesPerSecond / (workers * single),
+					100 * (samplesPerSecond - previous) / single));
+			System.out.println("  " + report);
+			previous = samplesPerSecond;
+		}
+	}
+
+	private static void worker(int rank, int workers, int basePort, String kind, boolean overlap) throws Exception {
+
+		try (RingAllReduce ring = new RingAllReduce(rank, workers, basePort, 30000)) {
+
+			double samplesPerSecond;
+			String report;
+			String loss;
+
+			if (kind.equals("linreg")) {
+				LinearRegression model = new LinearRegression(LINREG_FEATURES);
+				LinRegData[] shard = linregData(rank * SAMPLES_PER_WORKER, SAMPLES_PER_WORKER);
+				try (DataParallelTrainer<LinRegData> trainer = train(model, ring, Optimizer.SGD, .01, shard, overlap)) {
+					samplesPerSecond = trainer.getSamplesPerSecond();
+					report = trainer.toString();
+				}
+				loss = String.format("loss %.5f", model.getLoss(linregData(TEST_OFFSET, SAMPLES_PER_WORKER)));
+			} else {
+				NeuralNetwork model = ParameterServerDemo.network();
+				NNData[] shard = ParameterServerDemo.dataset(rank * SAMPLES_PER_WORKER, SAMPLES_PER_WORKER);
+				try (DataParallelTrainer<NNData> trainer = train(model, ring, Optimizer.ADAM, .002, shard, overlap)) {
+					samplesPerSecond = trainer.getSamplesPerSecond();
+					report = trainer.toString();
+				}
+				NNData[] testing = ParameterServerDemo.dataset(TEST_OFFSET, SAMPLES_PER_WORKER);
+				loss = String.format("loss %.4f, accuracy %.3f", model.getLoss(testing), model.getAccuracy(testing));
+			}
+
+			System.out.println(report + ", " + loss);
+			System.out.println(samplesPerSecond);
+		}
+	}
+
+	private static <D> DataParallelTrainer<D> train(GradientModel<D> model, RingAllReduce ring, Optimizer optimizer,
+			double learningRate, D[] shard, boolean overlap) throws Exception {
+		DataParallelTrainer<D> trainer = new DataParallelTrainer<D>(model, ring, optimizer);
+		trainer.setOverlap(overlap);
+		trainer.train(shard, BATCH_SIZE, learningRate, EPOCHS);
+		return trainer;
+	}
+
+	/**
+	 * y = sum of every feature times its index scaled down, plus noise, drawn from a counter based stream.
+	 */
+	static LinRegData[] linregData(int first, int count) {
+
+		RandomSource random = new CounterRandom(SEED).split(20);
+		LinRegData[] data = new LinRegData[count];
+		for (int i = 0; i < count; i++) {
+			long sample = first + i;
+			Vector x = new Vector(LINREG_FEATURES);
+			double y = 0;
+			for (int j = 0; j < LINREG_FEATURES; j++) {
+				x.setValue(j, random.gaussian(sample * (LINREG_FEATURES + 1) + j));
+				y += x.getValue(j) * (j % 7 - 3) / 10.0;
+			}
+			data[i] = new LinRegData(x, y + .1 * random.gaussian(sample * (LINREG_FEATURES + 1) + LINREG_FEATURES));
+		}
+		return data;
+	}
+}
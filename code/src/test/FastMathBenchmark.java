@@ -0,0 +1,170 @@
+package test;
+
+import math.FastMath;
+import math.Vector;
+import logreg.LogisticRegression;
+import logreg.LogRegData;
+import nn.activationFunctions.Softmax;
+
+public class FastMathBenchmark {
+
+	public static void main(String[] args) {
+
+		//Parameters
+
+		int kernelSize = 1000000;
+		int kernelRepeats = 20;
+		int accuracySize = 10000000;
+
+		int dimensions = 100;
+		int trainingSize = 5000;
+		int testingSize = 1000;
+		int epochs = 200;
+		int batchsize = 500;
+		double learningRate = 0.1;
+
+		//Kernel Throughput and Accuracy
+
+		double[] exponents = new double[kernelSize];
+		double[] positives = new double[kernelSize];
+
+		for (int i = 0; i < kernelSize; i++) {
+			exponents[i] = 40 * (Math.random() - .5);
+			positives[i] = Math.exp(40 * (Math.random() - .5));
+		}
+
+		System.out.println("Kernel throughput over " + kernelSize + " arguments (ns per call)\n");
+		System.out.println(String.format("%-10s %10s %10s %10s", "mode", "exp", "log", "sigmoid"));
+
+		for (FastMath.Mode mode : FastMath.Mode.values()) {
+
+			double expTime = timeKernel(mode, exponents, 0, kernelRepeats);
+			double logTime = timeKernel(mode, positives, 1, kernelRepeats);
+			double sigmoidTime = timeKernel(mode, exponents, 2, kernelRepeats);
+
+			System.out.println(String.format("%-10s %10.2f %10.2f %10.2f", mode, expTime, logTime, sigmoidTime));
+		}
+
+		//Kernel Accuracy, the error bounds documented in FastMath
+
+		System.out.println("\nMax error against java.lang.Math over " + accuracySize + " random arguments, exp over (-708, 709), log over (1/e, e) and the positive normals\n");
+		System.out.println(String.format("%-10s %14s %18s %18s", "mode", "exp rel err", "log abs err |y|<=1", "log rel err |y|>1"));
+
+		for (FastMath.Mode mode : FastMath.Mode.values()) {
+
+			double expError = 0;
+			double logAbsoluteError = 0;
+			double logRelativeError = 0;
+
+			for (int i = 0; i < accuracySize; i++) {
+				double x = -708 + 1417 * Math.random();
+				double exact = Math.exp(x);
+				expError = Math.max(expError, Math.abs(mode.exp(x) - exact) / exact);
+
+				// Half of the log arguments are near 1, where the absolute error bound applies
+				double positive = Math.exp(i % 2 == 0 ? 2 * Math.random() - 1 : -708 + 1417 * Math.random());
+				double log = Math.log(positive);
+				double error = Math.abs(mode.log(positive) - log);
+				if (Math.abs(log) <= 1)
+					logAbsoluteError = Math.max(logAbsoluteError, error);
+				else
+					logRelativeError = Math.max(logRelativeError, error / Math.abs(log));
+			}
+
+			System.out.println(String.format("%-10s %14.3e %18.3e %18.3e", mode, expError, logAbsoluteError, logRelativeError));
+		}
+
+		//Softmax Throughput
+
+		Vector logits = new Vector(10);
+		logits.setValuesRandom();
+		logits.scale(5);
+
+		System.out.println("\nSoftmax forward over a 10 class output (ns per call)\n");
+
+		for (FastMath.Mode mode : FastMath.Mode.values()) {
+
+			Softmax softmax = new Softmax(mode);
+			double sink = 0;
+			long best = Long.MAX_VALUE;
+
+			for (int r = 0; r < kernelRepeats; r++) {
+				long start = System.nanoTime();
+				for (int i = 0; i < 100000; i++) {
+					sink += softmax.forward(logits).getValue(i % 10);
+				}
+				best = Math.min(best, System.nanoTime() - start);
+			}
+
+			System.out.println(String.format("%-10s %10.2f   (checksum %.3f)", mode, best / 100000.0, sink));
+		}
+
+		//End to End Logistic Regression
+
+		Vector targetWeights = new Vector(dimensions);
+		for (int i = 0; i < targetWeights.getLength(); i++)
+			targetWeights.setValue(i, (2.0 * (Math.random() -.5)));
+
+		LogRegData[] trainingExamples = makeExamples(trainingSize, targetWeights);
+		LogRegData[] testingExamples = makeExamples(testingSize, targetWeights);
+
+		System.out.println("\nLogistic regression, " + epochs + " epochs, test loss always evaluated with EXACT\n");
+
+		for (FastMath.Mode mode : FastMath.Mode.values()) {
+
+			LogisticRegression model = new LogisticRegression(dimensions);
+			model.setMathMode(mode);
+
+			long start = System.nanoTime();
+			model.train(trainingExamples, testingExamples, batchsize, learningRate, epochs, false);
+			long elapsed = System.nanoTime() - start;
+
+			model.setMathMode(FastMath.Mode.EXACT);
+			System.out.println(String.format("%-10s train %8.1f ms   test loss %.10f", mode, elapsed / 1e6, model.getLoss(testingExamples)));
+		}
+	}
+
+	/**
+	 * This times one kernel over the arguments and returns the best ns per call of the repeats.
+	 */
+	private static double timeKernel(FastMath.Mode mode, double[] arguments, int kernel, int repeats) {
+
+		double sink = 0;
+		long best = Long.MAX_VALUE;
+
+		for (int r = 0; r < repeats; r++) {
+			long start = System.nanoTime();
+			if (kernel == 0) {
+				for (int i = 0; i < arguments.length; i++)
+					sink += mode.exp(arguments[i]);
+			} else if (kernel == 1) {
+				for (int i = 0; i < arguments.length; i++)
+					sink += mode.log(arguments[i]);
+			} else {
+				for (int i = 0; i < arguments.length; i++)
+					sink += mode.sigmoid(arguments[i]);
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		if (sink == 42)
+			System.out.println();
+
+		return (double) best / arguments.length;
+	}
+
+	private static LogRegData[] makeExamples(int size, Vector targetWeights) {
+
+		Vector[] data = new Vector[size];
+		double[] labels = new double[size];
+
+		for (int i = 0; i < size; i++) {
+			data[i] = new Vector(targetWeights.getLength());
+			data[i].setValuesRandom();
+			data[i].scale(10);
+			labels[i] = LogRegTest.computeTestLabel(data[i], targetWeights, 5, .1);
+		}
+
+		return LogRegData.format(data, labels);
+	}
+}
@@ -0,0 +1,105 @@
+package test;
+
+import logreg.LogisticRegression;
+import logreg.SparseLogRegData;
+import math.CounterRandom;
+import math.RandomSource;
+import math.SparseVector;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Compares Hogwild training of a sparse LogisticRegression on 1, 2, 4 ... threads with the serial sparse train loop,
+ * on hashed click-log style samples: a few active features each, drawn from a skewed vocabulary.
+ * Usage: HogwildDemo [maxThreads]
+ */
+public class HogwildDemo {
+
+	//Parameters
+
+	static final int FEATURES = 1 << 20;
+	static final int ACTIVE = 24;
+	static final int SAMPLES = 200000;
+	static final int EPOCHS = 3;
+	static final double LEARNING_RATE = .05;
+	static final long SEED = 42;
+
+	public static void main(String[] args) {
+
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+
+		SparseLogRegData[] training = dataset(0, SAMPLES);
+		SparseLogRegData[] testing = dataset(SAMPLES, SAMPLES / 10);
+
+		System.out.println(SAMPLES + " samples, " + ACTIVE + " of " + FEATURES + " features active, "
+				+ Runtime.getRuntime().availableProcessors() + " cores\n");
+
+		// Serial baseline, with per sample updates like Hogwild
+		double single = report("serial updateWB", training, testing,
+				model -> model.train(training, null, 1, LEARNING_RATE, 1, false), 0);
+
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			int count = threads;
+			report("hogwild x" + count, training, testing,
+					model -> model.trainHogwild(training, null, LEARNING_RATE, 1, count, false), single);
+		}
+	}
+
+	/**
+	 * Warms up with one epoch on a throwaway model, then trains a fresh model epoch by epoch
+	 * and prints the throughput and the test loss after each epoch.
+	 * @return double - the samples per second over all epochs
+	 */
+	private static double report(String name, SparseLogRegData[] training, SparseLogRegData[] testing,
+			Consumer<LogisticRegression> epoch, double baseline) {
+
+		epoch.accept(new LogisticRegression(FEATURES));
+		LogisticRegression model = new LogisticRegression(FEATURES);
+
+		double[] losses = new double[EPOCHS];
+		long nanos = 0;
+		for (int e = 0; e < EPOCHS; e++) {
+			long start = System.nanoTime();
+			epoch.accept(model);
+			nanos += System.nanoTime() - start;
+			losses[e] = Math.round(model.getLoss(testing) / testing.length * 1e4) / 1e4;
+		}
+
+		double samplesPerSecond = (double) EPOCHS * training.length / (nanos / 1e9);
+		System.out.println(String.format("%-16s %10.0f samples/s %-14s test loss per epoch %s", name, samplesPerSecond,
+				baseline > 0 ? String.format("(%.2fx serial)", samplesPerSecond / baseline) : "", Arrays.toString(losses)));
+		return samplesPerSecond;
+	}
+
+	/**
+	 * Labels come from a hidden weight per feature, features are drawn with a skew towards low indices.
+	 */
+	static SparseLogRegData[] dataset(int first, int count) {
+
+		RandomSource random = new CounterRandom(SEED);
+		RandomSource features = random.split(1);
+		RandomSource hidden = random.split(2);
+
+		SparseLogRegData[] data = new SparseLogRegData[count];
+		for (int i = 0; i < count; i++) {
+			long sample = first + i;
+
+			int[] indices = new int[ACTIVE];
+			for (int k = 0; k < ACTIVE; k++) {
+				double u = features.uniform(sample * ACTIVE + k);
+				indices[k] = (int) (FEATURES * u * u * u);
+			}
+			indices = Arrays.stream(indices).sorted().distinct().toArray();
+
+			double[] values = new double[indices.length];
+			double z = 0;
+			for (int k = 0; k < indices.length; k++) {
+				values[k] = 1;
+				z += hidden.gaussian(indices[k]);
+			}
+			data[i] = new SparseLogRegData(new SparseVector(FEATURES, indices, values), z > 0);
+		}
+		return data;
+	}
+}
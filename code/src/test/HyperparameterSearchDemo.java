@@ -0,0 +1,86 @@
+package test;
+
+import math.CounterRandom;
+import math.RandomSource;
+import nn.Dense;
+import nn.Initializer;
+import nn.NNData;
+import nn.NeuralNetwork;
+import nn.activationFunctions.ReLU;
+import nn.activationFunctions.Softmax;
+import tuning.HyperparameterSearch;
+import tuning.Hyperparameters;
+import tuning.Pruning;
+import tuning.SearchSpace;
+import tuning.Trial;
+
+import java.util.List;
+
+/**
+ * Tunes the batch size, learning rate and hidden width of a small network on the clustered data of ParameterServerDemo,
+ * with every trial in this JVM sharing one copy of the dataset. Runs grid search with and without median pruning,
+ * random search and successive halving, and prints what each of them found and how many epochs pruning saved.
+ * Usage: HyperparameterSearchDemo [threads]
+ */
+public class HyperparameterSearchDemo {
+
+	//Parameters
+
+	static final int SAMPLES = 4000;
+	static final int EPOCHS = 9;
+	static final int RANDOM_TRIALS = 27;
+	static final long SEED = 42;
+
+	public static void main(String[] args) throws InterruptedException {
+
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+
+		// Loaded once, every trial reads the same arrays
+		NNData[] training = ParameterServerDemo.dataset(0, SAMPLES);
+		NNData[] validation = ParameterServerDemo.dataset(SAMPLES, SAMPLES / 4);
+
+		HyperparameterSearch<NNData> search = new HyperparameterSearch<NNData>(HyperparameterSearchDemo::network, training, validation, threads);
+
+		SearchSpace grid = new SearchSpace();
+		grid.addChoice(Hyperparameters.BATCH_SIZE, 16, 64);
+		grid.addChoice(Hyperparameters.LEARNING_RATE, .0002, .002, .02);
+		grid.addChoice("width", 16, 64);
+
+		report(search, search.grid(grid, EPOCHS), validation);
+
+		search.setPruning(Pruning.MEDIAN, 2);
+		report(search, search.grid(grid, EPOCHS), validation);
+
+		SearchSpace space = new SearchSpace();
+		space.addChoice(Hyperparameters.BATCH_SIZE, 16, 32, 64);
+		space.addLogUniform(Hyperparameters.LEARNING_RATE, 1e-4, 5e-2);
+		space.addInteger("width", 8, 128);
+
+		report(search, search.random(space, RANDOM_TRIALS, EPOCHS, SEED), validation);
+		report(search, search.successiveHalving(space, RANDOM_TRIALS, 1, EPOCHS, SEED), validation);
+	}
+
+	/**
+	 * The network of ParameterServerDemo with the hidden width of the trial.
+	 */
+	static NeuralNetwork network(Hyperparameters hyperparameters) {
+		int width = hyperparameters.getInt("width");
+		RandomSource random = new CounterRandom(SEED);
+		NeuralNetwork network = new NeuralNetwork();
+		network.addLayer(new Dense(ParameterServerDemo.FEATURES, width, Initializer.HE, random.split(0)));
+		network.addLayer(new ReLU());
+		network.addLayer(new Dense(width, ParameterServerDemo.CLASSES, Initializer.XAVIER, random.split(1)));
+		network.addLayer(new Softmax());
+		return network;
+	}
+
+	private static void report(HyperparameterSearch<NNData> search, List<Trial<NNData>> trials, NNData[] validation) {
+		System.out.println(search);
+		for (int i = 0; i < Math.min(3, trials.size()); i++)
+			System.out.println("  " + trials.get(i));
+		Trial<NNData> best = trials.get(0);
+		if (best.getModel() != null)
+			System.out.println(String.format("  best validation accuracy %.3f", ((NeuralNetwork) best.getModel()).getAccuracy(validation)));
+		System.out.println();
+	}
+}
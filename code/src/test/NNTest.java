@@ -17,6 +17,7 @@ public class NNTest {
         int epochs = 10;
         boolean verbose = true;
         double trainTestSplit = .8;
+        long seed = 42;
 
         try{
             // Adapted from https://github.com/turkdogan/mnist-data-reader
@@ -41,7 +42,8 @@ public class NNTest {
 
             for(int i = 0; i < numberOfItems; i++) {
 
-                Matrix mnistMatrix = new Matrix(nRows, nCols);
+                data[i] = new Vector(nRows * nCols);
+                Matrix mnistMatrix = data[i].reshapeView(nRows, nCols);
 
                 for (int r = 0; r < nRows; r++) {
                     for (int c = 0; c < nCols; c++) {
@@ -49,8 +51,6 @@ public class NNTest {
                     }
                 }
 
-                data[i] = mnistMatrix.flatten();
-
                 labels[i] = new Vector(10);
                 labels[i].setValue(labelInputStream.readUnsignedByte(), 1.0);
             }
@@ -78,10 +78,11 @@ public class NNTest {
             // model creation and training
 
             NeuralNetwork model = new NeuralNetwork();
+            RandomSource random = new CounterRandom(seed);
 
-            model.addLayer(new nn.Dense(784, 128));
+            model.addLayer(new nn.Dense(784, 128, nn.Initializer.HE, random.split(0)));
             model.addLayer(new nn.activationFunctions.ReLU());
-            model.addLayer(new nn.Dense(128, 10));
+            model.addLayer(new nn.Dense(128, 10, nn.Initializer.XAVIER, random.split(1)));
             model.addLayer(new nn.activationFunctions.Softmax());
             
             model.train(training, testing, batchSize, learningRate, epochs, verbose);
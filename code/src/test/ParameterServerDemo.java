@@ -0,0 +1,126 @@
+package test;
+
+import distributed.Compression;
+import distributed.ParameterServer;
+import distributed.ParameterServerWorker;
+import math.CounterRandom;
+import math.RandomSource;
+import math.Vector;
+import nn.Dense;
+import nn.Initializer;
+import nn.NNData;
+import nn.NeuralNetwork;
+import nn.activationFunctions.ReLU;
+import nn.activationFunctions.Softmax;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trains one network with a parameter server in this JVM and worker processes started as separate JVMs.
+ * Usage: ParameterServerDemo [workers] [maxStaleness] [NONE|FLOAT32|INT8|TOP_K]
+ */
+public class ParameterServerDemo {
+
+	//Parameters
+
+	static final int FEATURES = 64;
+	static final int CLASSES = 4;
+	static final int SAMPLES = 8000;
+	static final int BATCH_SIZE = 32;
+	static final int EPOCHS = 3;
+	static final double LEARNING_RATE = .002;
+	static final long SEED = 42;
+
+	public static void main(String[] args) throws Exception {
+
+		if (args.length > 0 && args[0].equals("worker")) {
+			worker(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), Compression.valueOf(args[4]));
+			return;
+		}
+
+		int workers = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		int maxStaleness = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		Compression compression = args.length > 2 ? Compression.valueOf(args[2]) : Compression.NONE;
+
+		NNData[] testing = dataset(SAMPLES, SAMPLES / 4);
+
+		System.out.println("Parameter server, staleness bound " + maxStaleness + ", " + compression + " gradients\n");
+
+		for (int count : new int[] {1, workers}) {
+
+			NeuralNetwork network = network();
+			System.out.println(String.format("%d worker(s), loss before %.4f", count, network.getLoss(testing)));
+
+			try (ParameterServer server = new ParameterServer(network, 0, LEARNING_RATE, maxStaleness)) {
+
+				List<Process> processes = new ArrayList<Process>();
+				for (int w = 0; w < count; w++) {
+					processes.add(new ProcessBuilder(
+							new File(System.getProperty("java.home"), "bin/java").getPath(),
+							"-cp", System.getProperty("java.class.path"),
+							ParameterServerDemo.class.getName(), "worker",
+							String.valueOf(server.getPort()), String.valueOf(w), String.valueOf(count), compression.name())
+							.inheritIO().start());
+				}
+				for (Process process : processes) {
+					if (process.waitFor() != 0)
+						throw new IllegalStateException("Worker exited with " + process.exitValue());
+				}
+
+				System.out.println("  server: " + server);
+				server.writeTo(network);
+			}
+			System.out.println(String.format("  loss after %.4f, accuracy %.3f\n", network.getLoss(testing), network.getAccuracy(testing)));
+		}
+	}
+
+	private static void worker(int port, int index, int count, Compression compression) throws Exception {
+
+		// Every process builds the same data, then keeps every count-th sample
+		NNData[] all = dataset(0, SAMPLES);
+		NNData[] shard = new NNData[(SAMPLES - index + count - 1) / count];
+		for (int i = 0; i < shard.length; i++)
+			shard[i] = all[index + i * count];
+
+		try (ParameterServerWorker<NNData> worker = new ParameterServerWorker<NNData>(network(), port)) {
+			worker.setCompression(compression);
+			worker.train(shard, BATCH_SIZE, EPOCHS);
+			System.out.println("  worker " + index + ": " + worker);
+		}
+	}
+
+	static NeuralNetwork network() {
+		RandomSource random = new CounterRandom(SEED);
+		NeuralNetwork network = new NeuralNetwork();
+		network.addLayer(new Dense(FEATURES, 128, Initializer.HE, random.split(0)));
+		network.addLayer(new ReLU());
+		network.addLayer(new Dense(128, CLASSES, Initializer.XAVIER, random.split(1)));
+		network.addLayer(new Softmax());
+		return network;
+	}
+
+	/**
+	 * Gaussian clusters, one per class, with samples drawn from a counter based stream so any process can rebuild them.
+	 */
+	static NNData[] dataset(int first, int count) {
+
+		RandomSource random = new CounterRandom(SEED);
+		RandomSource centers = random.split(10);
+		RandomSource noise = random.split(11);
+
+		NNData[] data = new NNData[count];
+		for (int i = 0; i < count; i++) {
+			long sample = first + i;
+			int label = (int) (sample % CLASSES);
+			Vector x = new Vector(FEATURES);
+			for (int j = 0; j < FEATURES; j++)
+				x.setValue(j, centers.gaussian(label * FEATURES + j) + 1.5 * noise.gaussian(sample * FEATURES + j));
+			Vector y = new Vector(CLASSES);
+			y.setValue(label, 1);
+			data[i] = new NNData(x, y);
+		}
+		return data;
+	}
+}
@@ -0,0 +1,112 @@
+package test;
+
+import math.CounterRandom;
+import math.RandomSource;
+import math.Vector;
+import nn.Dense;
+import nn.Initializer;
+import nn.LatencyHistogram;
+import nn.NeuralNetwork;
+import nn.activationFunctions.ReLU;
+import nn.activationFunctions.Softmax;
+import serving.ModelServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ServingLoadTest {
+
+	public static void main(String[] args) throws Exception {
+
+		//Parameters
+
+		int inputs = 784;
+		int clients = 32;
+		int requestsPerClient = 200;
+		long seed = 42;
+
+		//Model, an MNIST shaped network with random weights
+
+		RandomSource random = new CounterRandom(seed);
+
+		NeuralNetwork network = new NeuralNetwork();
+		network.addLayer(new Dense(inputs, 128, Initializer.HE, random.split(0)));
+		network.addLayer(new ReLU());
+		network.addLayer(new Dense(128, 10, Initializer.XAVIER, random.split(1)));
+		network.addLayer(new Softmax());
+
+		String[] bodies = new String[64];
+		for (int i = 0; i < bodies.length; i++) {
+			Vector sample = new Vector(inputs);
+			sample.setValuesRandom(random.split(100 + i));
+			bodies[i] = sample.toString();
+		}
+
+		System.out.println(clients + " concurrent clients, " + requestsPerClient + " requests each, one sample per request\n");
+
+		//Unbatched, then micro-batched
+
+		for (int maxBatch : new int[] {1, 64}) {
+
+			try (ModelServer<Vector> server = new ModelServer<Vector>(network, Vector[]::new, inputs, 0, maxBatch, 2000, clients)) {
+
+				URI uri = URI.create("http://127.0.0.1:" + server.getPort() + "/predict");
+				HttpClient client = HttpClient.newHttpClient();
+
+				// Warm up the JIT and the connections
+				load(client, uri, bodies, clients, 20);
+				server.getStats().reset();
+
+				long start = System.nanoTime();
+				LatencyHistogram latency = load(client, uri, bodies, clients, requestsPerClient);
+				double seconds = (System.nanoTime() - start) / 1e9;
+
+				System.out.println(String.format("max batch %3d   client: %8.1f req/s  p50 %7.3f ms  p99 %7.3f ms",
+						maxBatch, latency.getCount() / seconds, latency.getPercentile(50) / 1e6, latency.getPercentile(99) / 1e6));
+				System.out.println("                server: " + server.getStats() + "\n");
+			}
+		}
+	}
+
+	/**
+	 * This runs the clients to completion and returns their merged round trip latencies.
+	 */
+	private static LatencyHistogram load(HttpClient client, URI uri, String[] bodies, int clients, int requests) throws Exception {
+
+		List<Thread> threads = new ArrayList<Thread>();
+		LatencyHistogram[] latencies = new LatencyHistogram[clients];
+
+		for (int c = 0; c < clients; c++) {
+			int id = c;
+			latencies[c] = new LatencyHistogram();
+			Thread thread = new Thread(() -> {
+				for (int r = 0; r < requests; r++) {
+					HttpRequest request = HttpRequest.newBuilder(uri)
+							.POST(HttpRequest.BodyPublishers.ofString(bodies[(id + r) % bodies.length])).build();
+					long start = System.nanoTime();
+					try {
+						HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+						if (response.statusCode() != 200)
+							throw new IllegalStateException("Status " + response.statusCode() + ": " + response.body());
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+					latencies[id].record(System.nanoTime() - start);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		LatencyHistogram merged = new LatencyHistogram();
+		for (int c = 0; c < clients; c++) {
+			threads.get(c).join();
+			merged.merge(latencies[c]);
+		}
+		return merged;
+	}
+}
@@ -0,0 +1,149 @@
+package training;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class runs another callback on a dedicated thread, fed by a bounded queue.
+ * Events are delivered in order. When the queue is full, step events are dropped (and counted) instead of
+ * blocking the training thread, while epoch, evaluation and begin / end events always wait for room.
+ * onTrainEnd returns once the delegate has handled every queued event, and rethrows the first exception it threw.
+ */
+public class AsyncCallback implements TrainingCallback {
+
+	private static final Runnable STOP = () -> {};
+
+	private final TrainingCallback delegate;
+	private final BlockingQueue<Runnable> queue;
+	private final AtomicLong dropped = new AtomicLong();
+
+	private Thread worker;
+	private volatile Throwable failure;
+
+	/**
+	 * @param delegate - the callback to run in the background
+	 */
+	public AsyncCallback(TrainingCallback delegate) {
+		this(delegate, 1024);
+	}
+
+	/**
+	 * @param delegate - the callback to run in the background
+	 * @param capacity - the number of events that can wait for the delegate
+	 */
+	public AsyncCallback(TrainingCallback delegate, int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be positive");
+		this.delegate = delegate;
+		this.queue = new ArrayBlockingQueue<Runnable>(capacity);
+	}
+
+	/**
+	 * @return long - the number of step events dropped because the delegate fell behind
+	 */
+	public long getDroppedSteps() {
+		return dropped.get();
+	}
+
+	@Override
+	public boolean needsGradientNorm() {
+		return delegate.needsGradientNorm();
+	}
+
+	@Override
+	public void onTrainBegin(TrainingEvent event) {
+		put(() -> delegate.onTrainBegin(event));
+	}
+
+	@Override
+	public void onStepBegin(TrainingEvent event) {
+		offer(() -> delegate.onStepBegin(event));
+	}
+
+	@Override
+	public void onStepEnd(TrainingEvent event) {
+		offer(() -> delegate.onStepEnd(event));
+	}
+
+	@Override
+	public void onEpochEnd(TrainingEvent event) {
+		put(() -> delegate.onEpochEnd(event));
+	}
+
+	@Override
+	public void onEvaluation(TrainingEvent event) {
+		put(() -> delegate.onEvaluation(event));
+	}
+
+	@Override
+	public void onTrainEnd(TrainingEvent event) {
+		put(() -> delegate.onTrainEnd(event));
+
+		Thread worker;
+		synchronized (this) {
+			worker = this.worker;
+			this.worker = null;
+		}
+		if (worker == null)
+			return;
+
+		putQuietly(STOP);
+		try {
+			worker.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		Throwable failure = this.failure;
+		this.failure = null;
+		if (failure != null)
+			throw new IllegalStateException("Asynchronous callback failed", failure);
+	}
+
+	private void offer(Runnable task) {
+		ensureStarted();
+		if (!queue.offer(task))
+			dropped.incrementAndGet();
+	}
+
+	private void put(Runnable task) {
+		ensureStarted();
+		putQuietly(task);
+	}
+
+	private void putQuietly(Runnable task) {
+		try {
+			queue.put(task);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private synchronized void ensureStarted() {
+		if (worker != null)
+			return;
+		worker = new Thread(this::drain, "training-callback");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	private void drain() {
+		while (true) {
+			Runnable task;
+			try {
+				task = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (task == STOP)
+				return;
+			try {
+				task.run();
+			} catch (Throwable t) {
+				if (failure == null)
+					failure = t;
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package training;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+/**
+ * This callback prints the verbose training output, one line per evaluation, e.g. "Epoch: 3 Loss: 0.25 Accuracy: 0.9".
+ * Evaluations taken in the middle of an epoch also print the step. It is added automatically when train is called with verbose.
+ */
+public class ConsoleCallback implements TrainingCallback {
+
+	private final PrintStream out;
+
+	public ConsoleCallback() {
+		this(System.out);
+	}
+
+	/**
+	 * @param out - where the lines are printed
+	 */
+	public ConsoleCallback(PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void onTrainBegin(TrainingEvent event) {
+		out.println("Starting Training:");
+	}
+
+	@Override
+	public void onEvaluation(TrainingEvent event) {
+
+		StringBuilder line = new StringBuilder("Epoch: ").append(event.getEpoch());
+		if (!event.isEpochEnd())
+			line.append(" Step: ").append(event.getStep());
+
+		for (Map.Entry<String, Double> metric : event.getMetrics().entrySet()) {
+			String name = metric.getKey();
+			line.append(' ').append(Character.toUpperCase(name.charAt(0))).append(name.substring(1)).append(": ").append(metric.getValue());
+		}
+		out.println(line);
+	}
+}
@@ -0,0 +1,251 @@
+package training;
+
+/**
+ * This callback ends training once a monitored quantity stops improving, and restores the best parameters.
+ * It watches either an evaluation metric such as "loss" (checked at every evaluation, see TrainingCallbacks.setEvaluationCadence)
+ * or the gradient norm, TrainingRun.GRADIENT_NORM, averaged over each epoch's steps (checked at every epoch end).
+ * A value counts as an improvement when it beats the best so far by more than max(minDelta, relativeTolerance * |best|).
+ * After patience checks without an improvement, training stops. If a check reaches the stop value, training ends at once.
+ * The best snapshot is restored when the run ends, whether or not this callback stopped it. Add this callback with add, not addAsync, because the snapshot
+ * must be taken while the parameters still hold the evaluated values.
+ */
+public class EarlyStopping implements TrainingCallback {
+
+	private final String metric;
+	private final int patience;
+	private final double minDelta;
+	private final double relativeTolerance;
+
+	private boolean maximize = false;
+	private boolean restoreBest = true;
+	private double stopValue = Double.NaN;
+
+	// Run state, reset by onTrainBegin
+	private int firstEpoch;
+	private double best;
+	private int bestEpoch;
+	private long bestStep;
+	private ModelSnapshot bestSnapshot;
+	private int checksWithoutImprovement;
+	private boolean stopped;
+	private boolean restored;
+	private int stoppedEpoch;
+	private long stoppedStep;
+	private double epochsSaved;
+	private long timeSavedNanos;
+
+	private double normSum;
+	private int normCount;
+
+	/**
+	 * Monitors the validation loss with no minimum improvement.
+	 * @param patience - the number of evaluations without improvement after which training stops
+	 */
+	public EarlyStopping(int patience) {
+		this("loss", patience, 0, 0);
+	}
+
+	/**
+	 * @param metric - the metric to monitor, e.g. "loss", "accuracy" or TrainingRun.GRADIENT_NORM
+	 * @param patience - the number of checks without improvement after which training stops
+	 * @param minDelta - the smallest absolute change that counts as an improvement
+	 * @param relativeTolerance - the smallest change relative to the best value that counts as an improvement, e.g. 1e-3
+	 */
+	public EarlyStopping(String metric, int patience, double minDelta, double relativeTolerance) {
+		if (patience < 1)
+			throw new IllegalArgumentException("Patience must be at least 1");
+		if (minDelta < 0 || relativeTolerance < 0)
+			throw new IllegalArgumentException("Tolerances must not be negative");
+		this.metric = metric;
+		this.patience = patience;
+		this.minDelta = minDelta;
+		this.relativeTolerance = relativeTolerance;
+	}
+
+	/**
+	 * @param maximize - whether larger values are better, e.g. for "accuracy". Smaller is better by default
+	 */
+	public void setMaximize(boolean maximize) {
+		this.maximize = maximize;
+	}
+
+	/**
+	 * @param restoreBest - whether the parameters of the best check are restored when training ends, true by default
+	 */
+	public void setRestoreBest(boolean restoreBest) {
+		this.restoreBest = restoreBest;
+	}
+
+	/**
+	 * Stops as soon as the metric is at least as good as the given value, e.g. a gradient norm of 1e-6 for convergence.
+	 * @param stopValue - the target value, NaN to disable
+	 */
+	public void setStopValue(double stopValue) {
+		this.stopValue = stopValue;
+	}
+
+	@Override
+	public boolean needsGradientNorm() {
+		return TrainingRun.GRADIENT_NORM.equals(metric);
+	}
+
+	@Override
+	public void onTrainBegin(TrainingEvent event) {
+		firstEpoch = event.getEpoch();
+		best = maximize ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		bestEpoch = 0;
+		bestStep = 0;
+		bestSnapshot = null;
+		checksWithoutImprovement = 0;
+		stopped = false;
+		restored = false;
+		stoppedEpoch = 0;
+		stoppedStep = 0;
+		epochsSaved = 0;
+		timeSavedNanos = 0;
+		normSum = 0;
+		normCount = 0;
+	}
+
+	@Override
+	public void onStepEnd(TrainingEvent event) {
+		double norm = event.getMetric(TrainingRun.GRADIENT_NORM);
+		if (!Double.isNaN(norm)) {
+			normSum += norm;
+			normCount++;
+		}
+	}
+
+	@Override
+	public void onEpochEnd(TrainingEvent event) {
+		if (!needsGradientNorm() || normCount == 0)
+			return;
+		double mean = normSum / normCount;
+		normSum = 0;
+		normCount = 0;
+		check(mean, event);
+	}
+
+	@Override
+	public void onEvaluation(TrainingEvent event) {
+		if (needsGradientNorm())
+			return;
+		double value = event.getMetric(metric);
+		if (!Double.isNaN(value))
+			check(value, event);
+	}
+
+	private synchronized void check(double value, TrainingEvent event) {
+
+		if (stopped)
+			return;
+
+		double sign = maximize ? -1 : 1;
+		double threshold = Double.isInfinite(best) ? 0 : Math.max(minDelta, relativeTolerance * Math.abs(best));
+
+		if (sign * (best - value) > threshold) {
+			best = value;
+			bestEpoch = event.getEpoch();
+			bestStep = event.getStep();
+			checksWithoutImprovement = 0;
+			if (restoreBest)
+				bestSnapshot = event.getSnapshot();
+		} else {
+			checksWithoutImprovement++;
+		}
+
+		boolean reached = !Double.isNaN(stopValue) && sign * (stopValue - value) >= 0;
+
+		if (reached || checksWithoutImprovement >= patience) {
+			stopped = true;
+			stoppedEpoch = event.getEpoch();
+			stoppedStep = event.getStep();
+			event.requestStop();
+		}
+	}
+
+	@Override
+	public synchronized void onTrainEnd(TrainingEvent event) {
+
+		if (stopped) {
+			// The run ends at the step where the stop was noticed, which is after stoppedStep with background evaluation
+			long stepsRun = event.getStep();
+			long stepsPlanned = (long) (event.getEpochs() - firstEpoch + 1) * event.getBatchesPerEpoch();
+			long stepsSaved = Math.max(0, stepsPlanned - stepsRun);
+
+			epochsSaved = (double) stepsSaved / event.getBatchesPerEpoch();
+			timeSavedNanos = stepsRun == 0 ? 0 : (long) ((double) event.getElapsedNanos() / stepsRun * stepsSaved);
+		}
+
+		// A run that ends without running out of patience may still have peaked earlier
+		if (restoreBest && bestSnapshot != null) {
+			bestSnapshot.restore();
+			restored = true;
+		}
+	}
+
+	public String getMetric() {
+		return metric;
+	}
+
+	/**
+	 * @return boolean - whether the last run was ended by this callback
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * @return boolean - whether the best parameters were written back into the model at the end of the last run
+	 */
+	public boolean isRestored() {
+		return restored;
+	}
+
+	/**
+	 * @return double - the best value of the metric seen in the last run
+	 */
+	public double getBest() {
+		return best;
+	}
+
+	public int getBestEpoch() {
+		return bestEpoch;
+	}
+
+	public long getBestStep() {
+		return bestStep;
+	}
+
+	public int getStoppedEpoch() {
+		return stoppedEpoch;
+	}
+
+	public long getStoppedStep() {
+		return stoppedStep;
+	}
+
+	/**
+	 * @return double - the epochs left unrun, fractional when training stopped inside an epoch
+	 */
+	public double getEpochsSaved() {
+		return epochsSaved;
+	}
+
+	/**
+	 * @return long - the wall time the unrun steps would have taken at the run's average time per step
+	 */
+	public long getTimeSavedNanos() {
+		return timeSavedNanos;
+	}
+
+	/**
+	 * @return String - one line describing the outcome of the last run
+	 */
+	public String report() {
+		if (!stopped)
+			return "Early stopping: ran to completion, best " + metric + " " + best + " at epoch " + bestEpoch + (restored ? " (restored)" : "");
+		return String.format("Early stopping: stopped at epoch %d (step %d), best %s %s at epoch %d%s, saved %.2f epochs / %.1f s",
+				stoppedEpoch, stoppedStep, metric, best, bestEpoch, restored ? " (restored)" : "", epochsSaved, timeSavedNanos / 1e9);
+	}
+}
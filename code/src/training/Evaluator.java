@@ -0,0 +1,16 @@
+package training;
+
+import java.util.Map;
+
+/**
+ * This interface computes a model's validation metrics, usually the loss over the testing data.
+ * Models hand one to TrainingCallbacks.begin so evaluations can be scheduled at the configured cadence.
+ */
+@FunctionalInterface
+public interface Evaluator {
+
+	/**
+	 * @return Map - the metrics by name in display order, e.g. "loss" then "accuracy"
+	 */
+	public Map<String, Double> evaluate();
+}
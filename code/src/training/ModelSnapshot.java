@@ -0,0 +1,14 @@
+package training;
+
+/**
+ * This interface is a frozen copy of a model's parameters, taken on the training thread between steps.
+ * It can evaluate the copy on the testing data while training continues, and write the copy back into the model.
+ */
+public interface ModelSnapshot extends Evaluator {
+
+	/**
+	 * Copies the frozen parameters back into the model they were taken from. Optimizer state is left as it is.
+	 * This must not be called while the model is taking a training step.
+	 */
+	public void restore();
+}
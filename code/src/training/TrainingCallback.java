@@ -0,0 +1,61 @@
+package training;
+
+/**
+ * This interface receives the progress of a model's train method, see TrainingCallbacks.
+ * Every method does nothing by default so a callback only overrides the hooks it needs.
+ * Callbacks run on the training thread unless they are added with TrainingCallbacks.addAsync,
+ * and onEvaluation runs on the evaluation thread when evaluation is asynchronous.
+ * Any hook can end training early through TrainingEvent.requestStop.
+ */
+public interface TrainingCallback {
+
+	/**
+	 * Called once before the first step.
+	 * @param event - the run's configuration, with step 0
+	 */
+	public default void onTrainBegin(TrainingEvent event) {
+	}
+
+	/**
+	 * Called before every training step.
+	 * @param event - the position of the step that is about to run
+	 */
+	public default void onStepBegin(TrainingEvent event) {
+	}
+
+	/**
+	 * Called after every training step.
+	 * @param event - the position of the finished step and its wall time
+	 */
+	public default void onStepEnd(TrainingEvent event) {
+	}
+
+	/**
+	 * Called after the last step of every epoch.
+	 * @param event - the position of the epoch's last step
+	 */
+	public default void onEpochEnd(TrainingEvent event) {
+	}
+
+	/**
+	 * Called with the validation metrics each time the testing data is evaluated, at the cadence set on TrainingCallbacks.
+	 * @param event - the position of the step the metrics were taken after, with the metrics
+	 */
+	public default void onEvaluation(TrainingEvent event) {
+	}
+
+	/**
+	 * Asks the train loop to compute the norm of every step's gradient, which costs an extra pass over the gradients.
+	 * @return boolean - whether onStepEnd events should carry TrainingRun.GRADIENT_NORM in their metrics
+	 */
+	public default boolean needsGradientNorm() {
+		return false;
+	}
+
+	/**
+	 * Called once after the last step and after every pending evaluation has been delivered.
+	 * @param event - the position of the last step and the total wall time
+	 */
+	public default void onTrainEnd(TrainingEvent event) {
+	}
+}
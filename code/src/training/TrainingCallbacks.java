@@ -0,0 +1,102 @@
+package training;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * This class holds the callbacks of a model and how often its testing data is evaluated during train.
+ * Every model has one, e.g. model.getCallbacks().addAsync(callback). The testing data is evaluated at the end of
+ * every evaluationEpochs-th epoch and of the last epoch, and additionally after every evaluationSteps-th step if that is set.
+ * Evaluation only happens while a callback is registered or train is called with verbose.
+ */
+public class TrainingCallbacks {
+
+	private final List<TrainingCallback> callbacks = new ArrayList<TrainingCallback>();
+
+	private int evaluationEpochs = 1;
+	private int evaluationSteps = 0;
+	private boolean asyncEvaluation = false;
+
+	/**
+	 * @param callback - called on the training thread
+	 */
+	public void add(TrainingCallback callback) {
+		if (callback == null)
+			throw new IllegalArgumentException("Callback must not be null");
+		callbacks.add(callback);
+	}
+
+	/**
+	 * Adds a callback that runs on its own thread, so slow logging never stalls training.
+	 * @param callback - called in order on a dedicated thread, see AsyncCallback
+	 * @return AsyncCallback - the wrapper that was registered, for remove and getDroppedSteps
+	 */
+	public AsyncCallback addAsync(TrainingCallback callback) {
+		AsyncCallback async = new AsyncCallback(callback);
+		callbacks.add(async);
+		return async;
+	}
+
+	public boolean remove(TrainingCallback callback) {
+		return callbacks.remove(callback);
+	}
+
+	public void clear() {
+		callbacks.clear();
+	}
+
+	/**
+	 * @param everyEpochs - evaluate after every this many epochs, 0 to only evaluate after the last epoch
+	 * @param everySteps - also evaluate after every this many steps, 0 to disable
+	 */
+	public void setEvaluationCadence(int everyEpochs, int everySteps) {
+		if (everyEpochs < 0 || everySteps < 0)
+			throw new IllegalArgumentException("Evaluation cadence must not be negative");
+		this.evaluationEpochs = everyEpochs;
+		this.evaluationSteps = everySteps;
+	}
+
+	/**
+	 * Makes train evaluate the testing data on a background thread against a frozen copy of the parameters,
+	 * while the training thread carries on. Models that cannot be copied still evaluate on the training thread.
+	 * @param async - whether evaluation runs in the background
+	 */
+	public void setAsyncEvaluation(boolean async) {
+		this.asyncEvaluation = async;
+	}
+
+	public int getEvaluationEpochs() {
+		return evaluationEpochs;
+	}
+
+	public int getEvaluationSteps() {
+		return evaluationSteps;
+	}
+
+	public boolean isAsyncEvaluation() {
+		return asyncEvaluation;
+	}
+
+	/**
+	 * Starts dispatching a training run to the callbacks. This is called by the models' train methods.
+	 * @param model - the name of the model being trained
+	 * @param firstEpoch - the epoch the run starts in, above 1 when resuming from a checkpoint
+	 * @param epochs - the last epoch of the run
+	 * @param batchesPerEpoch - the number of steps per epoch
+	 * @param verbose - whether a ConsoleCallback is added for this run
+	 * @param evaluator - evaluates the live model on the testing data, null if there is no testing data
+	 * @param snapshot - freezes a copy of the model's parameters, null if the model cannot be copied
+	 * @return TrainingRun - the dispatcher to report the run's steps to, close it when training ends
+	 */
+	public TrainingRun begin(String model, int firstEpoch, int epochs, int batchesPerEpoch, boolean verbose,
+			Evaluator evaluator, Supplier<ModelSnapshot> snapshot) {
+
+		List<TrainingCallback> run = new ArrayList<TrainingCallback>(callbacks);
+		if (verbose)
+			run.add(new ConsoleCallback());
+
+		return new TrainingRun(model, firstEpoch, epochs, batchesPerEpoch, run.toArray(new TrainingCallback[0]),
+				evaluator, snapshot, asyncEvaluation, evaluationEpochs, evaluationSteps);
+	}
+}
@@ -0,0 +1,143 @@
+package training;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * This class is the immutable description of a point in a training run that is handed to TrainingCallbacks.
+ * Steps are counted from 1 over the whole run and batches from 1 within each epoch.
+ */
+public class TrainingEvent {
+
+	private final String model;
+	private final int epoch;
+	private final int epochs;
+	private final long step;
+	private final int batch;
+	private final int batchesPerEpoch;
+	private final int batchSize;
+	private final long stepNanos;
+	private final long elapsedNanos;
+	private final Map<String, Double> metrics;
+
+	private final TrainingRun run;
+	private final Supplier<ModelSnapshot> snapshot;
+
+	TrainingEvent(TrainingRun run, String model, int epoch, int epochs, long step, int batch, int batchesPerEpoch, int batchSize,
+			long stepNanos, long elapsedNanos, Map<String, Double> metrics, Supplier<ModelSnapshot> snapshot) {
+		this.model = model;
+		this.epoch = epoch;
+		this.epochs = epochs;
+		this.step = step;
+		this.batch = batch;
+		this.batchesPerEpoch = batchesPerEpoch;
+		this.batchSize = batchSize;
+		this.stepNanos = stepNanos;
+		this.elapsedNanos = elapsedNanos;
+		this.metrics = metrics;
+		this.run = run;
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * @return String - the simple class name of the model being trained
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	public int getEpoch() {
+		return epoch;
+	}
+
+	/**
+	 * @return int - the last epoch the run trains for
+	 */
+	public int getEpochs() {
+		return epochs;
+	}
+
+	public long getStep() {
+		return step;
+	}
+
+	public int getBatch() {
+		return batch;
+	}
+
+	public int getBatchesPerEpoch() {
+		return batchesPerEpoch;
+	}
+
+	/**
+	 * @return boolean - whether the event is positioned after the last batch of its epoch
+	 */
+	public boolean isEpochEnd() {
+		return batch >= batchesPerEpoch;
+	}
+
+	/**
+	 * @return int - the number of samples in the step, 0 for events that are not about a step
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return long - the wall time of the step in onStepEnd, 0 in every other hook
+	 */
+	public long getStepNanos() {
+		return stepNanos;
+	}
+
+	/**
+	 * @return long - the wall time since the run began
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return Map - the validation metrics by name in onEvaluation, e.g. "loss" and "accuracy", empty in every other hook
+	 */
+	public Map<String, Double> getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @param name - the name of the metric
+	 * @return double - the metric's value, NaN if the event does not have it
+	 */
+	public double getMetric(String name) {
+		Double value = metrics.get(name);
+		return value == null ? Double.NaN : value;
+	}
+
+	/**
+	 * Asks the model to end training after the current step. The run still closes normally, calling onTrainEnd.
+	 * This may be called from any thread.
+	 */
+	public void requestStop() {
+		run.requestStop();
+	}
+
+	/**
+	 * Gives access to the parameters the metrics of an evaluation were measured on, or those at the end of the epoch in
+	 * onEpochEnd. With background evaluation this is the copy that was evaluated. Otherwise the copy is taken on the first
+	 * call, which is only correct while the hook runs on the training thread, so callbacks that use it must not be added with addAsync.
+	 * @return ModelSnapshot - the evaluated parameters, null outside of onEvaluation and onEpochEnd or if the model cannot be copied
+	 */
+	public ModelSnapshot getSnapshot() {
+		return snapshot == null ? null : snapshot.get();
+	}
+
+	static Map<String, Double> noMetrics() {
+		return Collections.emptyMap();
+	}
+
+	@Override
+	public String toString() {
+		return model + " epoch " + epoch + "/" + epochs + " step " + step + " batch " + batch + "/" + batchesPerEpoch + " " + metrics;
+	}
+}
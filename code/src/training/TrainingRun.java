@@ -0,0 +1,256 @@
+package training;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * This class dispatches the steps of one call to train to the registered callbacks and schedules evaluations.
+ * Without callbacks every method returns on its first branch, so an unobserved train loop pays no timing or allocation.
+ * Runs are closed with try-with-resources, which waits for background evaluations and calls onTrainEnd.
+ * Train loops check isStopRequested after every step so callbacks such as EarlyStopping can end training early.
+ */
+public class TrainingRun implements AutoCloseable {
+
+	public static final String GRADIENT_NORM = "grad_norm";
+
+	private final String model;
+	private final int epochs;
+	private final int batchesPerEpoch;
+	private final TrainingCallback[] callbacks;
+	private final boolean active;
+	private final boolean gradientNormNeeded;
+
+	private final Evaluator evaluator;
+	private final Supplier<ModelSnapshot> snapshot;
+	private final int evaluationEpochs;
+	private final int evaluationSteps;
+
+	private final ExecutorService evaluations;
+	private final List<Future<?>> pending = new ArrayList<Future<?>>();
+
+	private volatile boolean stopRequested;
+
+	private final long start;
+	private long step;
+	private int epoch;
+	private int batch;
+	private int batchSize;
+	private long stepStart;
+	private long lastEvaluatedStep = -1;
+
+	TrainingRun(String model, int firstEpoch, int epochs, int batchesPerEpoch, TrainingCallback[] callbacks,
+			Evaluator evaluator, Supplier<ModelSnapshot> snapshot, boolean asyncEvaluation, int evaluationEpochs, int evaluationSteps) {
+
+		this.model = model;
+		this.epochs = epochs;
+		this.batchesPerEpoch = batchesPerEpoch;
+		this.callbacks = callbacks;
+		this.active = callbacks.length > 0;
+
+		boolean gradientNorm = false;
+		for (TrainingCallback callback : callbacks)
+			gradientNorm |= callback.needsGradientNorm();
+		this.gradientNormNeeded = gradientNorm;
+
+		this.evaluator = evaluator;
+		this.snapshot = snapshot;
+		this.evaluationEpochs = evaluationEpochs;
+		this.evaluationSteps = evaluationSteps;
+
+		this.evaluations = active && asyncEvaluation && evaluator != null && snapshot != null ? Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, model + "-evaluation");
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
+
+		this.start = System.nanoTime();
+		this.epoch = firstEpoch;
+
+		if (active) {
+			TrainingEvent event = event(0, TrainingEvent.noMetrics());
+			for (TrainingCallback callback : callbacks)
+				callback.onTrainBegin(event);
+		}
+	}
+
+	/**
+	 * @return boolean - whether any callback observes the run
+	 */
+	public boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * @return boolean - whether a callback wants the norm of every step's gradient, passed to stepEnd(double)
+	 */
+	public boolean isGradientNormNeeded() {
+		return gradientNormNeeded;
+	}
+
+	/**
+	 * Asks the train loop to stop after the current step, see TrainingEvent.requestStop.
+	 */
+	public void requestStop() {
+		stopRequested = true;
+	}
+
+	/**
+	 * @return boolean - whether a callback asked training to end
+	 */
+	public boolean isStopRequested() {
+		return stopRequested;
+	}
+
+	/**
+	 * @param epoch - the current epoch
+	 * @param batch - the batch within the epoch, counted from 1
+	 * @param batchSize - the number of samples in the batch
+	 */
+	public void stepBegin(int epoch, int batch, int batchSize) {
+		if (!active)
+			return;
+
+		this.step++;
+		this.epoch = epoch;
+		this.batch = batch;
+		this.batchSize = batchSize;
+
+		TrainingEvent event = event(0, TrainingEvent.noMetrics());
+		for (TrainingCallback callback : callbacks)
+			callback.onStepBegin(event);
+
+		this.stepStart = System.nanoTime();
+	}
+
+	public void stepEnd() {
+		stepEnd(Double.NaN);
+	}
+
+	/**
+	 * @param gradientNorm - the L2 norm of the step's mean gradient over all parameters, NaN if it was not computed
+	 */
+	public void stepEnd(double gradientNorm) {
+		if (!active)
+			return;
+
+		long stepNanos = System.nanoTime() - stepStart;
+		TrainingEvent event = event(stepNanos, Double.isNaN(gradientNorm) ? TrainingEvent.noMetrics() : Map.of(GRADIENT_NORM, gradientNorm));
+		for (TrainingCallback callback : callbacks)
+			callback.onStepEnd(event);
+
+		if (evaluationSteps > 0 && step % evaluationSteps == 0)
+			evaluate();
+	}
+
+	/**
+	 * @param epoch - the epoch that just finished
+	 */
+	public void epochEnd(int epoch) {
+		if (!active)
+			return;
+
+		this.epoch = epoch;
+		this.batch = batchesPerEpoch;
+
+		// Callbacks that judge the epoch, e.g. EarlyStopping on the gradient norm, may keep its parameters
+		TrainingEvent event = new TrainingEvent(this, model, epoch, epochs, step, batch, batchesPerEpoch, 0, 0, System.nanoTime() - start,
+				TrainingEvent.noMetrics(), this.lazySnapshot());
+		for (TrainingCallback callback : callbacks)
+			callback.onEpochEnd(event);
+
+		if (epoch == epochs || (evaluationEpochs > 0 && epoch % evaluationEpochs == 0))
+			evaluate();
+	}
+
+	private void evaluate() {
+		if (evaluator == null || step == lastEvaluatedStep)
+			return;
+		lastEvaluatedStep = step;
+
+		if (evaluations == null) {
+			deliver(new TrainingEvent(this, model, epoch, epochs, step, batch, batchesPerEpoch, 0, 0, System.nanoTime() - start, evaluator.evaluate(), this.lazySnapshot()));
+			return;
+		}
+
+		ModelSnapshot frozen = snapshot.get();
+		int epoch = this.epoch;
+		int batch = this.batch;
+		long step = this.step;
+
+		collectFinished();
+		pending.add(evaluations.submit(() -> {
+			Map<String, Double> metrics = frozen.evaluate();
+			deliver(new TrainingEvent(this, model, epoch, epochs, step, batch, batchesPerEpoch, 0, 0, System.nanoTime() - start, metrics, () -> frozen));
+		}));
+	}
+
+	/**
+	 * @return Supplier - takes a snapshot of the live parameters on the first call only, null if the model cannot be copied
+	 */
+	private Supplier<ModelSnapshot> lazySnapshot() {
+		return snapshot == null ? null : new Supplier<ModelSnapshot>() {
+			private ModelSnapshot taken;
+			public ModelSnapshot get() {
+				if (taken == null)
+					taken = snapshot.get();
+				return taken;
+			}
+		};
+	}
+
+	private void deliver(TrainingEvent event) {
+		for (TrainingCallback callback : callbacks)
+			callback.onEvaluation(event);
+	}
+
+	/**
+	 * Drops finished evaluations, rethrowing the failure of any that threw.
+	 */
+	private void collectFinished() {
+		for (int i = pending.size() - 1; i >= 0; i--) {
+			if (pending.get(i).isDone())
+				await(pending.remove(i));
+		}
+	}
+
+	private static void await(Future<?> future) {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Evaluation failed", e.getCause());
+		}
+	}
+
+	private TrainingEvent event(long stepNanos, Map<String, Double> metrics) {
+		return new TrainingEvent(this, model, epoch, epochs, step, batch, batchesPerEpoch, batchSize, stepNanos, System.nanoTime() - start, metrics, null);
+	}
+
+	/**
+	 * Waits for the background evaluations, then calls onTrainEnd.
+	 */
+	@Override
+	public void close() {
+		if (!active)
+			return;
+
+		try {
+			for (Future<?> future : pending)
+				await(future);
+		} finally {
+			if (evaluations != null)
+				evaluations.shutdownNow();
+
+			TrainingEvent event = new TrainingEvent(this, model, epoch, epochs, step, batch, batchesPerEpoch, 0, 0, System.nanoTime() - start, TrainingEvent.noMetrics(), null);
+			for (TrainingCallback callback : callbacks)
+				callback.onTrainEnd(event);
+		}
+	}
+}
@@ -0,0 +1,336 @@
+package tuning;
+
+import interfaces.Model;
+import interfaces.Monitored;
+import math.CounterRandom;
+import math.RandomSource;
+import training.TrainingCallback;
+import training.TrainingCallbacks;
+import training.TrainingEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class trains one model per set of hyperparameters, many at once in this JVM, and ranks them by validation loss.
+ * Trials are run on a fixed pool of threads in the order they were created. Every trial trains on the same training and
+ * validation arrays, which the models only read, so the dataset is loaded once however many trials there are.
+ *
+ * Every trial evaluates the validation data after each epoch through its model's TrainingCallbacks, and the Pruning
+ * rule compares that loss with the other trials' to end losing trials through TrainingEvent.requestStop, which frees
+ * their thread for the next trial. Grid and random search use the pruning set with setPruning, successive halving
+ * always prunes with SUCCESSIVE_HALVING.
+ * @param <D> - the training sample type
+ */
+public class HyperparameterSearch<D> {
+
+	private final TrialFactory<D> factory;
+	private final D[] training;
+	private final D[] validation;
+	private final int threads;
+
+	private Pruning pruning = Pruning.NONE;
+	private int warmupEpochs = 1;
+	private int reductionFactor = 3;
+
+	// Statistics of the last search
+	private String lastSearch;
+	private int trials;
+	private int completed;
+	private int pruned;
+	private int failed;
+	private long epochsTrained;
+	private long epochsBudget;
+	private long nanos;
+
+	/**
+	 * @param factory - builds the model of every trial
+	 * @param training - the samples every trial trains on, shared and never modified
+	 * @param validation - the samples every trial is evaluated on after each epoch, shared and never modified
+	 * @param threads - the number of trials trained at once
+	 */
+	public HyperparameterSearch(TrialFactory<D> factory, D[] training, D[] validation, int threads) {
+		if (validation == null || validation.length == 0)
+			throw new IllegalArgumentException("A search needs validation data");
+		if (threads < 1)
+			throw new IllegalArgumentException("A search needs at least one thread");
+		this.factory = factory;
+		this.training = training;
+		this.validation = validation;
+		this.threads = threads;
+	}
+
+	/**
+	 * @param pruning - how grid and random search end losing trials early, NONE by default
+	 * @param warmupEpochs - the epochs every trial runs before it can be pruned, the first rung for SUCCESSIVE_HALVING
+	 */
+	public void setPruning(Pruning pruning, int warmupEpochs) {
+		if (warmupEpochs < 1)
+			throw new IllegalArgumentException("Warm up must be at least 1 epoch");
+		this.pruning = pruning;
+		this.warmupEpochs = warmupEpochs;
+	}
+
+	/**
+	 * @param reductionFactor - eta of successive halving, the factor between rungs and the inverse of the fraction that
+	 * passes each of them, 3 by default
+	 */
+	public void setReductionFactor(int reductionFactor) {
+		if (reductionFactor < 2)
+			throw new IllegalArgumentException("Reduction factor must be at least 2");
+		this.reductionFactor = reductionFactor;
+	}
+
+	/**
+	 * Trains every combination of the space's choices.
+	 * @param space - a space of choices only
+	 * @param epochs - the epochs every trial trains for unless it is pruned
+	 * @return List - the trials, completed ones first, each group by ascending final loss
+	 * @throws InterruptedException - if the thread is interrupted while the trials run, which cancels the rest
+	 */
+	public List<Trial<D>> grid(SearchSpace space, int epochs) throws InterruptedException {
+		return run("grid", space.grid(), epochs, pruning, warmupEpochs);
+	}
+
+	/**
+	 * Trains the given number of sets drawn from the space.
+	 * @param space - the space to draw from
+	 * @param count - the number of trials
+	 * @param epochs - the epochs every trial trains for unless it is pruned
+	 * @param seed - the seed of the draws, the same seed gives the same trials
+	 * @return List - the trials, completed ones first, each group by ascending final loss
+	 * @throws InterruptedException - if the thread is interrupted while the trials run, which cancels the rest
+	 */
+	public List<Trial<D>> random(SearchSpace space, int count, int epochs, long seed) throws InterruptedException {
+		return run("random", sample(space, count, seed), epochs, pruning, warmupEpochs);
+	}
+
+	/**
+	 * Trains the given number of sets drawn from the space with successive halving, so only about count / eta^k
+	 * trials train past minEpochs * eta^k epochs and the best ones reach maxEpochs.
+	 * @param space - the space to draw from
+	 * @param count - the number of trials
+	 * @param minEpochs - the epochs of the first rung, which every trial runs
+	 * @param maxEpochs - the epochs the surviving trials train for
+	 * @param seed - the seed of the draws, the same seed gives the same trials
+	 * @return List - the trials, completed ones first, each group by ascending final loss
+	 * @throws InterruptedException - if the thread is interrupted while the trials run, which cancels the rest
+	 */
+	public List<Trial<D>> successiveHalving(SearchSpace space, int count, int minEpochs, int maxEpochs, long seed) throws InterruptedException {
+		if (minEpochs < 1 || minEpochs > maxEpochs)
+			throw new IllegalArgumentException("Successive halving needs 1 <= minEpochs <= maxEpochs");
+		return run("successive halving", sample(space, count, seed), maxEpochs, Pruning.SUCCESSIVE_HALVING, minEpochs);
+	}
+
+	/**
+	 * Trains the given sets with the pruning set with setPruning.
+	 * @param sets - the hyperparameters of every trial
+	 * @param epochs - the epochs every trial trains for unless it is pruned
+	 * @return List - the trials, completed ones first, each group by ascending final loss
+	 * @throws InterruptedException - if the thread is interrupted while the trials run, which cancels the rest
+	 */
+	public List<Trial<D>> run(List<Hyperparameters> sets, int epochs) throws InterruptedException {
+		return run("custom", sets, epochs, pruning, warmupEpochs);
+	}
+
+	private static List<Hyperparameters> sample(SearchSpace space, int count, long seed) {
+		RandomSource random = new CounterRandom(seed);
+		List<Hyperparameters> sets = new ArrayList<Hyperparameters>(count);
+		for (int i = 0; i < count; i++)
+			sets.add(space.sample(random, i));
+		return sets;
+	}
+
+	private List<Trial<D>> run(String name, List<Hyperparameters> sets, int epochs, Pruning pruning, int warmup) throws InterruptedException {
+
+		if (epochs < 1)
+			throw new IllegalArgumentException("Trials must train for at least 1 epoch");
+
+		Rungs rungs = new Rungs(pruning, warmup, reductionFactor, epochs);
+		List<Trial<D>> trials = new ArrayList<Trial<D>>(sets.size());
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(sets.size());
+		for (Hyperparameters set : sets) {
+			Trial<D> trial = new Trial<D>(trials.size(), set);
+			trials.add(trial);
+			tasks.add(() -> {
+				this.train(trial, epochs, rungs);
+				return null;
+			});
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "hyperparameter-search");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		long start = System.nanoTime();
+		try {
+			// Trials catch their own failures, so every future completes normally
+			pool.invokeAll(tasks);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		this.lastSearch = name;
+		this.nanos = System.nanoTime() - start;
+		this.trials = trials.size();
+		this.completed = 0;
+		this.pruned = 0;
+		this.failed = 0;
+		this.epochsTrained = 0;
+		this.epochsBudget = (long) epochs * trials.size();
+		for (Trial<D> trial : trials) {
+			completed += trial.getStatus() == Trial.Status.COMPLETED ? 1 : 0;
+			pruned += trial.getStatus() == Trial.Status.PRUNED ? 1 : 0;
+			failed += trial.getStatus() == Trial.Status.FAILED ? 1 : 0;
+			epochsTrained += trial.getEpochs();
+		}
+
+		List<Trial<D>> ranked = new ArrayList<Trial<D>>(trials);
+		ranked.sort(Comparator.<Trial<D>, Trial.Status>comparing(trial -> trial.getStatus())
+				.thenComparingDouble(trial -> Double.isNaN(trial.getLoss()) ? Double.POSITIVE_INFINITY : trial.getLoss()));
+		return ranked;
+	}
+
+	/**
+	 * Trains one trial on the calling pool thread, recording every epoch's validation loss.
+	 */
+	private void train(Trial<D> trial, int epochs, Rungs rungs) {
+
+		Hyperparameters hyperparameters = trial.getHyperparameters();
+		Watcher watcher = new Watcher(trial, rungs);
+		TrainingCallbacks callbacks = null;
+		long start = System.nanoTime();
+
+		try {
+			Model<?, ?, D> model = factory.create(hyperparameters);
+			if (!(model instanceof Monitored))
+				throw new IllegalArgumentException(model.getClass().getSimpleName() + " does not report its training to callbacks");
+			trial.start(model);
+
+			callbacks = ((Monitored) model).getCallbacks();
+			callbacks.setEvaluationCadence(1, 0);
+			callbacks.setAsyncEvaluation(false);
+			callbacks.add(watcher);
+
+			model.train(training, validation, hyperparameters.getBatchSize(), hyperparameters.getLearningRate(), epochs, false);
+			trial.finish(watcher.pruned ? Trial.Status.PRUNED : Trial.Status.COMPLETED, System.nanoTime() - start, null);
+
+		} catch (RuntimeException e) {
+			trial.finish(Trial.Status.FAILED, System.nanoTime() - start, e);
+		} finally {
+			if (callbacks != null)
+				callbacks.remove(watcher);
+		}
+	}
+
+	/**
+	 * Reports a trial's validation loss after each epoch and stops the trial when the pruning rule says so.
+	 */
+	private static class Watcher implements TrainingCallback {
+
+		private final Trial<?> trial;
+		private final Rungs rungs;
+		boolean pruned;
+
+		Watcher(Trial<?> trial, Rungs rungs) {
+			this.trial = trial;
+			this.rungs = rungs;
+		}
+
+		@Override
+		public void onEvaluation(TrainingEvent event) {
+			double loss = event.getMetric("loss");
+			trial.report(event.getEpoch(), loss);
+			if (!pruned && rungs.prune(event.getEpoch(), loss)) {
+				pruned = true;
+				event.requestStop();
+			}
+		}
+	}
+
+	/**
+	 * The losses every trial reported after each epoch, shared by the trials of one search.
+	 */
+	private static class Rungs {
+
+		private final Pruning pruning;
+		private final int warmup;
+		private final int eta;
+		private final int epochs;
+		private final Map<Integer, List<Double>> reports = new HashMap<Integer, List<Double>>();
+
+		Rungs(Pruning pruning, int warmup, int eta, int epochs) {
+			this.pruning = pruning;
+			this.warmup = warmup;
+			this.eta = eta;
+			this.epochs = epochs;
+		}
+
+		/**
+		 * @return boolean - whether the trial that reported the loss after the epoch should stop
+		 */
+		synchronized boolean prune(int epoch, double loss) {
+
+			if (pruning == Pruning.NONE)
+				return false;
+
+			List<Double> others = reports.computeIfAbsent(epoch, key -> new ArrayList<Double>());
+			double[] earlier = new double[others.size()];
+			for (int i = 0; i < earlier.length; i++)
+				earlier[i] = others.get(i);
+			others.add(Double.isFinite(loss) ? loss : Double.POSITIVE_INFINITY);
+
+			// The last epoch ends the trial anyway, and one that diverged is never worth finishing
+			if (epoch >= epochs)
+				return false;
+			if (!Double.isFinite(loss))
+				return true;
+			if (epoch < warmup)
+				return false;
+
+			if (pruning == Pruning.MEDIAN) {
+				if (earlier.length < Pruning.MEDIAN_MIN_REPORTS)
+					return false;
+				Arrays.sort(earlier);
+				int middle = earlier.length / 2;
+				double median = earlier.length % 2 == 1 ? earlier[middle] : (earlier[middle - 1] + earlier[middle]) / 2;
+				return loss > median;
+			}
+
+			if (!isRung(epoch) || others.size() < eta)
+				return false;
+			int better = 0;
+			for (double other : earlier)
+				better += other < loss ? 1 : 0;
+			return better >= Math.max(1, others.size() / eta);
+		}
+
+		private boolean isRung(int epoch) {
+			long rung = warmup;
+			while (rung < epoch)
+				rung *= eta;
+			return rung == epoch;
+		}
+	}
+
+	/**
+	 * @return String - one line with the outcome of the last search, or a note that none ran
+	 */
+	@Override
+	public String toString() {
+		if (lastSearch == null)
+			return "No search has run";
+		return String.format("%s: %d trials, %d completed, %d pruned, %d failed, %d of %d epochs trained (%.0f%% saved), %.2f s on %d threads",
+				lastSearch, trials, completed, pruned, failed, epochsTrained, epochsBudget,
+				epochsBudget == 0 ? 0 : 100.0 * (epochsBudget - epochsTrained) / epochsBudget, nanos / 1e9, threads);
+	}
+}
@@ -0,0 +1,74 @@
+package tuning;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class is the immutable set of values one trial of a HyperparameterSearch is trained with, by name.
+ * Every set holds BATCH_SIZE and LEARNING_RATE, which are passed to train, anything else such as layer widths
+ * is read by the TrialFactory that builds the model.
+ */
+public class Hyperparameters {
+
+	public static final String BATCH_SIZE = "batchSize";
+	public static final String LEARNING_RATE = "learningRate";
+
+	private final Map<String, Double> values;
+
+	/**
+	 * @param values - the value of every hyperparameter by name, copied
+	 */
+	public Hyperparameters(Map<String, Double> values) {
+		if (!values.containsKey(BATCH_SIZE) || !values.containsKey(LEARNING_RATE))
+			throw new IllegalArgumentException("Hyperparameters need a " + BATCH_SIZE + " and a " + LEARNING_RATE);
+		this.values = Collections.unmodifiableMap(new LinkedHashMap<String, Double>(values));
+	}
+
+	/**
+	 * @param name - the name of the hyperparameter
+	 * @return double - its value
+	 */
+	public double get(String name) {
+		Double value = values.get(name);
+		if (value == null)
+			throw new IllegalArgumentException("No hyperparameter named " + name);
+		return value;
+	}
+
+	/**
+	 * @param name - the name of the hyperparameter
+	 * @return int - its value rounded to the nearest integer, e.g. for layer widths
+	 */
+	public int getInt(String name) {
+		return (int) Math.round(get(name));
+	}
+
+	public int getBatchSize() {
+		return getInt(BATCH_SIZE);
+	}
+
+	public double getLearningRate() {
+		return get(LEARNING_RATE);
+	}
+
+	/**
+	 * @return Map - every value by name, in the order the search space declares them
+	 */
+	public Map<String, Double> getValues() {
+		return values;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		for (Map.Entry<String, Double> entry : values.entrySet()) {
+			if (builder.length() > 1)
+				builder.append(", ");
+			double value = entry.getValue();
+			builder.append(entry.getKey()).append('=');
+			builder.append(value == Math.rint(value) && Math.abs(value) < 1e9 ? String.valueOf((long) value) : String.format("%.3g", value));
+		}
+		return builder.append('}').toString();
+	}
+}
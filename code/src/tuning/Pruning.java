@@ -0,0 +1,32 @@
+package tuning;
+
+/**
+ * This enum selects how a HyperparameterSearch ends losing trials early, from the validation loss every trial reports
+ * after each epoch. A trial whose loss is not finite is always pruned unless pruning is NONE.
+ */
+public enum Pruning {
+
+	/**
+	 * Every trial trains for the whole budget.
+	 */
+	NONE,
+
+	/**
+	 * After the warm up epochs, a trial stops as soon as its loss is worse than the median loss other trials had
+	 * after the same epoch, once at least MEDIAN_MIN_REPORTS of them got there.
+	 */
+	MEDIAN,
+
+	/**
+	 * Successive halving: the epochs warmup, warmup * eta, warmup * eta^2 ... are rungs, and a trial that reaches a rung
+	 * only carries on if its loss is in the best 1 / eta of the losses every trial had at that rung so far.
+	 * Trials are judged as they arrive instead of waiting for a full rung, so the pool never idles, which is the
+	 * asynchronous form of the algorithm. Until eta trials reached a rung every trial passes it.
+	 */
+	SUCCESSIVE_HALVING;
+
+	/**
+	 * The number of other trials that must have reached an epoch before MEDIAN compares against them.
+	 */
+	public static final int MEDIAN_MIN_REPORTS = 3;
+}
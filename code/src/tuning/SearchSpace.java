@@ -0,0 +1,153 @@
+package tuning;
+
+import math.RandomSource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class describes the values each hyperparameter can take, either a list of choices or a range.
+ * Grid search enumerates every combination of choices, random search draws every dimension independently
+ * from a counter based stream, so trial i of a seed is always the same set no matter how the trials are scheduled.
+ */
+public class SearchSpace {
+
+	private enum Kind {
+		CHOICE, UNIFORM, LOG_UNIFORM, INTEGER
+	}
+
+	private static class Dimension {
+		final String name;
+		final Kind kind;
+		final double[] choices;
+		final double min;
+		final double max;
+
+		Dimension(String name, Kind kind, double[] choices, double min, double max) {
+			this.name = name;
+			this.kind = kind;
+			this.choices = choices;
+			this.min = min;
+			this.max = max;
+		}
+
+		double sample(double u) {
+			switch (kind) {
+			case CHOICE:
+				return choices[Math.min(choices.length - 1, (int) (u * choices.length))];
+			case UNIFORM:
+				return min + u * (max - min);
+			case LOG_UNIFORM:
+				return Math.exp(Math.log(min) + u * (Math.log(max) - Math.log(min)));
+			default:
+				return Math.min(max, Math.floor(min + u * (max - min + 1)));
+			}
+		}
+	}
+
+	private final List<Dimension> dimensions = new ArrayList<Dimension>();
+
+	/**
+	 * @param name - the name of the hyperparameter
+	 * @param values - the values it can take, tried in this order by grid search
+	 */
+	public void addChoice(String name, double... values) {
+		if (values.length == 0)
+			throw new IllegalArgumentException("A choice needs at least one value");
+		add(new Dimension(name, Kind.CHOICE, values.clone(), 0, 0));
+	}
+
+	/**
+	 * @param name - the name of the hyperparameter
+	 * @param min - the smallest value
+	 * @param max - the largest value
+	 */
+	public void addUniform(String name, double min, double max) {
+		checkRange(min, max);
+		add(new Dimension(name, Kind.UNIFORM, null, min, max));
+	}
+
+	/**
+	 * Draws values whose logarithm is uniform, the usual choice for learning rates.
+	 * @param name - the name of the hyperparameter
+	 * @param min - the smallest value, above 0
+	 * @param max - the largest value
+	 */
+	public void addLogUniform(String name, double min, double max) {
+		checkRange(min, max);
+		if (min <= 0)
+			throw new IllegalArgumentException("A log uniform range must be positive");
+		add(new Dimension(name, Kind.LOG_UNIFORM, null, min, max));
+	}
+
+	/**
+	 * @param name - the name of the hyperparameter
+	 * @param min - the smallest integer
+	 * @param max - the largest integer, inclusive
+	 */
+	public void addInteger(String name, int min, int max) {
+		checkRange(min, max);
+		add(new Dimension(name, Kind.INTEGER, null, min, max));
+	}
+
+	private static void checkRange(double min, double max) {
+		if (!(min <= max))
+			throw new IllegalArgumentException("A range needs min <= max");
+	}
+
+	private void add(Dimension dimension) {
+		for (Dimension existing : dimensions) {
+			if (existing.name.equals(dimension.name))
+				throw new IllegalArgumentException("Hyperparameter " + dimension.name + " is already in the space");
+		}
+		dimensions.add(dimension);
+	}
+
+	/**
+	 * @return List - every combination of choices, the last dimension changing fastest
+	 */
+	public List<Hyperparameters> grid() {
+
+		long size = 1;
+		for (Dimension dimension : dimensions) {
+			if (dimension.kind != Kind.CHOICE)
+				throw new IllegalArgumentException("Grid search needs every hyperparameter to be a choice, " + dimension.name + " is a range");
+			size *= dimension.choices.length;
+		}
+		if (size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The grid has " + size + " combinations");
+
+		List<Hyperparameters> grid = new ArrayList<Hyperparameters>((int) size);
+		int[] position = new int[dimensions.size()];
+		for (long i = 0; i < size; i++) {
+			long rest = i;
+			for (int d = dimensions.size() - 1; d >= 0; d--) {
+				int choices = dimensions.get(d).choices.length;
+				position[d] = (int) (rest % choices);
+				rest /= choices;
+			}
+
+			Map<String, Double> values = new LinkedHashMap<String, Double>();
+			for (int d = 0; d < dimensions.size(); d++)
+				values.put(dimensions.get(d).name, dimensions.get(d).choices[position[d]]);
+			grid.add(new Hyperparameters(values));
+		}
+		return grid;
+	}
+
+	/**
+	 * @param random - the stream the values are drawn from
+	 * @param trial - the index of the trial, every index gives an independent draw
+	 * @return Hyperparameters - one value for every dimension
+	 */
+	public Hyperparameters sample(RandomSource random, long trial) {
+		Map<String, Double> values = new LinkedHashMap<String, Double>();
+		for (int d = 0; d < dimensions.size(); d++) {
+			Dimension dimension = dimensions.get(d);
+			values.put(dimension.name, dimension.sample(random.uniform(trial * dimensions.size() + d)));
+		}
+		return new Hyperparameters(values);
+	}
+}
@@ -0,0 +1,140 @@
+package tuning;
+
+import interfaces.Model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class is one model trained by a HyperparameterSearch, with its hyperparameters, the validation loss after every
+ * epoch it ran and how it ended. A trial is only changed by the thread that trains it, read it once the search returned.
+ * @param <D> - the training sample type
+ */
+public class Trial<D> {
+
+	public enum Status {
+		PENDING, RUNNING, COMPLETED, PRUNED, FAILED
+	}
+
+	private final int id;
+	private final Hyperparameters hyperparameters;
+
+	private Status status = Status.PENDING;
+	private final List<Double> losses = new ArrayList<Double>();
+	private Model<?, ?, D> model;
+	private Throwable error;
+	private long nanos;
+
+	Trial(int id, Hyperparameters hyperparameters) {
+		this.id = id;
+		this.hyperparameters = hyperparameters;
+	}
+
+	void start(Model<?, ?, D> model) {
+		this.model = model;
+		this.status = Status.RUNNING;
+	}
+
+	/**
+	 * @param epoch - the epoch the loss was measured after, counted from 1
+	 * @param loss - the validation loss
+	 */
+	void report(int epoch, double loss) {
+		while (losses.size() < epoch - 1)
+			losses.add(Double.NaN);
+		if (losses.size() == epoch - 1)
+			losses.add(loss);
+		else
+			losses.set(epoch - 1, loss);
+	}
+
+	/**
+	 * @param status - how the trial ended
+	 * @param nanos - the wall time it trained for
+	 * @param error - what it threw, null unless it failed
+	 */
+	void finish(Status status, long nanos, Throwable error) {
+		this.status = status;
+		this.nanos = nanos;
+		this.error = error;
+		// Losing models are dropped so a long search only keeps the ones worth using
+		if (status != Status.COMPLETED)
+			this.model = null;
+	}
+
+	/**
+	 * @return int - the index of the trial in the order the search created them
+	 */
+	public int getId() {
+		return id;
+	}
+
+	public Hyperparameters getHyperparameters() {
+		return hyperparameters;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return List - the validation loss after every epoch the trial ran
+	 */
+	public List<Double> getLosses() {
+		return Collections.unmodifiableList(losses);
+	}
+
+	/**
+	 * @return int - the number of epochs the trial trained for, fewer than the budget if it was pruned
+	 */
+	public int getEpochs() {
+		return losses.size();
+	}
+
+	/**
+	 * @return double - the validation loss after the last epoch the trial ran, NaN if it never finished one
+	 */
+	public double getLoss() {
+		return losses.isEmpty() ? Double.NaN : losses.get(losses.size() - 1);
+	}
+
+	/**
+	 * @return double - the lowest validation loss of any epoch, NaN if it never finished one
+	 */
+	public double getBestLoss() {
+		double best = Double.NaN;
+		for (double loss : losses) {
+			if (!Double.isNaN(loss) && (Double.isNaN(best) || loss < best))
+				best = loss;
+		}
+		return best;
+	}
+
+	/**
+	 * @return Model - the trained model of a completed trial, null for pruned and failed ones
+	 */
+	public Model<?, ?, D> getModel() {
+		return model;
+	}
+
+	/**
+	 * @return Throwable - what a failed trial threw, null otherwise
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * @return String - one line with the id, status, final loss, epochs and hyperparameters
+	 */
+	@Override
+	public String toString() {
+		return String.format("trial %3d %-9s loss %-10.5g epochs %3d %6.2f s %s%s", id, status, getLoss(), getEpochs(), nanos / 1e9,
+				hyperparameters, error == null ? "" : " " + error);
+	}
+}
@@ -0,0 +1,19 @@
+package tuning;
+
+import interfaces.Model;
+
+/**
+ * This interface builds the untrained model of one trial from its hyperparameters, e.g. a NeuralNetwork with the
+ * layer widths of the trial. It is called on the trial's thread, so it must not share mutable state between models.
+ * The model must implement interfaces.Monitored so the search can watch its validation loss.
+ * @param <D> - the training sample type
+ */
+@FunctionalInterface
+public interface TrialFactory<D> {
+
+	/**
+	 * @param hyperparameters - the values of the trial
+	 * @return Model - a fresh model
+	 */
+	public Model<?, ?, D> create(Hyperparameters hyperparameters);
+}
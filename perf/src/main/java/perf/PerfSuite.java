@@ -0,0 +1,289 @@
+package perf;
+
+import java.util.ArrayList;
+
+import linreg.LinRegData;
+import linreg.LinearRegression;
+import logreg.LogRegData;
+import logreg.LogisticRegression;
+import math.CounterRandom;
+import math.RandomSource;
+import math.Vector;
+import nn.Dense;
+import nn.Initializer;
+import nn.NNData;
+import nn.NeuralNetwork;
+import nn.activationFunctions.ReLU;
+import nn.activationFunctions.Softmax;
+import training.EarlyStopping;
+import training.TrainingRun;
+
+/**
+ * Reduced size versions of the regression and MNIST demos with throughput and quality assertions.
+ * Every dataset is generated from a fixed seed, so a run needs no downloads, no data files and no network.
+ *
+ * Each check trains once to warm up, then reports the best of three timed runs. The throughput floors are
+ * deliberately loose (about a quarter of what one core of a small VM reaches) so only real regressions fail; scale them with
+ * -Dperf.floorScale (e.g. 0 to only check quality on a slow CI machine, 2 to tighten them).
+ *
+ * Exits with status 1 if any check fails.
+ */
+public class PerfSuite {
+
+	private static final double FLOOR_SCALE = Double.parseDouble(System.getProperty("perf.floorScale", "1.0"));
+	private static final int RUNS = 3;
+
+	private final ArrayList<String> failures = new ArrayList<String>();
+
+	public static void main(String[] args) {
+
+		PerfSuite suite = new PerfSuite();
+
+		suite.linearRegression();
+		suite.logisticRegression();
+		suite.mnist();
+		suite.earlyStopping();
+
+		if (!suite.failures.isEmpty()) {
+			System.out.println("\n" + suite.failures.size() + " performance check(s) failed:");
+			for (String failure : suite.failures) {
+				System.out.println("  " + failure);
+			}
+			System.exit(1);
+		}
+
+		System.out.println("\nAll performance checks passed.");
+	}
+
+	//Checks
+
+	/**
+	 * LinRegTest at 20 features, 5000 samples and 20 epochs.
+	 */
+	private void linearRegression() {
+
+		int dimensions = 20;
+		int epochs = 20;
+		LinRegData[] training = linearData(5000, dimensions, 1L);
+		LinRegData[] testing = linearData(1000, dimensions, 2L);
+
+		double best = Double.MAX_VALUE;
+		double loss = 0;
+
+		for (int run = 0; run <= RUNS; run++) {
+			LinearRegression model = new LinearRegression(dimensions);
+			long start = System.nanoTime();
+			model.train(training, testing, 100, 0.01, epochs, false);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			if (run > 0)
+				best = Math.min(best, seconds);
+			loss = model.getLoss(testing);
+		}
+
+		report("linreg", "samples/s", (double) training.length * epochs / best, 2.5e5);
+		check("linreg", "test loss", loss, 1.0);
+	}
+
+	/**
+	 * LogRegTest at 50 features, 5000 samples and 20 epochs.
+	 */
+	private void logisticRegression() {
+
+		int dimensions = 50;
+		int epochs = 20;
+		LogRegData[] training = logisticData(5000, dimensions, 3L);
+		LogRegData[] testing = logisticData(1000, dimensions, 4L);
+
+		double best = Double.MAX_VALUE;
+		double accuracy = 0;
+
+		for (int run = 0; run <= RUNS; run++) {
+			LogisticRegression model = new LogisticRegression(dimensions);
+			long start = System.nanoTime();
+			model.train(training, testing, 100, 0.1, epochs, false);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			if (run > 0)
+				best = Math.min(best, seconds);
+
+			int correct = 0;
+			for (LogRegData sample : testing) {
+				if ((model.compute(sample.getData()) > .5) == sample.getLabel())
+					correct++;
+			}
+			accuracy = (double) correct / testing.length;
+		}
+
+		report("logreg", "samples/s", (double) training.length * epochs / best, 7.5e4);
+		checkAtLeast("logreg", "test accuracy", accuracy, 0.9);
+	}
+
+	/**
+	 * NNTest with the same 784-128-10 network on 2000 MNIST shaped samples for 2 epochs.
+	 * The images are noisy copies of one random prototype per digit, since the repository does not ship MNIST images.
+	 */
+	private void mnist() {
+
+		int epochs = 2;
+		NNData[] training = imageData(2000, 5L);
+		NNData[] testing = imageData(500, 6L);
+
+		double best = Double.MAX_VALUE;
+		double inferenceBest = Double.MAX_VALUE;
+		double accuracy = 0;
+
+		for (int run = 0; run <= RUNS; run++) {
+
+			RandomSource random = new CounterRandom(7L);
+			NeuralNetwork model = new NeuralNetwork();
+			model.addLayer(new Dense(784, 128, Initializer.HE, random.split(0)));
+			model.addLayer(new ReLU());
+			model.addLayer(new Dense(128, 10, Initializer.XAVIER, random.split(1)));
+			model.addLayer(new Softmax());
+
+			long start = System.nanoTime();
+			model.train(training, testing, 64, 0.01, epochs, false);
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			Vector[] inputs = new Vector[testing.length];
+			Vector[] outputs = new Vector[testing.length];
+			for (int i = 0; i < testing.length; i++) {
+				inputs[i] = testing[i].getData();
+			}
+			long inferenceStart = System.nanoTime();
+			model.computeBatch(inputs, outputs);
+			double inferenceSeconds = (System.nanoTime() - inferenceStart) / 1e9;
+
+			if (run > 0) {
+				best = Math.min(best, seconds);
+				inferenceBest = Math.min(inferenceBest, inferenceSeconds);
+			}
+			accuracy = model.getAccuracy(testing);
+		}
+
+		report("mnist", "train samples/s", (double) training.length * epochs / best, 1.5e3);
+		report("mnist", "inference samples/s", testing.length / inferenceBest, 3.0e3);
+		checkAtLeast("mnist", "test accuracy", accuracy, 0.9);
+	}
+
+	/**
+	 * Early stopping on the gradient norm, which is checked at epoch ends rather than evaluations, must still restore the best weights.
+	 */
+	private void earlyStopping() {
+
+		int dimensions = 20;
+		LinRegData[] training = linearData(5000, dimensions, 1L);
+		LinRegData[] testing = linearData(1000, dimensions, 2L);
+
+		LinearRegression model = new LinearRegression(dimensions);
+		EarlyStopping stopping = new EarlyStopping(TrainingRun.GRADIENT_NORM, 2, 0, .5);
+		model.getCallbacks().add(stopping);
+		model.train(training, testing, 100, 0.01, 20, false);
+
+		checkTrue("stop", "grad norm restored", stopping.isRestored());
+	}
+
+	//Assertions
+
+	private void report(String check, String metric, double value, double floor) {
+
+		double scaledFloor = floor * FLOOR_SCALE;
+		boolean passed = value >= scaledFloor;
+
+		System.out.println(String.format("%-8s %-22s %14.1f   (floor %.1f) %s", check, metric, value, scaledFloor, passed ? "ok" : "FAILED"));
+
+		if (!passed)
+			failures.add(check + " " + metric + " " + String.format("%.1f", value) + " is below the floor of " + String.format("%.1f", scaledFloor));
+	}
+
+	private void check(String check, String metric, double value, double ceiling) {
+
+		boolean passed = value <= ceiling;
+
+		System.out.println(String.format("%-8s %-22s %14.6f   (max %.6f) %s", check, metric, value, ceiling, passed ? "ok" : "FAILED"));
+
+		if (!passed)
+			failures.add(check + " " + metric + " " + value + " is above " + ceiling);
+	}
+
+	private void checkAtLeast(String check, String metric, double value, double floor) {
+
+		boolean passed = value >= floor;
+
+		System.out.println(String.format("%-8s %-22s %14.6f   (min %.6f) %s", check, metric, value, floor, passed ? "ok" : "FAILED"));
+
+		if (!passed)
+			failures.add(check + " " + metric + " " + value + " is below " + floor);
+	}
+
+	private void checkTrue(String check, String metric, boolean value) {
+
+		System.out.println(String.format("%-8s %-22s %14s   %s", check, metric, value, value ? "ok" : "FAILED"));
+
+		if (!value)
+			failures.add(check + " " + metric + " is false");
+	}
+
+	//Data
+
+	private static LinRegData[] linearData(int size, int dimensions, long seed) {
+
+		RandomSource target = new CounterRandom(42L);
+		Vector weights = new Vector(dimensions);
+		weights.setValuesRandom(target);
+
+		RandomSource random = new CounterRandom(seed);
+		LinRegData[] data = new LinRegData[size];
+
+		for (int i = 0; i < size; i++) {
+			Vector x = new Vector(dimensions);
+			x.setValuesRandom(random.split(i));
+			double noise = .01 * random.gaussian(-1 - i);
+			data[i] = new LinRegData(x, weights.dot(x) + 3 + noise);
+		}
+
+		return data;
+	}
+
+	private static LogRegData[] logisticData(int size, int dimensions, long seed) {
+
+		RandomSource target = new CounterRandom(43L);
+		Vector weights = new Vector(dimensions);
+		weights.setValuesRandom(target);
+
+		RandomSource random = new CounterRandom(seed);
+		LogRegData[] data = new LogRegData[size];
+
+		for (int i = 0; i < size; i++) {
+			Vector x = new Vector(dimensions);
+			x.setValuesRandom(random.split(i));
+			data[i] = new LogRegData(x, weights.dot(x) + .5 > 0);
+		}
+
+		return data;
+	}
+
+	private static NNData[] imageData(int size, long seed) {
+
+		RandomSource prototypes = new CounterRandom(44L);
+		RandomSource random = new CounterRandom(seed);
+		NNData[] data = new NNData[size];
+
+		for (int i = 0; i < size; i++) {
+
+			int digit = i % 10;
+			Vector x = new Vector(784);
+
+			for (int p = 0; p < 784; p++) {
+				double ink = prototypes.uniform((long) digit * 784 + p) > .8 ? 1.0 : 0.0;
+				double noise = .3 * random.uniform((long) i * 784 + p);
+				x.setValue(p, Math.min(1.0, ink * .7 + noise));
+			}
+
+			Vector y = new Vector(10);
+			y.setValue(digit, 1.0);
+			data[i] = new NNData(x, y);
+		}
+
+		return data;
+	}
+}